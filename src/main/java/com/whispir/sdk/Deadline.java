@@ -0,0 +1,135 @@
+package com.whispir.sdk;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The time by which a call to the SDK must complete, including any retries,
+ * failover and waits after a 429.
+ *
+ * <p>
+ * A deadline applies to every SDK call made by the current thread while it
+ * is entered. Deadlines nest, the earliest one wins:
+ * </p>
+ *
+ * <pre>
+ * try (Deadline.Scope scope = Deadline.after(2000).enter()) {
+ * 	sdk.sendMessage(workspaceId, recipient, subject, content);
+ * }
+ * </pre>
+ *
+ * A call that runs out of time is aborted and throws
+ * {@link com.whispir.sdk.exceptions.DeadlineExceededException}. Calls queued
+ * to other threads, such as the priority sendMessage, take their deadline
+ * from the thread that runs them.
+ *
+ * @since 2.4
+ */
+public final class Deadline {
+
+	private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<Deadline>();
+
+	private static final Deadline NONE = new Deadline(Long.MAX_VALUE);
+
+	private final long deadlineNanos;
+
+	private Deadline(long deadlineNanos) {
+		this.deadlineNanos = deadlineNanos;
+	}
+
+	/**
+	 * @return a deadline the given time from now
+	 */
+	public static Deadline after(long millis) {
+		return new Deadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, millis)));
+	}
+
+	/**
+	 * @return a deadline that never passes
+	 */
+	public static Deadline none() {
+		return NONE;
+	}
+
+	/**
+	 * @return the deadline entered by the current thread, or
+	 *         {@link #none()}
+	 */
+	public static Deadline current() {
+		Deadline current = CURRENT.get();
+		return current == null ? NONE : current;
+	}
+
+	/**
+	 * @return the earlier of this deadline and the other
+	 */
+	public Deadline earliest(Deadline other) {
+		if (other == null || this == NONE) {
+			return other == null ? this : other;
+		}
+		if (other == NONE) {
+			return this;
+		}
+		// Compared by difference, as nanoTime may overflow
+		return other.deadlineNanos - deadlineNanos < 0 ? other : this;
+	}
+
+	/**
+	 * @return true if this deadline never passes
+	 */
+	public boolean isNone() {
+		return this == NONE;
+	}
+
+	/**
+	 * @return the milliseconds left, 0 once passed, or Long.MAX_VALUE if the
+	 *         deadline never passes
+	 */
+	public long remainingMillis() {
+		if (this == NONE) {
+			return Long.MAX_VALUE;
+		}
+
+		long remaining = deadlineNanos - System.nanoTime();
+		return remaining <= 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(remaining + 999999);
+	}
+
+	public boolean isExpired() {
+		return this != NONE && deadlineNanos - System.nanoTime() <= 0;
+	}
+
+	/**
+	 * Applies the deadline (or an earlier one already entered) to SDK calls
+	 * made by the current thread, until the scope is closed.
+	 */
+	public Scope enter() {
+		Deadline previous = CURRENT.get();
+		CURRENT.set(earliest(previous));
+		return new Scope(previous);
+	}
+
+	@Override
+	public String toString() {
+		return this == NONE ? "Deadline [none]" : "Deadline [remainingMillis=" + remainingMillis() + "]";
+	}
+
+	/**
+	 * Restores the deadline that was current before {@link Deadline#enter()}.
+	 */
+	public static final class Scope implements AutoCloseable {
+
+		private final Deadline previous;
+
+		private Scope(Deadline previous) {
+			this.previous = previous;
+		}
+
+		@Override
+		public void close() {
+			if (previous == null) {
+				CURRENT.remove();
+			} else {
+				CURRENT.set(previous);
+			}
+		}
+	}
+}
@@ -0,0 +1,62 @@
+package com.whispir.sdk;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A message to be sent, with the same fields as
+ * {@link WhispirSDK#sendMessage(String, String, String, Map, Map)}.
+ * 
+ * Used where messages are queued or streamed rather than sent directly.
+ * 
+ * @since 2.4
+ */
+public class MessageRequest {
+
+	private final String workspaceId;
+	private final String recipient;
+	private final String subject;
+	private final Map<String, String> content;
+	private final Map<String, String> options;
+
+	public MessageRequest(String recipient, String subject, String body) {
+		this("", recipient, subject, Collections.singletonMap("body", body),
+				Collections.<String, String> emptyMap());
+	}
+
+	public MessageRequest(String workspaceId, String recipient, String subject,
+			Map<String, String> content, Map<String, String> options) {
+		this.workspaceId = workspaceId == null ? "" : workspaceId;
+		this.recipient = recipient;
+		this.subject = subject;
+		this.content = content == null ? new HashMap<String, String>() : content;
+		this.options = options == null ? new HashMap<String, String>() : options;
+	}
+
+	public String getWorkspaceId() {
+		return workspaceId;
+	}
+
+	public String getRecipient() {
+		return recipient;
+	}
+
+	public String getSubject() {
+		return subject;
+	}
+
+	public Map<String, String> getContent() {
+		return content;
+	}
+
+	public Map<String, String> getOptions() {
+		return options;
+	}
+
+	@Override
+	public String toString() {
+		return "MessageRequest [workspaceId=" + workspaceId + ", recipient="
+				+ recipient + ", subject=" + subject + "]";
+	}
+}
@@ -0,0 +1,77 @@
+package com.whispir.sdk;
+
+import org.apache.http.client.methods.HttpRequestBase;
+
+import com.whispir.sdk.transport.HashedWheelTimer;
+
+/**
+ * Aborts a request when its deadline passes or the thread waiting for it is
+ * interrupted. HttpClient does not respond to interruption while blocked on a
+ * socket, so the watchdog checks on the thread's behalf every
+ * {@link #CHECK_INTERVAL} milliseconds.
+ */
+class RequestWatchdog implements Runnable {
+
+	static final long CHECK_INTERVAL = 100;
+
+	private final HttpRequestBase request;
+	private final Deadline deadline;
+	private final HashedWheelTimer timer;
+	private final Thread caller;
+
+	private volatile boolean stopped;
+	private volatile boolean timedOut;
+	private volatile boolean interrupted;
+	private volatile HashedWheelTimer.Timeout timeout;
+
+	RequestWatchdog(HttpRequestBase request, Deadline deadline, HashedWheelTimer timer) {
+		this.request = request;
+		this.deadline = deadline;
+		this.timer = timer;
+		this.caller = Thread.currentThread();
+	}
+
+	void start() {
+		schedule();
+	}
+
+	void stop() {
+		stopped = true;
+		HashedWheelTimer.Timeout current = timeout;
+
+		if (current != null) {
+			current.cancel();
+		}
+	}
+
+	boolean isTimedOut() {
+		return timedOut;
+	}
+
+	boolean isInterrupted() {
+		return interrupted;
+	}
+
+	@Override
+	public void run() {
+		if (stopped) {
+			return;
+		}
+
+		if (deadline.isExpired()) {
+			timedOut = true;
+			request.abort();
+		} else if (caller.isInterrupted()) {
+			interrupted = true;
+			request.abort();
+		} else {
+			schedule();
+		}
+	}
+
+	private void schedule() {
+		if (!stopped) {
+			timeout = timer.schedule(this, Math.min(CHECK_INTERVAL, deadline.remainingMillis()));
+		}
+	}
+}
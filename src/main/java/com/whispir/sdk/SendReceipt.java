@@ -0,0 +1,69 @@
+package com.whispir.sdk;
+
+import java.util.Map;
+
+/**
+ * The status and ID of a message sent without reading the response body,
+ * for senders that only need to know the message was accepted.
+ *
+ * @since 2.4
+ */
+public final class SendReceipt {
+
+	private final int statusCode;
+	private final String messageId;
+
+	public SendReceipt(int statusCode, String messageId) {
+		this.statusCode = statusCode;
+		this.messageId = messageId;
+	}
+
+	/**
+	 * @return the receipt of a response, with the ID taken from its Location
+	 *         header
+	 */
+	public static SendReceipt of(WhispirResponse response) {
+		Map<String, String> headers = response.getResponseHeaders();
+		return new SendReceipt(response.getStatusCode(), headers == null ? null
+				: idOf(headers.get("Location")));
+	}
+
+	/**
+	 * @return the last path segment of a resource URI, without its query, or
+	 *         null if there is no URI
+	 */
+	public static String idOf(String location) {
+		if (location == null) {
+			return null;
+		}
+
+		int end = location.indexOf('?') > -1 ? location.indexOf('?') : location.length();
+		return location.substring(location.lastIndexOf('/', end - 1) + 1, end);
+	}
+
+	/**
+	 * @return the HTTP status code, or 0 if there was no response
+	 */
+	public int getStatusCode() {
+		return statusCode;
+	}
+
+	/**
+	 * @return the ID of the message, or null if none was returned
+	 */
+	public String getMessageId() {
+		return messageId;
+	}
+
+	/**
+	 * @return true if the message was accepted (HTTP 202)
+	 */
+	public boolean isAccepted() {
+		return statusCode == 202;
+	}
+
+	@Override
+	public String toString() {
+		return "SendReceipt [statusCode=" + statusCode + ", messageId=" + messageId + "]";
+	}
+}
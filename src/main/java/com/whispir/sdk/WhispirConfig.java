@@ -0,0 +1,306 @@
+package com.whispir.sdk;
+
+import org.apache.http.HttpHost;
+import org.apache.http.auth.Credentials;
+import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.client.config.RequestConfig;
+
+/**
+ * The credentials, debug host, proxy and timeouts used by a
+ * {@link WhispirSDK}.
+ *
+ * <p>
+ * A configuration is immutable, so it can be read by any number of threads
+ * without locking. To change it, build a new one from the current with
+ * {@link #toBuilder()} and give it to {@link WhispirSDK#setConfig(WhispirConfig)}.
+ * Requests already in flight finish with the configuration they started with.
+ * </p>
+ *
+ * <pre>
+ * sdk.setConfig(sdk.getConfig().toBuilder()
+ * 		.setApikey(newApikey)
+ * 		.setPassword(newPassword)
+ * 		.build());
+ * </pre>
+ *
+ * @since 2.4
+ */
+public final class WhispirConfig {
+
+	public static final long DEFAULT_CONNECT_TIMEOUT = 10000;
+	public static final long DEFAULT_SOCKET_TIMEOUT = 30000;
+	public static final long DEFAULT_CONNECTION_REQUEST_TIMEOUT = 10000;
+	public static final long DEFAULT_REQUEST_TIMEOUT = 0;
+
+	private final String apikey;
+	private final String username;
+	private final String password;
+	private final String debugHost;
+	private final RequestConfig proxy;
+	private final Credentials proxyCredentials;
+	private final long connectTimeout;
+	private final long socketTimeout;
+	private final long connectionRequestTimeout;
+	private final long requestTimeout;
+
+	private WhispirConfig(Builder builder) {
+		this.apikey = builder.apikey;
+		this.username = builder.username;
+		this.password = builder.password;
+		this.debugHost = builder.debugHost;
+		this.proxy = builder.proxy;
+		this.proxyCredentials = builder.proxyCredentials;
+		this.connectTimeout = builder.connectTimeout;
+		this.socketTimeout = builder.socketTimeout;
+		this.connectionRequestTimeout = builder.connectionRequestTimeout;
+		this.requestTimeout = builder.requestTimeout;
+	}
+
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * @return a builder holding the values of this configuration
+	 */
+	public Builder toBuilder() {
+		Builder builder = new Builder();
+		builder.apikey = apikey;
+		builder.username = username;
+		builder.password = password;
+		builder.debugHost = debugHost;
+		builder.proxy = proxy;
+		builder.proxyCredentials = proxyCredentials;
+		builder.connectTimeout = connectTimeout;
+		builder.socketTimeout = socketTimeout;
+		builder.connectionRequestTimeout = connectionRequestTimeout;
+		builder.requestTimeout = requestTimeout;
+		return builder;
+	}
+
+	public String getApikey() {
+		return apikey;
+	}
+
+	public String getUsername() {
+		return username;
+	}
+
+	public String getPassword() {
+		return password;
+	}
+
+	/**
+	 * @return the host requests are sent to instead of the production
+	 *         endpoints, or null if none is set
+	 */
+	public String getDebugHost() {
+		return debugHost;
+	}
+
+	public boolean isDebug() {
+		return debugHost != null;
+	}
+
+	/**
+	 * @return the request config routing requests through the proxy, or null
+	 *         if no proxy is set
+	 */
+	public RequestConfig getProxy() {
+		return proxy;
+	}
+
+	public boolean isProxyEnabled() {
+		return proxy != null;
+	}
+
+	/**
+	 * @return the credentials for the proxy, or null if it needs none
+	 */
+	public Credentials getProxyCredentials() {
+		return proxyCredentials;
+	}
+
+	/**
+	 * @return the longest wait to open a connection, in milliseconds
+	 */
+	public long getConnectTimeout() {
+		return connectTimeout;
+	}
+
+	/**
+	 * @return the longest wait for data on an open connection, in
+	 *         milliseconds
+	 */
+	public long getSocketTimeout() {
+		return socketTimeout;
+	}
+
+	/**
+	 * @return the longest wait to lease a connection from the pool, in
+	 *         milliseconds
+	 */
+	public long getConnectionRequestTimeout() {
+		return connectionRequestTimeout;
+	}
+
+	/**
+	 * @return the deadline of each call, in milliseconds, or 0 if a call is
+	 *         only bounded by the other timeouts and any {@link Deadline}
+	 *         entered by the caller
+	 */
+	public long getRequestTimeout() {
+		return requestTimeout;
+	}
+
+	@Override
+	public String toString() {
+		// Credentials are left out so configurations can be logged
+		return "WhispirConfig [username=" + username + ", debugHost=" + debugHost
+				+ ", proxy=" + (proxy == null ? null : proxy.getProxy()) + "]";
+	}
+
+	/**
+	 * Builds a {@link WhispirConfig}. A builder is not thread safe, but the
+	 * configurations it builds are.
+	 */
+	public static final class Builder {
+
+		private String apikey;
+		private String username;
+		private String password;
+		private String debugHost;
+		private RequestConfig proxy;
+		private Credentials proxyCredentials;
+		private long connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+		private long socketTimeout = DEFAULT_SOCKET_TIMEOUT;
+		private long connectionRequestTimeout = DEFAULT_CONNECTION_REQUEST_TIMEOUT;
+		private long requestTimeout = DEFAULT_REQUEST_TIMEOUT;
+
+		private Builder() {
+		}
+
+		public Builder setApikey(String apikey) {
+			this.apikey = apikey;
+			return this;
+		}
+
+		public Builder setUsername(String username) {
+			this.username = username;
+			return this;
+		}
+
+		public Builder setPassword(String password) {
+			this.password = password;
+			return this;
+		}
+
+		/**
+		 * @param debugHost
+		 *            - in the form xxxxxxx.whispir.net:8080 /
+		 *            xxxx.whispir.com, or with a scheme such as
+		 *            http://localhost:8080. Null or empty to use the
+		 *            production endpoints.
+		 */
+		public Builder setDebugHost(String debugHost) {
+			if (debugHost != null && !"".equals(debugHost)) {
+				this.debugHost = debugHost.replaceAll("/api", "");
+			} else {
+				this.debugHost = null;
+			}
+			return this;
+		}
+
+		public Builder setProxy(String host, int port, boolean httpsEnabled) {
+			return setProxy(host, port, httpsEnabled, "", "");
+		}
+
+		/**
+		 * @param proxyUsername
+		 *            - empty if the proxy needs no credentials
+		 * @param proxyPassword
+		 *            - empty if the proxy needs no credentials
+		 */
+		public Builder setProxy(String host, int port, boolean httpsEnabled,
+				String proxyUsername, String proxyPassword) {
+
+			String scheme = "http";
+
+			if (httpsEnabled) {
+				scheme = "https";
+			}
+
+			this.proxy = RequestConfig.custom()
+					.setProxy(new HttpHost(host, port, scheme)).build();
+
+			if (proxyUsername != null && !"".equals(proxyUsername)
+					&& proxyPassword != null && !"".equals(proxyPassword)) {
+				this.proxyCredentials = new UsernamePasswordCredentials(
+						proxyUsername, proxyPassword);
+			} else {
+				this.proxyCredentials = null;
+			}
+			return this;
+		}
+
+		/**
+		 * Connects directly again, without a proxy.
+		 */
+		public Builder clearProxy() {
+			this.proxy = null;
+			this.proxyCredentials = null;
+			return this;
+		}
+
+		/**
+		 * @param connectTimeout
+		 *            - the longest wait to open a connection, in
+		 *            milliseconds, 0 for no limit
+		 */
+		public Builder setConnectTimeout(long connectTimeout) {
+			this.connectTimeout = checkTimeout(connectTimeout);
+			return this;
+		}
+
+		/**
+		 * @param socketTimeout
+		 *            - the longest wait for data on an open connection, in
+		 *            milliseconds, 0 for no limit
+		 */
+		public Builder setSocketTimeout(long socketTimeout) {
+			this.socketTimeout = checkTimeout(socketTimeout);
+			return this;
+		}
+
+		/**
+		 * @param connectionRequestTimeout
+		 *            - the longest wait to lease a connection from the pool,
+		 *            in milliseconds, 0 for no limit
+		 */
+		public Builder setConnectionRequestTimeout(long connectionRequestTimeout) {
+			this.connectionRequestTimeout = checkTimeout(connectionRequestTimeout);
+			return this;
+		}
+
+		/**
+		 * @param requestTimeout
+		 *            - the deadline of each call including retries and
+		 *            waits, in milliseconds, 0 for no deadline
+		 */
+		public Builder setRequestTimeout(long requestTimeout) {
+			this.requestTimeout = checkTimeout(requestTimeout);
+			return this;
+		}
+
+		private static long checkTimeout(long timeout) {
+			if (timeout < 0 || timeout > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("Timeouts must be between 0 and Integer.MAX_VALUE");
+			}
+			return timeout;
+		}
+
+		public WhispirConfig build() {
+			return new WhispirConfig(this);
+		}
+	}
+}
@@ -7,6 +7,7 @@ public class WhispirResponse {
 	private String rawResponse;
 	private Map<String, String> responseMap;
 	private Map<String, String> responseHeaders;
+	private boolean notSent;
 	
 	public WhispirResponse() {
 		this.statusCode = 0;
@@ -44,4 +45,17 @@ public class WhispirResponse {
 	public void setResponseHeaders(Map<String, String> responseHeaders) {
 		this.responseHeaders = responseHeaders;
 	}
+
+	/**
+	 * @return true if there was no response because the connection could not
+	 *         be made, so the request never reached the API and can be sent
+	 *         again safely
+	 */
+	public boolean isNotSent() {
+		return notSent;
+	}
+
+	public void setNotSent(boolean notSent) {
+		this.notSent = notSent;
+	}
 }
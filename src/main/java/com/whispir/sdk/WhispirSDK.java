@@ -1,10 +1,20 @@
 package com.whispir.sdk;
 
+import java.io.Closeable;
 import java.io.IOException;
-import java.io.UnsupportedEncodingException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.UnknownHostException;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
 
+import org.apache.http.Consts;
 import org.apache.http.Header;
 import org.apache.http.HeaderIterator;
 import org.apache.http.HttpHost;
@@ -20,21 +30,43 @@ import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.client.protocol.HttpClientContext;
-import org.apache.http.entity.StringEntity;
+import org.apache.http.client.utils.URIBuilder;
+import org.apache.http.client.utils.URIUtils;
+import org.apache.http.conn.ConnectTimeoutException;
 import org.apache.http.impl.client.BasicAuthCache;
 import org.apache.http.impl.client.BasicCredentialsProvider;
 import org.apache.http.impl.auth.BasicScheme;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
 import org.apache.http.util.EntityUtils;
 
+import com.whispir.sdk.bulkhead.AdaptiveLimit;
+import com.whispir.sdk.bulkhead.AdaptiveLimits;
+import com.whispir.sdk.bulkhead.Bulkhead;
+import com.whispir.sdk.bulkhead.Bulkheads;
+import com.whispir.sdk.diagnostics.Diagnostics;
+import com.whispir.sdk.diagnostics.Level;
+import com.whispir.sdk.dispatch.Priority;
+import com.whispir.sdk.dispatch.PriorityDispatcher;
+import com.whispir.sdk.dispatch.SingleFlight;
+import com.whispir.sdk.exceptions.DeadlineExceededException;
+import com.whispir.sdk.exceptions.LoadShedException;
 import com.whispir.sdk.exceptions.WhispirSDKException;
+import com.whispir.sdk.fanout.FanOutResult;
+import com.whispir.sdk.fanout.MessageDetails;
+import com.whispir.sdk.fanout.MessageHydrator;
+import com.whispir.sdk.fanout.ScenarioTarget;
 import com.whispir.sdk.impl.MessageHelperImpl;
 import com.whispir.sdk.impl.ScenarioHelperImpl;
 import com.whispir.sdk.impl.WorkspaceHelperImpl;
 import com.whispir.sdk.interfaces.MessageHelper;
 import com.whispir.sdk.interfaces.ScenarioHelper;
 import com.whispir.sdk.interfaces.WorkspaceHelper;
+import com.whispir.sdk.recipients.RecipientValidator;
+import com.whispir.sdk.routing.EndpointRouter;
+import com.whispir.sdk.routing.HedgingPolicy;
+import com.whispir.sdk.schedule.MessageScheduler;
+import com.whispir.sdk.suppression.SuppressionFilter;
+import com.whispir.sdk.transport.PooledEntity;
+import com.whispir.sdk.transport.WhispirTransport;
 
 /**
  * WhispirAPI
@@ -43,6 +75,12 @@ import com.whispir.sdk.interfaces.WorkspaceHelper;
  * 
  * Utilises Apache HTTPClient to post simple messages via JSON.
  * 
+ * An instance is thread safe and is meant to be shared by all the threads
+ * sending for one account. Its credentials, debug host and proxy are held in
+ * an immutable {@link WhispirConfig} that can be replaced at any time, for
+ * example to rotate credentials, without locking or pausing requests. Each
+ * request uses the configuration current when it started.
+ * 
  * @author Jordan Walsh
  * @version 1.0
  * 
@@ -51,29 +89,61 @@ import com.whispir.sdk.interfaces.WorkspaceHelper;
  */
 
 public class WhispirSDK implements MessageHelper, WorkspaceHelper,
-		ScenarioHelper {
-
-	private String apikey;
-	private String username;
-	private String password;
-
-	// Used for debugging/testing purposes
-	private String debugHost;
-	private boolean debug;
+		ScenarioHelper, Closeable {
 
-	// Used for proxy purposes
-	private RequestConfig proxy;
-	private boolean proxyEnabled;
-	private Credentials proxyCredentials;
+	// Credentials, debug host and proxy, replaced as a whole when any changes
+	private final AtomicReference<WhispirConfig> config = new AtomicReference<WhispirConfig>(
+			WhispirConfig.builder().build());
 
-	// Helpers for Modularisation of the code
-	MessageHelper messageHelper;
-	WorkspaceHelper workspaceHelper;
-	ScenarioHelper scenarioHelper;
+	// Helpers for Modularisation of the code, created on first use so that a
+	// short-lived process only loads what it calls
+	private volatile MessageHelper messageHelper;
+	private volatile WorkspaceHelper workspaceHelper;
+	private volatile ScenarioHelper scenarioHelper;
 
 	// endpoint
 	private WhispirEndPoints APIEndPoint;
 
+	// Optional multi-region routing, replaces the single endpoint when set
+	private volatile EndpointRouter endpointRouter;
+
+	// How long to wait before retrying a request refused with a 429
+	private static final long RATE_LIMIT_WAIT = 1000;
+
+	// Optional hedging of GET requests
+	private volatile HedgingPolicy hedgingPolicy;
+
+	// Optional isolation of traffic by resource type
+	private volatile Bulkheads bulkheads;
+
+	// Optional concurrency limit per endpoint that follows its latency
+	private volatile AdaptiveLimits adaptiveLimits;
+
+	// Optional sharing of identical concurrent GETs
+	private volatile SingleFlight singleFlight;
+
+	// Optional local validation of recipients
+	private volatile RecipientValidator recipientValidator;
+
+	// Optional do-not-contact list checked before messages are sent
+	private volatile SuppressionFilter suppressionFilter;
+
+	// Diagnostic logging, off unless set
+	private volatile Diagnostics diagnostics = Diagnostics.off();
+
+	// Pooled connections, either owned by this instance or shared
+	private volatile WhispirTransport transport;
+	private boolean ownsTransport;
+
+	// Priority lanes for asynchronous sends, created on first use if not set
+	private volatile PriorityDispatcher dispatcher;
+	private boolean ownsDispatcher;
+
+	// Holds scheduled messages until they are due, created on first use if
+	// not set
+	private volatile MessageScheduler scheduler;
+	private boolean ownsScheduler;
+
 	@SuppressWarnings("unused")
 	private WhispirSDK() {
 	}
@@ -106,15 +176,30 @@ public class WhispirSDK implements MessageHelper, WorkspaceHelper,
 			throw new WhispirSDKException(WhispirSDKConstants.NO_AUTH_ERROR);
 		}
 
-		this.apikey = apikey;
-		this.username = username;
-		this.password = password;
-		this.proxyEnabled = false;
-		this.proxyCredentials = null;
+		this.config.set(WhispirConfig.builder()
+				.setApikey(apikey)
+				.setUsername(username)
+				.setPassword(password)
+				.build());
 		this.APIEndPoint = EndPoint;
-	
+	}
+
+	/**
+	 * Instantiates the WhispirAPI object with multi-region routing.
+	 * 
+	 * Requests are sent to the healthiest endpoint of the router, and fail
+	 * over to the other endpoints when a region is slow or unavailable.
+	 * 
+	 * @param apikey
+	 * @param username
+	 * @param password
+	 * @param router
+	 */
 
-		initHelpers();
+	public WhispirSDK(String apikey, String username, String password, EndpointRouter router)
+			throws WhispirSDKException {
+		this(apikey, username, password, router.primary());
+		this.endpointRouter = router;
 	}
 
 	/**
@@ -141,99 +226,436 @@ public class WhispirSDK implements MessageHelper, WorkspaceHelper,
 			throw new WhispirSDKException(WhispirSDKConstants.NO_AUTH_ERROR);
 		}
 
-		this.apikey = apikey;
-		this.username = username;
-		this.password = password;
-		this.proxyEnabled = false;
-		this.proxyCredentials = null;
+		this.config.set(WhispirConfig.builder()
+				.setApikey(apikey)
+				.setUsername(username)
+				.setPassword(password)
+				.setDebugHost(debugHost)
+				.build());
+	}
+
+	/**
+	 * @return the configuration new requests are sent with
+	 */
+	public WhispirConfig getConfig() {
+		return config.get();
+	}
 
-		if (debugHost != null && !"".equals(debugHost)) {
-			this.setDebugHost(debugHost);
+	/**
+	 * Replaces the configuration. Use this rather than the individual setters
+	 * to change several values at once, such as an apikey and password being
+	 * rotated together, so that no request is sent with half of the change.
+	 * 
+	 * @param config
+	 */
+	public void setConfig(WhispirConfig config) {
+		if (config == null) {
+			throw new IllegalArgumentException("A configuration is required");
 		}
+		this.config.set(config);
+	}
 
-		initHelpers();
+	/**
+	 * Replaces the configuration only if it is still the expected one, for
+	 * changes based on the current configuration made by several threads.
+	 * 
+	 * @param expected
+	 * @param config
+	 * @return true if the configuration was replaced
+	 */
+	public boolean compareAndSetConfig(WhispirConfig expected, WhispirConfig config) {
+		if (config == null) {
+			throw new IllegalArgumentException("A configuration is required");
+		}
+		return this.config.compareAndSet(expected, config);
 	}
 
 	public void setApikey(String apikey) {
-		this.apikey = apikey;
+		WhispirConfig current;
+		do {
+			current = config.get();
+		} while (!config.compareAndSet(current, current.toBuilder().setApikey(apikey).build()));
 	}
 
 	public void setUsername(String username) {
-		this.username = username;
+		WhispirConfig current;
+		do {
+			current = config.get();
+		} while (!config.compareAndSet(current, current.toBuilder().setUsername(username).build()));
 	}
 
 	public void setPassword(String password) {
-		this.password = password;
+		WhispirConfig current;
+		do {
+			current = config.get();
+		} while (!config.compareAndSet(current, current.toBuilder().setPassword(password).build()));
 	}
 
 	public void setDebugHost(String debugHost) {
-		if (!"".equals(debugHost)) {
-			debugHost = debugHost.replaceAll("/api", "");
-			this.debugHost = debugHost;
-			this.debug = true;
-		} else {
-			this.debug = false;
+		WhispirConfig current;
+		do {
+			current = config.get();
+		} while (!config.compareAndSet(current, current.toBuilder().setDebugHost(debugHost).build()));
+	}
+
+	/**
+	 * Routes requests across multiple regional endpoints. Set to null to go
+	 * back to the single endpoint given at construction.
+	 * 
+	 * @param endpointRouter
+	 */
+	public void setEndpointRouter(EndpointRouter endpointRouter) {
+		this.endpointRouter = endpointRouter;
+	}
+
+	public EndpointRouter getEndpointRouter() {
+		return endpointRouter;
+	}
+
+	/**
+	 * Hedges GET requests: a slow GET is sent a second time on another
+	 * connection and the first answer is used. Set to null to stop hedging.
+	 * 
+	 * @param hedgingPolicy
+	 */
+	public void setHedgingPolicy(HedgingPolicy hedgingPolicy) {
+		this.hedgingPolicy = hedgingPolicy;
+	}
+
+	public HedgingPolicy getHedgingPolicy() {
+		return hedgingPolicy;
+	}
+
+	/**
+	 * Limits the requests of each resource type, so a slow class of traffic
+	 * cannot use up the connections another needs. Set to null to remove the
+	 * limits.
+	 * 
+	 * @param bulkheads
+	 */
+	public void setBulkheads(Bulkheads bulkheads) {
+		this.bulkheads = bulkheads;
+	}
+
+	public Bulkheads getBulkheads() {
+		return bulkheads;
+	}
+
+	/**
+	 * Limits the requests in flight to each endpoint, raising the limit while
+	 * the endpoint answers quickly and cutting it when it slows down or
+	 * refuses requests. Requests that would wait too long for a slot are shed
+	 * before they are sent. With an {@link EndpointRouter}, a shed request is
+	 * tried on the next endpoint, and the rejection policy applies once every
+	 * endpoint has shed it. Set to null to remove the limits.
+	 * 
+	 * @param adaptiveLimits
+	 */
+	public void setAdaptiveLimits(AdaptiveLimits adaptiveLimits) {
+		this.adaptiveLimits = adaptiveLimits;
+	}
+
+	public AdaptiveLimits getAdaptiveLimits() {
+		return adaptiveLimits;
+	}
+
+	/**
+	 * Shares one request between concurrent identical GETs, e.g. when many
+	 * threads call getWorkspaces() at the same moment. Set to null to send
+	 * every GET.
+	 * 
+	 * @param singleFlight
+	 */
+	public void setSingleFlight(SingleFlight singleFlight) {
+		this.singleFlight = singleFlight;
+	}
+
+	public SingleFlight getSingleFlight() {
+		return singleFlight;
+	}
+
+	/**
+	 * Checks and normalises the recipients of messages and scenarios before
+	 * they are sent. A rejected recipient returns HTTP 422 without a request,
+	 * with the recipient and the reason in the response map. Set to null to
+	 * only check the recipients are present.
+	 * 
+	 * @param recipientValidator
+	 */
+	public void setRecipientValidator(RecipientValidator recipientValidator) {
+		this.recipientValidator = recipientValidator;
+	}
+
+	public RecipientValidator getRecipientValidator() {
+		return recipientValidator;
+	}
+
+	/**
+	 * Drops the recipients of messages that are on a do-not-contact list. A
+	 * message whose recipients are all suppressed returns HTTP 422 without a
+	 * request. Set to null to send to every recipient.
+	 * 
+	 * @param suppressionFilter
+	 */
+	public void setSuppressionFilter(SuppressionFilter suppressionFilter) {
+		this.suppressionFilter = suppressionFilter;
+	}
+
+	public SuppressionFilter getSuppressionFilter() {
+		return suppressionFilter;
+	}
+
+	/**
+	 * Logs requests, connection errors and slow requests to the sinks of the
+	 * diagnostics, without blocking the requests. Set to null to stop
+	 * logging. Diagnostics set here are not closed by {@link #close()}.
+	 * 
+	 * @param diagnostics
+	 */
+	public void setDiagnostics(Diagnostics diagnostics) {
+		this.diagnostics = diagnostics == null ? Diagnostics.off() : diagnostics;
+	}
+
+	/**
+	 * @return the diagnostics of this instance, {@link Diagnostics#off()} if
+	 *         none were set
+	 */
+	public Diagnostics getDiagnostics() {
+		return diagnostics;
+	}
+
+	/**
+	 * Shares a pooled transport with other WhispirSDK instances (for example
+	 * one per account). A shared transport is not closed by {@link #close()}.
+	 * 
+	 * @param transport
+	 */
+	public synchronized void setTransport(WhispirTransport transport) {
+		closeOwnedTransport();
+		this.transport = transport;
+		this.ownsTransport = false;
+	}
+
+	/**
+	 * @return the transport used by this instance, created on first use if
+	 *         none was shared
+	 */
+	public WhispirTransport getTransport() {
+		WhispirTransport current = this.transport;
+
+		if (current == null) {
+			synchronized (this) {
+				current = this.transport;
+				if (current == null) {
+					current = new WhispirTransport();
+					current.getBufferPool().setLeakDetection(config.get().isDebug());
+					this.transport = current;
+					this.ownsTransport = true;
+				}
+			}
 		}
+		return current;
 	}
 
-	public void setProxy(String host, int port, boolean httpsEnabled) {
-		this.setProxy(host, port, httpsEnabled, "", "");
+	/**
+	 * Sets the dispatcher used by the priority sendMessage and sendScenario
+	 * methods. A dispatcher set here is not shut down by {@link #close()}.
+	 * 
+	 * @param dispatcher
+	 */
+	public synchronized void setDispatcher(PriorityDispatcher dispatcher) {
+		shutdownOwnedDispatcher();
+		this.dispatcher = dispatcher;
+		this.ownsDispatcher = false;
 	}
 
-	public void setProxy(String host, int port, boolean httpsEnabled,
-			String proxyUsername, String proxyPassword) {
+	/**
+	 * @return the dispatcher of this instance, created with the default
+	 *         concurrency on first use if none was set
+	 */
+	public PriorityDispatcher getDispatcher() {
+		PriorityDispatcher current = this.dispatcher;
+
+		if (current == null) {
+			synchronized (this) {
+				current = this.dispatcher;
+				if (current == null) {
+					current = new PriorityDispatcher();
+					this.dispatcher = current;
+					this.ownsDispatcher = true;
+				}
+			}
+		}
+		return current;
+	}
 
-		String scheme = "http";
+	/**
+	 * Sets the scheduler used by scheduleMessage, e.g. one with a journal so
+	 * scheduled messages survive a restart. A scheduler set here is not
+	 * closed by {@link #close()}.
+	 * 
+	 * @param scheduler
+	 */
+	public synchronized void setScheduler(MessageScheduler scheduler) throws IOException {
+		closeOwnedScheduler();
+		this.scheduler = scheduler;
+		this.ownsScheduler = false;
+	}
 
-		if (httpsEnabled) {
-			scheme = "https";
+	/**
+	 * @return the scheduler of this instance, created on first use if none
+	 *         was set. It keeps messages in memory only and sends them
+	 *         through the dispatcher at NORMAL priority.
+	 */
+	public MessageScheduler getScheduler() {
+		MessageScheduler current = this.scheduler;
+
+		if (current == null) {
+			synchronized (this) {
+				current = this.scheduler;
+				if (current == null) {
+					current = new MessageScheduler(MessageScheduler.dispatchTo(this, Priority.NORMAL));
+					this.scheduler = current;
+					this.ownsScheduler = true;
+				}
+			}
 		}
+		return current;
+	}
+
+	/**
+	 * Releases the pooled connections and worker threads of this instance.
+	 * Shared transports, dispatchers and schedulers are left open for their
+	 * other users.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		// Before the dispatcher it sends through
+		closeOwnedScheduler();
+		this.scheduler = null;
+		shutdownOwnedDispatcher();
+		this.dispatcher = null;
+		closeOwnedTransport();
+		this.transport = null;
+	}
 
-		this.proxy = RequestConfig.custom()
-				.setProxy(new HttpHost(host, port, scheme)).build();
-		this.proxyEnabled = true;
+	private void closeOwnedScheduler() throws IOException {
+		if (this.ownsScheduler && this.scheduler != null) {
+			this.ownsScheduler = false;
+			this.scheduler.close();
+		}
+	}
 
-		if (!"".equals(proxyUsername) && !"".equals(proxyPassword)) {
-			this.proxyCredentials = new UsernamePasswordCredentials(
-					proxyUsername, proxyPassword);
+	private void shutdownOwnedDispatcher() {
+		if (this.ownsDispatcher && this.dispatcher != null) {
+			this.dispatcher.shutdown();
+			this.ownsDispatcher = false;
 		}
 	}
 
+	private void closeOwnedTransport() {
+		if (this.ownsTransport && this.transport != null) {
+			for (Throwable leak : this.transport.getBufferPool().getLeaks()) {
+				diagnostics.log(Level.ERROR, Diagnostics.BUFFER_LEAK, "A pooled buffer was not released", leak);
+			}
+
+			try {
+				this.transport.close();
+			} catch (IOException e) {
+				// Nothing left to release
+			}
+			this.ownsTransport = false;
+		}
+	}
+
+	public void setProxy(String host, int port, boolean httpsEnabled) {
+		this.setProxy(host, port, httpsEnabled, "", "");
+	}
+
+	public void setProxy(String host, int port, boolean httpsEnabled,
+			String proxyUsername, String proxyPassword) {
+		WhispirConfig current;
+		do {
+			current = config.get();
+		} while (!config.compareAndSet(current, current.toBuilder()
+				.setProxy(host, port, httpsEnabled, proxyUsername, proxyPassword).build()));
+	}
+
 	// ***************************************************
 	// * Messages SDK Methods
 	// ***************************************************
 
 	public WhispirResponse sendMessage(String recipient, String subject, String content)
 			throws WhispirSDKException {
-		return this.messageHelper.sendMessage(recipient, subject, content);
+		return messages().sendMessage(recipient, subject, content);
 	}
 
 	public WhispirResponse sendMessage(String workspaceId, String recipient,
 			String subject, String content) throws WhispirSDKException {
-		return this.messageHelper.sendMessage(workspaceId, recipient, subject,
+		return messages().sendMessage(workspaceId, recipient, subject,
 				content);
 	}
 
 	public WhispirResponse sendMessage(String workspaceId, String recipient,
 			String subject, Map<String, String> content)
 			throws WhispirSDKException {
-		return this.messageHelper.sendMessage(workspaceId, recipient, subject,
+		return messages().sendMessage(workspaceId, recipient, subject,
 				content);
 	}
 
 	public WhispirResponse sendMessage(String workspaceId, String recipient,
 			String subject, Map<String, String> content,
 			Map<String, String> options) throws WhispirSDKException {
-		return this.messageHelper.sendMessage(workspaceId, recipient, subject,
+		return messages().sendMessage(workspaceId, recipient, subject,
 				content, options);
 	}
 	
+	public Future<WhispirResponse> sendMessage(Priority priority, String workspaceId,
+			String recipient, String subject, Map<String, String> content,
+			Map<String, String> options) {
+		return messages().sendMessage(priority, workspaceId, recipient,
+				subject, content, options);
+	}
+	
+	public SendReceipt sendMessageForReceipt(String workspaceId, String recipient,
+			String subject, Map<String, String> content,
+			Map<String, String> options) throws WhispirSDKException {
+		return messages().sendMessageForReceipt(workspaceId, recipient, subject,
+				content, options);
+	}
+
+	public long scheduleMessage(long sendAtMillis, String workspaceId, String recipient,
+			String subject, Map<String, String> content,
+			Map<String, String> options) throws WhispirSDKException {
+		return messages().scheduleMessage(sendAtMillis, workspaceId, recipient, subject,
+				content, options);
+	}
+
+	public boolean cancelScheduledMessage(long scheduleId) throws WhispirSDKException {
+		return messages().cancelScheduledMessage(scheduleId);
+	}
+
 	public WhispirResponse getMessages() throws WhispirSDKException {
-		return this.messageHelper.getMessages();
+		return messages().getMessages();
 	}
 	
 	public WhispirResponse getMessage(String messageId) throws WhispirSDKException {
-		return this.messageHelper.getMessage(messageId);
+		return messages().getMessage(messageId);
+	}
+
+	public WhispirResponse getMessage(String workspaceId, String messageId)
+			throws WhispirSDKException {
+		return messages().getMessage(workspaceId, messageId);
+	}
+
+	public Iterator<MessageDetails> getMessageDetails(String workspaceId, Iterator<String> messageIds,
+			int parallelism, MessageHydrator.Order order) {
+		return messages().getMessageDetails(workspaceId, messageIds, parallelism, order);
+	}
+	
+	public WhispirResponse getMessageStatus(String workspaceId, String messageId)
+			throws WhispirSDKException {
+		return messages().getMessageStatus(workspaceId, messageId);
 	}
 
 	// ***************************************************
@@ -241,15 +663,15 @@ public class WhispirSDK implements MessageHelper, WorkspaceHelper,
 	// ***************************************************
 
 	public WhispirResponse getWorkspaces() throws WhispirSDKException {
-		return this.workspaceHelper.getWorkspaces();
+		return workspaces().getWorkspaces();
 	}
 	
 	public WhispirResponse getWorkspace(String workspaceId) throws WhispirSDKException {
-		return this.workspaceHelper.getWorkspace(workspaceId);
+		return workspaces().getWorkspace(workspaceId);
 	}
 	
 	public WhispirResponse createWorkspace(Map<String, String> details) throws WhispirSDKException {
-		return this.workspaceHelper.createWorkspace(details);
+		return workspaces().createWorkspace(details);
 	}
 
 	// ***************************************************
@@ -257,22 +679,31 @@ public class WhispirSDK implements MessageHelper, WorkspaceHelper,
 	// ***************************************************
 
 	public WhispirResponse getScenarios() throws WhispirSDKException {
-		return this.scenarioHelper.getScenarios();
+		return scenarios().getScenarios();
 	}
 
 	public WhispirResponse getScenarios(String workspaceId)
 			throws WhispirSDKException {
-		return this.scenarioHelper.getScenarios(workspaceId);
+		return scenarios().getScenarios(workspaceId);
 	}
 
 	public WhispirResponse sendScenario(String workspaceId, String scenarioId)
 			throws WhispirSDKException {
-		return this.scenarioHelper.sendScenario(workspaceId, scenarioId);
+		return scenarios().sendScenario(workspaceId, scenarioId);
+	}
+
+	public Future<WhispirResponse> sendScenario(Priority priority, String workspaceId,
+			String scenarioId) {
+		return scenarios().sendScenario(priority, workspaceId, scenarioId);
+	}
+
+	public FanOutResult sendScenarios(Collection<ScenarioTarget> targets, long timeoutMillis) {
+		return scenarios().sendScenarios(targets, timeoutMillis);
 	}
 	
 	public WhispirResponse createScenario(String workspaceId, String recipients, Map<String, String> details,
 			Map<String, String> content) throws WhispirSDKException {
-		return this.scenarioHelper.createScenario(workspaceId, recipients, details, content);
+		return scenarios().createScenario(workspaceId, recipients, details, content);
 	}
 
 	public WhispirResponse createScenario(String recipients, Map<String, String> details,
@@ -291,27 +722,52 @@ public class WhispirSDK implements MessageHelper, WorkspaceHelper,
 
 	public WhispirResponse post(String resourceType, String resourceId, String workspaceId,
 			String jsonContent) throws WhispirSDKException {
-		HttpPost httpPost = (HttpPost) createPost(resourceType, resourceId,
+		return post(resourceType, resourceId, workspaceId, jsonContent, false);
+	}
+
+	/**
+	 * @param receiptOnly
+	 *            - read only the status and the Location header of the
+	 *            response, draining the body without reading it into memory.
+	 *            The response then has no body and no other headers.
+	 */
+	public WhispirResponse post(String resourceType, String workspaceId, String jsonContent,
+			boolean receiptOnly) throws WhispirSDKException {
+		return post(resourceType, "", workspaceId, jsonContent, receiptOnly);
+	}
+
+	private WhispirResponse post(String resourceType, String resourceId, String workspaceId,
+			String jsonContent, final boolean receiptOnly) throws WhispirSDKException {
+		final WhispirConfig config = this.config.get();
+		final Deadline deadline = deadlineFor(config);
+		final HttpPost httpPost = (HttpPost) createPost(config, resourceType, resourceId,
 				workspaceId, jsonContent);
-		return executeRequest(httpPost);
+
+		try {
+			return inBulkhead(resourceType, HttpPost.METHOD_NAME, deadline, new Bulkhead.Call() {
+				@Override
+				public WhispirResponse call() throws WhispirSDKException {
+					return executeRequest(config, deadline, httpPost, receiptOnly);
+				}
+			});
+		} finally {
+			// The body is only needed until the last retry has been sent
+			((PooledEntity) httpPost.getEntity()).release();
+		}
 	}
 	
-	private HttpRequestBase createPost(String resourceType, String resourceId,
+	private HttpRequestBase createPost(WhispirConfig config, String resourceType, String resourceId,
 			String workspaceId, String content) throws WhispirSDKException {
 
-		String url = buildUrl(workspaceId, resourceType, resourceId);
+		String url = buildUrl(config, workspaceId, resourceType, resourceId);
 
 		// Create a method instance.
 		HttpPost httpPost = new HttpPost(url);
 
-		setHeaders(httpPost, resourceType);
+		setHeaders(config, httpPost, resourceType);
 
-		try {
-			StringEntity body = new StringEntity(content);
-			httpPost.setEntity(body);
-		} catch (UnsupportedEncodingException e) {
-			throw new WhispirSDKException(e.getMessage());
-		}
+		// Same charset as the StringEntity previously used
+		httpPost.setEntity(getTransport().createEntity(content, Consts.ISO_8859_1));
 
 		return httpPost;
 	}
@@ -320,10 +776,52 @@ public class WhispirSDK implements MessageHelper, WorkspaceHelper,
 	// * GET Methods
 	// ***************************************************
 
-	public WhispirResponse get(String resourceType, String workspaceId, String resourceId)
-			throws WhispirSDKException {
-		HttpGet httpGet = (HttpGet) createGet(resourceType, workspaceId, resourceId);
-		return executeRequest(httpGet);
+	public WhispirResponse get(final String resourceType, final String workspaceId,
+			final String resourceId) throws WhispirSDKException {
+		final WhispirConfig config = this.config.get();
+		final Deadline deadline = deadlineFor(config);
+		final SingleFlight singleFlight = this.singleFlight;
+
+		if (singleFlight == null) {
+			return get(config, deadline, resourceType, workspaceId, resourceId);
+		}
+
+		// The URL carries the API key, the credentials are in the headers
+		String key = HttpGet.METHOD_NAME + ' ' + buildUrl(config, workspaceId, resourceType, resourceId)
+				+ '\u0000' + config.getUsername() + '\u0000' + config.getPassword();
+
+		return singleFlight.execute(key, deadline, new Bulkhead.Call() {
+			@Override
+			public WhispirResponse call() throws WhispirSDKException {
+				return get(config, deadline, resourceType, workspaceId, resourceId);
+			}
+		});
+	}
+
+	private WhispirResponse get(final WhispirConfig config, final Deadline deadline,
+			String resourceType, String workspaceId, String resourceId) throws WhispirSDKException {
+		final HedgingPolicy hedging = this.hedgingPolicy;
+
+		if (hedging != null) {
+			final HedgedGet hedged = new HedgedGet(config, deadline, resourceType, workspaceId, resourceId);
+
+			// A hedge holds the one slot of the request it copies
+			return inBulkhead(resourceType, HttpGet.METHOD_NAME, deadline, new Bulkhead.Call() {
+				@Override
+				public WhispirResponse call() throws WhispirSDKException {
+					return hedging.execute(hedged);
+				}
+			});
+		}
+
+		final HttpGet httpGet = (HttpGet) createGet(config, resourceType, workspaceId, resourceId);
+
+		return inBulkhead(resourceType, HttpGet.METHOD_NAME, deadline, new Bulkhead.Call() {
+			@Override
+			public WhispirResponse call() throws WhispirSDKException {
+				return executeRequest(config, deadline, httpGet, false);
+			}
+		});
 	}
 	
 	public WhispirResponse get(String resourceType, String workspaceId)
@@ -331,37 +829,83 @@ public class WhispirSDK implements MessageHelper, WorkspaceHelper,
 		return this.get(resourceType, workspaceId, ""); 
 	}
 
-	private HttpRequestBase createGet(String resourceType, String workspaceId, String resourceId)
-			throws WhispirSDKException {
+	private HttpRequestBase createGet(WhispirConfig config, String resourceType, String workspaceId,
+			String resourceId) throws WhispirSDKException {
 		// Create a method instance.
-		String url = buildUrl(workspaceId, resourceType, resourceId);
+		String url = buildUrl(config, workspaceId, resourceType, resourceId);
 
 		HttpGet httpGet = new HttpGet(url);
 
-		setHeaders(httpGet, resourceType);
+		setHeaders(config, httpGet, resourceType);
 
 		return httpGet;
 	}
 	
 	
+	private class HedgedGet implements HedgingPolicy.HedgedRequest {
+
+		private final WhispirConfig config;
+		private final Deadline deadline;
+		private final String resourceType;
+		private final String workspaceId;
+		private final String resourceId;
+
+		HedgedGet(WhispirConfig config, Deadline deadline, String resourceType, String workspaceId,
+				String resourceId) {
+			this.config = config;
+			this.deadline = deadline;
+			this.resourceType = resourceType;
+			this.workspaceId = workspaceId;
+			this.resourceId = resourceId;
+		}
+
+		@Override
+		public HedgingPolicy.Attempt newAttempt() throws WhispirSDKException {
+			final HttpRequestBase httpGet = createGet(config, resourceType, workspaceId, resourceId);
+
+			return new HedgingPolicy.Attempt() {
+				@Override
+				public WhispirResponse call() throws WhispirSDKException {
+					// The copies run on other threads, so carry the caller's deadline
+					return executeRequest(config, deadline, httpGet, false);
+				}
+
+				@Override
+				public void cancel() {
+					// Closes the connection of a request still waiting for
+					// its response
+					httpGet.abort();
+				}
+			};
+		}
+	}
+
 	// ***************************************************
 	// * DELETE Methods
 	// ***************************************************
 
 	public WhispirResponse delete(String resourceType, String workspaceId, String resourceId)
 			throws WhispirSDKException {
-		HttpDelete httpDelete = (HttpDelete) createDelete(resourceType, workspaceId, resourceId);
-		return executeRequest(httpDelete);
+		final WhispirConfig config = this.config.get();
+		final Deadline deadline = deadlineFor(config);
+		final HttpDelete httpDelete = (HttpDelete) createDelete(config, resourceType, workspaceId, resourceId);
+
+		return inBulkhead(resourceType, HttpDelete.METHOD_NAME, deadline, new Bulkhead.Call() {
+			@Override
+			public WhispirResponse call() throws WhispirSDKException {
+				return executeRequest(config, deadline, httpDelete, false);
+			}
+		});
 	}
 
-	private HttpRequestBase createDelete(String resourceType, String workspaceId, String resourceId)
-			throws WhispirSDKException {
+	private HttpRequestBase createDelete(WhispirConfig config, String resourceType, String workspaceId,
+			String resourceId) throws WhispirSDKException {
 		// Create a method instance.
-		String url = buildUrl(workspaceId, resourceType, resourceId);
+		String url = buildUrl(config, workspaceId, resourceType, resourceId);
 
 		HttpDelete httpDelete = new HttpDelete(url);
 
-		setHeaders(httpDelete, resourceType);
+		setHeaders(config, httpDelete, resourceType);
 
 		return httpDelete;
 	}
@@ -371,13 +915,39 @@ public class WhispirSDK implements MessageHelper, WorkspaceHelper,
 	// * Private Methods
 	// ***************************************************
 	
-	private void initHelpers() {
-		this.messageHelper = new MessageHelperImpl(this);
-		this.workspaceHelper = new WorkspaceHelperImpl(this);
-		this.scenarioHelper = new ScenarioHelperImpl(this);
+	// The helpers hold no state of their own, so two threads racing to create
+	// one is harmless
+	private MessageHelper messages() {
+		MessageHelper helper = this.messageHelper;
+
+		if (helper == null) {
+			helper = new MessageHelperImpl(this);
+			this.messageHelper = helper;
+		}
+		return helper;
+	}
+
+	private WorkspaceHelper workspaces() {
+		WorkspaceHelper helper = this.workspaceHelper;
+
+		if (helper == null) {
+			helper = new WorkspaceHelperImpl(this);
+			this.workspaceHelper = helper;
+		}
+		return helper;
+	}
+
+	private ScenarioHelper scenarios() {
+		ScenarioHelper helper = this.scenarioHelper;
+
+		if (helper == null) {
+			helper = new ScenarioHelperImpl(this);
+			this.scenarioHelper = helper;
+		}
+		return helper;
 	}
 	
-	private void setHeaders(HttpRequestBase request, String resourceType)
+	private void setHeaders(WhispirConfig config, HttpRequestBase request, String resourceType)
 			throws WhispirSDKException {
 
 		String header = "";
@@ -395,24 +965,38 @@ public class WhispirSDK implements MessageHelper, WorkspaceHelper,
 			header = WhispirSDKConstants.WHISPIR_SCENARIO_HEADER_V1;
 			break;
 
+		case WhispirSDKConstants.MESSAGESTATUS_RESOURCE:
+			header = WhispirSDKConstants.WHISPIR_MESSAGESTATUS_HEADER_V1;
+			break;
+
 		default:
 			throw new WhispirSDKException(
-					"Resource specified was not found. Expecting Workspaces, Messages or Scenarios");
+					"Resource specified was not found. Expecting Workspaces, Messages, MessageStatus or Scenarios");
 		}
 
 		request.setHeader("Content-Type", header);
 		request.setHeader("Accept", header);
-		request.setHeader("x-api-key", this.apikey);
+		request.setHeader("x-api-key", config.getApikey());
 	}
 
 	public String getHost() {
-		if (debug) {
-			return this.debugHost;
+		return getHost(config.get());
+	}
+
+	private String getHost(WhispirConfig config) {
+		if (config.isDebug()) {
+			return config.getDebugHost();
+		} else if (endpointRouter != null) {
+			return getHost(endpointRouter.primary());
 		} else {
-			return String.format("api.%s.whispir.com", APIEndPoint.toString());
+			return getHost(APIEndPoint);
 		}
 	}
 
+	private String getHost(WhispirEndPoints endPoint) {
+		return String.format(WhispirSDKConstants.API_HOST_FORMAT, endPoint.toString());
+	}
+
 	private String getScheme(String host) {
 		if (host.indexOf("app") > -1) {
 			return "http://";
@@ -421,19 +1005,23 @@ public class WhispirSDK implements MessageHelper, WorkspaceHelper,
 		}
 	}
 
-	private String buildUrl(String workspaceId, String resourceType,
+	private String buildUrl(WhispirConfig config, String workspaceId, String resourceType,
 			String resourceId) {
 
 		StringBuilder url = new StringBuilder();
 
 		// Set the host to either the debug host or the production host
 		// depending on the debug setting
-		String host = getHost();
-		String scheme = getScheme(host);
+		String host = getHost(config);
 
-		url.append(scheme).append(host);
+		// A debug host may carry its own scheme and port, e.g. a local stand-in
+		// at http://localhost:8080
+		if (host.indexOf("://") < 0) {
+			url.append(getScheme(host));
+		}
+		url.append(host);
 		
-		if(this.debug) {
+		if(config.isDebug()) {
 			url.append("/api");
 		}
 
@@ -441,6 +1029,15 @@ public class WhispirSDK implements MessageHelper, WorkspaceHelper,
 			url.append("/workspaces/" + workspaceId);
 		}
 
+		if (WhispirSDKConstants.MESSAGESTATUS_RESOURCE.equals(resourceType)) {
+			//the status of a message is a sub resource: messages/:id/messagestatus,
+			//requested per recipient
+			url.append("/" + WhispirSDKConstants.MESSAGES_RESOURCE + "/" + resourceId + "/" + resourceType);
+			url.append(WhispirSDKConstants.API_EXT + config.getApikey() + "&view=detailed");
+
+			return url.toString();
+		}
+
 		//check that the resource type doesn't equal WORKSPACE as the URL will end up as:
 		//workspaces/:id/workspaces.
 		if (resourceType != null && !"".equals(resourceType) && !resourceType.equals(WhispirSDKConstants.WORKSPACES_RESOURCE)) {
@@ -451,33 +1048,223 @@ public class WhispirSDK implements MessageHelper, WorkspaceHelper,
 			url.append("/" + resourceId);
 		}
 
-		url.append(WhispirSDKConstants.API_EXT + this.apikey);
-
-		System.out.println("Executing URL: " + url.toString());
+		url.append(WhispirSDKConstants.API_EXT + config.getApikey());
 
 		return url.toString();
 	}
 
-	private WhispirResponse executeRequest(HttpRequestBase httpRequest)
-			throws WhispirSDKException {
+	private WhispirResponse inBulkhead(String resourceType, String method, Deadline deadline,
+			Bulkhead.Call call) throws WhispirSDKException {
+
+		Bulkheads bulkheads = this.bulkheads;
+		Bulkhead bulkhead = bulkheads == null ? null : bulkheads.get(resourceType, method);
+
+		if (bulkhead == null) {
+			return call.call();
+		}
+		return bulkhead.execute(deadline, call);
+	}
+
+	/**
+	 * @return the deadline of a call starting now: the earlier of the
+	 *         caller's and the configured request timeout
+	 */
+	private Deadline deadlineFor(WhispirConfig config) {
+		Deadline deadline = Deadline.current();
+
+		if (config.getRequestTimeout() > 0) {
+			deadline = deadline.earliest(Deadline.after(config.getRequestTimeout()));
+		}
+		return deadline;
+	}
+
+	private WhispirResponse executeRequest(WhispirConfig config, Deadline deadline,
+			HttpRequestBase httpRequest, boolean receiptOnly) throws WhispirSDKException {
+
+		if (Thread.currentThread().isInterrupted()) {
+			throw new WhispirSDKException("Interrupted before the request was sent");
+		}
+
+		// Aborts the request if the deadline passes or this thread is
+		// interrupted, wherever it is blocked
+		RequestWatchdog watchdog = new RequestWatchdog(httpRequest, deadline, getTransport().getTimer());
+		long start = System.nanoTime();
+		WhispirResponse wr = null;
+
+		watchdog.start();
+		try {
+			wr = executeWithFailover(config, deadline, httpRequest, receiptOnly);
+		} finally {
+			watchdog.stop();
+			diagnostics.request(httpRequest.getMethod(), String.valueOf(httpRequest.getURI()),
+					wr == null ? 0 : wr.getStatusCode(), elapsedMillis(start));
+		}
+
+		if (wr.getStatusCode() == 0) {
+			// The timeouts are cut to the deadline, so a read may time out
+			// just before the watchdog does
+			if (watchdog.isTimedOut() || deadline.isExpired()) {
+				throw new DeadlineExceededException("The request did not complete before its deadline");
+			}
+			if (watchdog.isInterrupted()) {
+				throw new WhispirSDKException("Interrupted while waiting for the response");
+			}
+		}
+		return wr;
+	}
+
+	private WhispirResponse executeWithFailover(WhispirConfig config, Deadline deadline,
+			HttpRequestBase httpRequest, boolean receiptOnly) throws WhispirSDKException {
+
+		EndpointRouter router = this.endpointRouter;
+		AdaptiveLimits adaptiveLimits = this.adaptiveLimits;
+
+		if (config.isDebug() || router == null) {
+			String host = getHost(config);
+
+			try {
+				WhispirResponse wr = executeRequest(adaptiveLimits, config, deadline, httpRequest, host,
+						receiptOnly);
+				return wr != null ? wr : shed(adaptiveLimits.get(host));
+			} catch (IOException e) {
+				return connectionFailed(httpRequest, e);
+			}
+		}
+
+		WhispirResponse wr = null;
+		AdaptiveLimit shedBy = null;
+
+		for (WhispirEndPoints endPoint : router.select()) {
+			String host = getHost(endPoint);
+
+			if (wr != null || shedBy != null) {
+				// Previous endpoint failed, reset the request for the next one
+				httpRequest.reset();
+
+				if (deadline.isExpired()) {
+					throw new DeadlineExceededException("The request did not complete before its deadline");
+				}
+			}
+			httpRequest.setURI(withHost(httpRequest.getURI(), host));
+
+			long start = System.nanoTime();
+			boolean failover;
+
+			try {
+				WhispirResponse response = executeRequest(adaptiveLimits, config, deadline, httpRequest, host,
+						receiptOnly);
+
+				if (response == null) {
+					// Never sent, so it says nothing about the endpoint
+					if (shedBy == null) {
+						shedBy = adaptiveLimits.get(host);
+					}
+					continue;
+				}
+
+				wr = response;
+				router.record(endPoint, elapsedMillis(start), wr.getStatusCode() < 500);
+				failover = isFailoverStatus(httpRequest, wr.getStatusCode());
+			} catch (IOException e) {
+				if (httpRequest.isAborted()) {
+					// Cancelled by the caller, not a failure of the endpoint
+					return connectionFailed(httpRequest, e);
+				}
+				router.record(endPoint, elapsedMillis(start), false);
+				wr = connectionFailed(httpRequest, e);
+				failover = isFailoverException(httpRequest, e);
+			}
+
+			if (!failover) {
+				break;
+			}
+		}
+
+		if (wr == null && shedBy != null) {
+			// Every endpoint tried shed the request
+			return shed(shedBy);
+		}
+		return wr;
+	}
+
+	/**
+	 * @return the response to a request shed by every endpoint it could go to
+	 * @throws LoadShedException
+	 *             if the rejection policy is to throw
+	 */
+	private WhispirResponse shed(AdaptiveLimit limit) throws LoadShedException {
+		limit.reject();
+
+		WhispirResponse wr = new WhispirResponse();
+		wr.setStatusCode(429);
+		return wr;
+	}
+
+	/**
+	 * @param adaptiveLimits
+	 *            - the limits read once for the whole request, or null
+	 * @return the response, or null if the endpoint's concurrency limit shed
+	 *         the request before it was sent
+	 */
+	private WhispirResponse executeRequest(AdaptiveLimits adaptiveLimits, WhispirConfig config,
+			Deadline deadline, HttpRequestBase httpRequest, String host, boolean receiptOnly)
+			throws WhispirSDKException, IOException {
+
+		if (adaptiveLimits == null) {
+			return send(config, deadline, httpRequest, host, receiptOnly);
+		}
+
+		AdaptiveLimit limit = adaptiveLimits.get(host);
+
+		if (!limit.tryAcquire(deadline)) {
+			return null;
+		}
+
+		long start = System.nanoTime();
+		int statusCode = -1;
+
+		try {
+			WhispirResponse wr = send(config, deadline, httpRequest, host, receiptOnly);
+			statusCode = wr.getStatusCode();
+			return wr;
+		} catch (IOException e) {
+			statusCode = 0;
+			throw e;
+		} finally {
+			// A hedge that lost or a caller that gave up says nothing about
+			// the endpoint, but a request cut off by its deadline does
+			if (statusCode < 0 || httpRequest.isAborted() && !deadline.isExpired()) {
+				limit.release();
+			} else {
+				limit.release(System.nanoTime() - start, statusCode);
+			}
+		}
+	}
+
+	private WhispirResponse send(WhispirConfig config, Deadline deadline,
+			HttpRequestBase httpRequest, String host, boolean receiptOnly)
+			throws WhispirSDKException, IOException {
 
 		WhispirResponse wr = new WhispirResponse();
 		int statusCode = 0;
 
-		final HttpHost targetHost = new HttpHost(this.getHost(), 443, "https");
+		// Target the scheme and port the URL was built with, so a debug host
+		// can point at a plain HTTP server on any port
+		HttpHost uriHost = URIUtils.extractHost(httpRequest.getURI());
+		final HttpHost targetHost = uriHost != null ? uriHost : new HttpHost(host, 443, "https");
 		CredentialsProvider credsProvider = new BasicCredentialsProvider();
 
-		Credentials creds = new UsernamePasswordCredentials(this.username,
-				this.password);
+		Credentials creds = new UsernamePasswordCredentials(config.getUsername(),
+				config.getPassword());
 		
-		if (debug) {
+		if (config.isDebug()) {
 			credsProvider.setCredentials(AuthScope.ANY, creds);
 		} else {
-			credsProvider.setCredentials(new AuthScope(this.getHost(), -1),
+			credsProvider.setCredentials(new AuthScope(host, -1),
 					creds);
-			if (this.proxyEnabled && this.proxyCredentials != null) {
-				credsProvider.setCredentials(new AuthScope(this.proxy
-						.getProxy().getHostName(), -1), this.proxyCredentials);
+			if (config.isProxyEnabled() && config.getProxyCredentials() != null) {
+				credsProvider.setCredentials(new AuthScope(config.getProxy()
+						.getProxy().getHostName(), -1), config.getProxyCredentials());
 			}
 		}
 
@@ -491,73 +1278,165 @@ public class WhispirSDK implements MessageHelper, WorkspaceHelper,
 		context.setCredentialsProvider(credsProvider);
 		context.setAuthCache(authCache);
 
-		CloseableHttpClient client = HttpClients.custom()
-				.setDefaultCredentialsProvider(credsProvider).build();
-
-		try {
+		WhispirTransport client = getTransport();
 
-			if (proxyEnabled) {
-				httpRequest.setConfig(this.proxy);
-			}
+		httpRequest.setConfig(requestConfig(config, deadline));
 
-			CloseableHttpResponse response = client.execute(targetHost, httpRequest, context);
+		CloseableHttpResponse response = client.execute(targetHost, httpRequest, context);
 
-			try {
-				statusCode = response.getStatusLine().getStatusCode();
+		try {
+			statusCode = response.getStatusLine().getStatusCode();
 
-				if (statusCode == 429) {
+			// Only wait if the retry can still make the deadline, otherwise
+			// the 429 is returned
+			if (statusCode == 429 && deadline.remainingMillis() > RATE_LIMIT_WAIT) {
 
-					// Wait for 1 second and try the request again.
-					try {
-						Thread.sleep(1000);
-					} catch (InterruptedException e) {
-						// Ended sleep. Continue.
-					}
+				// Return the connection to the pool before waiting
+				EntityUtils.consume(response.getEntity());
+				response.close();
 
-					response = client.execute(targetHost, httpRequest, context);
-					statusCode = response.getStatusLine()
-							.getStatusCode();
-							
+				// Wait for 1 second and try the request again.
+				try {
+					Thread.sleep(RATE_LIMIT_WAIT);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new WhispirSDKException("Interrupted while waiting to retry a rate limited request");
 				}
 
-				wr.setStatusCode(statusCode);
-				
-				//Check if this is a delete
-				if(statusCode != 204) {
-					wr.setRawResponse(EntityUtils.toString(response.getEntity()));
-				}
-				
-				Map<String,String> headerMap = new HashMap<String,String>();
-				
-				HeaderIterator headers = response.headerIterator();
-				
-				while(headers.hasNext()) {
-					Header h = headers.nextHeader();
-					headerMap.put(h.getName(), h.getValue());
-				}
-				
-				wr.setResponseHeaders(headerMap);
+				httpRequest.setConfig(requestConfig(config, deadline));
+				response = client.execute(targetHost, httpRequest, context);
+				statusCode = response.getStatusLine()
+						.getStatusCode();
+						
+			}
 
-			} finally {
-				EntityUtils.consume(response.getEntity());
-				response.close();
+			wr.setStatusCode(statusCode);
+
+			if (receiptOnly) {
+				// Only the link to the new resource is kept, the body is
+				// drained unread below
+				Header location = response.getFirstHeader("Location");
+				wr.setResponseHeaders(location == null ? Collections.<String, String> emptyMap()
+						: Collections.singletonMap("Location", location.getValue()));
+				return wr;
 			}
+			
+			//Check if this is a delete
+			if(statusCode != 204) {
+				wr.setRawResponse(client.readString(response.getEntity()));
+			}
+			
+			Map<String,String> headerMap = new HashMap<String,String>();
+			
+			HeaderIterator headers = response.headerIterator();
+			
+			while(headers.hasNext()) {
+				Header h = headers.nextHeader();
+				headerMap.put(h.getName(), h.getValue());
+			}
+			
+			wr.setResponseHeaders(headerMap);
 
-		} catch (IOException e) {
-			e.printStackTrace();
-			System.err.println("Message Failed - Connection Error: "
-					+ e.getMessage());
 		} finally {
-			// Release the connection.
-			try {
-				client.close();
-			} catch (IOException e) {
-				throw new WhispirSDKException(e.getMessage());
-			}
+			// Release the connection back to the pool.
+			EntityUtils.consume(response.getEntity());
+			response.close();
 		}
 
 		return wr;
 	}
 
+	/**
+	 * @return the proxy of the configuration, if any, and its timeouts cut
+	 *         down to the time left before the deadline
+	 */
+	private RequestConfig requestConfig(WhispirConfig config, Deadline deadline)
+			throws DeadlineExceededException {
+
+		RequestConfig.Builder builder = config.isProxyEnabled()
+				? RequestConfig.copy(config.getProxy()) : RequestConfig.custom();
+
+		return builder.setConnectTimeout(timeout(config.getConnectTimeout(), deadline))
+				.setSocketTimeout(timeout(config.getSocketTimeout(), deadline))
+				.setConnectionRequestTimeout(timeout(config.getConnectionRequestTimeout(), deadline))
+				.build();
+	}
+
+	private static int timeout(long configured, Deadline deadline) throws DeadlineExceededException {
+		if (deadline.isNone()) {
+			return (int) configured;
+		}
+
+		long remaining = deadline.remainingMillis();
+
+		if (remaining == 0) {
+			throw new DeadlineExceededException("The request did not complete before its deadline");
+		}
+
+		// 0 is no limit to HttpClient
+		return (int) (configured == 0 ? Math.min(remaining, Integer.MAX_VALUE) : Math.min(configured, remaining));
+	}
+
+	private WhispirResponse connectionFailed(HttpRequestBase httpRequest, IOException e) {
+		if (httpRequest.isAborted()) {
+			// Aborted on purpose, e.g. the losing copy of a hedged request
+			return new WhispirResponse();
+		}
+
+		Diagnostics diagnostics = this.diagnostics;
+
+		if (diagnostics.isEnabled(Level.WARN, Diagnostics.CONNECTION_FAILED)) {
+			diagnostics.log(Level.WARN, Diagnostics.CONNECTION_FAILED, "Message Failed - Connection Error: "
+					+ e.getMessage(), Diagnostics.fields("method", httpRequest.getMethod(),
+					"url", String.valueOf(httpRequest.getURI())), e);
+		}
+
+		WhispirResponse wr = new WhispirResponse();
+		wr.setNotSent(isConnectFailure(e));
+		return wr;
+	}
+
+	/**
+	 * POSTs are only failed over when the request cannot have been processed,
+	 * so that a message is never sent twice: on a 503, or when the connection
+	 * could not be made. A 502 is returned as it is, since the API may have
+	 * accepted the message before the gateway failed. Idempotent requests are
+	 * failed over on any server error.
+	 */
+	private boolean isFailoverStatus(HttpRequestBase httpRequest, int statusCode) {
+		if (isIdempotent(httpRequest)) {
+			return statusCode >= 500;
+		}
+		return statusCode == 503;
+	}
+
+	private boolean isFailoverException(HttpRequestBase httpRequest, IOException e) {
+		if (isIdempotent(httpRequest)) {
+			return true;
+		}
+		return isConnectFailure(e);
+	}
+
+	private static boolean isConnectFailure(IOException e) {
+		return e instanceof ConnectException || e instanceof ConnectTimeoutException
+				|| e instanceof UnknownHostException;
+	}
+
+	private boolean isIdempotent(HttpRequestBase httpRequest) {
+		return !WhispirSDKConstants.POST.equals(httpRequest.getMethod());
+	}
+
+	private URI withHost(URI uri, String host) throws WhispirSDKException {
+		try {
+			return new URIBuilder(uri).setHost(host).build();
+		} catch (URISyntaxException e) {
+			throw new WhispirSDKException(e.getMessage());
+		}
+	}
+
+	private static long elapsedMillis(long startNanos) {
+		return (System.nanoTime() - startNanos) / 1000000;
+	}
+
 }
 
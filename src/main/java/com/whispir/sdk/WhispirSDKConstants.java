@@ -4,6 +4,7 @@ public final class WhispirSDKConstants {
 	
 	public static final String API_SCHEME = "https://";
 	public static final String API_HOST = "api.whispir.com";
+	public static final String API_HOST_FORMAT = "api.%s.whispir.com";
 	public static final String API_EXT = "?apikey=";
 	public static final String NO_AUTH_ERROR = "Whispir API Authentication failed. API Key, Username or Password was not provided.";
 	public static final String AUTH_FAILED_ERROR = "Whispir API Authentication failed. API Key, Username or Password were provided but were not correct.";
@@ -12,11 +13,13 @@ public final class WhispirSDKConstants {
 	public static final String WHISPIR_MESSAGE_HEADER_V1 = "application/vnd.whispir.message-v1+json";
 	public static final String WHISPIR_WORKSPACE_HEADER_V1 = "application/vnd.whispir.workspace-v1+json";
 	public static final String WHISPIR_SCENARIO_HEADER_V1 = "application/vnd.whispir.scenario-v1+json";
+	public static final String WHISPIR_MESSAGESTATUS_HEADER_V1 = "application/vnd.whispir.messagestatus-v1+json";
 	
 	//Resource Types
 	public static final String MESSAGES_RESOURCE = "messages";
 	public static final String WORKSPACES_RESOURCE = "workspaces";
 	public static final String SCENARIOS_RESOURCE = "scenarios";
+	public static final String MESSAGESTATUS_RESOURCE = "messagestatus";
 	
 	//HTTP Methods
 	public static final String GET = "GET";
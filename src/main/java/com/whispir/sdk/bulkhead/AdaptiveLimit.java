@@ -0,0 +1,294 @@
+package com.whispir.sdk.bulkhead;
+
+import java.util.concurrent.TimeUnit;
+
+import com.whispir.sdk.Deadline;
+import com.whispir.sdk.exceptions.DeadlineExceededException;
+import com.whispir.sdk.exceptions.LoadShedException;
+import com.whispir.sdk.exceptions.WhispirSDKException;
+
+/**
+ * A concurrency limit for one endpoint that finds its own level.
+ *
+ * <p>
+ * The limit grows by one for every limit's worth of requests that come back
+ * quickly while it is in use (additive increase), and is cut by 10% when a
+ * request fails, is refused with a 429 or 503, or takes more than twice the
+ * quickest time seen recently (multiplicative decrease). It is cut at most
+ * once per round trip, so one burst of refusals counts once. The quickest
+ * time is measured again every few hundred requests, so a lasting change in
+ * the API's speed sets a new baseline.
+ * </p>
+ * <p>
+ * Requests over the limit wait for a slot for at most {@code sloMillis}. A
+ * request that would wait longer, judging by the queue ahead of it and the
+ * recent round trip time, is shed at once rather than after the wait, and
+ * handled by the {@link RejectionPolicy}.
+ * </p>
+ *
+ * @since 2.4
+ */
+public class AdaptiveLimit {
+
+	// A round trip this many times the quickest counts as queueing
+	private static final double TOLERANCE = 2.0;
+
+	private static final double BACKOFF = 0.9;
+
+	// Weight of each round trip in the smoothed time
+	private static final double SMOOTHING = 0.2;
+
+	// Samples between new measurements of the quickest round trip
+	private static final int PROBE_INTERVAL = 256;
+
+	private final String name;
+	private final int minLimit;
+	private final int maxLimit;
+	private final long sloMillis;
+	private final RejectionPolicy policy;
+
+	// Guarded by this
+	private double limit;
+	private int inFlight;
+	private int queued;
+	private long minRttNanos;
+	private double smoothedRttNanos;
+	private long lastDecreaseNanos;
+	private int samples;
+	private long shed;
+
+	/**
+	 * @param name
+	 *            - the name used in rejections, usually the host
+	 * @param initialLimit
+	 *            - the limit before any requests complete
+	 * @param minLimit
+	 *            - the lowest the limit goes
+	 * @param maxLimit
+	 *            - the highest the limit goes
+	 * @param sloMillis
+	 *            - the longest a request waits for a slot, 0 to shed as soon
+	 *            as the limit is reached
+	 * @param policy
+	 *            - what to do with a request that is shed
+	 */
+	public AdaptiveLimit(String name, int initialLimit, int minLimit, int maxLimit, long sloMillis,
+			RejectionPolicy policy) {
+
+		if (minLimit < 1 || maxLimit < minLimit) {
+			throw new IllegalArgumentException("Limits must be at least 1 and the maximum no less than the minimum");
+		}
+		if (sloMillis < 0) {
+			throw new IllegalArgumentException("The wait must not be negative");
+		}
+		if (policy == null) {
+			throw new IllegalArgumentException("A rejection policy is required");
+		}
+
+		this.name = name;
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.sloMillis = sloMillis;
+		this.policy = policy;
+		this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+		// Long ago, so the first refusal always counts
+		this.lastDecreaseNanos = System.nanoTime() - Long.MAX_VALUE / 2;
+	}
+
+	/**
+	 * Takes a slot, waiting for one if the limit is reached. Every successful
+	 * acquire must be followed by a release.
+	 *
+	 * @param deadline
+	 *            - bounds the wait for a slot
+	 * @return true if the request may be sent, false if it was shed under
+	 *         {@link RejectionPolicy#RESPOND_429}
+	 * @throws LoadShedException
+	 *             if the request was shed under {@link RejectionPolicy#THROW}
+	 * @throws DeadlineExceededException
+	 *             if the deadline passed while waiting for a slot
+	 */
+	public boolean acquire(Deadline deadline) throws WhispirSDKException {
+		return tryAcquire(deadline) || reject();
+	}
+
+	/**
+	 * Takes a slot as {@link #acquire(Deadline)} does, but leaves a request
+	 * that is shed to the caller, which may send it elsewhere before calling
+	 * {@link #reject()}.
+	 *
+	 * @return true if the request may be sent, false if it was shed
+	 * @throws DeadlineExceededException
+	 *             if the deadline passed while waiting for a slot
+	 */
+	public synchronized boolean tryAcquire(Deadline deadline) throws WhispirSDKException {
+		if (inFlight < (int) limit) {
+			inFlight++;
+			return true;
+		}
+
+		long wait = Math.min(sloMillis, deadline.remainingMillis());
+
+		// No point queueing behind requests that will outlast the wait
+		if (estimatedWaitNanos() > TimeUnit.MILLISECONDS.toNanos(wait)) {
+			shed++;
+			return false;
+		}
+
+		queued++;
+		try {
+			long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(wait);
+
+			while (inFlight >= (int) limit) {
+				long left = end - System.nanoTime();
+
+				if (left <= 0) {
+					if (deadline.isExpired()) {
+						throw new DeadlineExceededException("The deadline passed waiting for the " + name
+								+ " concurrency limit");
+					}
+					shed++;
+					return false;
+				}
+				TimeUnit.NANOSECONDS.timedWait(this, left);
+			}
+
+			inFlight++;
+			return true;
+
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new WhispirSDKException("Interrupted while waiting for the " + name + " concurrency limit");
+		} finally {
+			queued--;
+		}
+	}
+
+	/**
+	 * Applies the {@link RejectionPolicy} to a request that was shed.
+	 *
+	 * @return false under {@link RejectionPolicy#RESPOND_429}
+	 * @throws LoadShedException
+	 *             under {@link RejectionPolicy#THROW}
+	 */
+	public boolean reject() throws LoadShedException {
+		if (policy == RejectionPolicy.THROW) {
+			throw new LoadShedException("Shed by the " + name + " concurrency limit of " + getLimit());
+		}
+		return false;
+	}
+
+	/**
+	 * Frees the slot of a completed request and adjusts the limit.
+	 *
+	 * @param rttNanos
+	 *            - how long the request took
+	 * @param statusCode
+	 *            - the HTTP status, or 0 if there was no response
+	 */
+	public synchronized void release(long rttNanos, int statusCode) {
+		boolean busy = inFlight >= limit / 2;
+		inFlight--;
+
+		if (rttNanos > 0) {
+			long now = System.nanoTime();
+			smoothedRttNanos = smoothedRttNanos == 0 ? rttNanos
+					: smoothedRttNanos * (1 - SMOOTHING) + rttNanos * SMOOTHING;
+
+			boolean overloaded = statusCode == 0 || statusCode == 429 || statusCode == 503;
+
+			if (!overloaded && (minRttNanos == 0 || rttNanos < minRttNanos || ++samples >= PROBE_INTERVAL)) {
+				minRttNanos = rttNanos;
+				samples = 0;
+			}
+
+			if (overloaded || rttNanos > minRttNanos * TOLERANCE) {
+				if (now - lastDecreaseNanos >= smoothedRttNanos) {
+					limit = Math.max(minLimit, limit * BACKOFF);
+					lastDecreaseNanos = now;
+				}
+			} else if (busy) {
+				// Only grow a limit that is in use, or it drifts to the maximum
+				limit = Math.min(maxLimit, limit + 1 / limit);
+			}
+		}
+
+		notifyAll();
+	}
+
+	/**
+	 * Frees the slot of a request that was cancelled, without adjusting the
+	 * limit.
+	 */
+	public synchronized void release() {
+		inFlight--;
+		notifyAll();
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public RejectionPolicy getPolicy() {
+		return policy;
+	}
+
+	public long getSloMillis() {
+		return sloMillis;
+	}
+
+	/**
+	 * @return the most requests currently allowed at once
+	 */
+	public synchronized int getLimit() {
+		return (int) limit;
+	}
+
+	/**
+	 * @return the number of requests running
+	 */
+	public synchronized int getInFlight() {
+		return inFlight;
+	}
+
+	/**
+	 * @return the number of requests waiting for a slot
+	 */
+	public synchronized int getQueued() {
+		return queued;
+	}
+
+	/**
+	 * @return the number of requests shed so far
+	 */
+	public synchronized long getShed() {
+		return shed;
+	}
+
+	/**
+	 * @return the quickest recent round trip, 0 before any request completes
+	 */
+	public synchronized long getMinRttMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(minRttNanos);
+	}
+
+	/**
+	 * @return the smoothed round trip, 0 before any request completes
+	 */
+	public synchronized long getSmoothedRttMillis() {
+		return TimeUnit.NANOSECONDS.toMillis((long) smoothedRttNanos);
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "AdaptiveLimit [name=" + name + ", limit=" + (int) limit + ", inFlight=" + inFlight
+				+ ", queued=" + queued + ", shed=" + shed + ", minRttMillis=" + getMinRttMillis()
+				+ ", smoothedRttMillis=" + getSmoothedRttMillis() + "]";
+	}
+
+	// The requests ahead, and this one, each freeing a slot every
+	// round trip / limit
+	private long estimatedWaitNanos() {
+		return (long) ((queued + 1) * smoothedRttNanos / limit);
+	}
+}
@@ -0,0 +1,85 @@
+package com.whispir.sdk.bulkhead;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The adaptive concurrency limits of an SDK, one per endpoint host, created
+ * as each host is first used.
+ *
+ * <pre>
+ * sdk.setAdaptiveLimits(new AdaptiveLimits(10, 2, 100, 500, RejectionPolicy.RESPOND_429));
+ * </pre>
+ *
+ * <p>
+ * Unlike a {@link Bulkhead}, which caps a class of traffic at a fixed level,
+ * each limit follows the round trip times and refusals of its endpoint, so it
+ * settles near the most requests the endpoint can take without queueing. The
+ * limits apply to each attempt, after any bulkhead, so a retry or a failover
+ * to another region takes a slot of the endpoint it goes to. Keep the maximum
+ * within the connections of the transport.
+ * </p>
+ *
+ * @since 2.4
+ */
+public class AdaptiveLimits {
+
+	private final int initialLimit;
+	private final int minLimit;
+	private final int maxLimit;
+	private final long sloMillis;
+	private final RejectionPolicy policy;
+
+	private final ConcurrentMap<String, AdaptiveLimit> limits = new ConcurrentHashMap<String, AdaptiveLimit>();
+
+	/**
+	 * Limits from 1 to 100 requests, starting at 10, that throw once a request
+	 * would wait more than a second.
+	 */
+	public AdaptiveLimits() {
+		this(10, 1, 100, 1000, RejectionPolicy.THROW);
+	}
+
+	/**
+	 * @see AdaptiveLimit#AdaptiveLimit(String, int, int, int, long,
+	 *      RejectionPolicy)
+	 */
+	public AdaptiveLimits(int initialLimit, int minLimit, int maxLimit, long sloMillis,
+			RejectionPolicy policy) {
+
+		// Fail now rather than on the first request
+		new AdaptiveLimit("", initialLimit, minLimit, maxLimit, sloMillis, policy);
+
+		this.initialLimit = initialLimit;
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.sloMillis = sloMillis;
+		this.policy = policy;
+	}
+
+	/**
+	 * @return the limit of the host, created if it has none yet
+	 */
+	public AdaptiveLimit get(String host) {
+		AdaptiveLimit limit = limits.get(host);
+
+		if (limit == null) {
+			limit = new AdaptiveLimit(host, initialLimit, minLimit, maxLimit, sloMillis, policy);
+			AdaptiveLimit existing = limits.putIfAbsent(host, limit);
+
+			if (existing != null) {
+				limit = existing;
+			}
+		}
+		return limit;
+	}
+
+	/**
+	 * @return the limit of every host used so far, to report their use
+	 */
+	public Collection<AdaptiveLimit> getAll() {
+		return new ArrayList<AdaptiveLimit>(limits.values());
+	}
+}
@@ -0,0 +1,205 @@
+package com.whispir.sdk.bulkhead;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.whispir.sdk.Deadline;
+import com.whispir.sdk.WhispirResponse;
+import com.whispir.sdk.exceptions.BulkheadFullException;
+import com.whispir.sdk.exceptions.DeadlineExceededException;
+import com.whispir.sdk.exceptions.WhispirSDKException;
+
+/**
+ * Caps the requests of one class of traffic, so it can never take the
+ * connections and threads another class needs.
+ *
+ * <p>
+ * At most {@code maxConcurrent} requests run at once. Further requests wait
+ * for a slot, up to {@code maxQueued} of them and for at most
+ * {@code maxWaitMillis} or the caller's {@link Deadline}. A request that
+ * finds the queue full or waits too long is handled by the
+ * {@link RejectionPolicy}.
+ * </p>
+ * <p>
+ * Requests run on the calling thread, so a bulkhead adds no threads. It
+ * guarantees capacity only if the concurrency of all bulkheads together is no
+ * more than the connections of the SDK's transport.
+ * </p>
+ *
+ * @since 2.4
+ */
+public class Bulkhead {
+
+	/**
+	 * A request run inside the bulkhead.
+	 */
+	public interface Call {
+
+		WhispirResponse call() throws WhispirSDKException;
+	}
+
+	private final String name;
+	private final int maxConcurrent;
+	private final int maxQueued;
+	private final long maxWaitMillis;
+	private final RejectionPolicy policy;
+
+	private final Semaphore permits;
+	private final AtomicInteger queued = new AtomicInteger();
+	private final AtomicLong rejected = new AtomicLong();
+
+	/**
+	 * A bulkhead that rejects requests as soon as it is full.
+	 */
+	public Bulkhead(String name, int maxConcurrent) {
+		this(name, maxConcurrent, 0, 0, RejectionPolicy.THROW);
+	}
+
+	/**
+	 * @param name
+	 *            - the name used in rejections
+	 * @param maxConcurrent
+	 *            - the most requests run at once
+	 * @param maxQueued
+	 *            - the most requests waiting for a slot, 0 to reject as soon
+	 *            as the bulkhead is full
+	 * @param maxWaitMillis
+	 *            - the longest a request waits for a slot
+	 * @param policy
+	 *            - what to do with a request there is no room for
+	 */
+	public Bulkhead(String name, int maxConcurrent, int maxQueued, long maxWaitMillis,
+			RejectionPolicy policy) {
+
+		if (maxConcurrent < 1) {
+			throw new IllegalArgumentException("Concurrency must be at least 1");
+		}
+		if (maxQueued < 0 || maxWaitMillis < 0) {
+			throw new IllegalArgumentException("Queue depth and wait must not be negative");
+		}
+		if (policy == null) {
+			throw new IllegalArgumentException("A rejection policy is required");
+		}
+
+		this.name = name;
+		this.maxConcurrent = maxConcurrent;
+		this.maxQueued = maxQueued;
+		this.maxWaitMillis = maxWaitMillis;
+		this.policy = policy;
+		this.permits = new Semaphore(maxConcurrent, true);
+	}
+
+	/**
+	 * Runs the call once the bulkhead has a free slot.
+	 *
+	 * @param deadline
+	 *            - bounds the wait for a slot as well as the call
+	 * @return the response of the call, or a 429 response if it was rejected
+	 *         under {@link RejectionPolicy#RESPOND_429}
+	 * @throws BulkheadFullException
+	 *             if the call was rejected under {@link RejectionPolicy#THROW}
+	 * @throws DeadlineExceededException
+	 *             if the deadline passed while waiting for a slot
+	 */
+	public WhispirResponse execute(Deadline deadline, Call call) throws WhispirSDKException {
+		if (!acquire(deadline)) {
+			return reject();
+		}
+
+		try {
+			return call.call();
+		} finally {
+			permits.release();
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getMaxConcurrent() {
+		return maxConcurrent;
+	}
+
+	public int getMaxQueued() {
+		return maxQueued;
+	}
+
+	public long getMaxWaitMillis() {
+		return maxWaitMillis;
+	}
+
+	public RejectionPolicy getPolicy() {
+		return policy;
+	}
+
+	/**
+	 * @return the number of requests running
+	 */
+	public int getActive() {
+		return maxConcurrent - permits.availablePermits();
+	}
+
+	/**
+	 * @return the number of requests waiting for a slot
+	 */
+	public int getQueued() {
+		return queued.get();
+	}
+
+	/**
+	 * @return the number of requests rejected so far
+	 */
+	public long getRejected() {
+		return rejected.get();
+	}
+
+	@Override
+	public String toString() {
+		return "Bulkhead [name=" + name + ", active=" + getActive() + "/" + maxConcurrent
+				+ ", queued=" + getQueued() + "/" + maxQueued + ", rejected=" + getRejected() + "]";
+	}
+
+	private boolean acquire(Deadline deadline) throws WhispirSDKException {
+		if (permits.tryAcquire()) {
+			return true;
+		}
+
+		if (queued.incrementAndGet() > maxQueued) {
+			queued.decrementAndGet();
+			return false;
+		}
+
+		try {
+			long wait = Math.min(maxWaitMillis, deadline.remainingMillis());
+
+			if (permits.tryAcquire(wait, TimeUnit.MILLISECONDS)) {
+				return true;
+			}
+			if (deadline.isExpired()) {
+				throw new DeadlineExceededException("The deadline passed waiting for the " + name + " bulkhead");
+			}
+			return false;
+
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new WhispirSDKException("Interrupted while waiting for the " + name + " bulkhead");
+		} finally {
+			queued.decrementAndGet();
+		}
+	}
+
+	private WhispirResponse reject() throws BulkheadFullException {
+		rejected.incrementAndGet();
+
+		if (policy == RejectionPolicy.THROW) {
+			throw new BulkheadFullException("The " + name + " bulkhead is full");
+		}
+
+		WhispirResponse response = new WhispirResponse();
+		response.setStatusCode(429);
+		return response;
+	}
+}
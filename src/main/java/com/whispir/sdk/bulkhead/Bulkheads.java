@@ -0,0 +1,98 @@
+package com.whispir.sdk.bulkhead;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The bulkheads of an SDK, one per resource type and optionally per HTTP
+ * method within a type.
+ *
+ * <p>
+ * A request uses the bulkhead of its resource type and method if there is
+ * one, then the bulkhead of its resource type. Requests with neither are not
+ * limited. For example, to keep message history scans from holding up sends:
+ * </p>
+ *
+ * <pre>
+ * sdk.setBulkheads(new Bulkheads()
+ * 		.set(WhispirSDKConstants.MESSAGES_RESOURCE,
+ * 				new Bulkhead("messages", 12, 200, 5000, RejectionPolicy.THROW))
+ * 		.set(WhispirSDKConstants.MESSAGES_RESOURCE, "GET",
+ * 				new Bulkhead("message-reads", 4, 0, 0, RejectionPolicy.RESPOND_429))
+ * 		.set(WhispirSDKConstants.WORKSPACES_RESOURCE, new Bulkhead("workspaces", 2))
+ * 		.set(WhispirSDKConstants.SCENARIOS_RESOURCE, new Bulkhead("scenarios", 2)));
+ * </pre>
+ *
+ * @since 2.4
+ */
+public class Bulkheads {
+
+	private final Map<String, Bulkhead> bulkheads = new ConcurrentHashMap<String, Bulkhead>();
+
+	/**
+	 * @param resourceType
+	 *            - one of the resource constants of WhispirSDKConstants
+	 * @param bulkhead
+	 *            - the bulkhead for every request of the type, or null to
+	 *            remove it
+	 */
+	public Bulkheads set(String resourceType, Bulkhead bulkhead) {
+		return put(resourceType, bulkhead);
+	}
+
+	/**
+	 * @param resourceType
+	 *            - one of the resource constants of WhispirSDKConstants
+	 * @param method
+	 *            - GET, POST or DELETE
+	 * @param bulkhead
+	 *            - the bulkhead for the requests of the type with that
+	 *            method, or null to remove it
+	 */
+	public Bulkheads set(String resourceType, String method, Bulkhead bulkhead) {
+		return put(key(resourceType, method), bulkhead);
+	}
+
+	/**
+	 * @return the bulkhead a request uses, or null if it is not limited
+	 */
+	public Bulkhead get(String resourceType, String method) {
+		Bulkhead bulkhead = bulkheads.get(key(resourceType, method));
+		return bulkhead != null ? bulkhead : bulkheads.get(resourceType);
+	}
+
+	/**
+	 * @return every bulkhead, to report their use
+	 */
+	public Collection<Bulkhead> getAll() {
+		return new ArrayList<Bulkhead>(bulkheads.values());
+	}
+
+	/**
+	 * @return the most requests all the bulkheads run at once. Keep it within
+	 *         the connections of the transport.
+	 */
+	public int getTotalConcurrency() {
+		int total = 0;
+
+		for (Bulkhead bulkhead : bulkheads.values()) {
+			total += bulkhead.getMaxConcurrent();
+		}
+		return total;
+	}
+
+	private Bulkheads put(String key, Bulkhead bulkhead) {
+		if (bulkhead == null) {
+			bulkheads.remove(key);
+		} else {
+			bulkheads.put(key, bulkhead);
+		}
+		return this;
+	}
+
+	private static String key(String resourceType, String method) {
+		return resourceType + " " + method.toUpperCase();
+	}
+}
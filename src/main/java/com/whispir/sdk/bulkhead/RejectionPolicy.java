@@ -0,0 +1,20 @@
+package com.whispir.sdk.bulkhead;
+
+/**
+ * What a {@link Bulkhead} does with a request it has no room for.
+ *
+ * @since 2.4
+ */
+public enum RejectionPolicy {
+
+	/**
+	 * Throws a {@link com.whispir.sdk.exceptions.BulkheadFullException}.
+	 */
+	THROW,
+
+	/**
+	 * Returns a response with status 429, as if the API had refused the
+	 * request, so callers already handling rate limits need no changes.
+	 */
+	RESPOND_429
+}
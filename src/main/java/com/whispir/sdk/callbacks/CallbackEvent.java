@@ -0,0 +1,163 @@
+package com.whispir.sdk.callbacks;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import com.whispir.sdk.SendReceipt;
+
+/**
+ * A callback from Whispir about a sent message: a reply from a recipient, or
+ * notice that the message could not be delivered.
+ *
+ * @since 2.4
+ */
+public class CallbackEvent {
+
+	public enum Type {
+		/** A recipient responded to the message */
+		REPLY,
+		/** The message could not be delivered to a recipient */
+		UNDELIVERABLE
+	}
+
+	private static final String UNDELIVERABLE_CONTENT = "Undeliverable";
+
+	private final Type type;
+	private final String messageId;
+	private final String messageLocation;
+	private final String fromName;
+	private final String fromMobile;
+	private final String fromEmail;
+	private final String channel;
+	private final String content;
+	private final String acknowledged;
+	private final Map<String, String> customParameters;
+	private final String rawPayload;
+
+	private CallbackEvent(Type type, String messageId, String messageLocation,
+			String fromName, String fromMobile, String fromEmail, String channel,
+			String content, String acknowledged,
+			Map<String, String> customParameters, String rawPayload) {
+		this.type = type;
+		this.messageId = messageId;
+		this.messageLocation = messageLocation;
+		this.fromName = fromName;
+		this.fromMobile = fromMobile;
+		this.fromEmail = fromEmail;
+		this.channel = channel;
+		this.content = content;
+		this.acknowledged = acknowledged;
+		this.customParameters = customParameters;
+		this.rawPayload = rawPayload;
+	}
+
+	/**
+	 * Parses a JSON callback payload.
+	 *
+	 * @throws JSONException
+	 *             if the payload is not a JSON object
+	 */
+	public static CallbackEvent parse(String payload) throws JSONException {
+		JSONObject obj = new JSONObject(payload);
+
+		String location = obj.optString("messagelocation");
+		JSONObject from = obj.optJSONObject("from");
+		JSONObject response = obj.optJSONObject("responseMessage");
+
+		if (from == null) {
+			from = new JSONObject();
+		}
+		if (response == null) {
+			response = new JSONObject();
+		}
+
+		String content = response.optString("content");
+		Type type = UNDELIVERABLE_CONTENT.equalsIgnoreCase(content.trim())
+				|| UNDELIVERABLE_CONTENT.equalsIgnoreCase(obj.optString("status"))
+				? Type.UNDELIVERABLE : Type.REPLY;
+
+		Map<String, String> custom = new HashMap<String, String>();
+		JSONObject parameters = obj.optJSONObject("customParameters");
+
+		if (parameters != null) {
+			Iterator<?> keys = parameters.keys();
+
+			while (keys.hasNext()) {
+				String key = (String) keys.next();
+				custom.put(key, parameters.optString(key));
+			}
+		}
+
+		return new CallbackEvent(type, SendReceipt.idOf(location), location,
+				from.optString("name"), from.optString("mobile"), from.optString("email"),
+				response.optString("channel"), content, response.optString("acknowledged"),
+				Collections.unmodifiableMap(custom), payload);
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	/**
+	 * @return the ID of the message the callback is about
+	 */
+	public String getMessageId() {
+		return messageId;
+	}
+
+	public String getMessageLocation() {
+		return messageLocation;
+	}
+
+	public String getFromName() {
+		return fromName;
+	}
+
+	public String getFromMobile() {
+		return fromMobile;
+	}
+
+	public String getFromEmail() {
+		return fromEmail;
+	}
+
+	/**
+	 * @return the channel of the response, e.g. SMS, Email or Voice
+	 */
+	public String getChannel() {
+		return channel;
+	}
+
+	public String getContent() {
+		return content;
+	}
+
+	/**
+	 * @return when the response was received, as given by Whispir
+	 */
+	public String getAcknowledged() {
+		return acknowledged;
+	}
+
+	/**
+	 * @return the custom parameters of the callback
+	 */
+	public Map<String, String> getCustomParameters() {
+		return customParameters;
+	}
+
+	public String getRawPayload() {
+		return rawPayload;
+	}
+
+	@Override
+	public String toString() {
+		return "CallbackEvent [type=" + type + ", messageId=" + messageId
+				+ ", channel=" + channel + ", content=" + content + "]";
+	}
+}
@@ -0,0 +1,16 @@
+package com.whispir.sdk.callbacks;
+
+/**
+ * Receives the callbacks accepted by a {@link CallbackReceiver}.
+ *
+ * <p>
+ * Called on the receiver's dispatch threads, never on the HTTP threads, so a
+ * slow listener delays other callbacks but does not hold up Whispir.
+ * </p>
+ *
+ * @since 2.4
+ */
+public interface CallbackListener {
+
+	public void onCallback(CallbackEvent event);
+}
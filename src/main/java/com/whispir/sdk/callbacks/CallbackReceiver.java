@@ -0,0 +1,409 @@
+package com.whispir.sdk.callbacks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.json.JSONException;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import com.whispir.sdk.dispatch.DaemonThreadFactory;
+
+/**
+ * An embedded HTTP server that receives Whispir callbacks (replies and
+ * undeliverable notices) and passes them to listeners.
+ *
+ * <p>
+ * Connections are multiplexed by the JDK's NIO based HTTP server onto a small
+ * fixed number of handler threads. A handler only authenticates, reads and
+ * parses the payload and puts the event in a bounded queue, so Whispir gets
+ * its answer quickly. Separate dispatch threads take events from the queue
+ * and call the listeners. When the queue is full the callback is refused
+ * with a 503 and Whispir retries it later, rather than memory growing without
+ * bound.
+ * </p>
+ * <p>
+ * The callback must carry the receiver's key, either as the <code>auth</code>
+ * query parameter (as configured in the callback URL) or in the
+ * {@value #AUTH_HEADER} header.
+ * </p>
+ *
+ * <pre>
+ * CallbackReceiver receiver = new CallbackReceiver(8080, callbackKey);
+ * receiver.addListener(listener);
+ * receiver.start();
+ * </pre>
+ *
+ * @since 2.4
+ */
+public class CallbackReceiver implements Closeable {
+
+	public static final String DEFAULT_PATH = "/callbacks";
+	public static final String AUTH_PARAMETER = "auth";
+	public static final String AUTH_HEADER = "X-Whispir-Callback-Auth";
+	public static final int DEFAULT_THREADS = 2;
+	public static final int DEFAULT_DISPATCH_THREADS = 1;
+	public static final int DEFAULT_QUEUE_CAPACITY = 10000;
+	public static final int DEFAULT_MAX_BODY_SIZE = 64 * 1024;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private final InetSocketAddress address;
+	private final byte[] authKey;
+	private final List<CallbackListener> listeners = new CopyOnWriteArrayList<CallbackListener>();
+
+	private final AtomicLong accepted = new AtomicLong();
+	private final AtomicLong unauthorised = new AtomicLong();
+	private final AtomicLong malformed = new AtomicLong();
+	private final AtomicLong refused = new AtomicLong();
+	private final AtomicLong dispatched = new AtomicLong();
+
+	private String path = DEFAULT_PATH;
+	private int threads = DEFAULT_THREADS;
+	private int dispatchThreads = DEFAULT_DISPATCH_THREADS;
+	private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+	private int maxBodySize = DEFAULT_MAX_BODY_SIZE;
+
+	private HttpServer server;
+	private ExecutorService handlers;
+	private ExecutorService dispatchers;
+	private BlockingQueue<CallbackEvent> queue;
+	private volatile boolean closed;
+
+	/**
+	 * @param port
+	 *            - the port to listen on, 0 for any free port
+	 * @param authKey
+	 *            - the key callbacks must present
+	 */
+	public CallbackReceiver(int port, String authKey) {
+		this(new InetSocketAddress(port), authKey);
+	}
+
+	public CallbackReceiver(InetSocketAddress address, String authKey) {
+		if (authKey == null || "".equals(authKey)) {
+			throw new IllegalArgumentException("A callback auth key is required");
+		}
+
+		this.address = address;
+		this.authKey = authKey.getBytes(UTF8);
+	}
+
+	public void addListener(CallbackListener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeListener(CallbackListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * @param path
+	 *            - the path callbacks are posted to
+	 */
+	public void setPath(String path) {
+		checkNotStarted();
+		this.path = path;
+	}
+
+	/**
+	 * @param threads
+	 *            - the number of threads handling HTTP requests
+	 */
+	public void setThreads(int threads) {
+		checkNotStarted();
+		this.threads = threads;
+	}
+
+	/**
+	 * @param dispatchThreads
+	 *            - the number of threads calling the listeners
+	 */
+	public void setDispatchThreads(int dispatchThreads) {
+		checkNotStarted();
+		this.dispatchThreads = dispatchThreads;
+	}
+
+	/**
+	 * @param queueCapacity
+	 *            - the most callbacks waiting for the listeners before new
+	 *            ones are refused
+	 */
+	public void setQueueCapacity(int queueCapacity) {
+		checkNotStarted();
+		this.queueCapacity = queueCapacity;
+	}
+
+	/**
+	 * @param maxBodySize
+	 *            - the largest payload accepted, in bytes
+	 */
+	public void setMaxBodySize(int maxBodySize) {
+		checkNotStarted();
+		this.maxBodySize = maxBodySize;
+	}
+
+	/**
+	 * Starts listening.
+	 */
+	public synchronized void start() throws IOException {
+		checkNotStarted();
+
+		if (closed) {
+			throw new IllegalStateException("The receiver has been closed");
+		}
+
+		queue = new ArrayBlockingQueue<CallbackEvent>(queueCapacity);
+		handlers = Executors.newFixedThreadPool(threads, new DaemonThreadFactory("whispir-callback-http"));
+		dispatchers = Executors.newFixedThreadPool(dispatchThreads, new DaemonThreadFactory("whispir-callback"));
+
+		server = HttpServer.create(address, 0);
+		server.createContext(path, new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				try {
+					receive(exchange);
+				} finally {
+					exchange.close();
+				}
+			}
+		});
+		server.setExecutor(handlers);
+		server.start();
+
+		for (int i = 0; i < dispatchThreads; i++) {
+			dispatchers.execute(new Runnable() {
+				@Override
+				public void run() {
+					dispatch();
+				}
+			});
+		}
+	}
+
+	/**
+	 * @return the port the receiver is listening on
+	 */
+	public synchronized int getPort() {
+		if (server == null) {
+			throw new IllegalStateException("The receiver has not been started");
+		}
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * @return the number of callbacks waiting for the listeners
+	 */
+	public int getQueued() {
+		BlockingQueue<CallbackEvent> current = queue;
+		return current == null ? 0 : current.size();
+	}
+
+	/**
+	 * @return the number of callbacks accepted
+	 */
+	public long getAccepted() {
+		return accepted.get();
+	}
+
+	/**
+	 * @return the number of requests refused for a missing or wrong key
+	 */
+	public long getUnauthorised() {
+		return unauthorised.get();
+	}
+
+	/**
+	 * @return the number of payloads that could not be parsed
+	 */
+	public long getMalformed() {
+		return malformed.get();
+	}
+
+	/**
+	 * @return the number of callbacks refused because the queue was full
+	 */
+	public long getRefused() {
+		return refused.get();
+	}
+
+	/**
+	 * @return the number of callbacks passed to the listeners
+	 */
+	public long getDispatched() {
+		return dispatched.get();
+	}
+
+	/**
+	 * Stops listening. Callbacks still queued are passed to the listeners
+	 * for up to a second.
+	 */
+	@Override
+	public synchronized void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+
+		if (server != null) {
+			server.stop(0);
+			handlers.shutdownNow();
+			dispatchers.shutdown();
+
+			try {
+				if (!dispatchers.awaitTermination(1, TimeUnit.SECONDS)) {
+					dispatchers.shutdownNow();
+				}
+			} catch (InterruptedException e) {
+				dispatchers.shutdownNow();
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private void checkNotStarted() {
+		if (server != null) {
+			throw new IllegalStateException("The receiver has already been started");
+		}
+	}
+
+	private void receive(HttpExchange exchange) throws IOException {
+		if (!"POST".equals(exchange.getRequestMethod())) {
+			exchange.getResponseHeaders().add("Allow", "POST");
+			respond(exchange, 405);
+			return;
+		}
+
+		if (!isAuthorised(exchange)) {
+			unauthorised.incrementAndGet();
+			respond(exchange, 401);
+			return;
+		}
+
+		String payload = readBody(exchange.getRequestBody());
+
+		if (payload == null) {
+			respond(exchange, 413);
+			return;
+		}
+
+		CallbackEvent event;
+
+		try {
+			event = CallbackEvent.parse(payload);
+		} catch (JSONException e) {
+			malformed.incrementAndGet();
+			respond(exchange, 400);
+			return;
+		}
+
+		if (closed || !queue.offer(event)) {
+			refused.incrementAndGet();
+			exchange.getResponseHeaders().add("Retry-After", "1");
+			respond(exchange, 503);
+			return;
+		}
+
+		accepted.incrementAndGet();
+		respond(exchange, 200);
+	}
+
+	private boolean isAuthorised(HttpExchange exchange) {
+		String key = exchange.getRequestHeaders().getFirst(AUTH_HEADER);
+
+		if (key == null) {
+			key = queryParameter(exchange.getRequestURI().getRawQuery(), AUTH_PARAMETER);
+		}
+
+		// Constant time, so the key cannot be guessed from response times
+		return key != null && MessageDigest.isEqual(authKey, key.getBytes(UTF8));
+	}
+
+	private static String queryParameter(String query, String name) {
+		if (query == null) {
+			return null;
+		}
+
+		for (String pair : query.split("&")) {
+			int equals = pair.indexOf('=');
+
+			if (equals > 0 && name.equals(pair.substring(0, equals))) {
+				try {
+					return URLDecoder.decode(pair.substring(equals + 1), "UTF-8");
+				} catch (UnsupportedEncodingException e) {
+					return null;
+				} catch (IllegalArgumentException e) {
+					return null;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return the body, or null if it is larger than the maximum size
+	 */
+	private String readBody(InputStream in) throws IOException {
+		ByteArrayOutputStream body = new ByteArrayOutputStream(1024);
+		byte[] buffer = new byte[4096];
+		int read;
+
+		try {
+			while ((read = in.read(buffer)) >= 0) {
+				if (body.size() + read > maxBodySize) {
+					return null;
+				}
+				body.write(buffer, 0, read);
+			}
+		} finally {
+			in.close();
+		}
+
+		return new String(body.toByteArray(), UTF8);
+	}
+
+	private static void respond(HttpExchange exchange, int status) throws IOException {
+		// No body. The exchange is closed by the handler; closing the body
+		// stream as well corrupts the next request on a kept-alive connection.
+		exchange.sendResponseHeaders(status, -1);
+	}
+
+	private void dispatch() {
+		try {
+			while (!closed || !queue.isEmpty()) {
+				CallbackEvent event = queue.poll(100, TimeUnit.MILLISECONDS);
+
+				if (event == null) {
+					continue;
+				}
+
+				for (CallbackListener listener : listeners) {
+					try {
+						listener.onCallback(event);
+					} catch (RuntimeException e) {
+						// A failing listener must not stop the others
+					}
+				}
+				dispatched.incrementAndGet();
+			}
+		} catch (InterruptedException e) {
+			// Closed
+		}
+	}
+}
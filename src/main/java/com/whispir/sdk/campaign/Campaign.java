@@ -0,0 +1,510 @@
+package com.whispir.sdk.campaign;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.whispir.sdk.MessageRequest;
+import com.whispir.sdk.WhispirResponse;
+import com.whispir.sdk.WhispirSDK;
+import com.whispir.sdk.diagnostics.Diagnostics;
+import com.whispir.sdk.diagnostics.Level;
+import com.whispir.sdk.dispatch.DaemonThreadFactory;
+import com.whispir.sdk.dispatch.RateLimiter;
+import com.whispir.sdk.exceptions.BulkheadFullException;
+import com.whispir.sdk.exceptions.LoadShedException;
+import com.whispir.sdk.exceptions.WhispirSDKException;
+
+/**
+ * Sends a message to every recipient of a source at a target rate, and keeps
+ * the outcome of each recipient in a progress file so that a campaign stopped
+ * by a crash, a restart or {@link #cancel()} resumes where it stopped.
+ *
+ * <pre>
+ * Campaign campaign = new Campaign(sdk, new RecipientFileReader(path), template,
+ * 		new File("reminders.progress")).setRate(50).setConcurrency(8);
+ * campaign.start();
+ * campaign.await(1, TimeUnit.HOURS);
+ * </pre>
+ *
+ * <p>
+ * Recipients are identified by their row number in the source, so a resumed
+ * campaign must read the same rows in the same order. When it starts, rows
+ * with an outcome from an earlier run are skipped. Rows that were being sent
+ * when the earlier run stopped are recorded as {@link Outcome#UNKNOWN} and
+ * skipped too, unless {@link #setResendUnknown(boolean)} is set, because the
+ * API may have accepted them.
+ * </p>
+ *
+ * <p>
+ * Sends that could not connect, or were refused with a 429 or 503, did not
+ * reach the API and are retried with a growing wait, then recorded as
+ * {@link Outcome#ERROR}. Sends that got no response or another server error,
+ * including a 502 from a gateway, may have been accepted, so they are not retried but recorded as
+ * {@link Outcome#UNKNOWN}. The progress file is forced to the disk at each
+ * checkpoint.
+ * </p>
+ *
+ * @since 2.4
+ */
+public class Campaign implements Closeable {
+
+	public enum State {
+		NEW, RUNNING, PAUSED, CANCELLED, COMPLETED, FAILED
+	}
+
+	private static final long RETRY_WAIT = 1000;
+
+	private final WhispirSDK sdk;
+	private final Iterator<Map<String, String>> source;
+	private final MessageTemplate template;
+	private final File progressFile;
+
+	private double rate = 10;
+	private int concurrency = 4;
+	private long checkpointMillis = 5000;
+	private int maxAttempts = 3;
+	private boolean resendUnknown;
+	private boolean retryErrors;
+
+	private final Object lock = new Object();
+	private final AtomicLongArray counts = new AtomicLongArray(Outcome.values().length);
+	private final AtomicInteger running = new AtomicInteger();
+	private final CountDownLatch done = new CountDownLatch(1);
+	private final AtomicLong sentThisRun = new AtomicLong();
+
+	private volatile State state = State.NEW;
+	private volatile Throwable error;
+	private volatile boolean cancelled;
+	private volatile long startedAt;
+
+	private CampaignProgress progress;
+	private RateLimiter limiter;
+	private ExecutorService workers;
+	private ScheduledExecutorService checkpoints;
+
+	// Guarded by the source
+	private long rows;
+	private long resumed;
+
+	/**
+	 * @param sdk
+	 *            - the SDK used to send the messages
+	 * @param source
+	 *            - the recipient rows, e.g. a
+	 *            {@link com.whispir.sdk.examples.RecipientFileReader}. Closed
+	 *            when the campaign ends if it is {@link Closeable}.
+	 * @param template
+	 *            - the message, bound with each row
+	 * @param progressFile
+	 *            - where the outcome of each row is kept, one byte a row
+	 */
+	public Campaign(WhispirSDK sdk, Iterator<Map<String, String>> source, MessageTemplate template,
+			File progressFile) {
+		this.sdk = sdk;
+		this.source = source;
+		this.template = template;
+		this.progressFile = progressFile;
+	}
+
+	/**
+	 * @param messagesPerSecond
+	 *            - the target send rate, 0 for as fast as the concurrency
+	 *            allows. 10 by default.
+	 */
+	public Campaign setRate(double messagesPerSecond) {
+		this.rate = messagesPerSecond;
+		return this;
+	}
+
+	/**
+	 * @param concurrency
+	 *            - the number of messages sent at once, 4 by default
+	 */
+	public Campaign setConcurrency(int concurrency) {
+		if (concurrency < 1) {
+			throw new IllegalArgumentException("Concurrency must be at least 1");
+		}
+		this.concurrency = concurrency;
+		return this;
+	}
+
+	/**
+	 * @param checkpointMillis
+	 *            - how often the progress file is forced to the disk, 5
+	 *            seconds by default
+	 */
+	public Campaign setCheckpointInterval(long checkpointMillis) {
+		this.checkpointMillis = checkpointMillis;
+		return this;
+	}
+
+	/**
+	 * @param maxAttempts
+	 *            - the most times a message is sent when it cannot connect,
+	 *            or is refused with a 429 or 503, 3 by default
+	 */
+	public Campaign setMaxAttempts(int maxAttempts) {
+		this.maxAttempts = Math.max(1, maxAttempts);
+		return this;
+	}
+
+	/**
+	 * @param resendUnknown
+	 *            - true to send again to recipients whose outcome is
+	 *            {@link Outcome#UNKNOWN}, at the risk of sending them the
+	 *            message twice
+	 */
+	public Campaign setResendUnknown(boolean resendUnknown) {
+		this.resendUnknown = resendUnknown;
+		return this;
+	}
+
+	/**
+	 * @param retryErrors
+	 *            - true to send again to recipients whose outcome is
+	 *            {@link Outcome#ERROR} from an earlier run
+	 */
+	public Campaign setRetryErrors(boolean retryErrors) {
+		this.retryErrors = retryErrors;
+		return this;
+	}
+
+	/**
+	 * Opens the progress file and starts sending in the background.
+	 *
+	 * @throws IOException
+	 *             if the progress file cannot be used, or belongs to a
+	 *             campaign with a different message
+	 */
+	public void start() throws IOException {
+		synchronized (lock) {
+			if (state != State.NEW) {
+				throw new IllegalStateException("The campaign has already been started");
+			}
+
+			progress = CampaignProgress.open(progressFile, template.fingerprint());
+			limiter = rate > 0 ? new RateLimiter(rate, 1) : null;
+			startedAt = System.nanoTime();
+			state = State.RUNNING;
+		}
+
+		checkpoints = Executors.newSingleThreadScheduledExecutor(
+				new DaemonThreadFactory("whispir-campaign-checkpoint"));
+		checkpoints.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				checkpoint();
+			}
+		}, checkpointMillis, checkpointMillis, TimeUnit.MILLISECONDS);
+
+		workers = Executors.newFixedThreadPool(concurrency, new DaemonThreadFactory("whispir-campaign"));
+		running.set(concurrency);
+
+		for (int i = 0; i < concurrency; i++) {
+			workers.execute(new Runnable() {
+				@Override
+				public void run() {
+					work();
+				}
+			});
+		}
+		workers.shutdown();
+	}
+
+	/**
+	 * Stops taking new recipients until {@link #resume()}. Messages being sent
+	 * are finished.
+	 */
+	public void pause() {
+		synchronized (lock) {
+			if (state == State.RUNNING) {
+				state = State.PAUSED;
+			}
+		}
+	}
+
+	public void resume() {
+		synchronized (lock) {
+			if (state == State.PAUSED) {
+				state = State.RUNNING;
+				lock.notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Stops the campaign once the messages being sent are finished. A new
+	 * campaign with the same progress file carries on from there.
+	 */
+	public void cancel() {
+		synchronized (lock) {
+			cancelled = true;
+			lock.notifyAll();
+		}
+	}
+
+	/**
+	 * Waits for the campaign to complete, be cancelled or fail.
+	 *
+	 * @return true if it ended within the timeout
+	 */
+	public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+		return done.await(timeout, unit);
+	}
+
+	public State getState() {
+		return state;
+	}
+
+	public CampaignStatus getStatus() {
+		Map<Outcome, Long> snapshot = new EnumMap<Outcome, Long>(Outcome.class);
+
+		for (Outcome outcome : Outcome.values()) {
+			snapshot.put(outcome, counts.get(outcome.ordinal()));
+		}
+
+		long elapsed = startedAt == 0 ? 0 : System.nanoTime() - startedAt;
+		double sendRate = elapsed == 0 ? 0 : sentThisRun.get() / (elapsed / 1e9);
+
+		synchronized (source) {
+			return new CampaignStatus(state, rows, resumed, snapshot, sendRate, error);
+		}
+	}
+
+	/**
+	 * Cancels the campaign and waits for it to stop.
+	 */
+	@Override
+	public void close() throws IOException {
+		cancel();
+
+		if (state != State.NEW) {
+			try {
+				done.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private void work() {
+		try {
+			while (awaitRunning()) {
+				Row row = nextRow();
+
+				if (row == null) {
+					break;
+				}
+
+				send(row);
+			}
+		} catch (IOException e) {
+			fail(e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			fail(e);
+		} catch (RuntimeException e) {
+			fail(e);
+		} finally {
+			if (running.decrementAndGet() == 0) {
+				finish();
+			}
+		}
+	}
+
+	/**
+	 * @return false once the campaign is cancelled
+	 */
+	private boolean awaitRunning() throws InterruptedException {
+		synchronized (lock) {
+			while (state == State.PAUSED && !cancelled) {
+				lock.wait();
+			}
+			return !cancelled;
+		}
+	}
+
+	/**
+	 * @return the next row to send, skipping those done by an earlier run, or
+	 *         null at the end of the source
+	 */
+	private Row nextRow() throws IOException {
+		synchronized (source) {
+			while (source.hasNext()) {
+				Map<String, String> fields = source.next();
+				long row = rows++;
+				Outcome recorded = progress.recorded(row);
+
+				if (recorded == Outcome.IN_FLIGHT) {
+					recorded = Outcome.UNKNOWN;
+					progress.record(row, recorded);
+				}
+
+				if (recorded == Outcome.PENDING || (recorded == Outcome.UNKNOWN && resendUnknown)
+						|| (recorded == Outcome.ERROR && retryErrors)) {
+					return new Row(row, fields);
+				}
+
+				resumed++;
+				counts.incrementAndGet(recorded.ordinal());
+			}
+			return null;
+		}
+	}
+
+	private void send(Row row) throws IOException, InterruptedException {
+		MessageRequest request = template.bind(row.fields);
+
+		if (request == null) {
+			record(row.number, Outcome.REJECTED);
+			return;
+		}
+
+		Outcome outcome = Outcome.ERROR;
+
+		for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+			if (attempt > 1 && !backOff(attempt)) {
+				break;
+			}
+
+			if (limiter != null) {
+				limiter.acquire();
+			}
+
+			progress.record(row.number, Outcome.IN_FLIGHT);
+
+			try {
+				WhispirResponse response = sdk.sendMessage(request.getWorkspaceId(),
+						request.getRecipient(), request.getSubject(), request.getContent(),
+						request.getOptions());
+				outcome = response.isNotSent() ? Outcome.ERROR
+						: Outcome.fromStatus(response.getStatusCode());
+			} catch (BulkheadFullException e) {
+				outcome = Outcome.ERROR;
+			} catch (LoadShedException e) {
+				outcome = Outcome.ERROR;
+			} catch (WhispirSDKException e) {
+				// Cut off by a deadline or an interrupt, perhaps after the API
+				// accepted it
+				outcome = Outcome.UNKNOWN;
+			}
+
+			if (outcome != Outcome.ERROR) {
+				break;
+			}
+		}
+
+		record(row.number, outcome);
+	}
+
+	/**
+	 * Waits before another attempt, less if the campaign is cancelled.
+	 *
+	 * @return false if the campaign was cancelled
+	 */
+	private boolean backOff(int attempt) throws InterruptedException {
+		long until = System.currentTimeMillis() + RETRY_WAIT * (attempt - 1);
+
+		synchronized (lock) {
+			long wait;
+
+			while (!cancelled && (wait = until - System.currentTimeMillis()) > 0) {
+				lock.wait(wait);
+			}
+			return !cancelled;
+		}
+	}
+
+	private void record(long row, Outcome outcome) throws IOException {
+		progress.record(row, outcome);
+		counts.incrementAndGet(outcome.ordinal());
+
+		if (outcome == Outcome.SENT) {
+			sentThisRun.incrementAndGet();
+		}
+	}
+
+	private void checkpoint() {
+		try {
+			progress.checkpoint();
+		} catch (IOException e) {
+			fail(e);
+		}
+	}
+
+	private void fail(Throwable cause) {
+		synchronized (lock) {
+			if (error == null) {
+				error = cause;
+				sdk.getDiagnostics().log(Level.ERROR, Diagnostics.CAMPAIGN,
+						"Campaign stopped: " + cause.getMessage(), cause);
+			}
+			cancelled = true;
+			lock.notifyAll();
+		}
+	}
+
+	private void finish() {
+		// The last checkpoint runs on the checkpoint thread after the one in
+		// progress. Interrupting a force would close the progress file.
+		checkpoints.execute(new Runnable() {
+			@Override
+			public void run() {
+				checkpoint();
+			}
+		});
+		checkpoints.shutdown();
+
+		// A worker stopped by an interrupt still waits for it
+		boolean interrupted = Thread.interrupted();
+
+		while (!checkpoints.isTerminated()) {
+			try {
+				checkpoints.awaitTermination(1, TimeUnit.MINUTES);
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+
+		try {
+			progress.close();
+
+			if (source instanceof Closeable) {
+				((Closeable) source).close();
+			}
+		} catch (IOException e) {
+			// The outcomes are already on the disk
+		}
+
+		synchronized (lock) {
+			state = error != null ? State.FAILED : cancelled ? State.CANCELLED : State.COMPLETED;
+			lock.notifyAll();
+		}
+		done.countDown();
+	}
+
+	private static final class Row {
+		final long number;
+		final Map<String, String> fields;
+
+		Row(long number, Map<String, String> fields) {
+			this.number = number;
+			this.fields = fields;
+		}
+	}
+}
@@ -0,0 +1,114 @@
+package com.whispir.sdk.campaign;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * The progress file of a campaign: a header, then the {@link Outcome} of each
+ * recipient row as one byte at its row number.
+ *
+ * <p>
+ * Outcomes are written as they happen, so the file is current if the process
+ * dies; a checkpoint forces them to the disk, so it is current up to the last
+ * checkpoint if the machine does.
+ * </p>
+ */
+final class CampaignProgress implements Closeable {
+
+	private static final int MAGIC = 0x5743504d;
+	private static final int FORMAT = 1;
+	private static final int HEADER_BYTES = 24;
+	private static final int CHECKPOINTED_AT = 16;
+
+	private final RandomAccessFile file;
+	private final FileChannel channel;
+
+	// The outcomes of earlier runs, read when the file was opened
+	private final byte[] recorded;
+
+	private CampaignProgress(RandomAccessFile file, byte[] recorded) {
+		this.file = file;
+		this.channel = file.getChannel();
+		this.recorded = recorded;
+	}
+
+	/**
+	 * Opens the progress of a campaign, creating the file if it is new.
+	 *
+	 * @throws IOException
+	 *             if the file is from another campaign or cannot be used
+	 */
+	static CampaignProgress open(File progress, long fingerprint) throws IOException {
+		boolean exists = progress.isFile() && progress.length() > 0;
+		RandomAccessFile file = new RandomAccessFile(progress, "rw");
+
+		try {
+			byte[] recorded;
+
+			if (exists) {
+				if (file.length() < HEADER_BYTES || file.readInt() != MAGIC || file.readInt() != FORMAT) {
+					throw new IOException("Not a campaign progress file: " + progress);
+				}
+				if (file.readLong() != fingerprint) {
+					throw new IOException("The progress file is for a different message: " + progress);
+				}
+				if (file.length() - HEADER_BYTES > Integer.MAX_VALUE) {
+					throw new IOException("The progress file is too large: " + progress);
+				}
+
+				recorded = new byte[(int) (file.length() - HEADER_BYTES)];
+				file.seek(HEADER_BYTES);
+				file.readFully(recorded);
+			} else {
+				file.writeInt(MAGIC);
+				file.writeInt(FORMAT);
+				file.writeLong(fingerprint);
+				file.writeLong(0);
+				recorded = new byte[0];
+			}
+
+			return new CampaignProgress(file, recorded);
+		} catch (IOException e) {
+			file.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * @return the outcome of a row when the file was opened
+	 */
+	Outcome recorded(long row) {
+		return row < recorded.length ? Outcome.fromCode(recorded[(int) row]) : Outcome.PENDING;
+	}
+
+	void record(long row, Outcome outcome) throws IOException {
+		write(ByteBuffer.wrap(new byte[] { outcome.getCode() }), HEADER_BYTES + row);
+	}
+
+	/**
+	 * Forces the outcomes recorded so far to the disk.
+	 */
+	synchronized void checkpoint() throws IOException {
+		channel.force(false);
+
+		ByteBuffer header = ByteBuffer.allocate(8);
+		header.putLong(0, System.currentTimeMillis());
+		write(header, CHECKPOINTED_AT);
+		channel.force(false);
+	}
+
+	private void write(ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			position += channel.write(buffer, position);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		file.close();
+	}
+}
@@ -0,0 +1,82 @@
+package com.whispir.sdk.campaign;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * A snapshot of the progress of a {@link Campaign}. Counts include the
+ * recipients done in earlier runs of the campaign.
+ *
+ * @since 2.4
+ */
+public final class CampaignStatus {
+
+	private final Campaign.State state;
+	private final long rows;
+	private final long resumed;
+	private final Map<Outcome, Long> counts;
+	private final double rate;
+	private final Throwable error;
+
+	CampaignStatus(Campaign.State state, long rows, long resumed, Map<Outcome, Long> counts,
+			double rate, Throwable error) {
+		this.state = state;
+		this.rows = rows;
+		this.resumed = resumed;
+		this.counts = Collections.unmodifiableMap(new EnumMap<Outcome, Long>(counts));
+		this.rate = rate;
+		this.error = error;
+	}
+
+	public Campaign.State getState() {
+		return state;
+	}
+
+	/**
+	 * @return the number of recipient rows read from the source
+	 */
+	public long getRows() {
+		return rows;
+	}
+
+	/**
+	 * @return the number of rows skipped because an earlier run had already
+	 *         dealt with them
+	 */
+	public long getResumed() {
+		return resumed;
+	}
+
+	/**
+	 * @return the number of recipients with an outcome
+	 */
+	public long getCount(Outcome outcome) {
+		Long count = counts.get(outcome);
+		return count == null ? 0 : count;
+	}
+
+	public Map<Outcome, Long> getCounts() {
+		return counts;
+	}
+
+	/**
+	 * @return the messages sent per second by this run
+	 */
+	public double getRate() {
+		return rate;
+	}
+
+	/**
+	 * @return why the campaign failed, when its state is FAILED
+	 */
+	public Throwable getError() {
+		return error;
+	}
+
+	@Override
+	public String toString() {
+		return "CampaignStatus [state=" + state + ", rows=" + rows + ", resumed=" + resumed
+				+ ", counts=" + counts + ", rate=" + String.format("%.1f", rate) + "/s]";
+	}
+}
@@ -0,0 +1,153 @@
+package com.whispir.sdk.campaign;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.whispir.sdk.MessageRequest;
+
+/**
+ * The message of a campaign, with <code>{{column}}</code> placeholders bound
+ * from each recipient row.
+ *
+ * <pre>
+ * Map&lt;String, String&gt; content = new HashMap&lt;String, String&gt;();
+ * content.put("body", "Hi {{name}}, your appointment is at {{time}}");
+ * MessageTemplate template = new MessageTemplate("", "Reminder", content);
+ * </pre>
+ *
+ * The recipient is taken from the <code>recipient</code> column, or the first
+ * column when there is none.
+ *
+ * @since 2.4
+ */
+public class MessageTemplate {
+
+	public static final String RECIPIENT_COLUMN = "recipient";
+
+	private final String workspaceId;
+	private final String subject;
+	private final Map<String, String> content;
+	private final Map<String, String> options;
+
+	/**
+	 * @param workspaceId
+	 *            - the workspace to send in, or "" for the default
+	 * @param subject
+	 *            - the subject template
+	 * @param content
+	 *            - the content templates, keyed as for
+	 *            {@link com.whispir.sdk.WhispirSDK#sendMessage(String, String, String, Map, Map)}
+	 */
+	public MessageTemplate(String workspaceId, String subject, Map<String, String> content) {
+		this(workspaceId, subject, content, Collections.<String, String> emptyMap());
+	}
+
+	public MessageTemplate(String workspaceId, String subject, Map<String, String> content,
+			Map<String, String> options) {
+		this.workspaceId = workspaceId == null ? "" : workspaceId;
+		this.subject = subject;
+		this.content = new TreeMap<String, String>(content);
+		this.options = options == null ? Collections.<String, String> emptyMap()
+				: new TreeMap<String, String>(options);
+	}
+
+	/**
+	 * @return the message for a recipient row, or null if the row has no
+	 *         recipient or a placeholder has no matching column
+	 */
+	public MessageRequest bind(Map<String, String> row) {
+		String recipient = row.containsKey(RECIPIENT_COLUMN) ? row.get(RECIPIENT_COLUMN)
+				: row.isEmpty() ? null : row.values().iterator().next();
+
+		if (recipient == null || recipient.isEmpty()) {
+			return null;
+		}
+
+		String boundSubject = bind(subject, row);
+
+		if (boundSubject == null) {
+			return null;
+		}
+
+		Map<String, String> boundContent = new HashMap<String, String>();
+
+		for (Map.Entry<String, String> entry : content.entrySet()) {
+			String value = bind(entry.getValue(), row);
+
+			if (value == null) {
+				return null;
+			}
+			boundContent.put(entry.getKey(), value);
+		}
+
+		return new MessageRequest(workspaceId, recipient, boundSubject, boundContent, options);
+	}
+
+	/**
+	 * Binds <code>{{column}}</code> placeholders with the row's values.
+	 *
+	 * @return the bound text, or null if a placeholder has no matching column
+	 */
+	public static String bind(String template, Map<String, String> fields) {
+		StringBuilder bound = new StringBuilder(template.length() + 32);
+		int position = 0;
+
+		while (true) {
+			int open = template.indexOf("{{", position);
+
+			if (open < 0) {
+				break;
+			}
+
+			int close = template.indexOf("}}", open + 2);
+
+			if (close < 0) {
+				break;
+			}
+
+			String value = fields.get(template.substring(open + 2, close).trim());
+
+			if (value == null) {
+				return null;
+			}
+
+			bound.append(template, position, open).append(value);
+			position = close + 2;
+		}
+
+		return bound.append(template, position, template.length()).toString();
+	}
+
+	/**
+	 * @return a hash of the template, stored with the progress of a campaign
+	 *         so that it is not resumed with a different message
+	 */
+	long fingerprint() {
+		String text = workspaceId + '\u0000' + subject + '\u0000' + content + '\u0000' + options;
+		long hash = 0xcbf29ce484222325L;
+
+		for (int i = 0; i < text.length(); i++) {
+			hash ^= text.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		return hash;
+	}
+
+	public String getWorkspaceId() {
+		return workspaceId;
+	}
+
+	public String getSubject() {
+		return subject;
+	}
+
+	public Map<String, String> getContent() {
+		return Collections.unmodifiableMap(content);
+	}
+
+	public Map<String, String> getOptions() {
+		return Collections.unmodifiableMap(options);
+	}
+}
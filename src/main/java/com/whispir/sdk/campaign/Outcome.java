@@ -0,0 +1,74 @@
+package com.whispir.sdk.campaign;
+
+/**
+ * What happened to one recipient of a campaign. Stored as one byte per
+ * recipient in the campaign's progress file.
+ *
+ * @since 2.4
+ */
+public enum Outcome {
+
+	/** Not sent yet */
+	PENDING(0),
+
+	/** Being sent */
+	IN_FLIGHT(1),
+
+	/** Accepted by the API */
+	SENT(2),
+
+	/** Refused as invalid, by the SDK or the API (HTTP 422), or not bound */
+	REJECTED(3),
+
+	/** Refused by the API for another reason */
+	FAILED(4),
+
+	/**
+	 * Not sent after the retries: the connection failed, or the API was rate
+	 * limiting or unavailable (HTTP 429 or 503)
+	 */
+	ERROR(5),
+
+	/**
+	 * May or may not have been sent: being sent when the campaign stopped, or
+	 * the request got no response or another server error, such as a 502
+	 * from a gateway
+	 */
+	UNKNOWN(6);
+
+	private static final Outcome[] BY_CODE = values();
+
+	private final byte code;
+
+	private Outcome(int code) {
+		this.code = (byte) code;
+	}
+
+	byte getCode() {
+		return code;
+	}
+
+	static Outcome fromCode(byte code) {
+		return code >= 0 && code < BY_CODE.length ? BY_CODE[code] : PENDING;
+	}
+
+	/**
+	 * @return the outcome of a send with this HTTP status
+	 */
+	static Outcome fromStatus(int statusCode) {
+		if (statusCode >= 200 && statusCode < 300) {
+			return SENT;
+		}
+		if (statusCode == 422) {
+			return REJECTED;
+		}
+		if (statusCode == 429 || statusCode == 503) {
+			return ERROR;
+		}
+		if (statusCode == 0 || statusCode >= 500) {
+			// The API may have accepted the message before failing
+			return UNKNOWN;
+		}
+		return FAILED;
+	}
+}
@@ -0,0 +1,98 @@
+package com.whispir.sdk.diagnostics;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Something that happened in the SDK, such as a request, a connection error
+ * or a slow request.
+ *
+ * @since 2.4
+ */
+public final class DiagnosticEvent {
+
+	private final long timeMillis;
+	private final Level level;
+	private final String type;
+	private final String message;
+	private final Map<String, String> fields;
+	private final Throwable error;
+	private final String thread;
+
+	/**
+	 * @param level
+	 *            - the severity
+	 * @param type
+	 *            - what happened, e.g. {@link Diagnostics#SLOW_REQUEST}
+	 * @param message
+	 *            - a description for people
+	 * @param fields
+	 *            - the details, in order, or null for none
+	 * @param error
+	 *            - the cause, or null
+	 */
+	public DiagnosticEvent(Level level, String type, String message, Map<String, String> fields,
+			Throwable error) {
+		this(System.currentTimeMillis(), level, type, message, fields, error,
+				Thread.currentThread().getName());
+	}
+
+	DiagnosticEvent(long timeMillis, Level level, String type, String message,
+			Map<String, String> fields, Throwable error, String thread) {
+		this.timeMillis = timeMillis;
+		this.level = level;
+		this.type = type;
+		this.message = message;
+		this.fields = fields == null || fields.isEmpty() ? Collections.<String, String> emptyMap()
+				: Collections.unmodifiableMap(new LinkedHashMap<String, String>(fields));
+		this.error = error;
+		this.thread = thread;
+	}
+
+	/**
+	 * @return when the event happened, in milliseconds since the epoch
+	 */
+	public long getTimeMillis() {
+		return timeMillis;
+	}
+
+	public Level getLevel() {
+		return level;
+	}
+
+	public String getType() {
+		return type;
+	}
+
+	public String getMessage() {
+		return message;
+	}
+
+	/**
+	 * @return the details of the event, in the order they were given
+	 */
+	public Map<String, String> getFields() {
+		return fields;
+	}
+
+	/**
+	 * @return the cause, or null
+	 */
+	public Throwable getError() {
+		return error;
+	}
+
+	/**
+	 * @return the name of the thread the event happened on
+	 */
+	public String getThread() {
+		return thread;
+	}
+
+	@Override
+	public String toString() {
+		return "DiagnosticEvent [level=" + level + ", type=" + type + ", message=" + message
+				+ ", fields=" + fields + "]";
+	}
+}
@@ -0,0 +1,18 @@
+package com.whispir.sdk.diagnostics;
+
+/**
+ * Receives the events of a {@link Diagnostics}, for example to write them to
+ * a log or forward them to a monitoring system.
+ *
+ * <p>
+ * Events are delivered one at a time on the diagnostics thread, never on a
+ * thread sending requests, so a sink may block without slowing the SDK down.
+ * Their messages and fields have already been redacted.
+ * </p>
+ *
+ * @since 2.4
+ */
+public interface DiagnosticSink {
+
+	void accept(DiagnosticEvent event);
+}
@@ -0,0 +1,382 @@
+package com.whispir.sdk.diagnostics;
+
+import java.io.Closeable;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import com.whispir.sdk.dispatch.DaemonThreadFactory;
+
+/**
+ * Diagnostic logging of the SDK, off unless set with
+ * {@link com.whispir.sdk.WhispirSDK#setDiagnostics(Diagnostics)}.
+ *
+ * <p>
+ * Logging never blocks a request: events are put in a bounded ring and
+ * handed to the {@link DiagnosticSink}s by a single background thread. If the
+ * sinks fall behind and the ring fills up, further events are dropped and
+ * counted rather than waited for. Secrets such as the API key are redacted
+ * before the sinks see an event.
+ * </p>
+ * <p>
+ * Events below the level (INFO by default) are discarded before anything is
+ * allocated. Each type of event can also be sampled, for example to trace one
+ * request in a hundred. Requests slower than the slow request threshold are
+ * always logged as {@link #SLOW_REQUEST}, whatever the level and sampling of
+ * {@link #REQUEST} events.
+ * </p>
+ *
+ * <pre>
+ * Diagnostics diagnostics = new Diagnostics();
+ * diagnostics.addSink(new PrintStreamSink());
+ * diagnostics.setSlowRequestThreshold(2000);
+ * sdk.setDiagnostics(diagnostics);
+ * </pre>
+ *
+ * @since 2.4
+ */
+public class Diagnostics implements Closeable {
+
+	public static final int DEFAULT_CAPACITY = 8192;
+
+	/** Every request, at DEBUG. */
+	public static final String REQUEST = "request";
+
+	/** A request slower than the slow request threshold, at WARN. */
+	public static final String SLOW_REQUEST = "slow.request";
+
+	/** A request that could not reach the API, at WARN. */
+	public static final String CONNECTION_FAILED = "connection.failed";
+
+	/** A pooled buffer that was never released, at ERROR. */
+	public static final String BUFFER_LEAK = "buffer.leak";
+
+	/** A directory snapshot that could not be read or saved, at WARN. */
+	public static final String DIRECTORY = "directory";
+
+	/** Results of list calls such as getMessages, at DEBUG. */
+	public static final String LIST = "list";
+
+	/** A campaign that stopped because its progress could not be saved, at ERROR. */
+	public static final String CAMPAIGN = "campaign";
+
+	private static final Diagnostics OFF = new Diagnostics(false);
+
+	private static final long MAX_IDLE_PARK = TimeUnit.MILLISECONDS.toNanos(10);
+
+	private final boolean enabled;
+	private final EventRing ring;
+	private final Thread worker;
+	private final List<DiagnosticSink> sinks = new CopyOnWriteArrayList<DiagnosticSink>();
+	private final Map<String, Double> sampleRates = new ConcurrentHashMap<String, Double>();
+
+	private volatile Level level = Level.INFO;
+	private volatile long slowRequestThreshold;
+	private volatile boolean closed;
+
+	private final AtomicLong accepted = new AtomicLong();
+	private final AtomicLong dropped = new AtomicLong();
+	private final AtomicLong sampledOut = new AtomicLong();
+	private volatile long delivered;
+
+	/**
+	 * @return diagnostics that discard everything, the default of an SDK
+	 */
+	public static Diagnostics off() {
+		return OFF;
+	}
+
+	public Diagnostics() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param capacity
+	 *            - the most events waiting for the sinks before new events
+	 *            are dropped
+	 */
+	public Diagnostics(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Capacity must be at least 1");
+		}
+
+		this.enabled = true;
+		this.ring = new EventRing(capacity);
+		this.worker = new DaemonThreadFactory("whispir-diagnostics").newThread(new Runnable() {
+			@Override
+			public void run() {
+				work();
+			}
+		});
+		worker.start();
+	}
+
+	private Diagnostics(boolean enabled) {
+		this.enabled = enabled;
+		this.ring = null;
+		this.worker = null;
+	}
+
+	public Diagnostics addSink(DiagnosticSink sink) {
+		checkEnabled();
+		sinks.add(sink);
+		return this;
+	}
+
+	public Diagnostics removeSink(DiagnosticSink sink) {
+		sinks.remove(sink);
+		return this;
+	}
+
+	public Level getLevel() {
+		return level;
+	}
+
+	/**
+	 * @param level
+	 *            - the least severe events logged
+	 */
+	public Diagnostics setLevel(Level level) {
+		checkEnabled();
+		this.level = level;
+		return this;
+	}
+
+	/**
+	 * @param type
+	 *            - the type of event, e.g. {@link #REQUEST}
+	 * @param rate
+	 *            - the fraction of those events logged, from 0 to 1
+	 */
+	public Diagnostics setSampleRate(String type, double rate) {
+		checkEnabled();
+
+		if (rate < 0 || rate > 1) {
+			throw new IllegalArgumentException("Sample rate must be between 0 and 1");
+		}
+		sampleRates.put(type, rate);
+		return this;
+	}
+
+	public double getSampleRate(String type) {
+		Double rate = sampleRates.get(type);
+		return rate == null ? 1 : rate;
+	}
+
+	public long getSlowRequestThreshold() {
+		return slowRequestThreshold;
+	}
+
+	/**
+	 * @param millis
+	 *            - requests taking at least this long are logged as
+	 *            {@link #SLOW_REQUEST}, 0 to not log slow requests
+	 */
+	public Diagnostics setSlowRequestThreshold(long millis) {
+		checkEnabled();
+		this.slowRequestThreshold = Math.max(0, millis);
+		return this;
+	}
+
+	/**
+	 * Use to skip building an expensive message.
+	 *
+	 * @return true if an event of this level and type would be logged, apart
+	 *         from sampling
+	 */
+	public boolean isEnabled(Level level, String type) {
+		return enabled && !closed && level.compareTo(this.level) >= 0 && !sinks.isEmpty()
+				&& getSampleRate(type) > 0;
+	}
+
+	public void log(Level level, String type, String message) {
+		log(level, type, message, null, null);
+	}
+
+	public void log(Level level, String type, String message, Throwable error) {
+		log(level, type, message, null, error);
+	}
+
+	/**
+	 * Queues an event for the sinks, unless it is below the level or sampled
+	 * out. Never blocks.
+	 */
+	public void log(Level level, String type, String message, Map<String, String> fields,
+			Throwable error) {
+
+		if (!isEnabled(level, type) || !sampled(type)) {
+			return;
+		}
+		publish(new DiagnosticEvent(level, type, message, fields, error));
+	}
+
+	/**
+	 * Logs a completed request as {@link #REQUEST}, and as
+	 * {@link #SLOW_REQUEST} if it took at least the slow request threshold.
+	 *
+	 * @param status
+	 *            - the HTTP status, 0 if the API did not answer
+	 */
+	public void request(String method, String url, int status, long elapsedMillis) {
+		if (!enabled || closed) {
+			return;
+		}
+
+		long threshold = slowRequestThreshold;
+
+		if (threshold > 0 && elapsedMillis >= threshold && !sinks.isEmpty()) {
+			// Not sampled, slow requests are the ones worth seeing
+			publish(new DiagnosticEvent(Level.WARN, SLOW_REQUEST, "Slow request",
+					requestFields(method, url, status, elapsedMillis), null));
+		}
+
+		if (isEnabled(Level.DEBUG, REQUEST) && sampled(REQUEST)) {
+			publish(new DiagnosticEvent(Level.DEBUG, REQUEST, "Request",
+					requestFields(method, url, status, elapsedMillis), null));
+		}
+	}
+
+	/**
+	 * @return the number of events queued for the sinks
+	 */
+	public long getAccepted() {
+		return accepted.get();
+	}
+
+	/**
+	 * @return the number of events dropped because the sinks fell behind
+	 */
+	public long getDropped() {
+		return dropped.get();
+	}
+
+	/**
+	 * @return the number of events left out by sampling
+	 */
+	public long getSampledOut() {
+		return sampledOut.get();
+	}
+
+	/**
+	 * Waits until the sinks have received every event queued so far.
+	 *
+	 * @return false if they had not by the timeout
+	 */
+	public boolean flush(long timeoutMillis) throws InterruptedException {
+		if (!enabled) {
+			return true;
+		}
+
+		long target = accepted.get();
+		long until = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+
+		while (delivered < target) {
+			if (System.nanoTime() - until >= 0 || !worker.isAlive()) {
+				return delivered >= target;
+			}
+			LockSupport.unpark(worker);
+			Thread.sleep(1);
+		}
+		return true;
+	}
+
+	/**
+	 * Delivers the events already queued and stops the background thread.
+	 */
+	@Override
+	public void close() {
+		if (!enabled || closed) {
+			return;
+		}
+
+		closed = true;
+		LockSupport.unpark(worker);
+
+		try {
+			worker.join(TimeUnit.SECONDS.toMillis(5));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * @return fields from alternating names and values
+	 */
+	public static Map<String, String> fields(String... namesAndValues) {
+		Map<String, String> fields = new LinkedHashMap<String, String>();
+
+		for (int i = 0; i + 1 < namesAndValues.length; i += 2) {
+			fields.put(namesAndValues[i], namesAndValues[i + 1]);
+		}
+		return fields;
+	}
+
+	private static Map<String, String> requestFields(String method, String url, int status,
+			long elapsedMillis) {
+		return fields("method", method, "url", url, "status", String.valueOf(status),
+				"elapsedMillis", String.valueOf(elapsedMillis));
+	}
+
+	private boolean sampled(String type) {
+		double rate = getSampleRate(type);
+
+		if (rate >= 1 || ThreadLocalRandom.current().nextDouble() < rate) {
+			return true;
+		}
+		sampledOut.incrementAndGet();
+		return false;
+	}
+
+	private void publish(DiagnosticEvent event) {
+		if (ring.offer(event)) {
+			accepted.incrementAndGet();
+		} else {
+			dropped.incrementAndGet();
+		}
+	}
+
+	private void checkEnabled() {
+		if (!enabled) {
+			throw new UnsupportedOperationException("Create new Diagnostics to configure logging");
+		}
+	}
+
+	private void work() {
+		long park = 0;
+
+		while (true) {
+			DiagnosticEvent event = ring.poll();
+
+			if (event == null) {
+				if (closed && ring.isEmpty()) {
+					return;
+				}
+
+				// Back off while idle, without making producers signal
+				park = Math.min(MAX_IDLE_PARK, Math.max(TimeUnit.MICROSECONDS.toNanos(50), park * 2));
+				LockSupport.parkNanos(this, park);
+				continue;
+			}
+
+			park = 0;
+			deliver(Redactor.redact(event));
+			delivered++;
+		}
+	}
+
+	private void deliver(DiagnosticEvent event) {
+		for (DiagnosticSink sink : sinks) {
+			try {
+				sink.accept(event);
+			} catch (RuntimeException e) {
+				// A broken sink must not stop the others or the thread
+			}
+		}
+	}
+}
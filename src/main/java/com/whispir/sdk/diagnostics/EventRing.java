@@ -0,0 +1,77 @@
+package com.whispir.sdk.diagnostics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded ring of events with many producers and one consumer. Producers
+ * never wait: when the ring is full the event is refused.
+ */
+final class EventRing {
+
+	private final AtomicReferenceArray<DiagnosticEvent> slots;
+	private final int mask;
+
+	// The next sequence to claim, shared by the producers
+	private final AtomicLong tail = new AtomicLong();
+
+	// The next sequence to consume, only written by the consumer
+	private volatile long head;
+
+	/**
+	 * @param capacity
+	 *            - rounded up to a power of two
+	 */
+	EventRing(int capacity) {
+		int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+		this.slots = new AtomicReferenceArray<DiagnosticEvent>(size);
+		this.mask = size - 1;
+	}
+
+	int capacity() {
+		return mask + 1;
+	}
+
+	/**
+	 * @return false if the ring is full
+	 */
+	boolean offer(DiagnosticEvent event) {
+		long sequence;
+
+		do {
+			sequence = tail.get();
+
+			if (sequence - head > mask) {
+				return false;
+			}
+		} while (!tail.compareAndSet(sequence, sequence + 1));
+
+		// The slot was cleared before head moved past it
+		slots.set((int) (sequence & mask), event);
+		return true;
+	}
+
+	/**
+	 * Called by the consumer only.
+	 *
+	 * @return the oldest event, or null if there is none yet
+	 */
+	DiagnosticEvent poll() {
+		long sequence = head;
+		int index = (int) (sequence & mask);
+		DiagnosticEvent event = slots.get(index);
+
+		if (event == null) {
+			// Empty, or claimed but not yet written
+			return null;
+		}
+
+		slots.lazySet(index, null);
+		head = sequence + 1;
+		return event;
+	}
+
+	boolean isEmpty() {
+		return tail.get() == head;
+	}
+}
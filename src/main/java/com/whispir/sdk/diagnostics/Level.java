@@ -0,0 +1,27 @@
+package com.whispir.sdk.diagnostics;
+
+/**
+ * The severity of a {@link DiagnosticEvent}.
+ *
+ * @since 2.4
+ */
+public enum Level {
+
+	/**
+	 * Every request, for tracing. Usually sampled.
+	 */
+	DEBUG,
+
+	INFO,
+
+	/**
+	 * Problems the SDK recovered from, such as a connection error or a slow
+	 * request.
+	 */
+	WARN,
+
+	/**
+	 * Problems in the use of the SDK, such as a leaked buffer.
+	 */
+	ERROR
+}
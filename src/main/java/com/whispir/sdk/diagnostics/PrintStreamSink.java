@@ -0,0 +1,63 @@
+package com.whispir.sdk.diagnostics;
+
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * Writes each event as one line, followed by the stack trace of its cause:
+ *
+ * <pre>
+ * 2026-10-19T10:15:30.120+1100 WARN slow.request Slow request method=POST url=... status=202 elapsedMillis=2315 [main]
+ * </pre>
+ *
+ * @since 2.4
+ */
+public class PrintStreamSink implements DiagnosticSink {
+
+	private final PrintStream out;
+
+	// Only used on the diagnostics thread
+	private final SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ");
+
+	/**
+	 * Writes to standard error.
+	 */
+	public PrintStreamSink() {
+		this(System.err);
+	}
+
+	public PrintStreamSink(PrintStream out) {
+		this.out = out;
+	}
+
+	@Override
+	public void accept(DiagnosticEvent event) {
+		StringBuilder line = new StringBuilder(128);
+
+		line.append(format.format(new Date(event.getTimeMillis())))
+				.append(' ').append(event.getLevel())
+				.append(' ').append(event.getType());
+
+		if (event.getMessage() != null) {
+			line.append(' ').append(event.getMessage());
+		}
+
+		for (Map.Entry<String, String> field : event.getFields().entrySet()) {
+			line.append(' ').append(field.getKey()).append('=').append(field.getValue());
+		}
+
+		line.append(" [").append(event.getThread()).append(']');
+
+		if (event.getError() != null) {
+			StringWriter trace = new StringWriter();
+			event.getError().printStackTrace(new PrintWriter(trace));
+			line.append(System.getProperty("line.separator")).append(Redactor.redact(trace.toString().trim()));
+		}
+
+		out.println(line);
+	}
+}
@@ -0,0 +1,68 @@
+package com.whispir.sdk.diagnostics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Removes secrets from diagnostic text: the API key in request URLs,
+ * passwords, and credentials in headers.
+ *
+ * @since 2.4
+ */
+public final class Redactor {
+
+	public static final String MASK = "***";
+
+	// name=value or "name": "value", as found in URLs, headers and JSON
+	private static final Pattern NAMED_SECRET = Pattern.compile(
+			"(?i)((?:api[-_]?key|x-api-key|password|passwd|secret|token)\"?\\s*[=:]\\s*\"?)[^&\\s\",}]+");
+
+	private static final Pattern AUTHORIZATION = Pattern.compile("(?i)\\b(basic|bearer)\\s+[A-Za-z0-9+/=._~-]+");
+
+	private Redactor() {
+	}
+
+	/**
+	 * @return the text with the value of every secret replaced by
+	 *         {@link #MASK}, or null if the text is null
+	 */
+	public static String redact(String text) {
+		if (text == null) {
+			return null;
+		}
+
+		String redacted = NAMED_SECRET.matcher(text).replaceAll("$1" + MASK);
+		return AUTHORIZATION.matcher(redacted).replaceAll("$1 " + MASK);
+	}
+
+	/**
+	 * @return the fields with secret values masked. A field is secret if its
+	 *         name is, otherwise its value is redacted as text.
+	 */
+	public static Map<String, String> redact(Map<String, String> fields) {
+		Map<String, String> redacted = new LinkedHashMap<String, String>();
+
+		for (Map.Entry<String, String> field : fields.entrySet()) {
+			String value = isSecretName(field.getKey()) ? MASK : redact(field.getValue());
+			redacted.put(field.getKey(), value);
+		}
+		return redacted;
+	}
+
+	/**
+	 * @return a copy of the event with its message and fields redacted
+	 */
+	public static DiagnosticEvent redact(DiagnosticEvent event) {
+		return new DiagnosticEvent(event.getTimeMillis(), event.getLevel(), event.getType(),
+				redact(event.getMessage()), redact(event.getFields()), event.getError(),
+				event.getThread());
+	}
+
+	private static boolean isSecretName(String name) {
+		String lower = name.toLowerCase();
+		return lower.contains("password") || lower.contains("apikey") || lower.contains("api-key")
+				|| lower.contains("api_key") || lower.contains("secret") || lower.contains("token")
+				|| lower.contains("authorization");
+	}
+}
@@ -0,0 +1,236 @@
+package com.whispir.sdk.directory;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * An immutable index of the workspaces of an account and the scenarios of
+ * each workspace, by name and by ID.
+ *
+ * <p>
+ * Scenarios that do not belong to a workspace are listed under the empty
+ * workspace ID, as with {@link com.whispir.sdk.WhispirSDK#getScenarios()}.
+ * </p>
+ *
+ * @since 2.4
+ */
+public final class Directory {
+
+	private static final int SNAPSHOT_MAGIC = 0x57534449;
+	private static final int SNAPSHOT_VERSION = 2;
+
+	private final long loadedAt;
+	private final Map<String, String> workspaces;
+	private final Map<String, String> workspaceNames;
+	private final Map<String, Map<String, String>> scenarios;
+	private final Map<String, Map<String, String>> scenarioNames;
+	private final Map<String, Long> listedAt;
+
+	/**
+	 * @param loadedAt
+	 *            - when the directory was crawled, in epoch milliseconds
+	 * @param workspaces
+	 *            - workspace IDs by name
+	 * @param scenarios
+	 *            - scenario IDs by name, by workspace ID
+	 * @param listedAt
+	 *            - when the scenarios of each workspace were listed, in epoch
+	 *            milliseconds, by workspace ID
+	 */
+	Directory(long loadedAt, Map<String, String> workspaces,
+			Map<String, Map<String, String>> scenarios, Map<String, Long> listedAt) {
+		this.loadedAt = loadedAt;
+		this.listedAt = new HashMap<String, Long>(listedAt);
+		this.workspaces = Collections.unmodifiableMap(new TreeMap<String, String>(workspaces));
+		this.workspaceNames = invert(workspaces);
+
+		Map<String, Map<String, String>> byName = new HashMap<String, Map<String, String>>();
+		Map<String, Map<String, String>> byId = new HashMap<String, Map<String, String>>();
+
+		for (Map.Entry<String, Map<String, String>> entry : scenarios.entrySet()) {
+			byName.put(entry.getKey(),
+					Collections.unmodifiableMap(new TreeMap<String, String>(entry.getValue())));
+			byId.put(entry.getKey(), invert(entry.getValue()));
+		}
+
+		this.scenarios = byName;
+		this.scenarioNames = byId;
+	}
+
+	/**
+	 * @return when the directory was crawled, in epoch milliseconds
+	 */
+	public long getLoadedAt() {
+		return loadedAt;
+	}
+
+	/**
+	 * @return the workspace IDs by name
+	 */
+	public Map<String, String> getWorkspaces() {
+		return workspaces;
+	}
+
+	/**
+	 * @return the ID of the named workspace, or null if there is none
+	 */
+	public String getWorkspaceId(String name) {
+		return workspaces.get(name);
+	}
+
+	/**
+	 * @return the name of the workspace, or null if there is none
+	 */
+	public String getWorkspaceName(String workspaceId) {
+		return workspaceNames.get(workspaceId);
+	}
+
+	/**
+	 * @return the scenario IDs of the workspace by name, empty if the
+	 *         workspace is not known
+	 */
+	public Map<String, String> getScenarios(String workspaceId) {
+		Map<String, String> map = scenarios.get(key(workspaceId));
+		return map == null ? Collections.<String, String> emptyMap() : map;
+	}
+
+	/**
+	 * @return the ID of the named scenario of the workspace, or null if there
+	 *         is none
+	 */
+	public String getScenarioId(String workspaceId, String scenarioName) {
+		return getScenarios(workspaceId).get(scenarioName);
+	}
+
+	/**
+	 * @return the name of the scenario of the workspace, or null if there is
+	 *         none
+	 */
+	public String getScenarioName(String workspaceId, String scenarioId) {
+		Map<String, String> map = scenarioNames.get(key(workspaceId));
+		return map == null ? null : map.get(scenarioId);
+	}
+
+	/**
+	 * @return true if the scenarios of the workspace have been crawled
+	 */
+	public boolean hasScenarios(String workspaceId) {
+		return scenarios.containsKey(key(workspaceId));
+	}
+
+	/**
+	 * @return when the scenarios of the workspace were last listed, in epoch
+	 *         milliseconds, or 0 if they have not been
+	 */
+	public long getScenariosLoadedAt(String workspaceId) {
+		Long at = listedAt.get(key(workspaceId));
+		return at == null ? 0 : at;
+	}
+
+	/**
+	 * @return the number of scenarios across all workspaces
+	 */
+	public int getScenarioCount() {
+		int count = 0;
+
+		for (Map<String, String> map : scenarios.values()) {
+			count += map.size();
+		}
+		return count;
+	}
+
+	/**
+	 * Compares the contents, ignoring when each directory was crawled.
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof Directory)) {
+			return false;
+		}
+
+		Directory other = (Directory) obj;
+		return workspaces.equals(other.workspaces) && scenarios.equals(other.scenarios);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * workspaces.hashCode() + scenarios.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return "Directory [workspaces=" + workspaces.size() + ", scenarios="
+				+ getScenarioCount() + ", loadedAt=" + loadedAt + "]";
+	}
+
+	void writeTo(DataOutput out) throws IOException {
+		out.writeInt(SNAPSHOT_MAGIC);
+		out.writeInt(SNAPSHOT_VERSION);
+		out.writeLong(loadedAt);
+		writeMap(out, workspaces);
+
+		out.writeInt(scenarios.size());
+		for (Map.Entry<String, Map<String, String>> entry : scenarios.entrySet()) {
+			out.writeUTF(entry.getKey());
+			out.writeLong(getScenariosLoadedAt(entry.getKey()));
+			writeMap(out, entry.getValue());
+		}
+	}
+
+	static Directory readFrom(DataInput in) throws IOException {
+		if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+			throw new IOException("Not a directory snapshot, or from another SDK version");
+		}
+
+		long loadedAt = in.readLong();
+		Map<String, String> workspaces = readMap(in);
+		Map<String, Map<String, String>> scenarios = new HashMap<String, Map<String, String>>();
+		Map<String, Long> listedAt = new HashMap<String, Long>();
+
+		for (int i = in.readInt(); i > 0; i--) {
+			String workspaceId = in.readUTF();
+			listedAt.put(workspaceId, in.readLong());
+			scenarios.put(workspaceId, readMap(in));
+		}
+
+		return new Directory(loadedAt, workspaces, scenarios, listedAt);
+	}
+
+	private static void writeMap(DataOutput out, Map<String, String> map) throws IOException {
+		out.writeInt(map.size());
+		for (Map.Entry<String, String> entry : map.entrySet()) {
+			out.writeUTF(entry.getKey());
+			out.writeUTF(entry.getValue());
+		}
+	}
+
+	private static Map<String, String> readMap(DataInput in) throws IOException {
+		Map<String, String> map = new HashMap<String, String>();
+
+		for (int i = in.readInt(); i > 0; i--) {
+			map.put(in.readUTF(), in.readUTF());
+		}
+		return map;
+	}
+
+	private static Map<String, String> invert(Map<String, String> map) {
+		Map<String, String> inverted = new HashMap<String, String>();
+
+		for (Map.Entry<String, String> entry : map.entrySet()) {
+			inverted.put(entry.getValue(), entry.getKey());
+		}
+		return Collections.unmodifiableMap(inverted);
+	}
+
+	private static String key(String workspaceId) {
+		return workspaceId == null ? "" : workspaceId;
+	}
+}
@@ -0,0 +1,360 @@
+package com.whispir.sdk.directory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.whispir.sdk.WhispirResponse;
+import com.whispir.sdk.WhispirSDK;
+import com.whispir.sdk.diagnostics.Diagnostics;
+import com.whispir.sdk.diagnostics.Level;
+import com.whispir.sdk.dispatch.DaemonThreadFactory;
+import com.whispir.sdk.exceptions.WhispirSDKException;
+
+/**
+ * Crawls the workspaces of an account and the scenarios of each workspace
+ * into a {@link Directory}, and keeps a snapshot of it on disk.
+ *
+ * <p>
+ * The scenarios of the workspaces are listed in parallel on a bounded pool,
+ * rather than one workspace after another. The directory is saved as a
+ * compact binary snapshot, so that the next {@link #load()} returns at once
+ * from the snapshot and refreshes it in the background. A refresh replaces
+ * the directory as a whole when it completes; a workspace whose scenarios
+ * cannot be listed keeps the scenarios it had before, and the snapshot is
+ * only rewritten when something changed.
+ * </p>
+ * <p>
+ * The API does not say what changed since a given time, so a refresh always
+ * lists the workspaces, one request, but only lists the scenarios of
+ * workspaces that are new or whose scenarios are older than the
+ * {@link #setScenarioMaxAge(long) maximum age}. The others keep the
+ * scenarios they had. A maximum age of 0 lists them all on every refresh.
+ * </p>
+ *
+ * <pre>
+ * DirectoryLoader loader = new DirectoryLoader(sdk, new File("whispir-directory.bin"));
+ * Directory directory = loader.load();
+ * String scenarioId = directory.getScenarioId(directory.getWorkspaceId("Operations"), "Site evacuation");
+ * </pre>
+ *
+ * A snapshot holds one account, so give each account its own file.
+ *
+ * @since 2.4
+ */
+public class DirectoryLoader implements Closeable {
+
+	public static final int DEFAULT_PARALLELISM = 8;
+	public static final long DEFAULT_SCENARIO_MAX_AGE = TimeUnit.MINUTES.toMillis(15);
+
+	private final WhispirSDK sdk;
+	private final File snapshot;
+	private final ExecutorService crawlers;
+	private final ExecutorService refresher;
+	private final Object refreshLock = new Object();
+
+	private volatile Directory directory;
+	private volatile int lastFailures;
+	private volatile int lastListed;
+	private volatile long scenarioMaxAge = DEFAULT_SCENARIO_MAX_AGE;
+	private Future<Directory> pendingRefresh;
+
+	public DirectoryLoader(WhispirSDK sdk, File snapshot) {
+		this(sdk, snapshot, DEFAULT_PARALLELISM);
+	}
+
+	/**
+	 * @param sdk
+	 *            - the SDK of the account to crawl
+	 * @param snapshot
+	 *            - the file the directory is saved to, or null to keep it in
+	 *            memory only
+	 * @param parallelism
+	 *            - the most workspaces crawled at once
+	 */
+	public DirectoryLoader(WhispirSDK sdk, File snapshot, int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("Parallelism must be at least 1");
+		}
+
+		this.sdk = sdk;
+		this.snapshot = snapshot;
+
+		ThreadPoolExecutor pool = new ThreadPoolExecutor(parallelism, parallelism, 30,
+				TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+				new DaemonThreadFactory("whispir-directory-crawl"));
+		// Idle between refreshes, so do not keep the threads
+		pool.allowCoreThreadTimeOut(true);
+		this.crawlers = pool;
+		this.refresher = Executors.newSingleThreadExecutor(new DaemonThreadFactory("whispir-directory"));
+	}
+
+	/**
+	 * Loads the directory from the snapshot and refreshes it in the
+	 * background, or crawls it now if there is no usable snapshot.
+	 *
+	 * @return the directory
+	 */
+	public Directory load() throws WhispirSDKException {
+		Directory loaded = readSnapshot();
+
+		if (loaded == null) {
+			return refresh();
+		}
+
+		this.directory = loaded;
+		refreshInBackground();
+		return loaded;
+	}
+
+	/**
+	 * Crawls the directory now, replacing the current one.
+	 *
+	 * @return the new directory
+	 * @throws WhispirSDKException
+	 *             if the workspaces could not be listed
+	 */
+	public Directory refresh() throws WhispirSDKException {
+		synchronized (refreshLock) {
+			Directory previous = this.directory;
+			Directory crawled = crawl(previous);
+
+			this.directory = crawled;
+
+			if (!crawled.equals(previous)) {
+				writeSnapshot(crawled);
+			}
+			return crawled;
+		}
+	}
+
+	/**
+	 * Crawls the directory on a background thread. If a background refresh
+	 * is already running, its future is returned instead of starting another.
+	 *
+	 * @return completes with the new directory
+	 */
+	public synchronized Future<Directory> refreshInBackground() {
+		if (pendingRefresh == null || pendingRefresh.isDone()) {
+			pendingRefresh = refresher.submit(new Callable<Directory>() {
+				@Override
+				public Directory call() throws WhispirSDKException {
+					return refresh();
+				}
+			});
+		}
+		return pendingRefresh;
+	}
+
+	/**
+	 * @return the current directory, or null if it has not been loaded
+	 */
+	public Directory getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * @param scenarioMaxAge
+	 *            - how long, in milliseconds, the scenarios of a workspace are
+	 *            kept before a refresh lists them again
+	 */
+	public void setScenarioMaxAge(long scenarioMaxAge) {
+		if (scenarioMaxAge < 0) {
+			throw new IllegalArgumentException("The maximum age must not be negative");
+		}
+		this.scenarioMaxAge = scenarioMaxAge;
+	}
+
+	public long getScenarioMaxAge() {
+		return scenarioMaxAge;
+	}
+
+	/**
+	 * @return the number of workspaces whose scenarios were listed by the
+	 *         last crawl, including those that failed
+	 */
+	public int getLastListed() {
+		return lastListed;
+	}
+
+	/**
+	 * @return the number of workspaces whose scenarios could not be listed by
+	 *         the last crawl
+	 */
+	public int getLastFailures() {
+		return lastFailures;
+	}
+
+	@Override
+	public void close() {
+		refresher.shutdownNow();
+		crawlers.shutdownNow();
+	}
+
+	private Directory crawl(Directory previous) throws WhispirSDKException {
+		WhispirResponse response = sdk.getWorkspaces();
+
+		if (response.getStatusCode() != 200 || response.getResponse() == null) {
+			throw new WhispirSDKException("The workspaces could not be listed. Status: "
+					+ response.getStatusCode());
+		}
+
+		Map<String, String> workspaces = response.getResponse();
+
+		// The account's own scenarios are listed under the empty workspace ID
+		List<String> workspaceIds = new ArrayList<String>(workspaces.values());
+		workspaceIds.add("");
+
+		long now = System.currentTimeMillis();
+		Map<String, Map<String, String>> scenarios = new HashMap<String, Map<String, String>>();
+		Map<String, Long> listedAt = new HashMap<String, Long>();
+		Map<String, Future<Map<String, String>>> pending = new LinkedHashMap<String, Future<Map<String, String>>>();
+
+		for (final String workspaceId : workspaceIds) {
+			if (previous != null && previous.hasScenarios(workspaceId)) {
+				long at = previous.getScenariosLoadedAt(workspaceId);
+
+				if (now - at < scenarioMaxAge) {
+					scenarios.put(workspaceId, previous.getScenarios(workspaceId));
+					listedAt.put(workspaceId, at);
+					continue;
+				}
+			}
+
+			pending.put(workspaceId, crawlers.submit(new Callable<Map<String, String>>() {
+				@Override
+				public Map<String, String> call() throws WhispirSDKException {
+					return listScenarios(workspaceId);
+				}
+			}));
+		}
+
+		int failures = 0;
+
+		try {
+			for (Map.Entry<String, Future<Map<String, String>>> entry : pending.entrySet()) {
+				String workspaceId = entry.getKey();
+
+				try {
+					scenarios.put(workspaceId, entry.getValue().get());
+					listedAt.put(workspaceId, now);
+				} catch (ExecutionException e) {
+					failures++;
+
+					// Listed again on the next refresh, as it is still stale
+					if (previous != null && previous.hasScenarios(workspaceId)) {
+						scenarios.put(workspaceId, previous.getScenarios(workspaceId));
+						listedAt.put(workspaceId, previous.getScenariosLoadedAt(workspaceId));
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			for (Future<Map<String, String>> future : pending.values()) {
+				future.cancel(true);
+			}
+			Thread.currentThread().interrupt();
+			throw new WhispirSDKException("Interrupted while crawling the directory");
+		}
+
+		this.lastListed = pending.size();
+		this.lastFailures = failures;
+		return new Directory(System.currentTimeMillis(), workspaces, scenarios, listedAt);
+	}
+
+	private Map<String, String> listScenarios(String workspaceId) throws WhispirSDKException {
+		WhispirResponse response = sdk.getScenarios(workspaceId);
+
+		if (response.getStatusCode() != 200) {
+			throw new WhispirSDKException("The scenarios of workspace " + workspaceId
+					+ " could not be listed. Status: " + response.getStatusCode());
+		}
+
+		Map<String, String> map = response.getResponse();
+		return map == null ? Collections.<String, String> emptyMap() : map;
+	}
+
+	private Directory readSnapshot() {
+		if (snapshot == null || !snapshot.isFile()) {
+			return null;
+		}
+
+		try {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(
+					new GZIPInputStream(new FileInputStream(snapshot))));
+
+			try {
+				return Directory.readFrom(in);
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			// Unreadable or from another version, crawl instead
+			sdk.getDiagnostics().log(Level.WARN, Diagnostics.DIRECTORY,
+					"Ignoring directory snapshot " + snapshot + ": " + e.getMessage());
+			return null;
+		}
+	}
+
+	private void writeSnapshot(Directory directory) {
+		if (snapshot == null) {
+			return;
+		}
+
+		File parent = snapshot.getAbsoluteFile().getParentFile();
+
+		try {
+			// Written aside and moved into place, so a reader never sees half
+			// a snapshot
+			File temp = File.createTempFile(snapshot.getName(), ".tmp", parent);
+
+			try {
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+						new GZIPOutputStream(new FileOutputStream(temp))));
+
+				try {
+					directory.writeTo(out);
+				} finally {
+					out.close();
+				}
+
+				try {
+					Files.move(temp.toPath(), snapshot.toPath(), StandardCopyOption.REPLACE_EXISTING,
+							StandardCopyOption.ATOMIC_MOVE);
+				} catch (AtomicMoveNotSupportedException e) {
+					Files.move(temp.toPath(), snapshot.toPath(), StandardCopyOption.REPLACE_EXISTING);
+				}
+			} finally {
+				temp.delete();
+			}
+		} catch (IOException e) {
+			// The directory is still usable, it will be crawled again next time
+			sdk.getDiagnostics().log(Level.WARN, Diagnostics.DIRECTORY,
+					"Directory snapshot could not be saved to " + snapshot + ": " + e.getMessage());
+		}
+	}
+}
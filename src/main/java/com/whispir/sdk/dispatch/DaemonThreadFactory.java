@@ -0,0 +1,31 @@
+package com.whispir.sdk.dispatch;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates named daemon threads, so that idle SDK workers never keep the JVM
+ * alive.
+ *
+ * @since 2.4
+ */
+public class DaemonThreadFactory implements ThreadFactory {
+
+	private final String name;
+	private final AtomicInteger count = new AtomicInteger();
+
+	/**
+	 * @param name
+	 *            - the prefix for the thread names
+	 */
+	public DaemonThreadFactory(String name) {
+		this.name = name;
+	}
+
+	@Override
+	public Thread newThread(Runnable r) {
+		Thread thread = new Thread(r, name + "-" + count.incrementAndGet());
+		thread.setDaemon(true);
+		return thread;
+	}
+}
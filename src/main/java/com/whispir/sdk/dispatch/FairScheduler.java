@@ -0,0 +1,327 @@
+package com.whispir.sdk.dispatch;
+
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Weighted fair queuing scheduler.
+ *
+ * <p>
+ * Tasks are queued per key (for example per tenant). Each task is given a
+ * virtual finish time based on the weight of its queue, and workers always run
+ * the queued task with the earliest finish time. A key with a large backlog
+ * therefore only gets its weighted share of the workers, and a task submitted
+ * on a quiet key is run next rather than waiting behind the backlog.
+ * </p>
+ * <p>
+ * A queue may have its own {@link RateLimiter}. A queue that is over its rate
+ * is skipped until it has a permit, so it does not hold up the other queues.
+ * </p>
+ *
+ * @param <K>
+ *            the type of the queue key
+ * @since 2.4
+ */
+public class FairScheduler<K> {
+
+	public static final int DEFAULT_MAX_QUEUED = 100000;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition available = lock.newCondition();
+
+	private final Map<K, Lane> lanes = new LinkedHashMap<K, Lane>();
+	private final Thread[] workers;
+
+	private double virtualTime;
+	private int queued;
+	private volatile boolean shutdown;
+
+	/**
+	 * @param name
+	 *            - the prefix for the worker thread names
+	 * @param workerCount
+	 *            - the number of worker threads shared by every queue
+	 */
+	public FairScheduler(String name, int workerCount) {
+		if (workerCount < 1) {
+			throw new IllegalArgumentException("At least one worker is required");
+		}
+
+		ThreadFactory factory = new DaemonThreadFactory(name);
+		this.workers = new Thread[workerCount];
+
+		for (int i = 0; i < workerCount; i++) {
+			workers[i] = factory.newThread(new Runnable() {
+				@Override
+				public void run() {
+					work();
+				}
+			});
+			workers[i].start();
+		}
+	}
+
+	/**
+	 * Registers a queue.
+	 *
+	 * @param key
+	 *            - the queue key
+	 * @param weight
+	 *            - the relative share of the workers for this queue
+	 * @param limiter
+	 *            - the rate limit for this queue, or null for none
+	 * @param maxQueued
+	 *            - the number of tasks that can wait in this queue before
+	 *            submissions are rejected
+	 */
+	public void register(K key, double weight, RateLimiter limiter, int maxQueued) {
+		if (weight <= 0) {
+			throw new IllegalArgumentException("Weight must be positive");
+		}
+
+		lock.lock();
+		try {
+			if (lanes.containsKey(key)) {
+				throw new IllegalArgumentException("Queue already registered: " + key);
+			}
+			lanes.put(key, new Lane(weight, limiter, maxQueued));
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Removes a queue. Tasks still waiting in the queue are not run, and those
+	 * that are a {@link Future} are cancelled.
+	 *
+	 * @return the number of tasks dropped
+	 */
+	public int unregister(K key) {
+		lock.lock();
+		try {
+			Lane lane = lanes.remove(key);
+
+			if (lane == null) {
+				return 0;
+			}
+
+			int dropped = lane.tasks.size();
+			queued -= dropped;
+			cancel(lane);
+			return dropped;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Queues a task to be run by the next free worker, in weighted fair order.
+	 *
+	 * @throws RejectedExecutionException
+	 *             if the key is not registered, its queue is full or the
+	 *             scheduler has been shut down
+	 */
+	public void submit(K key, Runnable task) {
+		lock.lock();
+		try {
+			if (shutdown) {
+				throw new RejectedExecutionException("Scheduler has been shut down");
+			}
+
+			Lane lane = lanes.get(key);
+
+			if (lane == null) {
+				throw new RejectedExecutionException("Queue not registered: " + key);
+			}
+			if (lane.tasks.size() >= lane.maxQueued) {
+				throw new RejectedExecutionException("Queue is full: " + key);
+			}
+
+			// Start-time fair queuing: a queue that has been idle starts at the
+			// current virtual time, so it cannot bank credit while idle.
+			double start = Math.max(virtualTime, lane.lastFinish);
+			lane.lastFinish = start + 1 / lane.weight;
+			lane.tasks.add(new Entry(task, lane.lastFinish));
+			queued++;
+
+			available.signal();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return the number of tasks waiting for the key, or 0 if not registered
+	 */
+	public int getQueued(K key) {
+		lock.lock();
+		try {
+			Lane lane = lanes.get(key);
+			return lane != null ? lane.tasks.size() : 0;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return the number of tasks waiting across every queue
+	 */
+	public int getQueued() {
+		lock.lock();
+		try {
+			return queued;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Stops the workers. Tasks already running are allowed to finish, queued
+	 * tasks are not run, and those that are a {@link Future} are cancelled.
+	 */
+	public void shutdown() {
+		lock.lock();
+		try {
+			shutdown = true;
+
+			for (Lane lane : lanes.values()) {
+				cancel(lane);
+			}
+			queued = 0;
+
+			available.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+		for (Thread worker : workers) {
+			long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+
+			if (remaining <= 0) {
+				return false;
+			}
+			worker.join(remaining);
+
+			if (worker.isAlive()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void work() {
+		while (true) {
+			Runnable task;
+
+			try {
+				task = take();
+			} catch (InterruptedException e) {
+				return;
+			}
+
+			if (task == null) {
+				return;
+			}
+
+			try {
+				task.run();
+			} catch (RuntimeException e) {
+				// Tasks are expected to handle their own errors (FutureTask
+				// does), keep the worker alive regardless.
+			}
+		}
+	}
+
+	private Runnable take() throws InterruptedException {
+		lock.lock();
+		try {
+			while (!shutdown) {
+				Lane best = null;
+				long wait = Long.MAX_VALUE;
+
+				// Pick the head with the earliest finish time that is within its rate
+				for (Lane lane : lanes.values()) {
+					Entry head = lane.tasks.peek();
+
+					if (head == null || (best != null && head.finish >= best.tasks.peek().finish)) {
+						continue;
+					}
+
+					long limited = lane.limiter != null ? lane.limiter.nanosUntilAvailable() : 0;
+
+					if (limited == 0) {
+						best = lane;
+					} else {
+						wait = Math.min(wait, limited);
+					}
+				}
+
+				if (best != null && (best.limiter == null || best.limiter.tryAcquire())) {
+					Entry entry = best.tasks.poll();
+					queued--;
+					virtualTime = Math.max(virtualTime, entry.finish - 1 / best.weight);
+
+					if (queued > 0) {
+						// Let another worker pick up the next task
+						available.signal();
+					}
+					return entry.task;
+				}
+
+				if (best == null && wait == Long.MAX_VALUE) {
+					available.await();
+				} else if (best == null) {
+					available.awaitNanos(wait);
+				}
+			}
+			return null;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	// Callers waiting on a dropped FutureTask would otherwise never return
+	private static void cancel(Lane lane) {
+		for (Entry entry : lane.tasks) {
+			if (entry.task instanceof Future) {
+				((Future<?>) entry.task).cancel(false);
+			}
+		}
+		lane.tasks.clear();
+	}
+
+	private static class Lane {
+		private final double weight;
+		private final RateLimiter limiter;
+		private final int maxQueued;
+		private final ArrayDeque<Entry> tasks = new ArrayDeque<Entry>();
+		private double lastFinish;
+
+		Lane(double weight, RateLimiter limiter, int maxQueued) {
+			this.weight = weight;
+			this.limiter = limiter;
+			this.maxQueued = maxQueued;
+		}
+	}
+
+	private static class Entry {
+		private final Runnable task;
+		private final double finish;
+
+		Entry(Runnable task, double finish) {
+			this.task = task;
+			this.finish = finish;
+		}
+	}
+}
@@ -0,0 +1,15 @@
+package com.whispir.sdk.dispatch;
+
+/**
+ * Traffic classes of the {@link PriorityDispatcher}, highest priority first.
+ *
+ * @since 2.4
+ */
+public enum Priority {
+	/** Emergency alerts, dispatched ahead of all other traffic */
+	CRITICAL,
+	/** Day to day messages */
+	NORMAL,
+	/** Marketing and other bulk sends */
+	BULK
+}
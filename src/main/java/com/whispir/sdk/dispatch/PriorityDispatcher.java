@@ -0,0 +1,448 @@
+package com.whispir.sdk.dispatch;
+
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Dispatches SDK requests through priority lanes.
+ *
+ * <p>
+ * Each {@link Priority} has its own queue. In {@link Mode#STRICT} mode a free
+ * worker always takes the highest priority task that is allowed to run, so a
+ * CRITICAL message is started by the next free worker regardless of how much
+ * BULK traffic is queued. In {@link Mode#WEIGHTED} mode the lanes share the
+ * workers in proportion to their weights, so lower lanes keep making progress.
+ * </p>
+ * <p>
+ * A lane can reserve workers for itself. Reserved workers are never used by
+ * another lane, so a CRITICAL message does not even wait for a running BULK
+ * request to finish. Each lane may also have its own rate limit (its share of
+ * the account's rate).
+ * </p>
+ *
+ * <pre>
+ * PriorityDispatcher dispatcher = new PriorityDispatcher(16);
+ * dispatcher.setReservedConcurrency(Priority.CRITICAL, 4);
+ * dispatcher.setRateLimit(Priority.BULK, 20);
+ * sdk.setDispatcher(dispatcher);
+ *
+ * Future&lt;WhispirResponse&gt; response = sdk.sendMessage(Priority.CRITICAL, workspaceId, recipient, subject, content, options);
+ * </pre>
+ *
+ * @since 2.4
+ */
+public class PriorityDispatcher {
+
+	public enum Mode {
+		/** Always run the highest priority task first */
+		STRICT,
+		/** Share the workers between the lanes by weight */
+		WEIGHTED
+	}
+
+	public static final int DEFAULT_CONCURRENCY = 8;
+	public static final int DEFAULT_MAX_QUEUED = 100000;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition changed = lock.newCondition();
+
+	private final int concurrency;
+	private final Map<Priority, Lane> lanes = new EnumMap<Priority, Lane>(Priority.class);
+	private final Thread[] workers;
+
+	private Mode mode = Mode.STRICT;
+	private double virtualTime;
+	private int queued;
+	private boolean shutdown;
+
+	public PriorityDispatcher() {
+		this(DEFAULT_CONCURRENCY);
+	}
+
+	/**
+	 * @param concurrency
+	 *            - the number of requests that can run at once across all
+	 *            lanes
+	 */
+	public PriorityDispatcher(int concurrency) {
+		if (concurrency < 1) {
+			throw new IllegalArgumentException("Concurrency must be at least 1");
+		}
+
+		this.concurrency = concurrency;
+
+		lanes.put(Priority.CRITICAL, new Lane(16));
+		lanes.put(Priority.NORMAL, new Lane(4));
+		lanes.put(Priority.BULK, new Lane(1));
+
+		ThreadFactory factory = new DaemonThreadFactory("whispir-dispatch");
+		this.workers = new Thread[concurrency];
+
+		for (int i = 0; i < concurrency; i++) {
+			workers[i] = factory.newThread(new Runnable() {
+				@Override
+				public void run() {
+					work();
+				}
+			});
+			workers[i].start();
+		}
+	}
+
+	public int getConcurrency() {
+		return concurrency;
+	}
+
+	public void setMode(Mode mode) {
+		lock.lock();
+		try {
+			this.mode = mode;
+			changed.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public Mode getMode() {
+		lock.lock();
+		try {
+			return mode;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Reserves workers for a lane. The total reserved across all lanes must
+	 * leave at least one worker for shared use.
+	 *
+	 * @param priority
+	 * @param reserved
+	 *            - the number of workers only this lane can use
+	 */
+	public void setReservedConcurrency(Priority priority, int reserved) {
+		lock.lock();
+		try {
+			int total = reserved;
+			for (Map.Entry<Priority, Lane> entry : lanes.entrySet()) {
+				if (entry.getKey() != priority) {
+					total += entry.getValue().reserved;
+				}
+			}
+
+			if (reserved < 0 || total >= concurrency) {
+				throw new IllegalArgumentException("Reserved concurrency must leave at least one shared worker");
+			}
+
+			lanes.get(priority).reserved = reserved;
+			changed.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @param priority
+	 * @param permitsPerSecond
+	 *            - the rate share of the lane, 0 for unlimited
+	 */
+	public void setRateLimit(Priority priority, double permitsPerSecond) {
+		lock.lock();
+		try {
+			lanes.get(priority).limiter = permitsPerSecond > 0 ? new RateLimiter(permitsPerSecond) : null;
+			changed.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @param priority
+	 * @param weight
+	 *            - the share of the workers in WEIGHTED mode (defaults 16, 4
+	 *            and 1)
+	 */
+	public void setWeight(Priority priority, double weight) {
+		if (weight <= 0) {
+			throw new IllegalArgumentException("Weight must be positive");
+		}
+
+		lock.lock();
+		try {
+			lanes.get(priority).weight = weight;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @param priority
+	 * @param maxQueued
+	 *            - the number of tasks that can wait in the lane before new
+	 *            ones are rejected
+	 */
+	public void setMaxQueued(Priority priority, int maxQueued) {
+		lock.lock();
+		try {
+			lanes.get(priority).maxQueued = maxQueued;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Queues a task in the lane for its priority.
+	 *
+	 * @throws RejectedExecutionException
+	 *             if the lane is full or the dispatcher has been shut down
+	 */
+	public <T> Future<T> submit(Priority priority, Callable<T> task) {
+		FutureTask<T> future = new FutureTask<T>(task);
+
+		lock.lock();
+		try {
+			if (shutdown) {
+				throw new RejectedExecutionException("Dispatcher has been shut down");
+			}
+
+			Lane lane = lanes.get(priority);
+
+			if (lane.tasks.size() >= lane.maxQueued) {
+				throw new RejectedExecutionException("The " + priority + " lane is full");
+			}
+
+			double start = Math.max(virtualTime, lane.lastFinish);
+			lane.lastFinish = start + 1 / lane.weight;
+			lane.tasks.add(new Entry(future, lane.lastFinish));
+			queued++;
+
+			changed.signal();
+		} finally {
+			lock.unlock();
+		}
+
+		return future;
+	}
+
+	/**
+	 * @return the number of tasks waiting in the lane
+	 */
+	public int getQueued(Priority priority) {
+		lock.lock();
+		try {
+			return lanes.get(priority).tasks.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return the number of tasks of the lane that are running
+	 */
+	public int getInFlight(Priority priority) {
+		lock.lock();
+		try {
+			return lanes.get(priority).inFlight;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Stops the workers. Running tasks are allowed to finish, queued tasks
+	 * are cancelled.
+	 */
+	public void shutdown() {
+		lock.lock();
+		try {
+			shutdown = true;
+
+			for (Lane lane : lanes.values()) {
+				for (Entry entry : lane.tasks) {
+					entry.task.cancel(false);
+				}
+				lane.tasks.clear();
+			}
+			queued = 0;
+
+			changed.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+		for (Thread worker : workers) {
+			long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+
+			if (remaining <= 0) {
+				return false;
+			}
+			worker.join(remaining);
+
+			if (worker.isAlive()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void work() {
+		while (true) {
+			Lane lane;
+			Entry entry;
+
+			lock.lock();
+			try {
+				lane = null;
+
+				while (!shutdown && (lane = next()) == null) {
+					long wait = rateWait();
+
+					if (wait > 0) {
+						changed.awaitNanos(wait);
+					} else {
+						changed.await();
+					}
+				}
+
+				if (shutdown) {
+					return;
+				}
+
+				entry = lane.tasks.poll();
+				lane.inFlight++;
+				queued--;
+				virtualTime = Math.max(virtualTime, entry.finish - 1 / lane.weight);
+
+				if (queued > 0) {
+					changed.signal();
+				}
+			} catch (InterruptedException e) {
+				return;
+			} finally {
+				lock.unlock();
+			}
+
+			try {
+				entry.task.run();
+			} finally {
+				lock.lock();
+				try {
+					lane.inFlight--;
+					changed.signalAll();
+				} finally {
+					lock.unlock();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Picks the lane to run next and takes its rate permit, or returns null if
+	 * no queued task is allowed to run.
+	 */
+	private Lane next() {
+		Lane best = null;
+
+		for (Priority priority : Priority.values()) {
+			Lane lane = lanes.get(priority);
+			Entry head = lane.tasks.peek();
+
+			if (head == null || !admits(lane)
+					|| (lane.limiter != null && lane.limiter.nanosUntilAvailable() > 0)) {
+				continue;
+			}
+
+			if (mode == Mode.STRICT) {
+				best = lane;
+				break;
+			}
+
+			if (best == null || head.finish < best.tasks.peek().finish) {
+				best = lane;
+			}
+		}
+
+		if (best != null && best.limiter != null && !best.limiter.tryAcquire()) {
+			return null;
+		}
+		return best;
+	}
+
+	/**
+	 * A lane can run a task on one of its reserved workers, or on a shared
+	 * worker if one is free.
+	 */
+	private boolean admits(Lane lane) {
+		if (lane.inFlight < lane.reserved) {
+			return true;
+		}
+
+		int reserved = 0;
+		int shared = 0;
+
+		for (Lane other : lanes.values()) {
+			reserved += other.reserved;
+			shared += Math.max(0, other.inFlight - other.reserved);
+		}
+
+		return shared < concurrency - reserved;
+	}
+
+	/**
+	 * @return nanoseconds until a rate limited lane with queued tasks has a
+	 *         permit, 0 if waiting on a worker instead
+	 */
+	private long rateWait() {
+		long wait = 0;
+
+		for (Lane lane : lanes.values()) {
+			if (lane.limiter == null || lane.tasks.isEmpty() || !admits(lane)) {
+				continue;
+			}
+
+			long nanos = lane.limiter.nanosUntilAvailable();
+
+			if (nanos > 0 && (wait == 0 || nanos < wait)) {
+				wait = nanos;
+			}
+		}
+		return wait;
+	}
+
+	private static class Lane {
+		private final ArrayDeque<Entry> tasks = new ArrayDeque<Entry>();
+		private double weight;
+		private int reserved;
+		private int maxQueued = DEFAULT_MAX_QUEUED;
+		private RateLimiter limiter;
+		private int inFlight;
+		private double lastFinish;
+
+		Lane(double weight) {
+			this.weight = weight;
+		}
+	}
+
+	private static class Entry {
+		private final FutureTask<?> task;
+		private final double finish;
+
+		Entry(FutureTask<?> task, double finish) {
+			this.task = task;
+			this.finish = finish;
+		}
+	}
+}
@@ -0,0 +1,102 @@
+package com.whispir.sdk.dispatch;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket rate limiter.
+ *
+ * <p>
+ * Tokens are added at a fixed rate up to the burst size. Each permit takes one
+ * token. Callers that must not block (such as a scheduler choosing between
+ * queues) use {@link #tryAcquire()} and {@link #nanosUntilAvailable()}.
+ * </p>
+ *
+ * @since 2.4
+ */
+public class RateLimiter {
+
+	private final double permitsPerSecond;
+	private final double burst;
+
+	private double tokens;
+	private long lastRefill;
+
+	/**
+	 * @param permitsPerSecond
+	 *            - the sustained rate
+	 */
+	public RateLimiter(double permitsPerSecond) {
+		this(permitsPerSecond, Math.max(1, permitsPerSecond));
+	}
+
+	/**
+	 * @param permitsPerSecond
+	 *            - the sustained rate
+	 * @param burst
+	 *            - the number of permits that can be taken at once after an
+	 *            idle period
+	 */
+	public RateLimiter(double permitsPerSecond, double burst) {
+		if (permitsPerSecond <= 0 || burst < 1) {
+			throw new IllegalArgumentException("Rate must be positive and burst at least 1");
+		}
+
+		this.permitsPerSecond = permitsPerSecond;
+		this.burst = burst;
+		this.tokens = burst;
+		this.lastRefill = System.nanoTime();
+	}
+
+	public double getRate() {
+		return permitsPerSecond;
+	}
+
+	/**
+	 * Takes a permit if one is available without waiting.
+	 *
+	 * @return true if the permit was taken
+	 */
+	public synchronized boolean tryAcquire() {
+		refill();
+
+		if (tokens >= 1) {
+			tokens -= 1;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return the number of nanoseconds until a permit will be available, 0 if
+	 *         one is available now
+	 */
+	public synchronized long nanosUntilAvailable() {
+		refill();
+
+		if (tokens >= 1) {
+			return 0;
+		}
+		return (long) Math.ceil((1 - tokens) * TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+	}
+
+	/**
+	 * Takes a permit, waiting for one to become available.
+	 */
+	public void acquire() throws InterruptedException {
+		while (!tryAcquire()) {
+			long wait = nanosUntilAvailable();
+
+			if (wait > 0) {
+				TimeUnit.NANOSECONDS.sleep(wait);
+			}
+		}
+	}
+
+	private void refill() {
+		long now = System.nanoTime();
+		double elapsed = (now - lastRefill) / (double) TimeUnit.SECONDS.toNanos(1);
+
+		tokens = Math.min(burst, tokens + elapsed * permitsPerSecond);
+		lastRefill = now;
+	}
+}
@@ -0,0 +1,160 @@
+package com.whispir.sdk.dispatch;
+
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.whispir.sdk.Deadline;
+import com.whispir.sdk.WhispirResponse;
+import com.whispir.sdk.bulkhead.Bulkhead;
+import com.whispir.sdk.exceptions.DeadlineExceededException;
+import com.whispir.sdk.exceptions.WhispirSDKException;
+
+/**
+ * Collapses identical concurrent requests into one.
+ *
+ * <p>
+ * The first caller for a key makes the request; callers with the same key
+ * that arrive while it is in flight wait for it and share its response, each
+ * getting their own copy. Nothing is cached: once the response is in, the
+ * next caller makes a new request. Only use it for requests without side
+ * effects, such as GETs.
+ * </p>
+ *
+ * <pre>
+ * sdk.setSingleFlight(new SingleFlight());
+ * </pre>
+ *
+ * A caller that joins a request waits for it up to its own deadline. If the
+ * request fails, each caller that joined it gets an exception of its own with
+ * the failure as the cause. If the caller that made the request gave up on it,
+ * because its deadline passed or it was interrupted, the others with time
+ * left make the request again.
+ *
+ * @since 2.4
+ */
+public class SingleFlight {
+
+	private final ConcurrentMap<Object, Flight> flights = new ConcurrentHashMap<Object, Flight>();
+	private final AtomicLong executed = new AtomicLong();
+	private final AtomicLong shared = new AtomicLong();
+
+	/**
+	 * @param key
+	 *            - identifies the request, e.g. its method, URL and
+	 *            credentials
+	 * @param deadline
+	 *            - how long the caller waits for a request it joins
+	 * @param call
+	 *            - makes the request, if none with the key is in flight
+	 */
+	public WhispirResponse execute(Object key, Deadline deadline, Bulkhead.Call call)
+			throws WhispirSDKException {
+		while (true) {
+			Flight flight = new Flight();
+			Flight leader = flights.putIfAbsent(key, flight);
+
+			if (leader == null) {
+				return lead(key, flight, call);
+			}
+
+			shared.incrementAndGet();
+			leader.await(deadline);
+
+			if (leader.error == null) {
+				return copy(leader.response);
+			}
+			if (!leader.abandoned || deadline.isExpired()) {
+				throw failed(leader.error);
+			}
+			// The request did not fail, its caller gave up on it
+		}
+	}
+
+	private WhispirResponse lead(Object key, Flight flight, Bulkhead.Call call) throws WhispirSDKException {
+		executed.incrementAndGet();
+
+		try {
+			WhispirResponse response = call.call();
+			flight.response = response;
+			return response;
+		} catch (WhispirSDKException e) {
+			flight.error = e;
+			flight.abandoned = e instanceof DeadlineExceededException
+					|| Thread.currentThread().isInterrupted();
+			throw e;
+		} catch (RuntimeException e) {
+			flight.error = e;
+			throw e;
+		} finally {
+			// Later callers make a new request
+			flights.remove(key, flight);
+			flight.done.countDown();
+		}
+	}
+
+	/**
+	 * @return the number of requests made
+	 */
+	public long getExecuted() {
+		return executed.get();
+	}
+
+	/**
+	 * @return the number of callers that shared another caller's request
+	 */
+	public long getShared() {
+		return shared.get();
+	}
+
+	/**
+	 * @return the number of requests in flight
+	 */
+	public int getInFlight() {
+		return flights.size();
+	}
+
+	// A new exception for each caller, so its stack trace is the caller's
+	private static WhispirSDKException failed(Exception cause) {
+		WhispirSDKException e = cause instanceof DeadlineExceededException
+				? new DeadlineExceededException("The shared request did not complete before its deadline")
+				: new WhispirSDKException("The shared request failed: " + cause.getMessage());
+		e.initCause(cause);
+		return e;
+	}
+
+	private static final class Flight {
+		final CountDownLatch done = new CountDownLatch(1);
+		volatile WhispirResponse response;
+		volatile Exception error;
+		volatile boolean abandoned;
+
+		void await(Deadline deadline) throws WhispirSDKException {
+			try {
+				if (deadline.isNone()) {
+					done.await();
+				} else if (!done.await(deadline.remainingMillis(), TimeUnit.MILLISECONDS)) {
+					throw new DeadlineExceededException("Deadline exceeded waiting for a shared request");
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new WhispirSDKException("Interrupted waiting for a shared request");
+			}
+		}
+	}
+
+	// Callers parse the response into it, so each gets its own
+	private static WhispirResponse copy(WhispirResponse response) {
+		WhispirResponse copy = new WhispirResponse();
+		copy.setStatusCode(response.getStatusCode());
+		copy.setRawResponse(response.getRawResponse());
+
+		if (response.getResponseHeaders() != null) {
+			copy.setResponseHeaders(new HashMap<String, String>(response.getResponseHeaders()));
+		}
+		return copy;
+	}
+}
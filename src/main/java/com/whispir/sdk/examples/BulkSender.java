@@ -0,0 +1,373 @@
+package com.whispir.sdk.examples;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.whispir.sdk.MessageRequest;
+import com.whispir.sdk.SendReceipt;
+import com.whispir.sdk.WhispirEndPoints;
+import com.whispir.sdk.WhispirResponse;
+import com.whispir.sdk.WhispirSDK;
+import com.whispir.sdk.campaign.MessageTemplate;
+import com.whispir.sdk.dispatch.DaemonThreadFactory;
+import com.whispir.sdk.exceptions.WhispirSDKException;
+import com.whispir.sdk.reactive.Flow;
+import com.whispir.sdk.reactive.IteratorPublisher;
+import com.whispir.sdk.reactive.SendProcessor;
+import com.whispir.sdk.reactive.SendResult;
+
+/**
+ * Bulk mode of the Launcher: streams a CSV or NDJSON recipients file through
+ * a bounded send pipeline.
+ *
+ * <p>
+ * Each row is bound into the subject and content templates (<code>{{column}}</code>
+ * placeholders), validated, and sent by a {@link SendProcessor}. Rows are only
+ * read as fast as they can be sent, so memory use is constant regardless of
+ * the size of the file. Progress is printed every second and the outcome of
+ * every row is written to the results file.
+ * </p>
+ */
+public class BulkSender {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final String RECIPIENT_COLUMN = "recipient";
+
+	private final AtomicLong read = new AtomicLong();
+	private final AtomicLong invalid = new AtomicLong();
+	private final AtomicLong sent = new AtomicLong();
+	private final AtomicLong succeeded = new AtomicLong();
+	private final AtomicLong latencyCount = new AtomicLong();
+	private final AtomicLong latencySum = new AtomicLong();
+	private final AtomicLong latencyMax = new AtomicLong();
+
+	private final Writer results;
+	private final String workspaceId;
+	private final String subjectTemplate;
+	private final String contentTemplate;
+
+	private BulkSender(Writer results, String workspaceId, String subjectTemplate, String contentTemplate) {
+		this.results = results;
+		this.workspaceId = workspaceId;
+		this.subjectTemplate = subjectTemplate;
+		this.contentTemplate = contentTemplate;
+	}
+
+	/**
+	 *
+	 * @param args
+	 *            [0] String - debug mode (Whispir internal only): true/false
+	 * @param args
+	 *            [1] String - debug server url, or the endpoint (AU, US...)
+	 *            when not in debug mode
+	 * @param args
+	 *            [2] String - API key
+	 * @param args
+	 *            [3] String - Username
+	 * @param args
+	 *            [4] String - Password
+	 * @param args
+	 *            [5] String - Workspace ID (enter a - if none)
+	 * @param args
+	 *            [6] String - Recipients file (.csv with a header row, or
+	 *            .ndjson)
+	 * @param args
+	 *            [7] String - Subject template, e.g. "Hi {{name}}"
+	 * @param args
+	 *            [8] String - Content template
+	 * @param args
+	 *            [9] int - Concurrent sends
+	 * @param args
+	 *            [10] double - Maximum messages per second (0 for no limit)
+	 * @param args
+	 *            [11] String - Results file
+	 */
+	public static void main(String[] args) {
+
+		if (args.length < 12) {
+			printUsage();
+			return;
+		}
+
+		try {
+			WhispirSDK sdk;
+
+			if ("true".equals(args[0])) {
+				sdk = new WhispirSDK(args[2], args[3], args[4], args[1]);
+			} else {
+				WhispirEndPoints endPoint = "-".equals(args[1]) ? WhispirEndPoints.AU
+						: WhispirEndPoints.valueOf(args[1].toUpperCase());
+				sdk = new WhispirSDK(args[2], args[3], args[4], endPoint);
+			}
+
+			String workspaceId = "-".equals(args[5]) ? "" : args[5];
+			Path recipients = Paths.get(args[6]);
+			int concurrency = Integer.parseInt(args[9]);
+			double rate = Double.parseDouble(args[10]);
+			Path resultsFile = Paths.get(args[11]);
+
+			BufferedWriter writer = Files.newBufferedWriter(resultsFile, UTF8);
+
+			try {
+				writer.write("row,recipient,status,messageId,latencyMs,error\n");
+
+				BulkSender sender = new BulkSender(writer, workspaceId, args[7], args[8]);
+				sender.run(sdk, recipients, concurrency, rate);
+			} finally {
+				writer.close();
+				sdk.close();
+			}
+
+		} catch (WhispirSDKException e) {
+			e.printStackTrace();
+		} catch (IOException e) {
+			e.printStackTrace();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static void printUsage() {
+		System.out.println("Whispir SDK Bulk Sender");
+		System.out.println("");
+		System.out.println("Twelve arguments are required after 'bulk'.");
+		System.out.println("1 - debug mode (Whispir internal only): true/false");
+		System.out.println("2 - debug server url, or the endpoint (AU, AP, AP1, NZ, US, IT, EDUCATION)");
+		System.out.println("3 - API key");
+		System.out.println("4 - Username");
+		System.out.println("5 - password");
+		System.out.println("6 - Workspace ID (enter a - if none)");
+		System.out.println("7 - Recipients file, .csv with a header row or .ndjson, with a 'recipient' column");
+		System.out.println("8 - Subject template, columns are bound with {{column}}");
+		System.out.println("9 - Content template");
+		System.out.println("10 - Concurrent sends");
+		System.out.println("11 - Maximum messages per second (0 for no limit)");
+		System.out.println("12 - Results file");
+	}
+
+	private void run(WhispirSDK sdk, Path recipients, int concurrency, double rate)
+			throws IOException, InterruptedException {
+
+		final RecipientFileReader reader = new RecipientFileReader(recipients);
+		final CountDownLatch done = new CountDownLatch(1);
+		final long start = System.nanoTime();
+
+		ScheduledExecutorService progress = Executors.newSingleThreadScheduledExecutor(
+				new DaemonThreadFactory("whispir-bulk-progress"));
+		progress.scheduleAtFixedRate(new Runnable() {
+			private long lastSent;
+			private long lastTime = System.nanoTime();
+
+			@Override
+			public void run() {
+				long now = System.nanoTime();
+				long total = sent.get();
+				double seconds = (now - lastTime) / 1e9;
+
+				printProgress(start, (total - lastSent) / seconds);
+
+				lastSent = total;
+				lastTime = now;
+			}
+		}, 1, 1, TimeUnit.SECONDS);
+
+		try {
+			SendProcessor processor = new SendProcessor(sdk, concurrency, rate);
+			new IteratorPublisher<MessageRequest>(new RowIterator(reader)).subscribe(processor);
+
+			processor.subscribe(new Flow.Subscriber<SendResult>() {
+				@Override
+				public void onSubscribe(Flow.Subscription subscription) {
+					subscription.request(Long.MAX_VALUE);
+				}
+
+				@Override
+				public void onNext(SendResult result) {
+					record(result);
+				}
+
+				@Override
+				public void onError(Throwable throwable) {
+					System.err.println("Bulk send stopped: " + throwable.getMessage());
+					done.countDown();
+				}
+
+				@Override
+				public void onComplete() {
+					done.countDown();
+				}
+			});
+
+			done.await();
+		} finally {
+			progress.shutdownNow();
+			reader.close();
+		}
+
+		printProgress(start, sent.get() / ((System.nanoTime() - start) / 1e9));
+		System.out.println("Done.");
+	}
+
+	private void printProgress(long start, double ratePerSecond) {
+		long elapsed = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start);
+		long total = sent.get();
+		long ok = succeeded.get();
+
+		// Latency is reported for the sends since the last report
+		long count = latencyCount.getAndSet(0);
+		long sum = latencySum.getAndSet(0);
+		long max = latencyMax.getAndSet(0);
+		double average = count > 0 ? sum / 1e6 / count : 0;
+
+		System.out.println(String.format(
+				"[%02d:%02d] read %d | sent %d (ok %d, failed %d) | invalid %d | %.0f msg/s | latency avg %.1f ms, max %d ms",
+				elapsed / 60, elapsed % 60, read.get(), total, ok, total - ok, invalid.get(),
+				ratePerSecond, average, TimeUnit.NANOSECONDS.toMillis(max)));
+	}
+
+	private void record(SendResult result) {
+		long latency = result.getLatencyNanos();
+
+		sent.incrementAndGet();
+		latencyCount.incrementAndGet();
+		latencySum.addAndGet(latency);
+
+		long max;
+		do {
+			max = latencyMax.get();
+		} while (latency > max && !latencyMax.compareAndSet(max, latency));
+
+		if (result.isSuccess()) {
+			succeeded.incrementAndGet();
+		}
+
+		BulkRow row = (BulkRow) result.getRequest();
+		String error = result.getError() != null ? result.getError().getMessage()
+				: result.isSuccess() ? "" : result.getResponse().getRawResponse();
+
+		writeResult(row.row, row.getRecipient(), Integer.toString(result.getStatusCode()),
+				messageId(result.getResponse()), TimeUnit.NANOSECONDS.toMillis(latency), error);
+	}
+
+	private synchronized void writeResult(long row, String recipient, String status,
+			String messageId, long latencyMillis, String error) {
+		try {
+			results.write(row + "," + csv(recipient) + "," + status + "," + messageId + ","
+					+ latencyMillis + "," + csv(error) + "\n");
+		} catch (IOException e) {
+			throw new IllegalStateException("Failed to write the results file: " + e.getMessage(), e);
+		}
+	}
+
+	private static String messageId(WhispirResponse response) {
+		if (response == null) {
+			return "";
+		}
+
+		String messageId = SendReceipt.of(response).getMessageId();
+		return messageId == null ? "" : messageId;
+	}
+
+	private static String csv(String value) {
+		if (value == null) {
+			return "";
+		}
+		if (value.indexOf(',') > -1 || value.indexOf('"') > -1 || value.indexOf('\n') > -1) {
+			return "\"" + value.replace("\"", "\"\"") + "\"";
+		}
+		return value;
+	}
+
+	/**
+	 * Turns file records into message requests, reporting rows that fail
+	 * validation straight to the results file.
+	 */
+	private class RowIterator implements Iterator<MessageRequest> {
+		private final RecipientFileReader reader;
+		private BulkRow next;
+
+		RowIterator(RecipientFileReader reader) {
+			this.reader = reader;
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (next == null && reader.hasNext()) {
+				Map<String, String> fields = reader.next();
+				long row = reader.getRow();
+				read.incrementAndGet();
+
+				String recipient = fields.containsKey(RECIPIENT_COLUMN) ? fields.get(RECIPIENT_COLUMN)
+						: fields.isEmpty() ? "" : fields.values().iterator().next();
+
+				String error = validate(fields, recipient);
+				String subject = MessageTemplate.bind(subjectTemplate, fields);
+				String body = MessageTemplate.bind(contentTemplate, fields);
+
+				if (error == null && (subject == null || body == null)) {
+					error = "A template placeholder has no matching column";
+				}
+
+				if (error != null) {
+					invalid.incrementAndGet();
+					writeResult(row, recipient, "INVALID", "", 0, error);
+					continue;
+				}
+
+				Map<String, String> content = new HashMap<String, String>();
+				content.put("body", body);
+				next = new BulkRow(row, workspaceId, recipient, subject, content);
+			}
+			return next != null;
+		}
+
+		@Override
+		public MessageRequest next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+
+			BulkRow row = next;
+			next = null;
+			return row;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		private String validate(Map<String, String> fields, String recipient) {
+			if (fields.containsKey(RecipientFileReader.ERROR_FIELD)) {
+				return fields.get(RecipientFileReader.ERROR_FIELD);
+			}
+			if (recipient == null || recipient.length() < 8) {
+				return "Recipient is missing or too short";
+			}
+			return null;
+		}
+	}
+
+	private static class BulkRow extends MessageRequest {
+		private final long row;
+
+		BulkRow(long row, String workspaceId, String recipient, String subject, Map<String, String> content) {
+			super(workspaceId, recipient, subject, content, new HashMap<String, String>());
+			this.row = row;
+		}
+	}
+}
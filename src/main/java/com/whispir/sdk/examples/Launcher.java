@@ -1,8 +1,10 @@
 package com.whispir.sdk.examples;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
+import com.whispir.sdk.MessageRequest;
 import com.whispir.sdk.WhispirResponse;
 import com.whispir.sdk.WhispirSDK;
 import com.whispir.sdk.exceptions.WhispirSDKException;
@@ -27,7 +29,13 @@ public class Launcher {
 	 */
 	public static void main(String[] args) {
 		
-		if (args.length == 0) {
+		if (args.length > 0 && "bulk".equals(args[0])) {
+			BulkSender.main(Arrays.copyOfRange(args, 1, args.length));
+		} else if (args.length > 0 && "load".equals(args[0])) {
+			LoadGenerator.main(Arrays.copyOfRange(args, 1, args.length));
+		} else if (args.length > 0 && "startup".equals(args[0])) {
+			StartupBenchmark.main(Arrays.copyOfRange(args, 1, args.length));
+		} else if (args.length == 0) {
 			System.out.println("Whispir SDK Test Bed v1.0");
 			System.out.println("");
 			System.out.println("Nine arguments are required to run this test bed.");
@@ -42,6 +50,10 @@ public class Launcher {
 			System.out.println("9 - Subject");
 			System.out.println("10 - Content");
 			System.out.println("11 - Use Proxy (true/false)");
+			System.out.println("");
+			System.out.println("Run with 'bulk' as the first argument to send to a CSV/NDJSON file of recipients.");
+			System.out.println("Run with 'load' as the first argument to generate load at a fixed rate.");
+			System.out.println("Run with 'startup' as the first argument to measure the time to the first send.");
 		} else {
 			
 			try {
@@ -68,32 +80,13 @@ public class Launcher {
 				}
 				
 				WhispirResponse response = new WhispirResponse();
+				MessageRequest request = testCase(test, workspaceId, recipient, subject, messageContent);
 				
-				Map<String,String> content = new HashMap<String,String>();
-				Map<String,String> options = new HashMap<String,String>();
-				
-				content.put("body", messageContent);
-				//options.put("pushNotifications", "enabled");
-				
-				switch (test) {
-				case 1:
-					response = sdk.sendMessage("", recipient, subject, content, options);
-					break;
-				case 2:
-					response = sdk.sendMessage(workspaceId, recipient, subject, content, options);
-					break;
-				case 3:
-					content.put("web", "<b>This is the content of the Web message.</b>");
-					content.put("webType", "text/html");
-					response = sdk.sendMessage(workspaceId, recipient, subject, content, options);
-					break;
-				case 4:
-					options.put("pushEscalationMins", "3");
-					response = sdk.sendMessage(workspaceId, recipient, subject, content, options);
-					break;
-				default:
+				if (request != null) {
+					response = sdk.sendMessage(request.getWorkspaceId(), request.getRecipient(),
+							request.getSubject(), request.getContent(), request.getOptions());
+				} else {
 					System.out.println("No valid Test Option Provided.");
-					break;
 				}
 				
 				System.out.println("Message Result: " + response);
@@ -103,4 +96,38 @@ public class Launcher {
 			}
 		}
 	}
+	
+	/**
+	 * Builds the message for one of the test cases.
+	 * 
+	 * @param test
+	 *            - 1=Simple SMS/Push in My Company, 2=Simple SMS/Push in a
+	 *            Workspace, 3=RPM in a Workspace, 4=RPM with Push Escalation
+	 * @return the message, or null if the test case is not valid
+	 */
+	static MessageRequest testCase(int test, String workspaceId, String recipient,
+			String subject, String messageContent) {
+		
+		Map<String,String> content = new HashMap<String,String>();
+		Map<String,String> options = new HashMap<String,String>();
+		
+		content.put("body", messageContent);
+		//options.put("pushNotifications", "enabled");
+		
+		switch (test) {
+		case 1:
+			return new MessageRequest("", recipient, subject, content, options);
+		case 2:
+			return new MessageRequest(workspaceId, recipient, subject, content, options);
+		case 3:
+			content.put("web", "<b>This is the content of the Web message.</b>");
+			content.put("webType", "text/html");
+			return new MessageRequest(workspaceId, recipient, subject, content, options);
+		case 4:
+			options.put("pushEscalationMins", "3");
+			return new MessageRequest(workspaceId, recipient, subject, content, options);
+		default:
+			return null;
+		}
+	}
 }
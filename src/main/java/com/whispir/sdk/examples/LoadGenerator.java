@@ -0,0 +1,395 @@
+package com.whispir.sdk.examples;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import com.whispir.sdk.MessageRequest;
+import com.whispir.sdk.WhispirEndPoints;
+import com.whispir.sdk.WhispirResponse;
+import com.whispir.sdk.WhispirSDK;
+import com.whispir.sdk.dispatch.DaemonThreadFactory;
+import com.whispir.sdk.exceptions.WhispirSDKException;
+
+/**
+ * Load mode of the Launcher: sends messages at a fixed target rate for a
+ * fixed time and reports throughput, latency percentiles and errors.
+ *
+ * <p>
+ * The load is open-loop. Each send is scheduled at its own start time
+ * (<code>start + n / rate</code>) whether or not earlier sends have
+ * finished, and its latency is measured from that intended time. When the SDK
+ * or the server falls behind, the time spent waiting for a free sender is
+ * counted, so the reported percentiles are corrected for coordinated omission.
+ * If the backlog of sends grows too large, the generator waits for room rather
+ * than dropping sends. The sends it holds back are still measured from their
+ * intended times, so a run far beyond capacity takes longer than its
+ * duration. The plain service time (from the moment the send actually started) is
+ * reported alongside for comparison.
+ * </p>
+ * <p>
+ * Use <code>local</code> as the server to send to an in-process
+ * {@link StandInServer}, which measures the SDK on its own.
+ * </p>
+ * <p>
+ * Requires HdrHistogram (org.hdrhistogram:HdrHistogram) on the classpath.
+ * </p>
+ */
+public class LoadGenerator {
+
+	private static final int SIGNIFICANT_DIGITS = 3;
+	private static final double[] PERCENTILES = { 50, 90, 99, 99.9, 99.99 };
+
+	private final Recorder responseTimes = new Recorder(SIGNIFICANT_DIGITS);
+	private final Recorder serviceTimes = new Recorder(SIGNIFICANT_DIGITS);
+	private final Histogram totalResponseTimes = new Histogram(SIGNIFICANT_DIGITS);
+	private final Histogram totalServiceTimes = new Histogram(SIGNIFICANT_DIGITS);
+
+	private final AtomicLong scheduled = new AtomicLong();
+	private final AtomicLong completed = new AtomicLong();
+	private final AtomicLong succeeded = new AtomicLong();
+	private final ConcurrentMap<String, AtomicLong> errors = new ConcurrentHashMap<String, AtomicLong>();
+
+	private final WhispirSDK sdk;
+	private final PrintStream out;
+
+	// Guarded by printInterval
+	private long lastReport = System.nanoTime();
+	private long lastCompleted;
+
+	private LoadGenerator(WhispirSDK sdk, PrintStream out) {
+		this.sdk = sdk;
+		this.out = out;
+	}
+
+	/**
+	 *
+	 * @param args
+	 *            [0] String - debug mode (Whispir internal only): true/false
+	 * @param args
+	 *            [1] String - debug server url, the endpoint (AU, US...)
+	 *            when not in debug mode, or local[:delayMillis] for a local
+	 *            stand-in server
+	 * @param args
+	 *            [2] String - API key
+	 * @param args
+	 *            [3] String - Username
+	 * @param args
+	 *            [4] String - Password
+	 * @param args
+	 *            [5] String - Workspace ID (enter a - if none)
+	 * @param args
+	 *            [6] String - Recipient Details
+	 * @param args
+	 *            [7] double - Target messages per second
+	 * @param args
+	 *            [8] int - Concurrent sends
+	 * @param args
+	 *            [9] int - Duration in seconds
+	 * @param args
+	 *            [10] String - Message mix of test cases 1-4 with weights,
+	 *            e.g. 1:70,2:20,3:5,4:5
+	 */
+	public static void main(String[] args) {
+
+		if (args.length < 11) {
+			printUsage();
+			return;
+		}
+
+		StandInServer standIn = null;
+		PrintStream out = System.out;
+
+		try {
+			WhispirSDK sdk;
+
+			if (args[1].startsWith("local")) {
+				long delay = args[1].indexOf(':') > -1 ? Long.parseLong(args[1].substring(args[1].indexOf(':') + 1)) : 0;
+				StandInServer.useNoDelay();
+				standIn = new StandInServer(0, delay);
+				sdk = new WhispirSDK(args[2], args[3], args[4], standIn.getUrl());
+				out.println("Sending to a local stand-in at " + standIn.getUrl() + " (" + delay + " ms delay)");
+			} else if ("true".equals(args[0])) {
+				sdk = new WhispirSDK(args[2], args[3], args[4], args[1]);
+			} else {
+				WhispirEndPoints endPoint = "-".equals(args[1]) ? WhispirEndPoints.AU
+						: WhispirEndPoints.valueOf(args[1].toUpperCase());
+				sdk = new WhispirSDK(args[2], args[3], args[4], endPoint);
+			}
+
+			String workspaceId = "-".equals(args[5]) ? "" : args[5];
+			double rate = Double.parseDouble(args[7]);
+			int concurrency = Integer.parseInt(args[8]);
+			int duration = Integer.parseInt(args[9]);
+			List<MessageRequest> mix = parseMix(args[10], workspaceId, args[6]);
+
+			if (rate <= 0 || concurrency < 1 || duration < 1) {
+				printUsage();
+				return;
+			}
+
+			try {
+				new LoadGenerator(sdk, out).run(mix, rate, concurrency, duration);
+			} finally {
+				sdk.close();
+			}
+
+		} catch (WhispirSDKException e) {
+			e.printStackTrace();
+		} catch (IOException e) {
+			e.printStackTrace();
+		} catch (IllegalArgumentException e) {
+			System.out.println(e.getMessage());
+			printUsage();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			if (standIn != null) {
+				standIn.close();
+			}
+		}
+	}
+
+	private static void printUsage() {
+		System.out.println("Whispir SDK Load Generator");
+		System.out.println("");
+		System.out.println("Eleven arguments are required after 'load'.");
+		System.out.println("1 - debug mode (Whispir internal only): true/false");
+		System.out.println("2 - debug server url, the endpoint (AU, AP, AP1, NZ, US, IT, EDUCATION), or local[:delayMillis] for a local stand-in");
+		System.out.println("3 - API key");
+		System.out.println("4 - Username");
+		System.out.println("5 - password");
+		System.out.println("6 - Workspace ID (enter a - if none)");
+		System.out.println("7 - Recipient Details");
+		System.out.println("8 - Target messages per second");
+		System.out.println("9 - Concurrent sends");
+		System.out.println("10 - Duration in seconds");
+		System.out.println("11 - Message mix of test cases 1-4 with weights, e.g. 1:70,2:20,3:5,4:5");
+	}
+
+	/**
+	 * Expands the mix into a list where each test case appears as many times
+	 * as its weight, so a uniform pick follows the weights.
+	 */
+	static List<MessageRequest> parseMix(String mix, String workspaceId, String recipient) {
+		List<MessageRequest> requests = new ArrayList<MessageRequest>();
+
+		for (String entry : mix.split(",")) {
+			String[] parts = entry.trim().split(":");
+			int test = Integer.parseInt(parts[0].trim());
+			int weight = parts.length > 1 ? Integer.parseInt(parts[1].trim()) : 1;
+
+			MessageRequest request = Launcher.testCase(test, workspaceId, recipient,
+					"Load test " + test, "Load test message for test case " + test);
+
+			if (request == null || weight < 0) {
+				throw new IllegalArgumentException("Invalid message mix entry: " + entry);
+			}
+
+			for (int i = 0; i < weight; i++) {
+				requests.add(request);
+			}
+		}
+
+		if (requests.isEmpty()) {
+			throw new IllegalArgumentException("The message mix is empty");
+		}
+		return requests;
+	}
+
+	private void run(List<MessageRequest> mix, double rate, int concurrency, int duration)
+			throws InterruptedException {
+
+		ExecutorService senders = Executors.newFixedThreadPool(concurrency,
+				new DaemonThreadFactory("whispir-load"));
+		ScheduledExecutorService progress = Executors.newSingleThreadScheduledExecutor(
+				new DaemonThreadFactory("whispir-load-progress"));
+
+		final long start = System.nanoTime();
+		final long end = start + TimeUnit.SECONDS.toNanos(duration);
+		final long interval = (long) (1e9 / rate);
+
+		// Bounds memory if the target rate is far beyond what can be sent.
+		// Waiting for room delays later sends, which their intended times
+		// account for.
+		final long maxBacklog = Math.max(1000, (long) (rate * 10));
+
+		out.println(String.format("Target %.1f msg/s for %d s with %d concurrent sends", rate, duration, concurrency));
+
+		progress.scheduleAtFixedRate(new Runnable() {
+			@Override
+			public void run() {
+				printInterval(start);
+			}
+		}, 1, 1, TimeUnit.SECONDS);
+
+		Random random = new Random();
+
+		try {
+			for (long n = 0;; n++) {
+				final long intended = start + n * interval;
+
+				if (intended >= end) {
+					break;
+				}
+
+				long wait;
+				while ((wait = intended - System.nanoTime()) > 0) {
+					LockSupport.parkNanos(wait);
+				}
+
+				while (scheduled.get() - completed.get() >= maxBacklog) {
+					if (Thread.interrupted()) {
+						throw new InterruptedException();
+					}
+					LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+				}
+
+				final MessageRequest request = mix.get(random.nextInt(mix.size()));
+				scheduled.incrementAndGet();
+
+				senders.execute(new Runnable() {
+					@Override
+					public void run() {
+						send(request, intended);
+					}
+				});
+			}
+
+			senders.shutdown();
+
+			if (!senders.awaitTermination(60, TimeUnit.SECONDS)) {
+				out.println("Gave up waiting for " + (scheduled.get() - completed.get()) + " outstanding sends");
+				senders.shutdownNow();
+			}
+		} finally {
+			progress.shutdownNow();
+		}
+
+		printInterval(start);
+		printSummary(rate, System.nanoTime() - start);
+	}
+
+	private void send(MessageRequest request, long intended) {
+		long started = System.nanoTime();
+		String error = null;
+
+		try {
+			WhispirResponse response = sdk.sendMessage(request.getWorkspaceId(), request.getRecipient(),
+					request.getSubject(), request.getContent(), request.getOptions());
+			int status = response.getStatusCode();
+
+			if (status >= 200 && status < 300) {
+				succeeded.incrementAndGet();
+			} else {
+				error = status == 0 ? "Connection error" : "HTTP " + status;
+			}
+		} catch (WhispirSDKException e) {
+			error = "WhispirSDKException: " + e.getMessage();
+		} catch (RuntimeException e) {
+			error = e.getClass().getSimpleName();
+		}
+
+		long finished = System.nanoTime();
+
+		responseTimes.recordValue(TimeUnit.NANOSECONDS.toMicros(finished - intended));
+		serviceTimes.recordValue(TimeUnit.NANOSECONDS.toMicros(finished - started));
+
+		if (error != null) {
+			AtomicLong count = errors.get(error);
+
+			if (count == null) {
+				AtomicLong created = new AtomicLong();
+				count = errors.putIfAbsent(error, created);
+
+				if (count == null) {
+					count = created;
+				}
+			}
+			count.incrementAndGet();
+		}
+
+		completed.incrementAndGet();
+	}
+
+	private synchronized void printInterval(long start) {
+		Histogram response = responseTimes.getIntervalHistogram();
+		Histogram service = serviceTimes.getIntervalHistogram();
+
+		totalResponseTimes.add(response);
+		totalServiceTimes.add(service);
+
+		long now = System.nanoTime();
+		long done = completed.get();
+		double seconds = (now - lastReport) / 1e9;
+		long completedInInterval = done - lastCompleted;
+
+		lastReport = now;
+		lastCompleted = done;
+
+		if (response.getTotalCount() == 0) {
+			return;
+		}
+
+		long elapsed = TimeUnit.NANOSECONDS.toSeconds(now - start);
+
+		out.println(String.format(
+				"[%02d:%02d] %.0f msg/s | done %d (ok %d) | backlog %d | p50 %.1f ms, p99 %.1f ms, max %.1f ms",
+				elapsed / 60, elapsed % 60, completedInInterval / seconds, done, succeeded.get(),
+				scheduled.get() - done, millis(response.getValueAtPercentile(50)),
+				millis(response.getValueAtPercentile(99)), millis(response.getMaxValue())));
+	}
+
+	private void printSummary(double rate, long elapsedNanos) {
+		double seconds = elapsedNanos / 1e9;
+		long done = completed.get();
+
+		out.println("");
+		out.println(String.format("Throughput: %.1f msg/s achieved of %.1f msg/s target (%d sent in %.1f s)",
+				done / seconds, rate, done, seconds));
+		out.println(String.format("Succeeded: %d, failed: %d", succeeded.get(), done - succeeded.get()));
+
+		out.println("");
+		out.println(String.format("%-10s %16s %16s", "Percentile", "Response (ms)", "Service (ms)"));
+
+		for (double percentile : PERCENTILES) {
+			out.println(String.format("%-10s %16.2f %16.2f", percentile + "%",
+					millis(totalResponseTimes.getValueAtPercentile(percentile)),
+					millis(totalServiceTimes.getValueAtPercentile(percentile))));
+		}
+
+		out.println(String.format("%-10s %16.2f %16.2f", "max",
+				millis(totalResponseTimes.getMaxValue()), millis(totalServiceTimes.getMaxValue())));
+		out.println(String.format("%-10s %16.2f %16.2f", "mean",
+				totalResponseTimes.getMean() / 1000, totalServiceTimes.getMean() / 1000));
+		out.println("Response time is measured from the scheduled send time, service time from the actual start.");
+
+		if (!errors.isEmpty()) {
+			out.println("");
+			out.println("Errors:");
+
+			for (Map.Entry<String, AtomicLong> error : new TreeMap<String, AtomicLong>(errors).entrySet()) {
+				out.println(String.format("%8d  %s", error.getValue().get(), error.getKey()));
+			}
+		}
+	}
+
+	private static double millis(long micros) {
+		return micros / 1000.0;
+	}
+}
@@ -0,0 +1,280 @@
+package com.whispir.sdk.examples;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Streams recipient records from a CSV or NDJSON file.
+ *
+ * <p>
+ * The file is read through a FileChannel into a fixed 1MB buffer, so memory
+ * use does not depend on the size of the file. CSV files must have a header
+ * row naming the columns; quoted fields (including quoted line breaks) are
+ * supported. NDJSON files (.ndjson, .jsonl) have one JSON object per line.
+ * </p>
+ * <p>
+ * A record that cannot be parsed is returned with an {@link #ERROR_FIELD}
+ * entry describing the problem, so that it can be reported against its row.
+ * </p>
+ */
+public class RecipientFileReader implements Iterator<Map<String, String>>, Closeable {
+
+	public static final String ERROR_FIELD = "_error";
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final int BUFFER_SIZE = 1 << 20;
+
+	private final FileChannel channel;
+	private final boolean json;
+	private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+	private byte[] line = new byte[512];
+	private int lineLength;
+	private boolean eof;
+	private boolean firstLine = true;
+
+	private List<String> header;
+	private Map<String, String> next;
+	private long row;
+
+	public RecipientFileReader(Path file) throws IOException {
+		String name = file.getFileName().toString().toLowerCase();
+
+		this.json = name.endsWith(".ndjson") || name.endsWith(".jsonl") || name.endsWith(".json");
+		this.channel = FileChannel.open(file, StandardOpenOption.READ);
+		this.buffer.flip();
+
+		if (!json) {
+			String first = readLine();
+			if (first == null) {
+				throw new IOException("The CSV file is empty, a header row is required");
+			}
+			this.header = parseCsv(first);
+		}
+	}
+
+	/**
+	 * @return the number of records read so far
+	 */
+	public long getRow() {
+		return row;
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (next == null) {
+			try {
+				next = readRecord();
+			} catch (IOException e) {
+				throw new IllegalStateException("Failed to read the recipients file: " + e.getMessage(), e);
+			}
+		}
+		return next != null;
+	}
+
+	@Override
+	public Map<String, String> next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+
+		Map<String, String> record = next;
+		next = null;
+		row++;
+		return record;
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	private Map<String, String> readRecord() throws IOException {
+		String text;
+
+		do {
+			text = readLine();
+			if (text == null) {
+				return null;
+			}
+		} while (text.trim().isEmpty());
+
+		return json ? parseJson(text) : parseCsvRecord(text);
+	}
+
+	private Map<String, String> parseJson(String text) {
+		Map<String, String> record = new LinkedHashMap<String, String>();
+
+		try {
+			JSONObject obj = new JSONObject(text);
+			Iterator<?> keys = obj.keys();
+
+			while (keys.hasNext()) {
+				String key = (String) keys.next();
+				record.put(key, obj.optString(key));
+			}
+		} catch (JSONException e) {
+			record.put(ERROR_FIELD, "Invalid JSON: " + e.getMessage());
+		}
+		return record;
+	}
+
+	private Map<String, String> parseCsvRecord(String text) throws IOException {
+		// A quoted field can contain line breaks, keep reading until the quotes balance
+		StringBuilder record = new StringBuilder(text);
+
+		while (!quotesBalanced(record)) {
+			String more = readLine();
+			if (more == null) {
+				Map<String, String> error = new LinkedHashMap<String, String>();
+				error.put(ERROR_FIELD, "Unterminated quoted field");
+				return error;
+			}
+			record.append('\n').append(more);
+		}
+
+		List<String> values = parseCsv(record.toString());
+		Map<String, String> fields = new LinkedHashMap<String, String>();
+
+		for (int i = 0; i < header.size(); i++) {
+			fields.put(header.get(i), i < values.size() ? values.get(i) : "");
+		}
+		if (values.size() > header.size()) {
+			fields.put(ERROR_FIELD, "Expected " + header.size() + " columns but found " + values.size());
+		}
+		return fields;
+	}
+
+	private static boolean quotesBalanced(CharSequence text) {
+		boolean inQuotes = false;
+
+		for (int i = 0; i < text.length(); i++) {
+			if (text.charAt(i) == '"') {
+				inQuotes = !inQuotes;
+			}
+		}
+		return !inQuotes;
+	}
+
+	static List<String> parseCsv(String text) {
+		List<String> values = new ArrayList<String>();
+		StringBuilder value = new StringBuilder();
+		boolean inQuotes = false;
+
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+
+			if (inQuotes) {
+				if (c == '"' && i + 1 < text.length() && text.charAt(i + 1) == '"') {
+					value.append('"');
+					i++;
+				} else if (c == '"') {
+					inQuotes = false;
+				} else {
+					value.append(c);
+				}
+			} else if (c == '"') {
+				inQuotes = true;
+			} else if (c == ',') {
+				values.add(value.toString().trim());
+				value.setLength(0);
+			} else {
+				value.append(c);
+			}
+		}
+
+		values.add(value.toString().trim());
+		return values;
+	}
+
+	/**
+	 * @return the next line without its terminator, or null at the end of the
+	 *         file
+	 */
+	private String readLine() throws IOException {
+		lineLength = 0;
+
+		while (true) {
+			if (!buffer.hasRemaining()) {
+				if (eof || !fill()) {
+					eof = true;
+					return lineLength > 0 ? decodeLine() : null;
+				}
+			}
+
+			byte[] array = buffer.array();
+			int start = buffer.position();
+			int limit = buffer.limit();
+
+			for (int i = start; i < limit; i++) {
+				if (array[i] == '\n') {
+					append(array, start, i - start);
+					buffer.position(i + 1);
+					return decodeLine();
+				}
+			}
+
+			append(array, start, limit - start);
+			buffer.position(limit);
+		}
+	}
+
+	private boolean fill() throws IOException {
+		buffer.clear();
+
+		int read;
+		do {
+			read = channel.read(buffer);
+		} while (read == 0);
+
+		buffer.flip();
+		return read > 0;
+	}
+
+	private void append(byte[] src, int offset, int length) {
+		if (lineLength + length > line.length) {
+			byte[] grown = new byte[Math.max(line.length * 2, lineLength + length)];
+			System.arraycopy(line, 0, grown, 0, lineLength);
+			line = grown;
+		}
+
+		System.arraycopy(src, offset, line, lineLength, length);
+		lineLength += length;
+	}
+
+	private String decodeLine() {
+		int length = lineLength;
+
+		if (length > 0 && line[length - 1] == '\r') {
+			length--;
+		}
+
+		// Skip a UTF-8 byte order mark at the start of the file
+		int offset = 0;
+		if (firstLine && length >= 3 && line[0] == (byte) 0xEF && line[1] == (byte) 0xBB && line[2] == (byte) 0xBF) {
+			offset = 3;
+		}
+		firstLine = false;
+
+		return new String(line, offset, length - offset, UTF8);
+	}
+}
@@ -0,0 +1,120 @@
+package com.whispir.sdk.examples;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import com.whispir.sdk.dispatch.DaemonThreadFactory;
+
+/**
+ * A local HTTP server that answers like the Whispir API, for measuring the
+ * SDK's own capacity without a real endpoint.
+ *
+ * <p>
+ * POSTs are accepted with a 202 and a Location header, other requests get a
+ * 200 with an empty JSON object. Every response can be delayed to simulate
+ * server latency. Point the SDK at it with
+ * <code>sdk.setDebugHost(server.getUrl())</code>.
+ * </p>
+ * <p>
+ * Call {@link #useNoDelay()} before the first server is created when
+ * measuring latency. It sets a system property, so it applies to every
+ * HttpServer in the JVM; the benchmarks call it from their main methods.
+ * </p>
+ */
+public class StandInServer implements Closeable {
+
+	private static final byte[] EMPTY_JSON = "{}".getBytes(Charset.forName("UTF-8"));
+
+	/**
+	 * Turns on TCP_NODELAY for the JDK's HttpServer, unless it was set on
+	 * the command line. Without it each response can wait for a delayed ACK,
+	 * adding tens of milliseconds that would be measured as SDK latency. Only
+	 * servers created afterwards are affected.
+	 */
+	public static void useNoDelay() {
+		if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+			System.setProperty("sun.net.httpserver.nodelay", "true");
+		}
+	}
+
+	private final HttpServer server;
+	private final ExecutorService executor;
+	private final AtomicLong messageIds = new AtomicLong();
+
+	/**
+	 * @param port
+	 *            - the port to listen on, 0 for any free port
+	 * @param delayMillis
+	 *            - how long to wait before answering each request
+	 */
+	public StandInServer(int port, final long delayMillis) throws IOException {
+		this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+		this.executor = Executors.newCachedThreadPool(new DaemonThreadFactory("whispir-standin"));
+
+		server.createContext("/", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				try {
+					drain(exchange.getRequestBody());
+
+					if (delayMillis > 0) {
+						Thread.sleep(delayMillis);
+					}
+
+					if ("POST".equals(exchange.getRequestMethod())) {
+						String path = exchange.getRequestURI().getPath();
+						exchange.getResponseHeaders().add("Location",
+								getUrl() + path + "/" + Long.toHexString(messageIds.incrementAndGet()));
+						exchange.sendResponseHeaders(202, -1);
+					} else {
+						exchange.getResponseHeaders().add("Content-Type", "application/json");
+						exchange.sendResponseHeaders(200, EMPTY_JSON.length);
+						OutputStream out = exchange.getResponseBody();
+						out.write(EMPTY_JSON);
+						out.close();
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					exchange.sendResponseHeaders(503, -1);
+				} finally {
+					exchange.close();
+				}
+			}
+		});
+
+		server.setExecutor(executor);
+		server.start();
+	}
+
+	/**
+	 * @return the base URL of the server, to be given to setDebugHost
+	 */
+	public String getUrl() {
+		return "http://127.0.0.1:" + server.getAddress().getPort();
+	}
+
+	@Override
+	public void close() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+
+	private static void drain(InputStream in) throws IOException {
+		byte[] buffer = new byte[4096];
+
+		while (in.read(buffer) >= 0) {
+			// discard
+		}
+		in.close();
+	}
+}
@@ -0,0 +1,150 @@
+package com.whispir.sdk.examples;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import com.whispir.sdk.WhispirEndPoints;
+import com.whispir.sdk.WhispirResponse;
+import com.whispir.sdk.WhispirSDK;
+import com.whispir.sdk.exceptions.WhispirSDKException;
+
+/**
+ * Startup mode of the Launcher: measures the time to the first send of a
+ * fresh process, as seen by a short-lived function.
+ *
+ * <p>
+ * It reports the time from process start and from the creation of the SDK
+ * until the first message is accepted, and the time of a second send for
+ * comparison. Run it on the JVM, and as a native image built with
+ * <code>mvn -Pnative package</code>, to compare the two:
+ * </p>
+ *
+ * <pre>
+ * java -cp sdk-jar-with-dependencies.jar com.whispir.sdk.examples.StartupBenchmark local apikey username password 61400000000
+ * target/whispir-startup local apikey username password 61400000000
+ * </pre>
+ *
+ * With <code>local</code> a stand-in server is started in the same process
+ * before the SDK, which loads some of the networking classes the SDK would
+ * otherwise load itself. Use a separate stand-in or a real endpoint for exact
+ * numbers.
+ */
+public class StartupBenchmark {
+
+	public static void main(String[] args) {
+
+		if (args.length < 5) {
+			printUsage();
+			return;
+		}
+
+		StandInServer standIn = null;
+
+		try {
+			String host = args[0];
+
+			if (host.startsWith("local")) {
+				long delay = host.indexOf(':') > -1 ? Long.parseLong(host.substring(host.indexOf(':') + 1)) : 0;
+				StandInServer.useNoDelay();
+				standIn = new StandInServer(0, delay);
+				host = standIn.getUrl();
+			}
+
+			String workspaceId = args.length > 5 && !"-".equals(args[5]) ? args[5] : "";
+
+			WhispirEndPoints endPoint = endPoint(host);
+			long created = System.nanoTime();
+			WhispirSDK sdk;
+
+			if (endPoint != null) {
+				sdk = new WhispirSDK(args[1], args[2], args[3], endPoint);
+			} else {
+				sdk = new WhispirSDK(args[1], args[2], args[3], host);
+			}
+
+			WhispirResponse first = sdk.sendMessage(workspaceId, args[4], "Startup benchmark", "First send");
+			long firstSent = System.nanoTime();
+
+			WhispirResponse second = sdk.sendMessage(workspaceId, args[4], "Startup benchmark", "Second send");
+			long secondSent = System.nanoTime();
+
+			sdk.close();
+
+			// Read after the sends, so loading the management classes is not
+			// measured
+			long uptime = uptimeMillis();
+
+			System.out.println("Whispir SDK Startup Benchmark");
+			System.out.println("Runtime:                     " + (isNativeImage() ? "native image" : "JVM " + System.getProperty("java.version")));
+			System.out.println("First send status:           " + first.getStatusCode());
+			System.out.println("Second send status:          " + second.getStatusCode());
+
+			if (uptime >= 0) {
+				long sinceStart = uptime - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - firstSent);
+				System.out.println("Process start to first send: " + sinceStart + " ms");
+			}
+
+			System.out.println("SDK creation to first send:  " + TimeUnit.NANOSECONDS.toMillis(firstSent - created) + " ms");
+			System.out.println("Second send:                 " + TimeUnit.NANOSECONDS.toMillis(secondSent - firstSent) + " ms");
+
+			if (!isNativeImage()) {
+				System.out.println("Classes loaded:              " + ManagementFactory.getClassLoadingMXBean().getLoadedClassCount());
+			}
+
+		} catch (WhispirSDKException e) {
+			System.out.println(e.getMessage());
+		} catch (IOException e) {
+			System.out.println(e.getMessage());
+		} catch (IllegalArgumentException e) {
+			System.out.println(e.getMessage());
+			printUsage();
+		} finally {
+			if (standIn != null) {
+				standIn.close();
+			}
+		}
+	}
+
+	/**
+	 * @return the endpoint of the given name, or null for a debug host
+	 */
+	private static WhispirEndPoints endPoint(String host) {
+		for (WhispirEndPoints endPoint : WhispirEndPoints.values()) {
+			if (endPoint.name().equalsIgnoreCase(host)) {
+				return endPoint;
+			}
+		}
+		return null;
+	}
+
+	private static boolean isNativeImage() {
+		return System.getProperty("org.graalvm.nativeimage.imagecode") != null;
+	}
+
+	/**
+	 * @return the time since the process started, or -1 if the runtime does
+	 *         not report it
+	 */
+	private static long uptimeMillis() {
+		try {
+			return ManagementFactory.getRuntimeMXBean().getUptime();
+		} catch (RuntimeException e) {
+			return -1;
+		} catch (LinkageError e) {
+			return -1;
+		}
+	}
+
+	private static void printUsage() {
+		System.out.println("Whispir SDK Startup Benchmark");
+		System.out.println("");
+		System.out.println("Five arguments are required after 'startup'.");
+		System.out.println("1 - debug server url, the endpoint (AU, AP, AP1, NZ, US, IT, EDUCATION), or local[:delayMillis] for a local stand-in");
+		System.out.println("2 - API key");
+		System.out.println("3 - Username");
+		System.out.println("4 - password");
+		System.out.println("5 - Recipient Details");
+		System.out.println("6 - Workspace ID (optional, enter a - if none)");
+	}
+}
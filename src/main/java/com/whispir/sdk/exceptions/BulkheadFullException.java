@@ -0,0 +1,16 @@
+package com.whispir.sdk.exceptions;
+
+/**
+ * Thrown when a request is refused because its bulkhead has no free slot and
+ * no room in its queue.
+ *
+ * @since 2.4
+ */
+public class BulkheadFullException extends WhispirSDKException {
+
+	private static final long serialVersionUID = 6260437812936094185L;
+
+	public BulkheadFullException(String message) {
+		super(message);
+	}
+}
@@ -0,0 +1,16 @@
+package com.whispir.sdk.exceptions;
+
+/**
+ * Thrown when a request does not complete before its deadline, including any
+ * retries and waits.
+ *
+ * @since 2.4
+ */
+public class DeadlineExceededException extends WhispirSDKException {
+
+	private static final long serialVersionUID = -3518327720414538741L;
+
+	public DeadlineExceededException(String message) {
+		super(message);
+	}
+}
@@ -0,0 +1,16 @@
+package com.whispir.sdk.exceptions;
+
+/**
+ * Thrown when a request is refused before it is sent because the endpoint's
+ * adaptive concurrency limit is reached and waiting would take too long.
+ *
+ * @since 2.4
+ */
+public class LoadShedException extends WhispirSDKException {
+
+	private static final long serialVersionUID = -3184457093260742259L;
+
+	public LoadShedException(String message) {
+		super(message);
+	}
+}
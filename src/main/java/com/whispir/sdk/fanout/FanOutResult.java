@@ -0,0 +1,83 @@
+package com.whispir.sdk.fanout;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The aggregated outcome of a scenario fan-out, with one
+ * {@link ScenarioOutcome} per target in the order the targets were given.
+ *
+ * @since 2.4
+ */
+public class FanOutResult {
+
+	private final List<ScenarioOutcome> outcomes;
+	private final long elapsedMillis;
+
+	FanOutResult(List<ScenarioOutcome> outcomes, long elapsedMillis) {
+		this.outcomes = Collections.unmodifiableList(outcomes);
+		this.elapsedMillis = elapsedMillis;
+	}
+
+	public List<ScenarioOutcome> getOutcomes() {
+		return outcomes;
+	}
+
+	/**
+	 * @return the outcomes that were not accepted by the API, including those
+	 *         that timed out
+	 */
+	public List<ScenarioOutcome> getFailures() {
+		List<ScenarioOutcome> failures = new ArrayList<ScenarioOutcome>();
+
+		for (ScenarioOutcome outcome : outcomes) {
+			if (!outcome.isSuccess()) {
+				failures.add(outcome);
+			}
+		}
+		return failures;
+	}
+
+	/**
+	 * @return the number of scenarios accepted by the API
+	 */
+	public int getSucceeded() {
+		return outcomes.size() - getFailures().size();
+	}
+
+	/**
+	 * @return the number of scenarios without an answer by the deadline
+	 */
+	public int getTimedOut() {
+		int count = 0;
+
+		for (ScenarioOutcome outcome : outcomes) {
+			if (outcome.isTimedOut()) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * @return true if every scenario was accepted by the API
+	 */
+	public boolean isAllSucceeded() {
+		return getFailures().isEmpty();
+	}
+
+	/**
+	 * @return the time from the start of the fan-out until the last answer or
+	 *         the deadline
+	 */
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	@Override
+	public String toString() {
+		return "FanOutResult [targets=" + outcomes.size() + ", succeeded=" + getSucceeded()
+				+ ", timedOut=" + getTimedOut() + ", elapsedMillis=" + elapsedMillis + "]";
+	}
+}
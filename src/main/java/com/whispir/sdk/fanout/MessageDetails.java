@@ -0,0 +1,143 @@
+package com.whispir.sdk.fanout;
+
+import java.util.Collections;
+import java.util.Map;
+
+import com.whispir.sdk.WhispirResponse;
+import com.whispir.sdk.exceptions.WhispirSDKException;
+
+/**
+ * The details of one message fetched by a {@link MessageHydrator}, or why
+ * they could not be fetched.
+ *
+ * @since 2.4
+ */
+public class MessageDetails {
+
+	private final String messageId;
+	private final WhispirResponse response;
+	private final WhispirSDKException error;
+	private final long elapsedMillis;
+
+	MessageDetails(String messageId, WhispirResponse response, WhispirSDKException error,
+			long elapsedMillis) {
+		this.messageId = messageId;
+		this.response = response;
+		this.error = error;
+		this.elapsedMillis = elapsedMillis;
+	}
+
+	public String getMessageId() {
+		return messageId;
+	}
+
+	/**
+	 * @return the response, or null if the request failed
+	 */
+	public WhispirResponse getResponse() {
+		return response;
+	}
+
+	/**
+	 * @return the exception thrown by the request, or null
+	 */
+	public WhispirSDKException getError() {
+		return error;
+	}
+
+	/**
+	 * @return the HTTP status code, or 0 if there was no response
+	 */
+	public int getStatusCode() {
+		return response != null ? response.getStatusCode() : 0;
+	}
+
+	/**
+	 * @return true if the details were fetched (HTTP 200)
+	 */
+	public boolean isSuccess() {
+		return getStatusCode() == 200;
+	}
+
+	/**
+	 * @return the fields of the message, as returned by
+	 *         {@link com.whispir.sdk.WhispirSDK#getMessage(String, String)},
+	 *         empty if it was not fetched
+	 */
+	public Map<String, String> getFields() {
+		if (response == null || response.getResponse() == null) {
+			return Collections.emptyMap();
+		}
+		return response.getResponse();
+	}
+
+	/**
+	 * @return a field of the message, or null if it has none
+	 */
+	public String getField(String name) {
+		return getFields().get(name);
+	}
+
+	public String getSubject() {
+		return getField("subject");
+	}
+
+	public String getBody() {
+		return getField("body");
+	}
+
+	public String getTo() {
+		return getField("to");
+	}
+
+	public String getFrom() {
+		return getField("from");
+	}
+
+	/**
+	 * @return INCOMING or OUTGOING
+	 */
+	public String getDirection() {
+		return getField("direction");
+	}
+
+	public String getMessageType() {
+		return getField("messageType");
+	}
+
+	/**
+	 * @return the number of responses to the message, 0 if unknown
+	 */
+	public int getResponseCount() {
+		return (int) parse(getField("responseCount"));
+	}
+
+	/**
+	 * @return when the message was created, in milliseconds since the epoch,
+	 *         0 if unknown
+	 */
+	public long getCreatedTime() {
+		return parse(getField("createdTime"));
+	}
+
+	/**
+	 * @return the time from the start of the fetch until the API answered
+	 */
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	private static long parse(String value) {
+		try {
+			return value == null ? 0 : Long.parseLong(value);
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "MessageDetails [" + messageId + ", status=" + getStatusCode() + ", subject="
+				+ getSubject() + ", elapsedMillis=" + elapsedMillis + "]";
+	}
+}
@@ -0,0 +1,217 @@
+package com.whispir.sdk.fanout;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.whispir.sdk.Deadline;
+import com.whispir.sdk.WhispirResponse;
+import com.whispir.sdk.dispatch.DaemonThreadFactory;
+import com.whispir.sdk.exceptions.WhispirSDKException;
+import com.whispir.sdk.interfaces.MessageHelper;
+
+/**
+ * Turns a list of message IDs, such as the response of getMessages(), into
+ * the details of each message, fetching several at once.
+ *
+ * <pre>
+ * Iterator&lt;MessageDetails&gt; details = new MessageHydrator(sdk, 16).hydrate("",
+ * 		sdk.getMessages().getResponse().values().iterator(), MessageHydrator.Order.COMPLETION);
+ * </pre>
+ *
+ * <p>
+ * The details are fetched as the returned iterator is read: at most
+ * <code>parallelism</code> requests are in flight or waiting to be read, and
+ * the next IDs are only taken once earlier details have been read. In
+ * {@link Order#ORIGINAL} order a slow message holds back the ones after it;
+ * {@link Order#COMPLETION} returns each message as soon as it arrives.
+ * </p>
+ * <p>
+ * A message that cannot be fetched is returned with its error rather than
+ * ending the iteration. The deadline of the calling thread applies to every
+ * request. As with {@link ScenarioFanOut}, give the SDK a transport with at
+ * least as many connections as the parallelism.
+ * </p>
+ *
+ * @since 2.4
+ */
+public class MessageHydrator {
+
+	public enum Order {
+		/** The order of the IDs */
+		ORIGINAL,
+
+		/** The order the details arrive in */
+		COMPLETION
+	}
+
+	public static final int DEFAULT_PARALLELISM = 16;
+
+	private final MessageHelper helper;
+	private final int parallelism;
+
+	public MessageHydrator(MessageHelper helper) {
+		this(helper, DEFAULT_PARALLELISM);
+	}
+
+	/**
+	 * @param helper
+	 *            - fetches each message, usually the WhispirSDK
+	 * @param parallelism
+	 *            - the most messages fetched at once
+	 */
+	public MessageHydrator(MessageHelper helper, int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("Parallelism must be at least 1");
+		}
+
+		this.helper = helper;
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * @param workspaceId
+	 *            - the workspace the messages were sent in, or "" for My
+	 *            Company
+	 * @param messageIds
+	 *            - the IDs, read as the details are
+	 * @param order
+	 *            - the order of the details
+	 */
+	public Iterator<MessageDetails> hydrate(String workspaceId, Iterator<String> messageIds, Order order) {
+		return new Results(workspaceId, messageIds, order);
+	}
+
+	/**
+	 * Fetches the details of all the messages.
+	 *
+	 * @return the details, in the order of the IDs
+	 */
+	public List<MessageDetails> hydrateAll(String workspaceId, Collection<String> messageIds) {
+		List<MessageDetails> details = new ArrayList<MessageDetails>(messageIds.size());
+		Iterator<MessageDetails> results = hydrate(workspaceId, messageIds.iterator(), Order.ORIGINAL);
+
+		while (results.hasNext()) {
+			details.add(results.next());
+		}
+		return details;
+	}
+
+	private final class Results implements Iterator<MessageDetails> {
+
+		private final String workspaceId;
+		private final Iterator<String> messageIds;
+		private final Order order;
+		private final Deadline deadline = Deadline.current();
+		private final long start = System.nanoTime();
+
+		// Threads are started on demand and stop when idle, so an iterator
+		// that is not read to the end leaves nothing behind
+		private final ThreadPoolExecutor pool;
+		private final CompletionService<MessageDetails> completed;
+		private final Deque<Future<MessageDetails>> pending = new ArrayDeque<Future<MessageDetails>>();
+
+		Results(String workspaceId, Iterator<String> messageIds, Order order) {
+			this.workspaceId = workspaceId;
+			this.messageIds = messageIds;
+			this.order = order;
+			this.pool = new ThreadPoolExecutor(parallelism, parallelism, 1, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<Runnable>(), new DaemonThreadFactory("whispir-hydrate"));
+			this.pool.allowCoreThreadTimeOut(true);
+			this.completed = new ExecutorCompletionService<MessageDetails>(pool);
+		}
+
+		@Override
+		public boolean hasNext() {
+			fill();
+
+			if (pending.isEmpty()) {
+				pool.shutdown();
+				return false;
+			}
+			return true;
+		}
+
+		@Override
+		public MessageDetails next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+
+			try {
+				Future<MessageDetails> future;
+
+				if (order == Order.ORIGINAL) {
+					future = pending.poll();
+				} else {
+					future = completed.take();
+					pending.remove(future);
+				}
+
+				MessageDetails details = future.get();
+
+				// Start the next fetch before the caller works on this one
+				fill();
+				return details;
+
+			} catch (InterruptedException e) {
+				pool.shutdownNow();
+				pending.clear();
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while fetching message details");
+			} catch (ExecutionException e) {
+				// The task catches everything it expects
+				throw new IllegalStateException(String.valueOf(e.getCause()), e.getCause());
+			}
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		private void fill() {
+			while (pending.size() < parallelism && messageIds.hasNext()) {
+				final String messageId = messageIds.next();
+
+				Callable<MessageDetails> fetch = new Callable<MessageDetails>() {
+					@Override
+					public MessageDetails call() {
+						Deadline.Scope scope = deadline.enter();
+
+						try {
+							WhispirResponse response = helper.getMessage(workspaceId, messageId);
+							return new MessageDetails(messageId, response, null, elapsedMillis());
+						} catch (WhispirSDKException e) {
+							return new MessageDetails(messageId, null, e, elapsedMillis());
+						} catch (RuntimeException e) {
+							return new MessageDetails(messageId, null,
+									new WhispirSDKException(String.valueOf(e)), elapsedMillis());
+						} finally {
+							scope.close();
+						}
+					}
+				};
+
+				// Only futures taken in completion order go through the queue
+				pending.add(order == Order.ORIGINAL ? pool.submit(fetch) : completed.submit(fetch));
+			}
+		}
+
+		private long elapsedMillis() {
+			return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		}
+	}
+}
@@ -0,0 +1,149 @@
+package com.whispir.sdk.fanout;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.whispir.sdk.Deadline;
+import com.whispir.sdk.WhispirResponse;
+import com.whispir.sdk.dispatch.DaemonThreadFactory;
+import com.whispir.sdk.exceptions.WhispirSDKException;
+import com.whispir.sdk.interfaces.ScenarioHelper;
+
+/**
+ * Sends many scenarios at once, for example the same emergency scenario in
+ * every workspace, and waits for all of them up to a deadline.
+ *
+ * <p>
+ * Each fan-out runs on its own threads, one per target up to the maximum
+ * concurrency, so it is not queued behind other traffic of the SDK. The
+ * number of requests actually in flight is also bounded by the connections
+ * of the SDK's transport, so give the SDK a transport with at least as many
+ * connections as the largest fan-out.
+ * </p>
+ * <p>
+ * When the deadline passes, the scenarios still waiting for an answer are
+ * reported as timed out. A request that was already sent may still be
+ * accepted by the API after the deadline.
+ * </p>
+ *
+ * @since 2.4
+ */
+public class ScenarioFanOut {
+
+	public static final int DEFAULT_MAX_CONCURRENCY = 64;
+
+	private final ScenarioHelper helper;
+	private final int maxConcurrency;
+
+	public ScenarioFanOut(ScenarioHelper helper) {
+		this(helper, DEFAULT_MAX_CONCURRENCY);
+	}
+
+	/**
+	 * @param helper
+	 *            - sends each scenario, usually the WhispirSDK
+	 * @param maxConcurrency
+	 *            - the most scenarios sent at once
+	 */
+	public ScenarioFanOut(ScenarioHelper helper, int maxConcurrency) {
+		if (maxConcurrency < 1) {
+			throw new IllegalArgumentException("Concurrency must be at least 1");
+		}
+
+		this.helper = helper;
+		this.maxConcurrency = maxConcurrency;
+	}
+
+	/**
+	 * Sends every target concurrently and waits for their answers.
+	 *
+	 * @param targets
+	 *            - the scenarios to send
+	 * @param timeoutMillis
+	 *            - the deadline for all the answers, from now
+	 * @return the outcome of each target, in the order given
+	 */
+	public FanOutResult send(Collection<ScenarioTarget> targets, long timeoutMillis) {
+		final long start = System.nanoTime();
+		List<ScenarioTarget> list = new ArrayList<ScenarioTarget>(targets);
+
+		if (list.isEmpty()) {
+			return new FanOutResult(Collections.<ScenarioOutcome> emptyList(), 0);
+		}
+
+		ExecutorService pool = Executors.newFixedThreadPool(Math.min(list.size(), maxConcurrency),
+				new DaemonThreadFactory("whispir-fanout"));
+		List<Future<ScenarioOutcome>> futures = new ArrayList<Future<ScenarioOutcome>>(list.size());
+
+		// Each request is aborted at the deadline rather than left running
+		final Deadline deadline = Deadline.current().earliest(Deadline.after(timeoutMillis));
+
+		try {
+			for (final ScenarioTarget target : list) {
+				futures.add(pool.submit(new Callable<ScenarioOutcome>() {
+					@Override
+					public ScenarioOutcome call() {
+						Deadline.Scope scope = deadline.enter();
+
+						try {
+							WhispirResponse response = helper.sendScenario(
+									target.getWorkspaceId(), target.getScenarioId());
+							return new ScenarioOutcome(target, response, null, elapsedMillis(start));
+						} catch (WhispirSDKException e) {
+							return new ScenarioOutcome(target, null, e, elapsedMillis(start));
+						} finally {
+							scope.close();
+						}
+					}
+				}));
+			}
+
+			long deadlineNanos = start + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+			List<ScenarioOutcome> outcomes = new ArrayList<ScenarioOutcome>(list.size());
+			boolean interrupted = false;
+
+			for (int i = 0; i < futures.size(); i++) {
+				Future<ScenarioOutcome> future = futures.get(i);
+				ScenarioTarget target = list.get(i);
+
+				// Once interrupted, only collect what has already finished
+				long wait = interrupted ? 0 : Math.max(0, deadlineNanos - System.nanoTime());
+
+				try {
+					outcomes.add(future.get(wait, TimeUnit.NANOSECONDS));
+				} catch (TimeoutException e) {
+					future.cancel(true);
+					outcomes.add(new ScenarioOutcome(target, null, null, elapsedMillis(start)));
+				} catch (InterruptedException e) {
+					interrupted = true;
+					future.cancel(true);
+					outcomes.add(new ScenarioOutcome(target, null, null, elapsedMillis(start)));
+				} catch (ExecutionException e) {
+					outcomes.add(new ScenarioOutcome(target, null,
+							new WhispirSDKException(String.valueOf(e.getCause())), elapsedMillis(start)));
+				}
+			}
+
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+			return new FanOutResult(outcomes, elapsedMillis(start));
+
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	private static long elapsedMillis(long startNanos) {
+		return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+	}
+}
@@ -0,0 +1,83 @@
+package com.whispir.sdk.fanout;
+
+import com.whispir.sdk.WhispirResponse;
+import com.whispir.sdk.exceptions.DeadlineExceededException;
+import com.whispir.sdk.exceptions.WhispirSDKException;
+
+/**
+ * The outcome of sending one {@link ScenarioTarget} in a fan-out: the
+ * response from the API, the exception thrown by the SDK, or neither if the
+ * deadline passed first.
+ *
+ * @since 2.4
+ */
+public class ScenarioOutcome {
+
+	private final ScenarioTarget target;
+	private final WhispirResponse response;
+	private final WhispirSDKException error;
+	private final long elapsedMillis;
+
+	ScenarioOutcome(ScenarioTarget target, WhispirResponse response,
+			WhispirSDKException error, long elapsedMillis) {
+		this.target = target;
+		this.response = response;
+		this.error = error;
+		this.elapsedMillis = elapsedMillis;
+	}
+
+	public ScenarioTarget getTarget() {
+		return target;
+	}
+
+	/**
+	 * @return the response, or null if the send failed or timed out
+	 */
+	public WhispirResponse getResponse() {
+		return response;
+	}
+
+	/**
+	 * @return the exception thrown by the send, or null
+	 */
+	public WhispirSDKException getError() {
+		return error;
+	}
+
+	/**
+	 * @return the HTTP status code, or 0 if there was no response
+	 */
+	public int getStatusCode() {
+		return response != null ? response.getStatusCode() : 0;
+	}
+
+	/**
+	 * @return true if the API accepted the scenario (HTTP 2xx)
+	 */
+	public boolean isSuccess() {
+		int status = getStatusCode();
+		return status >= 200 && status < 300;
+	}
+
+	/**
+	 * @return true if the deadline passed before the API answered. The
+	 *         scenario may still have been sent.
+	 */
+	public boolean isTimedOut() {
+		return response == null && (error == null || error instanceof DeadlineExceededException);
+	}
+
+	/**
+	 * @return the time from the start of the fan-out until the API answered,
+	 *         or until the deadline if it did not
+	 */
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	@Override
+	public String toString() {
+		return "ScenarioOutcome [" + target + ", status=" + getStatusCode()
+				+ ", timedOut=" + isTimedOut() + ", elapsedMillis=" + elapsedMillis + "]";
+	}
+}
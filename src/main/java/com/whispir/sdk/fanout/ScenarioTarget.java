@@ -0,0 +1,58 @@
+package com.whispir.sdk.fanout;
+
+/**
+ * A scenario of a workspace to be sent in a fan-out.
+ *
+ * @since 2.4
+ */
+public final class ScenarioTarget {
+
+	private final String workspaceId;
+	private final String scenarioId;
+
+	/**
+	 * @param workspaceId
+	 *            - the workspace, empty for a scenario of the account
+	 * @param scenarioId
+	 *            - the scenario to send
+	 */
+	public ScenarioTarget(String workspaceId, String scenarioId) {
+		if (scenarioId == null || "".equals(scenarioId)) {
+			throw new IllegalArgumentException("A scenario ID is required");
+		}
+
+		this.workspaceId = workspaceId == null ? "" : workspaceId;
+		this.scenarioId = scenarioId;
+	}
+
+	public String getWorkspaceId() {
+		return workspaceId;
+	}
+
+	public String getScenarioId() {
+		return scenarioId;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof ScenarioTarget)) {
+			return false;
+		}
+
+		ScenarioTarget other = (ScenarioTarget) obj;
+		return workspaceId.equals(other.workspaceId) && scenarioId.equals(other.scenarioId);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * workspaceId.hashCode() + scenarioId.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return "ScenarioTarget [workspaceId=" + workspaceId + ", scenarioId=" + scenarioId + "]";
+	}
+}
@@ -1,6 +1,11 @@
 package com.whispir.sdk.impl;
 
+import java.util.HashMap;
+import java.util.Map;
+
+import com.whispir.sdk.WhispirResponse;
 import com.whispir.sdk.WhispirSDK;
+import com.whispir.sdk.recipients.RecipientCheck;
 
 public abstract class BaseHelperImpl {
 	protected WhispirSDK sdk;
@@ -8,4 +13,34 @@ public abstract class BaseHelperImpl {
 	public BaseHelperImpl(WhispirSDK sdk) {
 		this.sdk = sdk;
 	}
+
+	/**
+	 * @return the HTTP 422 returned without a request when a recipient fails
+	 *         the SDK's recipient validator
+	 */
+	protected WhispirResponse recipientRejected(RecipientCheck check) {
+		return unprocessable(String.valueOf(check.getRecipient()), check.getReason().name(),
+				check.getReason().getDescription());
+	}
+
+	/**
+	 * @return the HTTP 422 returned without a request when every recipient is
+	 *         on the SDK's suppression list
+	 */
+	protected WhispirResponse recipientSuppressed(String recipient) {
+		return unprocessable(recipient, "SUPPRESSED", "The recipient is on the suppression list");
+	}
+
+	private WhispirResponse unprocessable(String recipient, String reason, String message) {
+		WhispirResponse response = new WhispirResponse();
+		Map<String, String> map = new HashMap<String, String>();
+
+		map.put("recipient", recipient);
+		map.put("reason", reason);
+		map.put("message", message);
+
+		response.setStatusCode(422);
+		response.setResponse(map);
+		return response;
+	}
 }
@@ -1,18 +1,31 @@
 package com.whispir.sdk.impl;
 
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import com.whispir.sdk.MessageRequest;
+import com.whispir.sdk.SendReceipt;
 import com.whispir.sdk.WhispirResponse;
 import com.whispir.sdk.WhispirSDK;
 import com.whispir.sdk.WhispirSDKConstants;
+import com.whispir.sdk.diagnostics.Diagnostics;
+import com.whispir.sdk.diagnostics.Level;
+import com.whispir.sdk.dispatch.Priority;
 import com.whispir.sdk.exceptions.WhispirSDKException;
+import com.whispir.sdk.fanout.MessageDetails;
+import com.whispir.sdk.fanout.MessageHydrator;
 import com.whispir.sdk.interfaces.MessageHelper;
+import com.whispir.sdk.recipients.RecipientCheck;
+import com.whispir.sdk.recipients.RecipientValidator;
+import com.whispir.sdk.suppression.SuppressionFilter;
 
 public class MessageHelperImpl extends BaseHelperImpl implements MessageHelper {
 
@@ -142,14 +155,60 @@ public class MessageHelperImpl extends BaseHelperImpl implements MessageHelper {
   public WhispirResponse sendMessage(String workspaceId, String recipient,
       String subject, Map<String, String> content,
       Map<String, String> options) throws WhispirSDKException {
+    return sendMessage(workspaceId, recipient, subject, content, options, false);
+  }
+
+  /**
+   * <p>
+   * Sends a message as sendMessage does, but reads only the status and the
+   * Location header of the response. The response body is drained without
+   * being read, so high volume senders that only need the message ID avoid
+   * parsing and keeping it.
+   * </p>
+   * <p>
+   * Recipients that are rejected or suppressed return a receipt with HTTP
+   * 422 and no message ID.
+   * </p>
+   *
+   * @return receipt - the HTTP status code and the ID of the sent message.
+   */
+  public SendReceipt sendMessageForReceipt(String workspaceId, String recipient,
+      String subject, Map<String, String> content,
+      Map<String, String> options) throws WhispirSDKException {
+    return SendReceipt.of(sendMessage(workspaceId, recipient, subject, content, options, true));
+  }
+
+  private WhispirResponse sendMessage(String workspaceId, String recipient,
+      String subject, Map<String, String> content,
+      Map<String, String> options, boolean receiptOnly) throws WhispirSDKException {
     WhispirResponse response = new WhispirResponse();
 
-    if (recipient == null || recipient.length() < 8) {
+    RecipientValidator validator = sdk.getRecipientValidator();
+
+    if (validator != null) {
+      RecipientCheck check = validator.checkList(recipient);
+
+      if (!check.isValid()) {
+        return recipientRejected(check);
+      }
+      recipient = check.getNormalised();
+    } else if (recipient == null || recipient.length() < 8) {
       // error with the recipient information, returning HTTP 422.
       response.setStatusCode(422);
       return response;
     }
 
+    SuppressionFilter suppression = sdk.getSuppressionFilter();
+
+    if (suppression != null) {
+      String allowed = suppression.filter(recipient);
+
+      if (allowed.isEmpty()) {
+        return recipientSuppressed(recipient);
+      }
+      recipient = allowed;
+    }
+
     try {
       JSONObject request = new JSONObject();
 
@@ -231,6 +290,9 @@ public class MessageHelperImpl extends BaseHelperImpl implements MessageHelper {
       // System.out.println("Request: " + request.toString());
 
       // Execute the request
+      if (receiptOnly) {
+        return sdk.post(WhispirSDKConstants.MESSAGES_RESOURCE, workspaceId, request.toString(), true);
+      }
       return sdk.post(WhispirSDKConstants.MESSAGES_RESOURCE, workspaceId, request.toString());
 
     } catch (JSONException e) {
@@ -240,6 +302,64 @@ public class MessageHelperImpl extends BaseHelperImpl implements MessageHelper {
     }
   }
 
+  /**
+   * <p>
+   * Queues a message in the priority lane of the SDK's dispatcher.
+   * </p>
+   * <p>
+   * CRITICAL messages are dispatched ahead of any NORMAL or BULK backlog.
+   * The content and options are the same as for the synchronous sendMessage.
+   * </p>
+   *
+   * @param priority
+   *            - the traffic class of the message
+   * @return future - completes with the WhispirResponse of the performed
+   *         action.
+   */
+  public Future<WhispirResponse> sendMessage(Priority priority,
+      final String workspaceId, final String recipient, final String subject,
+      final Map<String, String> content, final Map<String, String> options) {
+    return sdk.getDispatcher().submit(priority, new Callable<WhispirResponse>() {
+      @Override
+      public WhispirResponse call() throws WhispirSDKException {
+        return sendMessage(workspaceId, recipient, subject, content, options);
+      }
+    });
+  }
+
+  /**
+   * <p>
+   * Holds a message in the SDK's scheduler until it is due, then sends it
+   * through the dispatcher like the priority sendMessage.
+   * </p>
+   * <p>
+   * The recipients are checked when the message is sent, not when it is
+   * scheduled.
+   * </p>
+   *
+   * @param sendAtMillis
+   *            - when to send the message, in milliseconds since the epoch
+   * @return scheduleId - the ID to cancel the message with.
+   */
+  public long scheduleMessage(long sendAtMillis, String workspaceId,
+      String recipient, String subject, Map<String, String> content,
+      Map<String, String> options) throws WhispirSDKException {
+    return sdk.getScheduler().schedule(
+        new MessageRequest(workspaceId, recipient, subject, content, options), sendAtMillis);
+  }
+
+  /**
+   * <p>
+   * Cancels a message held by scheduleMessage.
+   * </p>
+   *
+   * @param scheduleId - the ID returned by scheduleMessage
+   * @return cancelled - false if the message was already sent or cancelled.
+   */
+  public boolean cancelScheduledMessage(long scheduleId) throws WhispirSDKException {
+    return sdk.getScheduler().cancel(scheduleId);
+  }
+
   /**
    * <p>
    * Allows a user to retrieve a list of messages.
@@ -254,28 +374,32 @@ public class MessageHelperImpl extends BaseHelperImpl implements MessageHelper {
 
     Map<String, String> map = new TreeMap<String, String>();
 
-    try {
-      JSONObject obj = new JSONObject(response.getRawResponse());
-
-      JSONArray messages = obj.getJSONArray("messages");
-      int messagesLength = messages.length();
+    // Errors and rate limited responses have no list to parse
+    if (response.getStatusCode() == 200) {
+      try {
+        JSONObject obj = new JSONObject(response.getRawResponse());
 
-      for (int i = 0; i < messagesLength; i++) {
-        String subject = (String) messages.getJSONObject(i).get(
-            "subject");
-        String fullUrl = (String) messages.getJSONObject(i)
-            .getJSONArray("link").getJSONObject(0).get("uri");
+        JSONArray messages = obj.optJSONArray("messages");
+        int messagesLength = messages == null ? 0 : messages.length();
 
-        String id = fullUrl.substring(fullUrl.lastIndexOf("/") + 1,
-            fullUrl.lastIndexOf("?"));
+        for (int i = 0; i < messagesLength; i++) {
+          String subject = (String) messages.getJSONObject(i).get(
+              "subject");
+          String fullUrl = (String) messages.getJSONObject(i)
+              .getJSONArray("link").getJSONObject(0).get("uri");
 
-        System.out.println(subject + " " + id);
+          map.put(subject, SendReceipt.idOf(fullUrl));
+        }
 
-        map.put(subject, id);
+      } catch (JSONException e) {
+        throw new WhispirSDKException(e.getMessage());
       }
+    }
 
-    } catch (JSONException e) {
-      throw new WhispirSDKException(e.getMessage());
+    Diagnostics diagnostics = sdk.getDiagnostics();
+
+    if (diagnostics.isEnabled(Level.DEBUG, Diagnostics.LIST)) {
+      diagnostics.log(Level.DEBUG, Diagnostics.LIST, "Messages " + map, null);
     }
 
     response.setResponse(map);
@@ -291,12 +415,128 @@ public class MessageHelperImpl extends BaseHelperImpl implements MessageHelper {
    * @return response - the WhispirResponse object of the performed action.
    */
   public WhispirResponse getMessage(String messageId) throws WhispirSDKException {
-    WhispirResponse response = new WhispirResponse();
+    return getMessage("", messageId);
+  }
 
-    response = sdk.get(WhispirSDKConstants.MESSAGES_RESOURCE, "", messageId);
+  /**
+   * <p>
+   * Allows a user to retrieve a single message from a workspace.
+   * </p>
+   * <p>
+   * The response map holds the fields of the message, e.g. subject, body,
+   * to, from, direction and createdTime. The fields of its email, voice and
+   * web content are prefixed with the content type, e.g. email.body.
+   * </p>
+   * @param workspaceId - the workspace the message was sent in, or "" for My Company
+   * @param messageId - the ID of the message to retrieve
+   * @return response - the WhispirResponse object of the performed action.
+   */
+  public WhispirResponse getMessage(String workspaceId, String messageId)
+      throws WhispirSDKException {
+    WhispirResponse response = sdk.get(WhispirSDKConstants.MESSAGES_RESOURCE,
+        workspaceId, messageId);
 
     Map<String, String> map = new TreeMap<String, String>();
 
+    if (response.getStatusCode() == 200) {
+      try {
+        putFields(new JSONObject(response.getRawResponse()), "", map);
+      } catch (JSONException e) {
+        throw new WhispirSDKException(e.getMessage());
+      }
+    }
+
+    response.setResponse(map);
+
+    return response;
+  }
+
+  /**
+   * <p>
+   * Fetches the details of many messages concurrently, e.g. the IDs in the
+   * response of getMessages().
+   * </p>
+   * <p>
+   * The details are fetched as the iterator is read, at most parallelism at
+   * a time, so the IDs may come from a paged source.
+   * </p>
+   * @param workspaceId - the workspace the messages were sent in, or "" for My Company
+   * @param messageIds - the IDs of the messages
+   * @param parallelism - the most messages fetched at once
+   * @param order - whether the details are returned in the order of the IDs or as they arrive
+   * @return details - the details of each message, including those that could not be fetched
+   */
+  public Iterator<MessageDetails> getMessageDetails(String workspaceId,
+      Iterator<String> messageIds, int parallelism, MessageHydrator.Order order) {
+    return new MessageHydrator(sdk, parallelism).hydrate(workspaceId, messageIds, order);
+  }
+
+  // Nested objects are flattened with dotted keys, arrays such as link are left out
+  private static void putFields(JSONObject obj, String prefix, Map<String, String> map)
+      throws JSONException {
+    Iterator<?> keys = obj.keys();
+
+    while (keys.hasNext()) {
+      String key = String.valueOf(keys.next());
+      Object value = obj.get(key);
+
+      if (value instanceof JSONObject) {
+        putFields((JSONObject) value, prefix + key + ".", map);
+      } else if (!(value instanceof JSONArray) && value != JSONObject.NULL) {
+        map.put(prefix + key, String.valueOf(value));
+      }
+    }
+  }
+
+  /**
+   * <p>
+   * Allows a user to retrieve the delivery status of a message for each of
+   * its recipients.
+   * </p>
+   * <p>
+   * The response map is keyed by the recipient's contact information (or
+   * name when none is given), with the recipient's current status, e.g.
+   * SENT, DELIVERED, READ or UNDELIVERABLE.
+   * </p>
+   *
+   * @param workspaceId - the workspace the message was sent in, or "" for My Company
+   * @param messageId - the ID of the message
+   * @return response - the WhispirResponse object of the performed action.
+   */
+  public WhispirResponse getMessageStatus(String workspaceId, String messageId)
+      throws WhispirSDKException {
+    WhispirResponse response = sdk.get(WhispirSDKConstants.MESSAGESTATUS_RESOURCE,
+        workspaceId, messageId);
+
+    Map<String, String> map = new TreeMap<String, String>();
+
+    if (response.getStatusCode() == 200) {
+      try {
+        JSONObject obj = new JSONObject(response.getRawResponse());
+        JSONArray statuses = obj.optJSONArray("messageStatuses");
+
+        for (int i = 0; statuses != null && i < statuses.length(); i++) {
+          JSONObject status = statuses.getJSONObject(i);
+
+          // The summary view has a list of counts rather than a status string
+          if (status.optJSONArray("status") != null) {
+            continue;
+          }
+
+          String recipient = status.optString("info");
+
+          if ("".equals(recipient)) {
+            recipient = status.optString("name");
+          }
+
+          map.put(recipient, status.optString("status"));
+        }
+
+      } catch (JSONException e) {
+        throw new WhispirSDKException(e.getMessage());
+      }
+    }
+
     response.setResponse(map);
 
     return response;
@@ -1,17 +1,29 @@
 package com.whispir.sdk.impl;
 
+import java.util.Collection;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import com.whispir.sdk.SendReceipt;
 import com.whispir.sdk.WhispirResponse;
 import com.whispir.sdk.WhispirSDK;
 import com.whispir.sdk.WhispirSDKConstants;
+import com.whispir.sdk.diagnostics.Diagnostics;
+import com.whispir.sdk.diagnostics.Level;
+import com.whispir.sdk.dispatch.Priority;
 import com.whispir.sdk.exceptions.WhispirSDKException;
+import com.whispir.sdk.fanout.FanOutResult;
+import com.whispir.sdk.fanout.ScenarioFanOut;
+import com.whispir.sdk.fanout.ScenarioTarget;
 import com.whispir.sdk.interfaces.ScenarioHelper;
+import com.whispir.sdk.recipients.RecipientCheck;
+import com.whispir.sdk.recipients.RecipientValidator;
 
 public class ScenarioHelperImpl extends BaseHelperImpl implements
 		ScenarioHelper {
@@ -45,10 +57,7 @@ public class ScenarioHelperImpl extends BaseHelperImpl implements
 				String fullUrl = (String) scenarios.getJSONObject(i)
 						.getJSONArray("link").getJSONObject(0).get("uri");
 
-				String id = fullUrl.substring(fullUrl.lastIndexOf("/") + 1,
-						fullUrl.lastIndexOf("?"));
-
-				System.out.println(scenarioName + " " + id);
+				String id = SendReceipt.idOf(fullUrl);
 
 				map.put(scenarioName, id);
 			}
@@ -57,6 +66,12 @@ public class ScenarioHelperImpl extends BaseHelperImpl implements
 			throw new WhispirSDKException(e.getMessage());
 		}
 
+		Diagnostics diagnostics = sdk.getDiagnostics();
+
+		if (diagnostics.isEnabled(Level.DEBUG, Diagnostics.LIST)) {
+			diagnostics.log(Level.DEBUG, Diagnostics.LIST, "Scenarios " + map, null);
+		}
+
 		response.setResponse(map);
 
 		return response;
@@ -67,6 +82,34 @@ public class ScenarioHelperImpl extends BaseHelperImpl implements
 			throws WhispirSDKException {
 		return sdk.post(WhispirSDKConstants.SCENARIOS_RESOURCE, scenarioId, workspaceId, "");
 	}
+
+	/**
+	 * <p>
+	 * Queues a scenario in the priority lane of the SDK's dispatcher, so that
+	 * an emergency scenario is not held up by other traffic.
+	 * @return future - completes with the WhispirResponse of the scenario
+	 */
+	@Override
+	public Future<WhispirResponse> sendScenario(Priority priority, final String workspaceId,
+			final String scenarioId) {
+		return sdk.getDispatcher().submit(priority, new Callable<WhispirResponse>() {
+			@Override
+			public WhispirResponse call() throws WhispirSDKException {
+				return sendScenario(workspaceId, scenarioId);
+			}
+		});
+	}
+
+	/**
+	 * <p>
+	 * Sends all the scenarios at once, for example the same emergency
+	 * scenario in many workspaces, and waits for them up to the deadline.
+	 * @return result - the status and timing of each scenario
+	 */
+	@Override
+	public FanOutResult sendScenarios(Collection<ScenarioTarget> targets, long timeoutMillis) {
+		return new ScenarioFanOut(sdk).send(targets, timeoutMillis);
+	}
 	
 	@Override
 	public WhispirResponse createScenario(String recipients,
@@ -81,7 +124,16 @@ public class ScenarioHelperImpl extends BaseHelperImpl implements
 		
 		WhispirResponse response = new WhispirResponse();
 		
-		if (recipients == null || recipients.length() < 8) {
+		RecipientValidator validator = sdk.getRecipientValidator();
+		
+		if (validator != null) {
+			RecipientCheck check = validator.checkList(recipients);
+			
+			if (!check.isValid()) {
+				return recipientRejected(check);
+			}
+			recipients = check.getNormalised();
+		} else if (recipients == null || recipients.length() < 8) {
 			// error with the recipient information, returning HTTP 422.
 			response.setStatusCode(422);
 			return response;
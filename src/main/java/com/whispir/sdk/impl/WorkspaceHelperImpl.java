@@ -7,6 +7,7 @@ import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import com.whispir.sdk.SendReceipt;
 import com.whispir.sdk.WhispirResponse;
 import com.whispir.sdk.WhispirSDK;
 import com.whispir.sdk.WhispirSDKConstants;
@@ -45,7 +46,7 @@ public class WorkspaceHelperImpl extends BaseHelperImpl implements WorkspaceHelp
 				String workspaceName = (String) workspaces.getJSONObject(i).get("projectName");
 				String fullUrl = (String)workspaces.getJSONObject(i).getJSONArray("link").getJSONObject(0).get("uri");
 				
-				String id = fullUrl.substring(fullUrl.lastIndexOf("/") + 1, fullUrl.lastIndexOf("?"));
+				String id = SendReceipt.idOf(fullUrl);
 				
 				map.put(workspaceName, id);
 			}
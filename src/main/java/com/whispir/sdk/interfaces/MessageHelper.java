@@ -1,9 +1,15 @@
 package com.whispir.sdk.interfaces;
 
+import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.Future;
 
+import com.whispir.sdk.SendReceipt;
 import com.whispir.sdk.WhispirResponse;
+import com.whispir.sdk.dispatch.Priority;
 import com.whispir.sdk.exceptions.WhispirSDKException;
+import com.whispir.sdk.fanout.MessageDetails;
+import com.whispir.sdk.fanout.MessageHydrator;
 /**
  * @author jordan
  * @version 2.1
@@ -29,7 +35,25 @@ public interface MessageHelper {
 	public WhispirResponse sendMessage(String workspaceId, String recipient,
 			String subject, Map<String, String> content,
 			Map<String, String> options) throws WhispirSDKException;
+
+	public Future<WhispirResponse> sendMessage(Priority priority, String workspaceId,
+			String recipient, String subject, Map<String, String> content,
+			Map<String, String> options);
+	
+	public SendReceipt sendMessageForReceipt(String workspaceId, String recipient,
+			String subject, Map<String, String> content,
+			Map<String, String> options) throws WhispirSDKException;
+	
+	public long scheduleMessage(long sendAtMillis, String workspaceId, String recipient,
+			String subject, Map<String, String> content,
+			Map<String, String> options) throws WhispirSDKException;
+
+	public boolean cancelScheduledMessage(long scheduleId) throws WhispirSDKException;
 	
 	public WhispirResponse getMessages() throws WhispirSDKException;
 	public WhispirResponse getMessage(String messageId) throws WhispirSDKException;
+	public WhispirResponse getMessage(String workspaceId, String messageId) throws WhispirSDKException;
+	public Iterator<MessageDetails> getMessageDetails(String workspaceId, Iterator<String> messageIds,
+			int parallelism, MessageHydrator.Order order);
+	public WhispirResponse getMessageStatus(String workspaceId, String messageId) throws WhispirSDKException;
 }
@@ -1,9 +1,14 @@
 package com.whispir.sdk.interfaces;
 
+import java.util.Collection;
 import java.util.Map;
+import java.util.concurrent.Future;
 
 import com.whispir.sdk.WhispirResponse;
+import com.whispir.sdk.dispatch.Priority;
 import com.whispir.sdk.exceptions.WhispirSDKException;
+import com.whispir.sdk.fanout.FanOutResult;
+import com.whispir.sdk.fanout.ScenarioTarget;
 /**
  * @author jordan
  * @version 1.0
@@ -18,4 +23,6 @@ public interface ScenarioHelper {
 	public WhispirResponse createScenario(String recipients, Map<String, String> details, Map<String,String> content) throws WhispirSDKException;
 	public WhispirResponse createScenario(String workspaceId, String recipients, Map<String, String> details, Map<String,String> content) throws WhispirSDKException;	
 	public WhispirResponse sendScenario(String workspaceId, String scenarioId) throws WhispirSDKException;
+	public Future<WhispirResponse> sendScenario(Priority priority, String workspaceId, String scenarioId);
+	public FanOutResult sendScenarios(Collection<ScenarioTarget> targets, long timeoutMillis);
 }
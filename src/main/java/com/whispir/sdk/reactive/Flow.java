@@ -0,0 +1,42 @@
+package com.whispir.sdk.reactive;
+
+/**
+ * Reactive Streams interfaces for the SDK.
+ *
+ * <p>
+ * The SDK targets Java 7, so it cannot depend on
+ * <code>java.util.concurrent.Flow</code> (Java 9). These interfaces have the
+ * same methods and contracts, so adapting them to the JDK or the
+ * org.reactivestreams interfaces is a one line delegate per method.
+ * </p>
+ *
+ * @since 2.4
+ */
+public final class Flow {
+
+	private Flow() {
+	}
+
+	public interface Publisher<T> {
+		void subscribe(Subscriber<? super T> subscriber);
+	}
+
+	public interface Subscriber<T> {
+		void onSubscribe(Subscription subscription);
+
+		void onNext(T item);
+
+		void onError(Throwable throwable);
+
+		void onComplete();
+	}
+
+	public interface Subscription {
+		void request(long n);
+
+		void cancel();
+	}
+
+	public interface Processor<T, R> extends Subscriber<T>, Publisher<R> {
+	}
+}
@@ -0,0 +1,125 @@
+package com.whispir.sdk.reactive;
+
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes the items of an iterator, pulling each item only when it has been
+ * requested.
+ *
+ * <p>
+ * Useful to feed a lazily read source (such as a file of recipients) into a
+ * {@link SendProcessor} without reading ahead of what can be sent. Items are
+ * emitted on the thread that requests them. Supports a single subscriber.
+ * </p>
+ *
+ * @param <T>
+ *            the type of the items
+ * @since 2.4
+ */
+public class IteratorPublisher<T> implements Flow.Publisher<T> {
+
+	private final Iterator<? extends T> iterator;
+	private final AtomicLong demand = new AtomicLong();
+	private final AtomicInteger wip = new AtomicInteger();
+
+	private volatile Flow.Subscriber<? super T> subscriber;
+	private volatile boolean cancelled;
+	private boolean done;
+
+	public IteratorPublisher(Iterator<? extends T> iterator) {
+		this.iterator = iterator;
+	}
+
+	@Override
+	public void subscribe(Flow.Subscriber<? super T> subscriber) {
+		synchronized (this) {
+			if (this.subscriber != null) {
+				throw new IllegalStateException("IteratorPublisher supports a single subscriber");
+			}
+			this.subscriber = subscriber;
+		}
+
+		subscriber.onSubscribe(new Flow.Subscription() {
+			@Override
+			public void request(long n) {
+				if (n <= 0) {
+					cancelled = true;
+					IteratorPublisher.this.subscriber.onError(
+							new IllegalArgumentException("Request must be positive, was " + n));
+					return;
+				}
+
+				while (true) {
+					long current = demand.get();
+					long next = current + n < 0 ? Long.MAX_VALUE : current + n;
+
+					if (demand.compareAndSet(current, next)) {
+						break;
+					}
+				}
+				drain();
+			}
+
+			@Override
+			public void cancel() {
+				cancelled = true;
+			}
+		});
+	}
+
+	/**
+	 * Emits while there is demand. A request made from inside onNext is picked
+	 * up by the running loop rather than recursing.
+	 */
+	private void drain() {
+		if (wip.getAndIncrement() != 0) {
+			return;
+		}
+
+		int missed = 1;
+
+		do {
+			while (!done && !cancelled && demand.get() > 0) {
+				T item;
+
+				try {
+					if (!iterator.hasNext()) {
+						done = true;
+						subscriber.onComplete();
+						break;
+					}
+					item = iterator.next();
+				} catch (RuntimeException e) {
+					done = true;
+					subscriber.onError(e);
+					break;
+				}
+
+				if (demand.get() != Long.MAX_VALUE) {
+					demand.decrementAndGet();
+				}
+				subscriber.onNext(item);
+			}
+
+			// Completion does not need demand, signal it as soon as it is known
+			if (!done && !cancelled && !iteratorHasNext()) {
+				done = true;
+				subscriber.onComplete();
+			}
+
+			missed = wip.addAndGet(-missed);
+		} while (missed != 0);
+	}
+
+	private boolean iteratorHasNext() {
+		try {
+			return iterator.hasNext();
+		} catch (RuntimeException e) {
+			done = true;
+			subscriber.onError(e);
+			return true;
+		}
+	}
+}
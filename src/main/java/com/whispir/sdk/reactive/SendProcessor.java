@@ -0,0 +1,335 @@
+package com.whispir.sdk.reactive;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.whispir.sdk.MessageRequest;
+import com.whispir.sdk.WhispirResponse;
+import com.whispir.sdk.WhispirSDK;
+import com.whispir.sdk.dispatch.DaemonThreadFactory;
+import com.whispir.sdk.dispatch.RateLimiter;
+import com.whispir.sdk.exceptions.WhispirSDKException;
+
+/**
+ * Sends a stream of messages with end to end backpressure.
+ *
+ * <p>
+ * The processor never holds more than <code>maxConcurrency</code> messages:
+ * requested from upstream, being sent, or waiting for downstream demand.
+ * Upstream is only asked for another message once a result has been taken by
+ * downstream, so a slow API or a slow consumer slows the source down instead
+ * of filling memory. Sends are also held to the optional rate limit.
+ * </p>
+ *
+ * <pre>
+ * SendProcessor processor = new SendProcessor(sdk, 8, 20);
+ * source.subscribe(processor);
+ * processor.subscribe(resultSubscriber);
+ * </pre>
+ *
+ * <p>
+ * One downstream subscriber is supported. A send that throws is delivered as
+ * a failed {@link SendResult} rather than terminating the stream.
+ * </p>
+ *
+ * @since 2.4
+ */
+public class SendProcessor implements Flow.Processor<MessageRequest, SendResult> {
+
+	private final WhispirSDK sdk;
+	private final int maxConcurrency;
+	private final RateLimiter limiter;
+	private final ExecutorService executor;
+
+	private final Queue<SendResult> results = new ConcurrentLinkedQueue<SendResult>();
+	private final AtomicLong demand = new AtomicLong();
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final AtomicInteger wip = new AtomicInteger();
+
+	private volatile Flow.Subscription upstream;
+	private volatile Flow.Subscriber<? super SendResult> downstream;
+	private volatile boolean upstreamDone;
+	private volatile Throwable upstreamError;
+	private volatile boolean cancelled;
+	private volatile boolean terminated;
+
+	// Only touched inside drain()
+	private long upstreamCredit;
+
+	/**
+	 * @param sdk
+	 *            - the SDK used to send the messages
+	 * @param maxConcurrency
+	 *            - the number of messages sent at once, and the most the
+	 *            processor buffers
+	 */
+	public SendProcessor(WhispirSDK sdk, int maxConcurrency) {
+		this(sdk, maxConcurrency, 0);
+	}
+
+	/**
+	 * @param sdk
+	 *            - the SDK used to send the messages
+	 * @param maxConcurrency
+	 *            - the number of messages sent at once, and the most the
+	 *            processor buffers
+	 * @param permitsPerSecond
+	 *            - the maximum send rate, 0 for unlimited
+	 */
+	public SendProcessor(WhispirSDK sdk, int maxConcurrency, double permitsPerSecond) {
+		if (maxConcurrency < 1) {
+			throw new IllegalArgumentException("Concurrency must be at least 1");
+		}
+
+		this.sdk = sdk;
+		this.maxConcurrency = maxConcurrency;
+		this.limiter = permitsPerSecond > 0 ? new RateLimiter(permitsPerSecond) : null;
+		this.executor = Executors.newFixedThreadPool(maxConcurrency,
+				new DaemonThreadFactory("whispir-send"));
+	}
+
+	// ***************************************************
+	// * Upstream (Subscriber) side
+	// ***************************************************
+
+	@Override
+	public void onSubscribe(Flow.Subscription subscription) {
+		if (this.upstream != null || cancelled) {
+			subscription.cancel();
+			return;
+		}
+
+		this.upstream = subscription;
+		subscription.request(maxConcurrency);
+	}
+
+	@Override
+	public void onNext(final MessageRequest request) {
+		if (request == null) {
+			throw new NullPointerException("request");
+		}
+		if (cancelled || upstreamDone) {
+			return;
+		}
+
+		inFlight.incrementAndGet();
+
+		try {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					send(request);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			// Cancelled while the item was in transit
+			inFlight.decrementAndGet();
+		}
+	}
+
+	@Override
+	public void onError(Throwable throwable) {
+		if (throwable == null) {
+			throw new NullPointerException("throwable");
+		}
+
+		upstreamError = throwable;
+		upstreamDone = true;
+		drain();
+	}
+
+	@Override
+	public void onComplete() {
+		upstreamDone = true;
+		drain();
+	}
+
+	// ***************************************************
+	// * Downstream (Publisher) side
+	// ***************************************************
+
+	@Override
+	public void subscribe(Flow.Subscriber<? super SendResult> subscriber) {
+		if (subscriber == null) {
+			throw new NullPointerException("subscriber");
+		}
+
+		synchronized (this) {
+			if (downstream != null) {
+				subscriber.onSubscribe(new Flow.Subscription() {
+					@Override
+					public void request(long n) {
+					}
+
+					@Override
+					public void cancel() {
+					}
+				});
+				subscriber.onError(new IllegalStateException("SendProcessor supports a single subscriber"));
+				return;
+			}
+			downstream = subscriber;
+		}
+
+		subscriber.onSubscribe(new Flow.Subscription() {
+			@Override
+			public void request(long n) {
+				if (n <= 0) {
+					fail(new IllegalArgumentException("Request must be positive, was " + n));
+					return;
+				}
+				addDemand(n);
+				drain();
+			}
+
+			@Override
+			public void cancel() {
+				SendProcessor.this.cancel();
+			}
+		});
+
+		drain();
+	}
+
+	/**
+	 * @return the number of messages currently being sent
+	 */
+	public int getInFlight() {
+		return inFlight.get();
+	}
+
+	private void send(MessageRequest request) {
+		SendResult result;
+
+		try {
+			if (limiter != null) {
+				limiter.acquire();
+			}
+
+			long start = System.nanoTime();
+
+			try {
+				WhispirResponse response = sdk.sendMessage(request.getWorkspaceId(),
+						request.getRecipient(), request.getSubject(),
+						request.getContent(), request.getOptions());
+				result = new SendResult(request, response, System.nanoTime() - start);
+			} catch (WhispirSDKException e) {
+				result = new SendResult(request, e, System.nanoTime() - start);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			result = new SendResult(request, new WhispirSDKException("Send was interrupted"), 0);
+		}
+
+		results.add(result);
+		inFlight.decrementAndGet();
+		drain();
+	}
+
+	private void addDemand(long n) {
+		while (true) {
+			long current = demand.get();
+			long next = current + n;
+
+			if (next < 0) {
+				next = Long.MAX_VALUE;
+			}
+			if (demand.compareAndSet(current, next)) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Delivers buffered results to downstream as far as its demand allows,
+	 * requests replacements from upstream and signals completion. Serialised
+	 * with a work-in-progress counter, so signals never overlap.
+	 */
+	private void drain() {
+		if (wip.getAndIncrement() != 0) {
+			return;
+		}
+
+		int missed = 1;
+
+		do {
+			Flow.Subscriber<? super SendResult> subscriber = downstream;
+
+			if (subscriber != null && !terminated && !cancelled) {
+				long requested = demand.get();
+				long emitted = 0;
+
+				while (emitted != requested && !cancelled) {
+					SendResult result = results.poll();
+
+					if (result == null) {
+						break;
+					}
+
+					subscriber.onNext(result);
+					emitted++;
+				}
+
+				if (emitted > 0) {
+					upstreamCredit += emitted;
+
+					if (requested != Long.MAX_VALUE) {
+						demand.addAndGet(-emitted);
+					}
+				}
+
+				if (upstreamDone && inFlight.get() == 0 && results.isEmpty() && !cancelled) {
+					terminated = true;
+					executor.shutdown();
+
+					if (upstreamError != null) {
+						subscriber.onError(upstreamError);
+					} else {
+						subscriber.onComplete();
+					}
+				}
+			}
+
+			Flow.Subscription subscription = upstream;
+
+			if (upstreamCredit > 0 && subscription != null && !upstreamDone && !cancelled) {
+				long credit = upstreamCredit;
+				upstreamCredit = 0;
+				subscription.request(credit);
+			}
+
+			missed = wip.addAndGet(-missed);
+		} while (missed != 0);
+	}
+
+	private void fail(Throwable error) {
+		Flow.Subscriber<? super SendResult> subscriber = downstream;
+
+		cancel();
+
+		if (subscriber != null && !terminated) {
+			terminated = true;
+			subscriber.onError(error);
+		}
+	}
+
+	private void cancel() {
+		if (cancelled) {
+			return;
+		}
+
+		cancelled = true;
+		executor.shutdownNow();
+
+		Flow.Subscription subscription = upstream;
+
+		if (subscription != null) {
+			subscription.cancel();
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package com.whispir.sdk.reactive;
+
+import com.whispir.sdk.MessageRequest;
+import com.whispir.sdk.WhispirResponse;
+import com.whispir.sdk.exceptions.WhispirSDKException;
+
+/**
+ * The outcome of sending one {@link MessageRequest}: either the response from
+ * the API or the exception thrown by the SDK.
+ *
+ * @since 2.4
+ */
+public class SendResult {
+
+	private final MessageRequest request;
+	private final WhispirResponse response;
+	private final WhispirSDKException error;
+	private final long latencyNanos;
+
+	public SendResult(MessageRequest request, WhispirResponse response, long latencyNanos) {
+		this(request, response, null, latencyNanos);
+	}
+
+	public SendResult(MessageRequest request, WhispirSDKException error, long latencyNanos) {
+		this(request, null, error, latencyNanos);
+	}
+
+	private SendResult(MessageRequest request, WhispirResponse response,
+			WhispirSDKException error, long latencyNanos) {
+		this.request = request;
+		this.response = response;
+		this.error = error;
+		this.latencyNanos = latencyNanos;
+	}
+
+	public MessageRequest getRequest() {
+		return request;
+	}
+
+	/**
+	 * @return the response, or null if the send threw an exception
+	 */
+	public WhispirResponse getResponse() {
+		return response;
+	}
+
+	/**
+	 * @return the exception thrown by the send, or null
+	 */
+	public WhispirSDKException getError() {
+		return error;
+	}
+
+	/**
+	 * @return the HTTP status code, or 0 if the send failed without a response
+	 */
+	public int getStatusCode() {
+		return response != null ? response.getStatusCode() : 0;
+	}
+
+	/**
+	 * @return true if the API accepted the message (HTTP 2xx)
+	 */
+	public boolean isSuccess() {
+		int status = getStatusCode();
+		return status >= 200 && status < 300;
+	}
+
+	/**
+	 * @return the time taken by the API call, not including any wait for the
+	 *         rate limit
+	 */
+	public long getLatencyNanos() {
+		return latencyNanos;
+	}
+}
@@ -0,0 +1,66 @@
+package com.whispir.sdk.recipients;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The outcome of validating a list of recipients with
+ * {@link RecipientValidator#checkBatch(Iterable)}.
+ *
+ * @since 2.4
+ */
+public final class BatchResult {
+
+	private final List<String> valid;
+	private final List<RecipientCheck> rejected;
+	private final int duplicates;
+
+	BatchResult(List<String> valid, List<RecipientCheck> rejected, int duplicates) {
+		this.valid = Collections.unmodifiableList(valid);
+		this.rejected = Collections.unmodifiableList(rejected);
+		this.duplicates = duplicates;
+	}
+
+	/**
+	 * @return the distinct valid recipients, normalised, in the order given
+	 */
+	public List<String> getValid() {
+		return valid;
+	}
+
+	/**
+	 * @return the rejected recipients with their reasons, in the order given
+	 */
+	public List<RecipientCheck> getRejected() {
+		return rejected;
+	}
+
+	/**
+	 * @return the number of valid recipients left out because they were the
+	 *         same as an earlier one once normalised
+	 */
+	public int getDuplicates() {
+		return duplicates;
+	}
+
+	/**
+	 * @return the number of recipients rejected for each reason
+	 */
+	public Map<RejectionReason, Integer> getRejectionCounts() {
+		Map<RejectionReason, Integer> counts = new EnumMap<RejectionReason, Integer>(RejectionReason.class);
+
+		for (RecipientCheck check : rejected) {
+			Integer count = counts.get(check.getReason());
+			counts.put(check.getReason(), count == null ? 1 : count + 1);
+		}
+		return counts;
+	}
+
+	@Override
+	public String toString() {
+		return "BatchResult [valid=" + valid.size() + ", rejected=" + rejected.size()
+				+ ", duplicates=" + duplicates + "]";
+	}
+}
@@ -0,0 +1,103 @@
+package com.whispir.sdk.recipients;
+
+import com.whispir.sdk.WhispirEndPoints;
+
+/**
+ * The numbering rules of a country, used to turn national phone numbers into
+ * E.164 and to check their length.
+ *
+ * @since 2.4
+ */
+public final class PhoneRegion {
+
+	public static final PhoneRegion AU = new PhoneRegion("AU", "61", "0", 9, 9);
+	public static final PhoneRegion NZ = new PhoneRegion("NZ", "64", "0", 8, 10);
+	public static final PhoneRegion US = new PhoneRegion("US", "1", "1", 10, 10);
+	public static final PhoneRegion GB = new PhoneRegion("GB", "44", "0", 9, 10);
+	public static final PhoneRegion SG = new PhoneRegion("SG", "65", null, 8, 8);
+
+	// Italian numbers keep their leading 0 after the country code
+	public static final PhoneRegion IT = new PhoneRegion("IT", "39", null, 6, 11);
+
+	private final String code;
+	private final String countryCode;
+	private final String trunkPrefix;
+	private final int minDigits;
+	private final int maxDigits;
+
+	/**
+	 * @param code
+	 *            - the ISO 3166 code of the region, e.g. AU
+	 * @param countryCode
+	 *            - the calling code without the +, e.g. 61
+	 * @param trunkPrefix
+	 *            - the prefix dialled before national numbers and dropped in
+	 *            international format, e.g. 0, or null if there is none
+	 * @param minDigits
+	 *            - the fewest digits of a national number, without the trunk
+	 *            prefix
+	 * @param maxDigits
+	 *            - the most digits of a national number, without the trunk
+	 *            prefix
+	 */
+	public PhoneRegion(String code, String countryCode, String trunkPrefix, int minDigits,
+			int maxDigits) {
+
+		if (countryCode == null || !countryCode.matches("[1-9][0-9]{0,2}")) {
+			throw new IllegalArgumentException("Country codes are 1 to 3 digits");
+		}
+		if (minDigits < 1 || maxDigits < minDigits || countryCode.length() + maxDigits > 15) {
+			throw new IllegalArgumentException("Numbers must have 1 to 15 digits with the country code");
+		}
+
+		this.code = code;
+		this.countryCode = countryCode;
+		this.trunkPrefix = trunkPrefix == null || trunkPrefix.isEmpty() ? null : trunkPrefix;
+		this.minDigits = minDigits;
+		this.maxDigits = maxDigits;
+	}
+
+	/**
+	 * @return the region most recipients of an endpoint are in
+	 */
+	public static PhoneRegion forEndPoint(WhispirEndPoints endPoint) {
+		switch (endPoint) {
+		case NZ:
+			return NZ;
+		case US:
+			return US;
+		case IT:
+			return IT;
+		case AP:
+		case AP1:
+			return SG;
+		default:
+			return AU;
+		}
+	}
+
+	public String getCode() {
+		return code;
+	}
+
+	public String getCountryCode() {
+		return countryCode;
+	}
+
+	public String getTrunkPrefix() {
+		return trunkPrefix;
+	}
+
+	public int getMinDigits() {
+		return minDigits;
+	}
+
+	public int getMaxDigits() {
+		return maxDigits;
+	}
+
+	@Override
+	public String toString() {
+		return code + " (+" + countryCode + ")";
+	}
+}
@@ -0,0 +1,66 @@
+package com.whispir.sdk.recipients;
+
+/**
+ * The result of validating a recipient: its normalised form, or the reason it
+ * was rejected.
+ *
+ * @since 2.4
+ */
+public final class RecipientCheck {
+
+	private final String recipient;
+	private final String normalised;
+	private final RecipientType type;
+	private final RejectionReason reason;
+
+	RecipientCheck(String recipient, String normalised, RecipientType type, RejectionReason reason) {
+		this.recipient = recipient;
+		this.normalised = normalised;
+		this.type = type;
+		this.reason = reason;
+	}
+
+	static RecipientCheck valid(String recipient, String normalised, RecipientType type) {
+		return new RecipientCheck(recipient, normalised, type, null);
+	}
+
+	static RecipientCheck rejected(String recipient, RecipientType type, RejectionReason reason) {
+		return new RecipientCheck(recipient, null, type, reason);
+	}
+
+	/**
+	 * @return the recipient as given
+	 */
+	public String getRecipient() {
+		return recipient;
+	}
+
+	/**
+	 * @return the recipient to send to: a phone number in E.164, an email
+	 *         address with a lower case domain, or null if it was rejected
+	 */
+	public String getNormalised() {
+		return normalised;
+	}
+
+	public RecipientType getType() {
+		return type;
+	}
+
+	public boolean isValid() {
+		return reason == null;
+	}
+
+	/**
+	 * @return why the recipient was rejected, or null if it is valid
+	 */
+	public RejectionReason getReason() {
+		return reason;
+	}
+
+	@Override
+	public String toString() {
+		return isValid() ? "RecipientCheck [" + recipient + " -> " + normalised + "]"
+				: "RecipientCheck [" + recipient + " rejected: " + reason + "]";
+	}
+}
@@ -0,0 +1,19 @@
+package com.whispir.sdk.recipients;
+
+/**
+ * The kind of recipient, as recognised by a {@link RecipientValidator}.
+ *
+ * @since 2.4
+ */
+public enum RecipientType {
+
+	PHONE,
+
+	EMAIL,
+
+	/**
+	 * Neither a phone number nor an email address, such as the name of a
+	 * distribution list.
+	 */
+	OTHER
+}
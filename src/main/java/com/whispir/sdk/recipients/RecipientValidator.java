@@ -0,0 +1,418 @@
+package com.whispir.sdk.recipients;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Validates recipients before they are sent, so that a malformed number or
+ * email address is rejected locally instead of costing a round trip and rate
+ * limit budget.
+ *
+ * <p>
+ * Phone numbers are normalised to E.164 (+61412345678). Numbers in
+ * international format (+ or 00) are checked against the rules of their
+ * country when it is known, national numbers are read with the rules of the
+ * default region. Email addresses are checked for valid syntax and their
+ * domain is lower cased.
+ * </p>
+ *
+ * <pre>
+ * sdk.setRecipientValidator(new RecipientValidator(PhoneRegion.AU));
+ * </pre>
+ *
+ * A validator is thread safe. Checking a recipient that is already
+ * normalised allocates nothing but its result.
+ *
+ * @since 2.4
+ */
+public class RecipientValidator {
+
+	// The longest number with an international prefix: 00 and 15 digits
+	private static final int MAX_DIGITS = 17;
+
+	private static final int MIN_INTERNATIONAL_DIGITS = 8;
+	private static final int MAX_INTERNATIONAL_DIGITS = 15;
+
+	private final PhoneRegion defaultRegion;
+	private volatile PhoneRegion[] regions;
+	private volatile boolean allowOther;
+
+	/**
+	 * Reads national numbers as Australian.
+	 */
+	public RecipientValidator() {
+		this(PhoneRegion.AU);
+	}
+
+	/**
+	 * @param defaultRegion
+	 *            - the region of numbers given without a country code
+	 */
+	public RecipientValidator(PhoneRegion defaultRegion) {
+		this.defaultRegion = defaultRegion;
+		this.regions = new PhoneRegion[] { PhoneRegion.AU, PhoneRegion.NZ, PhoneRegion.US,
+				PhoneRegion.GB, PhoneRegion.SG, PhoneRegion.IT };
+		addRegion(defaultRegion);
+	}
+
+	/**
+	 * Adds the rules of a country, used for its numbers in international
+	 * format. Numbers of unknown countries are only checked for length.
+	 */
+	public synchronized RecipientValidator addRegion(PhoneRegion region) {
+		PhoneRegion[] current = this.regions;
+		List<PhoneRegion> updated = new ArrayList<PhoneRegion>(current.length + 1);
+
+		for (PhoneRegion existing : current) {
+			if (!existing.getCountryCode().equals(region.getCountryCode())) {
+				updated.add(existing);
+			}
+		}
+		updated.add(region);
+		this.regions = updated.toArray(new PhoneRegion[updated.size()]);
+		return this;
+	}
+
+	public PhoneRegion getDefaultRegion() {
+		return defaultRegion;
+	}
+
+	public boolean isAllowOther() {
+		return allowOther;
+	}
+
+	/**
+	 * @param allowOther
+	 *            - true to pass recipients that are neither phone numbers nor
+	 *            email addresses, such as distribution list names, through
+	 *            unchanged. They are rejected by default.
+	 */
+	public RecipientValidator setAllowOther(boolean allowOther) {
+		this.allowOther = allowOther;
+		return this;
+	}
+
+	/**
+	 * @param recipient
+	 *            - one phone number or email address
+	 */
+	public RecipientCheck check(String recipient) {
+		if (recipient == null) {
+			return RecipientCheck.rejected(null, RecipientType.OTHER, RejectionReason.EMPTY);
+		}
+
+		String trimmed = recipient.trim();
+
+		if (trimmed.isEmpty()) {
+			return RecipientCheck.rejected(recipient, RecipientType.OTHER, RejectionReason.EMPTY);
+		}
+
+		if (trimmed.indexOf('@') >= 0) {
+			return checkEmail(recipient, trimmed);
+		}
+
+		char first = trimmed.charAt(0);
+
+		if (first == '+' || first == '(' || (first >= '0' && first <= '9')) {
+			return checkPhone(recipient, trimmed);
+		}
+
+		if (allowOther) {
+			return RecipientCheck.valid(recipient, trimmed, RecipientType.OTHER);
+		}
+		return RecipientCheck.rejected(recipient, RecipientType.OTHER, RejectionReason.UNRECOGNISED);
+	}
+
+	/**
+	 * Checks the "to" of a message, which may hold several recipients
+	 * separated by ; or ,.
+	 *
+	 * @return the first rejected recipient, or a valid check whose
+	 *         normalised form lists every recipient separated by ;
+	 */
+	public RecipientCheck checkList(String recipients) {
+		if (recipients == null || (recipients.indexOf(';') < 0 && recipients.indexOf(',') < 0)) {
+			return check(recipients);
+		}
+
+		StringBuilder normalised = new StringBuilder(recipients.length() + 8);
+		RecipientType type = null;
+		int start = 0;
+
+		for (int i = 0; i <= recipients.length(); i++) {
+			if (i < recipients.length() && recipients.charAt(i) != ';' && recipients.charAt(i) != ',') {
+				continue;
+			}
+
+			String token = recipients.substring(start, i);
+			start = i + 1;
+
+			if (token.trim().isEmpty()) {
+				continue;
+			}
+
+			RecipientCheck check = check(token);
+
+			if (!check.isValid()) {
+				return check;
+			}
+
+			if (normalised.length() > 0) {
+				normalised.append(';');
+			}
+			normalised.append(check.getNormalised());
+			type = type == null || type == check.getType() ? check.getType() : RecipientType.OTHER;
+		}
+
+		if (type == null) {
+			return RecipientCheck.rejected(recipients, RecipientType.OTHER, RejectionReason.EMPTY);
+		}
+		return RecipientCheck.valid(recipients, normalised.toString(), type);
+	}
+
+	/**
+	 * Validates a large list of recipients, for example before a bulk send.
+	 *
+	 * @return the distinct normalised recipients, in order, and the rejected
+	 *         ones with their reasons
+	 */
+	public BatchResult checkBatch(Iterable<String> recipients) {
+		List<String> valid = new ArrayList<String>();
+		List<RecipientCheck> rejected = new ArrayList<RecipientCheck>();
+		Set<String> seen = new HashSet<String>();
+		int duplicates = 0;
+
+		for (String recipient : recipients) {
+			RecipientCheck check = check(recipient);
+
+			if (!check.isValid()) {
+				rejected.add(check);
+			} else if (seen.add(check.getNormalised())) {
+				valid.add(check.getNormalised());
+			} else {
+				duplicates++;
+			}
+		}
+		return new BatchResult(valid, rejected, duplicates);
+	}
+
+	private RecipientCheck checkPhone(String recipient, String trimmed) {
+		char[] digits = new char[MAX_DIGITS];
+		int count = 0;
+		boolean plus = false;
+		boolean separators = false;
+
+		for (int i = 0; i < trimmed.length(); i++) {
+			char c = trimmed.charAt(i);
+
+			if (c >= '0' && c <= '9') {
+				if (count == MAX_DIGITS) {
+					return RecipientCheck.rejected(recipient, RecipientType.PHONE, RejectionReason.TOO_LONG);
+				}
+				digits[count++] = c;
+			} else if (c == '+' && i == 0) {
+				plus = true;
+			} else if (c == ' ' || c == '-' || c == '.' || c == '(' || c == ')') {
+				separators = true;
+			} else {
+				return RecipientCheck.rejected(recipient, RecipientType.PHONE, RejectionReason.INVALID_CHARACTERS);
+			}
+		}
+
+		int start = 0;
+		boolean international = plus;
+
+		if (!plus && count > 2 && digits[0] == '0' && digits[1] == '0') {
+			// 00 international prefix
+			international = true;
+			start = 2;
+		}
+
+		PhoneRegion region;
+		int national;
+
+		if (international) {
+			region = regionOf(digits, start, count);
+
+			if (region == null) {
+				int length = count - start;
+
+				if (length < MIN_INTERNATIONAL_DIGITS) {
+					return RecipientCheck.rejected(recipient, RecipientType.PHONE, RejectionReason.TOO_SHORT);
+				}
+				if (length > MAX_INTERNATIONAL_DIGITS) {
+					return RecipientCheck.rejected(recipient, RecipientType.PHONE, RejectionReason.TOO_LONG);
+				}
+				return valid(recipient, trimmed, digits, start, count, plus && !separators);
+			}
+			national = start + region.getCountryCode().length();
+		} else {
+			region = defaultRegion;
+			national = start;
+
+			// Already international, without the +
+			String countryCode = region.getCountryCode();
+			int length = count - countryCode.length();
+
+			if (startsWith(digits, 0, count, countryCode) && !startsWith(digits, 0, count, region.getTrunkPrefix())
+					&& length >= region.getMinDigits() && length <= region.getMaxDigits()) {
+				national = countryCode.length();
+			}
+		}
+
+		int length = count - national;
+		String trunk = region.getTrunkPrefix();
+		boolean trunkDropped = false;
+
+		// National numbers keep their trunk prefix, and it is often left in
+		// after a country code, e.g. +61 (0)412 345 678
+		if (trunk != null && startsWith(digits, national, count, trunk)
+				&& (!international || (length > region.getMaxDigits()
+						&& length - trunk.length() >= region.getMinDigits()))) {
+			national += trunk.length();
+			length -= trunk.length();
+			trunkDropped = true;
+		}
+
+		if (length < region.getMinDigits()) {
+			return RecipientCheck.rejected(recipient, RecipientType.PHONE, RejectionReason.TOO_SHORT);
+		}
+		if (length > region.getMaxDigits()) {
+			return RecipientCheck.rejected(recipient, RecipientType.PHONE, RejectionReason.TOO_LONG);
+		}
+
+		if (international && start == 0 && plus && !separators && !trunkDropped) {
+			// Already in E.164
+			return RecipientCheck.valid(recipient, trimmed, RecipientType.PHONE);
+		}
+
+		char[] e164 = new char[1 + region.getCountryCode().length() + length];
+		e164[0] = '+';
+		region.getCountryCode().getChars(0, region.getCountryCode().length(), e164, 1);
+		System.arraycopy(digits, national, e164, 1 + region.getCountryCode().length(), length);
+		return RecipientCheck.valid(recipient, new String(e164), RecipientType.PHONE);
+	}
+
+	private static RecipientCheck valid(String recipient, String trimmed, char[] digits, int start,
+			int count, boolean alreadyNormalised) {
+		if (alreadyNormalised) {
+			return RecipientCheck.valid(recipient, trimmed, RecipientType.PHONE);
+		}
+
+		char[] e164 = new char[1 + count - start];
+		e164[0] = '+';
+		System.arraycopy(digits, start, e164, 1, count - start);
+		return RecipientCheck.valid(recipient, new String(e164), RecipientType.PHONE);
+	}
+
+	/**
+	 * @return the known region whose country code starts the number, or null
+	 */
+	private PhoneRegion regionOf(char[] digits, int start, int count) {
+		for (PhoneRegion region : regions) {
+			if (startsWith(digits, start, count, region.getCountryCode())) {
+				return region;
+			}
+		}
+		return null;
+	}
+
+	private static boolean startsWith(char[] digits, int start, int count, String prefix) {
+		if (prefix == null || count - start < prefix.length()) {
+			return false;
+		}
+
+		for (int i = 0; i < prefix.length(); i++) {
+			if (digits[start + i] != prefix.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static RecipientCheck checkEmail(String recipient, String email) {
+		int at = email.indexOf('@');
+
+		if (at < 1 || at != email.lastIndexOf('@') || at > 64 || email.length() > 254
+				|| !isLocalPart(email, 0, at) || !isDomain(email, at + 1, email.length())) {
+			return RecipientCheck.rejected(recipient, RecipientType.EMAIL, RejectionReason.INVALID_EMAIL);
+		}
+
+		for (int i = at + 1; i < email.length(); i++) {
+			if (Character.isUpperCase(email.charAt(i))) {
+				return RecipientCheck.valid(recipient,
+						email.substring(0, at + 1) + email.substring(at + 1).toLowerCase(Locale.ROOT),
+						RecipientType.EMAIL);
+			}
+		}
+		return RecipientCheck.valid(recipient, email, RecipientType.EMAIL);
+	}
+
+	// The dot-atom of RFC 5322, without quoted local parts
+	private static boolean isLocalPart(String email, int start, int end) {
+		char previous = '.';
+
+		for (int i = start; i < end; i++) {
+			char c = email.charAt(i);
+
+			if (c == '.') {
+				if (previous == '.') {
+					return false;
+				}
+			} else if (!isAtext(c)) {
+				return false;
+			}
+			previous = c;
+		}
+		return previous != '.';
+	}
+
+	private static boolean isAtext(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+				|| "!#$%&'*+/=?^_`{|}~-".indexOf(c) >= 0;
+	}
+
+	private static boolean isDomain(String email, int start, int end) {
+		if (end - start > 253) {
+			return false;
+		}
+
+		int labelStart = start;
+		int labels = 0;
+
+		for (int i = start; i <= end; i++) {
+			if (i < end && email.charAt(i) != '.') {
+				char c = email.charAt(i);
+
+				if (!((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '-')) {
+					return false;
+				}
+				continue;
+			}
+
+			int length = i - labelStart;
+
+			if (length < 1 || length > 63 || email.charAt(labelStart) == '-' || email.charAt(i - 1) == '-') {
+				return false;
+			}
+			labels++;
+
+			if (i == end) {
+				// The top level domain is letters only
+				if (labels < 2 || length < 2) {
+					return false;
+				}
+				for (int j = labelStart; j < end; j++) {
+					if (!Character.isLetter(email.charAt(j))) {
+						return false;
+					}
+				}
+			}
+			labelStart = i + 1;
+		}
+		return true;
+	}
+}
@@ -0,0 +1,31 @@
+package com.whispir.sdk.recipients;
+
+/**
+ * Why a recipient was rejected by a {@link RecipientValidator}.
+ *
+ * @since 2.4
+ */
+public enum RejectionReason {
+
+	EMPTY("No recipient was given"),
+
+	INVALID_CHARACTERS("The phone number contains characters other than digits and separators"),
+
+	TOO_SHORT("The phone number has too few digits for its region"),
+
+	TOO_LONG("The phone number has too many digits for its region"),
+
+	INVALID_EMAIL("The email address is not valid"),
+
+	UNRECOGNISED("The recipient is neither a phone number nor an email address");
+
+	private final String description;
+
+	private RejectionReason(String description) {
+		this.description = description;
+	}
+
+	public String getDescription() {
+		return description;
+	}
+}
@@ -0,0 +1,135 @@
+package com.whispir.sdk.routing;
+
+import com.whispir.sdk.WhispirEndPoints;
+
+/**
+ * Health statistics for a single Whispir regional endpoint.
+ *
+ * <p>
+ * Latency and error rate are tracked as exponentially weighted moving
+ * averages (EWMA) so that recent requests count more than old ones. An
+ * endpoint that keeps failing is taken out of rotation until its next probe
+ * time, after which a single request is allowed through to test whether it has
+ * recovered.
+ * </p>
+ *
+ * @since 2.4
+ */
+public class EndpointHealth {
+
+	private final WhispirEndPoints endpoint;
+	private final int weight;
+
+	private double latencyEwma;
+	private double errorRate;
+	private long samples;
+	private int consecutiveFailures;
+
+	private boolean tripped;
+	private long unavailableUntil;
+	private long probeInterval;
+
+	EndpointHealth(WhispirEndPoints endpoint, int weight) {
+		this.endpoint = endpoint;
+		this.weight = weight;
+	}
+
+	public WhispirEndPoints getEndpoint() {
+		return endpoint;
+	}
+
+	public int getWeight() {
+		return weight;
+	}
+
+	/**
+	 * @return the moving average of the request latency in milliseconds
+	 */
+	public synchronized double getLatencyEwma() {
+		return latencyEwma;
+	}
+
+	/**
+	 * @return the moving average of failed requests, between 0 and 1
+	 */
+	public synchronized double getErrorRate() {
+		return errorRate;
+	}
+
+	public synchronized long getSamples() {
+		return samples;
+	}
+
+	/**
+	 * @return true if the endpoint is in rotation (has not been tripped by
+	 *         failures)
+	 */
+	public synchronized boolean isAvailable() {
+		return !tripped;
+	}
+
+	synchronized void record(long latencyMillis, boolean success,
+			EndpointRouter router, long now) {
+		double alpha = router.getEwmaAlpha();
+
+		if (samples == 0) {
+			latencyEwma = latencyMillis;
+			errorRate = success ? 0 : 1;
+		} else {
+			latencyEwma = alpha * latencyMillis + (1 - alpha) * latencyEwma;
+			errorRate = alpha * (success ? 0 : 1) + (1 - alpha) * errorRate;
+		}
+		samples++;
+
+		if (success) {
+			consecutiveFailures = 0;
+
+			if (tripped) {
+				// The probe came back healthy, put the endpoint back into rotation
+				tripped = false;
+				probeInterval = 0;
+				errorRate = 0;
+			}
+			return;
+		}
+
+		consecutiveFailures++;
+
+		if (tripped) {
+			// The probe failed, back off before trying again
+			probeInterval = Math.min(probeInterval * 2, router.getMaxProbeInterval());
+			unavailableUntil = now + probeInterval;
+		} else if (consecutiveFailures >= router.getFailureThreshold()
+				|| (samples >= router.getMinimumSamples() && errorRate >= router.getErrorRateThreshold())) {
+			tripped = true;
+			probeInterval = router.getProbeInterval();
+			unavailableUntil = now + probeInterval;
+		}
+	}
+
+	/**
+	 * Claims the probe slot for a tripped endpoint. Only one caller is given
+	 * the slot per probe interval.
+	 */
+	synchronized boolean tryProbe(long now) {
+		if (!tripped || now < unavailableUntil) {
+			return false;
+		}
+
+		unavailableUntil = now + probeInterval;
+		return true;
+	}
+
+	/**
+	 * @return the routing score, lower is better
+	 */
+	synchronized double score() {
+		return (latencyEwma + 1) * (1 + 4 * errorRate) / weight;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return endpoint + " [latency=" + Math.round(latencyEwma) + "ms, errorRate="
+				+ Math.round(errorRate * 100) + "%, available=" + !tripped + "]";
+	}
+}
@@ -0,0 +1,292 @@
+package com.whispir.sdk.routing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.whispir.sdk.WhispirEndPoints;
+
+/**
+ * Routes requests across more than one Whispir regional endpoint.
+ *
+ * <p>
+ * In <b>ordered</b> mode the endpoints are used in the order provided, the
+ * first healthy endpoint is always preferred and the others are only used for
+ * failover. In <b>weighted</b> mode the endpoint with the best score (latency
+ * and error rate, divided by weight) is preferred.
+ * </p>
+ * <p>
+ * Endpoints that fail repeatedly are removed from rotation and probed with a
+ * single live request once their probe interval has passed. If every endpoint
+ * is unavailable they are still returned (last), so that requests are never
+ * refused by the router itself.
+ * </p>
+ *
+ * <pre>
+ * EndpointRouter router = new EndpointRouter(WhispirEndPoints.AU, WhispirEndPoints.AP);
+ * WhispirSDK sdk = new WhispirSDK(API_KEY, USERNAME, PASSWORD, router);
+ * </pre>
+ *
+ * @since 2.4
+ */
+public class EndpointRouter {
+
+	public static final double DEFAULT_EWMA_ALPHA = 0.2;
+	public static final int DEFAULT_FAILURE_THRESHOLD = 3;
+	public static final double DEFAULT_ERROR_RATE_THRESHOLD = 0.5;
+	public static final int DEFAULT_MINIMUM_SAMPLES = 10;
+	public static final long DEFAULT_PROBE_INTERVAL = 15000;
+	public static final long DEFAULT_MAX_PROBE_INTERVAL = 300000;
+
+	private final Map<WhispirEndPoints, EndpointHealth> endpoints;
+	private final boolean weighted;
+
+	private volatile double ewmaAlpha = DEFAULT_EWMA_ALPHA;
+	private volatile int failureThreshold = DEFAULT_FAILURE_THRESHOLD;
+	private volatile double errorRateThreshold = DEFAULT_ERROR_RATE_THRESHOLD;
+	private volatile int minimumSamples = DEFAULT_MINIMUM_SAMPLES;
+	private volatile long probeInterval = DEFAULT_PROBE_INTERVAL;
+	private volatile long maxProbeInterval = DEFAULT_MAX_PROBE_INTERVAL;
+	private volatile int maxAttempts;
+
+	/**
+	 * Creates an ordered router. The first endpoint is the primary, the rest
+	 * are used for failover in the order given.
+	 *
+	 * @param endpoints
+	 *            - the endpoints in order of preference
+	 */
+	public EndpointRouter(WhispirEndPoints... endpoints) {
+		if (endpoints == null || endpoints.length == 0) {
+			throw new IllegalArgumentException("At least one endpoint is required");
+		}
+
+		this.endpoints = new LinkedHashMap<WhispirEndPoints, EndpointHealth>();
+		for (WhispirEndPoints endpoint : endpoints) {
+			this.endpoints.put(endpoint, new EndpointHealth(endpoint, 1));
+		}
+		this.weighted = false;
+		this.maxAttempts = this.endpoints.size();
+	}
+
+	/**
+	 * Creates a weighted router. Requests go to the endpoint with the best
+	 * latency and error rate relative to its weight.
+	 *
+	 * @param weights
+	 *            - the endpoints and their (positive) weights
+	 */
+	public EndpointRouter(Map<WhispirEndPoints, Integer> weights) {
+		if (weights == null || weights.isEmpty()) {
+			throw new IllegalArgumentException("At least one endpoint is required");
+		}
+
+		this.endpoints = new LinkedHashMap<WhispirEndPoints, EndpointHealth>();
+		for (Map.Entry<WhispirEndPoints, Integer> entry : weights.entrySet()) {
+			if (entry.getValue() == null || entry.getValue() <= 0) {
+				throw new IllegalArgumentException("Weight for " + entry.getKey() + " must be positive");
+			}
+			this.endpoints.put(entry.getKey(), new EndpointHealth(entry.getKey(), entry.getValue()));
+		}
+		this.weighted = true;
+		this.maxAttempts = this.endpoints.size();
+	}
+
+	/**
+	 * Returns the endpoints to try for the next request, best first. A tripped
+	 * endpoint that is due for a recovery probe is placed first so that the
+	 * probe is made with a real request, with the healthy endpoints behind it
+	 * for failover.
+	 *
+	 * @return the ordered list of endpoints, limited to the maximum attempts
+	 */
+	public List<WhispirEndPoints> select() {
+		long now = System.currentTimeMillis();
+
+		List<EndpointHealth> available = new ArrayList<EndpointHealth>();
+		List<EndpointHealth> unavailable = new ArrayList<EndpointHealth>();
+		EndpointHealth probe = null;
+
+		for (EndpointHealth health : endpoints.values()) {
+			if (health.isAvailable()) {
+				available.add(health);
+			} else if (probe == null && health.tryProbe(now)) {
+				probe = health;
+			} else {
+				unavailable.add(health);
+			}
+		}
+
+		if (weighted) {
+			sortByScore(available);
+		}
+		sortByScore(unavailable);
+
+		List<WhispirEndPoints> selected = new ArrayList<WhispirEndPoints>(endpoints.size());
+
+		if (probe != null) {
+			selected.add(probe.getEndpoint());
+		}
+		for (EndpointHealth health : available) {
+			selected.add(health.getEndpoint());
+		}
+		for (EndpointHealth health : unavailable) {
+			selected.add(health.getEndpoint());
+		}
+
+		int limit = Math.max(1, maxAttempts);
+		return selected.size() > limit ? selected.subList(0, limit) : selected;
+	}
+
+	/**
+	 * @return the endpoint that the next request would be sent to
+	 */
+	public WhispirEndPoints primary() {
+		EndpointHealth best = null;
+
+		for (EndpointHealth health : endpoints.values()) {
+			if (!health.isAvailable()) {
+				continue;
+			}
+			if (best == null || (weighted && health.score() < best.score())) {
+				best = health;
+			}
+		}
+
+		return best != null ? best.getEndpoint() : endpoints.keySet().iterator().next();
+	}
+
+	/**
+	 * Records the outcome of a request against an endpoint.
+	 *
+	 * @param endpoint
+	 *            - the endpoint the request was sent to
+	 * @param latencyMillis
+	 *            - the time taken for the request
+	 * @param success
+	 *            - false if the request failed to connect or the endpoint
+	 *            returned a server error
+	 */
+	public void record(WhispirEndPoints endpoint, long latencyMillis, boolean success) {
+		EndpointHealth health = endpoints.get(endpoint);
+
+		if (health != null) {
+			health.record(latencyMillis, success, this, System.currentTimeMillis());
+		}
+	}
+
+	public EndpointHealth getHealth(WhispirEndPoints endpoint) {
+		return endpoints.get(endpoint);
+	}
+
+	public List<EndpointHealth> getHealth() {
+		return Collections.unmodifiableList(new ArrayList<EndpointHealth>(endpoints.values()));
+	}
+
+	public boolean isWeighted() {
+		return weighted;
+	}
+
+	public double getEwmaAlpha() {
+		return ewmaAlpha;
+	}
+
+	/**
+	 * @param ewmaAlpha
+	 *            - the smoothing factor (0-1) for latency and error rate,
+	 *            higher values react faster to change
+	 */
+	public void setEwmaAlpha(double ewmaAlpha) {
+		if (ewmaAlpha <= 0 || ewmaAlpha > 1) {
+			throw new IllegalArgumentException("EWMA alpha must be between 0 and 1");
+		}
+		this.ewmaAlpha = ewmaAlpha;
+	}
+
+	public int getFailureThreshold() {
+		return failureThreshold;
+	}
+
+	/**
+	 * @param failureThreshold
+	 *            - the number of consecutive failures before an endpoint is
+	 *            taken out of rotation
+	 */
+	public void setFailureThreshold(int failureThreshold) {
+		this.failureThreshold = failureThreshold;
+	}
+
+	public double getErrorRateThreshold() {
+		return errorRateThreshold;
+	}
+
+	public void setErrorRateThreshold(double errorRateThreshold) {
+		this.errorRateThreshold = errorRateThreshold;
+	}
+
+	public int getMinimumSamples() {
+		return minimumSamples;
+	}
+
+	/**
+	 * @param minimumSamples
+	 *            - the number of requests required before the error rate is
+	 *            used to trip an endpoint
+	 */
+	public void setMinimumSamples(int minimumSamples) {
+		this.minimumSamples = minimumSamples;
+	}
+
+	public long getProbeInterval() {
+		return probeInterval;
+	}
+
+	/**
+	 * @param probeInterval
+	 *            - milliseconds to wait before probing a tripped endpoint.
+	 *            Doubles after each failed probe up to the maximum.
+	 */
+	public void setProbeInterval(long probeInterval) {
+		this.probeInterval = probeInterval;
+	}
+
+	public long getMaxProbeInterval() {
+		return maxProbeInterval;
+	}
+
+	public void setMaxProbeInterval(long maxProbeInterval) {
+		this.maxProbeInterval = maxProbeInterval;
+	}
+
+	public int getMaxAttempts() {
+		return maxAttempts;
+	}
+
+	/**
+	 * @param maxAttempts
+	 *            - the number of endpoints a single request may be tried
+	 *            against (defaults to all of them)
+	 */
+	public void setMaxAttempts(int maxAttempts) {
+		this.maxAttempts = maxAttempts;
+	}
+
+	private static void sortByScore(List<EndpointHealth> list) {
+		// Snapshot the scores first, they can change while sorting
+		final Map<EndpointHealth, Double> scores = new HashMap<EndpointHealth, Double>();
+		for (EndpointHealth health : list) {
+			scores.put(health, health.score());
+		}
+
+		Collections.sort(list, new Comparator<EndpointHealth>() {
+			@Override
+			public int compare(EndpointHealth a, EndpointHealth b) {
+				return Double.compare(scores.get(a), scores.get(b));
+			}
+		});
+	}
+}
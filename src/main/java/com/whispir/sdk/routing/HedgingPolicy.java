@@ -0,0 +1,380 @@
+package com.whispir.sdk.routing;
+
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.whispir.sdk.WhispirResponse;
+import com.whispir.sdk.dispatch.DaemonThreadFactory;
+import com.whispir.sdk.exceptions.WhispirSDKException;
+
+/**
+ * Hedges idempotent requests to cut tail latency: if a request has not
+ * completed after the hedge delay, a second copy is sent on another pooled
+ * connection, the first answer is used and the other copy is aborted.
+ *
+ * <p>
+ * The hedge delay follows the observed latency: it is the configured
+ * percentile (95th by default) of the most recent requests, kept between a
+ * minimum and maximum delay. Until enough requests have been seen the maximum
+ * delay is used.
+ * </p>
+ * <p>
+ * The extra load is capped by a budget. Each request earns a fraction of a
+ * hedge (10% by default) up to a small burst, and a hedge is only sent when a
+ * whole one has been earned, so at most that fraction of requests is ever
+ * sent twice, however slow the API becomes.
+ * </p>
+ *
+ * <pre>
+ * sdk.setHedgingPolicy(new HedgingPolicy());
+ * </pre>
+ *
+ * Hedging applies to GET requests only.
+ *
+ * @since 2.4
+ */
+public class HedgingPolicy {
+
+	public static final double DEFAULT_PERCENTILE = 95;
+	public static final long DEFAULT_MIN_DELAY = 10;
+	public static final long DEFAULT_MAX_DELAY = 1000;
+	public static final double DEFAULT_BUDGET = 0.1;
+	public static final int DEFAULT_MAX_BURST = 10;
+	public static final int DEFAULT_MINIMUM_SAMPLES = 20;
+
+	private static final int SAMPLE_SIZE = 1000;
+	private static final int RECALCULATE_EVERY = 50;
+
+	/**
+	 * One copy of a request.
+	 */
+	public interface Attempt {
+
+		WhispirResponse call() throws WhispirSDKException;
+
+		/**
+		 * Aborts the copy if it is still running.
+		 */
+		void cancel();
+	}
+
+	/**
+	 * Creates the copies of a request.
+	 */
+	public interface HedgedRequest {
+
+		Attempt newAttempt() throws WhispirSDKException;
+	}
+
+	private final ExecutorService executor = Executors.newCachedThreadPool(new DaemonThreadFactory("whispir-hedge"));
+
+	private final long[] samples = new long[SAMPLE_SIZE];
+	private int sampleCount;
+	private int sinceRecalculated;
+	private volatile long hedgeDelay = DEFAULT_MAX_DELAY;
+
+	// In thousandths of a hedge, so that fractions add up exactly
+	private long tokens;
+
+	private final AtomicLong requests = new AtomicLong();
+	private final AtomicLong hedges = new AtomicLong();
+	private final AtomicLong hedgeWins = new AtomicLong();
+
+	private volatile double percentile = DEFAULT_PERCENTILE;
+	private volatile long minDelay = DEFAULT_MIN_DELAY;
+	private volatile long maxDelay = DEFAULT_MAX_DELAY;
+	private volatile double budget = DEFAULT_BUDGET;
+	private volatile int maxBurst = DEFAULT_MAX_BURST;
+	private volatile int minimumSamples = DEFAULT_MINIMUM_SAMPLES;
+
+	/**
+	 * Sends the request, and a hedge if it is slow and the budget allows.
+	 *
+	 * @return the first answer. A connection failure or exception of one copy
+	 *         is only returned if the other copy fails too.
+	 */
+	public WhispirResponse execute(HedgedRequest request) throws WhispirSDKException {
+		requests.incrementAndGet();
+		earn();
+
+		CompletionService<Outcome> completion = new ExecutorCompletionService<Outcome>(executor);
+		Outcome[] attempts = new Outcome[2];
+		long start = System.nanoTime();
+		attempts[0] = submit(completion, request.newAttempt(), false);
+		int running = 1;
+		Outcome result = null;
+
+		try {
+			Future<Outcome> done = completion.poll(getHedgeDelay(), TimeUnit.MILLISECONDS);
+
+			if (done == null && spend()) {
+				hedges.incrementAndGet();
+				attempts[1] = submit(completion, request.newAttempt(), true);
+				running++;
+			}
+
+			while (running > 0) {
+				if (done == null) {
+					done = completion.take();
+				}
+				running--;
+
+				Outcome outcome = done.get();
+				done = null;
+
+				if (result == null || !result.isAnswer()) {
+					result = outcome;
+				}
+				if (result.isAnswer()) {
+					break;
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			cancelAll(attempts, null);
+			throw new WhispirSDKException("Interrupted while waiting for a response");
+		} catch (ExecutionException e) {
+			// Outcomes capture their own exceptions
+			cancelAll(attempts, null);
+			throw new WhispirSDKException(String.valueOf(e.getCause()));
+		}
+
+		cancelAll(attempts, result);
+
+		if (result.isAnswer()) {
+			// From the first attempt, so a winning hedge counts its delay too
+			record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+			if (result.hedge) {
+				hedgeWins.incrementAndGet();
+			}
+		}
+
+		if (result.error != null) {
+			throw result.error;
+		}
+		return result.response;
+	}
+
+	/**
+	 * @return how long a request is given before it is hedged
+	 */
+	public long getHedgeDelay() {
+		return hedgeDelay;
+	}
+
+	/**
+	 * @return the number of requests executed
+	 */
+	public long getRequests() {
+		return requests.get();
+	}
+
+	/**
+	 * @return the number of hedges sent
+	 */
+	public long getHedges() {
+		return hedges.get();
+	}
+
+	/**
+	 * @return the number of requests answered by the hedge rather than the
+	 *         original
+	 */
+	public long getHedgeWins() {
+		return hedgeWins.get();
+	}
+
+	public double getPercentile() {
+		return percentile;
+	}
+
+	/**
+	 * @param percentile
+	 *            - the percentile of recent latencies after which a request
+	 *            is hedged, e.g. 95
+	 */
+	public void setPercentile(double percentile) {
+		if (percentile <= 0 || percentile >= 100) {
+			throw new IllegalArgumentException("Percentile must be between 0 and 100");
+		}
+		this.percentile = percentile;
+	}
+
+	public long getMinDelay() {
+		return minDelay;
+	}
+
+	/**
+	 * @param minDelay
+	 *            - the shortest hedge delay in milliseconds
+	 */
+	public void setMinDelay(long minDelay) {
+		this.minDelay = minDelay;
+	}
+
+	public long getMaxDelay() {
+		return maxDelay;
+	}
+
+	/**
+	 * @param maxDelay
+	 *            - the longest hedge delay in milliseconds, also used until
+	 *            enough requests have been seen
+	 */
+	public void setMaxDelay(long maxDelay) {
+		this.maxDelay = maxDelay;
+
+		synchronized (samples) {
+			recalculate();
+		}
+	}
+
+	public double getBudget() {
+		return budget;
+	}
+
+	/**
+	 * @param budget
+	 *            - the largest fraction of requests that may be hedged, e.g.
+	 *            0.1 for 10%
+	 */
+	public void setBudget(double budget) {
+		if (budget < 0 || budget > 1) {
+			throw new IllegalArgumentException("Budget must be between 0 and 1");
+		}
+		this.budget = budget;
+	}
+
+	public int getMaxBurst() {
+		return maxBurst;
+	}
+
+	/**
+	 * @param maxBurst
+	 *            - the most unused hedges that can be saved up
+	 */
+	public void setMaxBurst(int maxBurst) {
+		this.maxBurst = maxBurst;
+	}
+
+	public int getMinimumSamples() {
+		return minimumSamples;
+	}
+
+	/**
+	 * @param minimumSamples
+	 *            - the number of requests seen before the delay follows
+	 *            their latency
+	 */
+	public void setMinimumSamples(int minimumSamples) {
+		this.minimumSamples = minimumSamples;
+	}
+
+	/**
+	 * Stops the threads running the requests.
+	 */
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	private Outcome submit(CompletionService<Outcome> completion, Attempt attempt, boolean hedge) {
+		final Outcome outcome = new Outcome(attempt, hedge);
+
+		completion.submit(new Callable<Outcome>() {
+			@Override
+			public Outcome call() {
+				outcome.run();
+				return outcome;
+			}
+		});
+		return outcome;
+	}
+
+	private static void cancelAll(Outcome[] attempts, Outcome winner) {
+		for (Outcome attempt : attempts) {
+			if (attempt != null && attempt != winner) {
+				attempt.attempt.cancel();
+			}
+		}
+	}
+
+	private synchronized void earn() {
+		tokens = Math.min(maxBurst * 1000L, tokens + Math.round(budget * 1000));
+	}
+
+	private synchronized boolean spend() {
+		if (tokens < 1000) {
+			return false;
+		}
+		tokens -= 1000;
+		return true;
+	}
+
+	private void record(long latencyMillis) {
+		synchronized (samples) {
+			samples[sampleCount % SAMPLE_SIZE] = latencyMillis;
+			sampleCount++;
+
+			if (++sinceRecalculated >= RECALCULATE_EVERY || sampleCount == minimumSamples) {
+				recalculate();
+			}
+		}
+	}
+
+	// Called holding the samples lock
+	private void recalculate() {
+		sinceRecalculated = 0;
+
+		if (sampleCount < minimumSamples) {
+			hedgeDelay = maxDelay;
+			return;
+		}
+
+		long[] sorted = Arrays.copyOf(samples, Math.min(sampleCount, SAMPLE_SIZE));
+		Arrays.sort(sorted);
+
+		int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+		long delay = sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+
+		hedgeDelay = Math.max(minDelay, Math.min(maxDelay, delay));
+	}
+
+	private static class Outcome {
+
+		final Attempt attempt;
+		final boolean hedge;
+		WhispirResponse response;
+		WhispirSDKException error;
+
+		Outcome(Attempt attempt, boolean hedge) {
+			this.attempt = attempt;
+			this.hedge = hedge;
+		}
+
+		void run() {
+			try {
+				response = attempt.call();
+			} catch (WhispirSDKException e) {
+				error = e;
+			} catch (RuntimeException e) {
+				error = new WhispirSDKException(String.valueOf(e));
+			}
+		}
+
+		/**
+		 * @return true if the API answered, whatever the status
+		 */
+		boolean isAnswer() {
+			return response != null && response.getStatusCode() != 0;
+		}
+	}
+}
@@ -0,0 +1,405 @@
+package com.whispir.sdk.schedule;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import com.whispir.sdk.MessageRequest;
+import com.whispir.sdk.WhispirResponse;
+import com.whispir.sdk.dispatch.DaemonThreadFactory;
+import com.whispir.sdk.dispatch.Priority;
+import com.whispir.sdk.exceptions.WhispirSDKException;
+import com.whispir.sdk.interfaces.MessageHelper;
+
+/**
+ * Holds messages until they are due, for reminders and other sends
+ * scheduled hours or days ahead.
+ *
+ * <pre>
+ * MessageScheduler scheduler = new MessageScheduler(MessageScheduler.dispatchTo(sdk, Priority.NORMAL),
+ * 		1000, new File("scheduled.journal"));
+ * sdk.setScheduler(scheduler);
+ *
+ * long id = sdk.scheduleMessage(sendAt, workspaceId, recipient, subject, content, options);
+ * sdk.cancelScheduledMessage(id);
+ * </pre>
+ *
+ * <p>
+ * Pending messages are kept in a {@link TimingWheel}, so scheduling and
+ * cancelling take constant time with millions pending, and one thread
+ * serves them all. Each tick, the messages that have come due are handed to
+ * the {@link Sink} in batches. A message is released up to one tick after it
+ * is due.
+ * </p>
+ * <p>
+ * With a journal, pending messages are written to a file and scheduled again
+ * when a new scheduler opens it, so they survive a restart. Messages that
+ * came due while the application was down are released on the first tick.
+ * IDs are not reused across restarts, so an ID kept to cancel a message
+ * never cancels another.
+ * The journal records a message as released before it is handed to the
+ * sink, so a crash can lose a release but never repeat one. Records are
+ * written to the file every tick and when the scheduler is closed; call
+ * {@link #flush()} to write them sooner.
+ * </p>
+ *
+ * @since 2.4
+ */
+public class MessageScheduler implements Closeable {
+
+	/**
+	 * Receives the messages that have come due.
+	 */
+	public interface Sink {
+
+		/**
+		 * Called on the scheduler thread. A slow sink delays the next
+		 * batches, but they are not lost.
+		 */
+		void release(List<ScheduledMessage> batch);
+	}
+
+	public static final long DEFAULT_TICK = 1000;
+	public static final int DEFAULT_BATCH_SIZE = 500;
+
+	/** How long close waits for the sink to finish a batch */
+	public static final long CLOSE_TIMEOUT = 30000;
+
+	// Released records a journal may hold beyond twice the pending ones
+	// before it is rewritten
+	private static final long COMPACT_THRESHOLD = 100000;
+
+	private final Sink sink;
+	private final long tickMillis;
+	private final ScheduleJournal journal;
+	private final Thread worker;
+
+	// Guarded by this
+	private final TimingWheel<ScheduledMessage> wheel;
+	private final Map<Long, TimingWheel.Entry<ScheduledMessage>> entries = new HashMap<Long, TimingWheel.Entry<ScheduledMessage>>();
+	private long nextId = 1;
+	private long released;
+	private int batchSize = DEFAULT_BATCH_SIZE;
+
+	private volatile boolean closed;
+
+	/**
+	 * A scheduler without a journal, with a tick of one second.
+	 */
+	public MessageScheduler(Sink sink) {
+		this.sink = sink;
+		this.tickMillis = DEFAULT_TICK;
+		this.journal = null;
+		this.wheel = new TimingWheel<ScheduledMessage>(currentTick());
+		this.worker = startWorker();
+	}
+
+	/**
+	 * @param sink
+	 *            - receives the messages as they come due
+	 * @param tickMillis
+	 *            - the precision of the scheduler
+	 * @param journal
+	 *            - the file pending messages are kept in, or null to keep
+	 *            them only in memory
+	 */
+	public MessageScheduler(Sink sink, long tickMillis, File journal) throws IOException {
+		if (tickMillis < 1) {
+			throw new IllegalArgumentException("The tick must be at least 1 ms");
+		}
+
+		this.sink = sink;
+		this.tickMillis = tickMillis;
+		this.wheel = new TimingWheel<ScheduledMessage>(currentTick());
+
+		if (journal == null) {
+			this.journal = null;
+		} else {
+			List<ScheduledMessage> pending = new ArrayList<ScheduledMessage>();
+			this.journal = new ScheduleJournal(journal, pending);
+
+			for (ScheduledMessage message : pending) {
+				entries.put(message.getId(), wheel.add(dueTick(message.getSendAtMillis()), message));
+			}
+			nextId = this.journal.getNextId();
+		}
+		this.worker = startWorker();
+	}
+
+	/**
+	 * A sink that queues each message in a priority lane of the helper's
+	 * dispatcher, usually the WhispirSDK's. When the lane is full it waits
+	 * for room rather than dropping messages. The responses are not kept; use
+	 * a sink of your own to record them.
+	 * <p>
+	 * Each batch is sent before the next is released, so closing the
+	 * scheduler before the dispatcher, as WhispirSDK.close() does, leaves no
+	 * released messages in the dispatcher's queue for its shutdown to cancel.
+	 * </p>
+	 */
+	public static Sink dispatchTo(final MessageHelper helper, final Priority priority) {
+		return new Sink() {
+			@Override
+			public void release(List<ScheduledMessage> batch) {
+				List<Future<WhispirResponse>> sends = new ArrayList<Future<WhispirResponse>>(batch.size());
+
+				try {
+					for (ScheduledMessage message : batch) {
+						MessageRequest request = message.getRequest();
+
+						while (true) {
+							try {
+								sends.add(helper.sendMessage(priority, request.getWorkspaceId(),
+										request.getRecipient(), request.getSubject(), request.getContent(),
+										request.getOptions()));
+								break;
+							} catch (RejectedExecutionException e) {
+								Thread.sleep(10);
+							}
+						}
+					}
+
+					for (Future<WhispirResponse> send : sends) {
+						try {
+							send.get();
+						} catch (ExecutionException e) {
+							// Failed sends are not retried
+						} catch (CancellationException e) {
+							// The dispatcher was shut down by another of its users
+						}
+					}
+				} catch (InterruptedException e) {
+					// Only when the scheduler gave up waiting for the batch
+					Thread.currentThread().interrupt();
+				}
+			}
+		};
+	}
+
+	/**
+	 * @param sendAtMillis
+	 *            - when to send the message, in milliseconds since the epoch.
+	 *            A time that has passed sends it on the next tick.
+	 * @return the ID to cancel the message with
+	 */
+	public synchronized long schedule(MessageRequest request, long sendAtMillis) throws WhispirSDKException {
+		if (closed) {
+			throw new IllegalStateException("The scheduler has been closed");
+		}
+
+		ScheduledMessage message = new ScheduledMessage(nextId, sendAtMillis, request);
+		TimingWheel.Entry<ScheduledMessage> entry = wheel.add(dueTick(sendAtMillis), message);
+
+		try {
+			if (journal != null) {
+				journal.scheduled(message);
+			}
+		} catch (IOException e) {
+			wheel.remove(entry);
+			throw new WhispirSDKException("Failed to write the schedule journal: " + e.getMessage());
+		}
+
+		entries.put(message.getId(), entry);
+		nextId++;
+		return message.getId();
+	}
+
+	/**
+	 * @return true if the message was cancelled, false if it was already
+	 *         released, cancelled or never scheduled
+	 */
+	public synchronized boolean cancel(long id) throws WhispirSDKException {
+		TimingWheel.Entry<ScheduledMessage> entry = entries.remove(id);
+
+		if (entry == null || !wheel.remove(entry)) {
+			return false;
+		}
+
+		try {
+			if (journal != null) {
+				journal.done(id);
+			}
+		} catch (IOException e) {
+			throw new WhispirSDKException("Failed to write the schedule journal: " + e.getMessage());
+		}
+		return true;
+	}
+
+	/**
+	 * @return the message, or null if it is no longer pending
+	 */
+	public synchronized ScheduledMessage get(long id) {
+		TimingWheel.Entry<ScheduledMessage> entry = entries.get(id);
+		return entry == null ? null : entry.getValue();
+	}
+
+	/**
+	 * @param batchSize
+	 *            - the most messages handed to the sink at once
+	 */
+	public synchronized void setBatchSize(int batchSize) {
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("The batch size must be at least 1");
+		}
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * @return the number of messages waiting to be released
+	 */
+	public synchronized int getPending() {
+		return wheel.size();
+	}
+
+	/**
+	 * @return the number of messages released so far
+	 */
+	public synchronized long getReleased() {
+		return released;
+	}
+
+	public long getTickMillis() {
+		return tickMillis;
+	}
+
+	/**
+	 * Writes the journal records held in memory to the file.
+	 */
+	public synchronized void flush() throws IOException {
+		if (journal != null) {
+			journal.flush();
+		}
+	}
+
+	/**
+	 * Stops the scheduler. Pending messages are not released, but stay in
+	 * the journal, if there is one.
+	 * <p>
+	 * Messages already released are handed to the sink first, waiting up to
+	 * {@link #CLOSE_TIMEOUT} for it. A sink still busy after that is
+	 * interrupted, and the messages it has not taken are lost, as they would
+	 * be in a crash.
+	 * </p>
+	 */
+	@Override
+	public void close() throws IOException {
+		synchronized (this) {
+			closed = true;
+			notifyAll();
+		}
+
+		if (Thread.currentThread() != worker) {
+			try {
+				worker.join(CLOSE_TIMEOUT);
+
+				if (worker.isAlive()) {
+					worker.interrupt();
+					worker.join(TimeUnit.SECONDS.toMillis(1));
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		synchronized (this) {
+			if (journal != null) {
+				journal.close();
+			}
+		}
+	}
+
+	private Thread startWorker() {
+		Thread thread = new DaemonThreadFactory("whispir-schedule").newThread(new Runnable() {
+			@Override
+			public void run() {
+				turn();
+			}
+		});
+		thread.start();
+		return thread;
+	}
+
+	private void turn() {
+		while (!closed) {
+			List<ScheduledMessage> due = new ArrayList<ScheduledMessage>();
+			int size;
+
+			synchronized (this) {
+				long next = (wheel.getCurrentTick() + 1) * tickMillis;
+				long sleep;
+
+				try {
+					// Woken early by close
+					while (!closed && (sleep = next - System.currentTimeMillis()) > 0) {
+						wait(sleep);
+					}
+				} catch (InterruptedException e) {
+					return;
+				}
+
+				if (closed) {
+					return;
+				}
+
+				wheel.advance(currentTick(), due);
+				size = batchSize;
+
+				try {
+					for (ScheduledMessage message : due) {
+						entries.remove(message.getId());
+					}
+					released += due.size();
+
+					if (journal != null) {
+						for (ScheduledMessage message : due) {
+							journal.done(message.getId());
+						}
+						if (journal.getRecords() > 2L * wheel.size() + COMPACT_THRESHOLD) {
+							journal.rewrite(pendingMessages());
+						}
+						journal.flush();
+					}
+				} catch (IOException e) {
+					// Released anyway: holding them back would not fix the file
+				}
+			}
+
+			// Released in full even if closed meanwhile, the journal already
+			// has them as done
+			for (int from = 0; from < due.size(); from += size) {
+				try {
+					sink.release(due.subList(from, Math.min(due.size(), from + size)));
+				} catch (RuntimeException e) {
+					// A failing sink must not stop the scheduler
+				}
+			}
+		}
+	}
+
+	private List<ScheduledMessage> pendingMessages() {
+		List<ScheduledMessage> pending = new ArrayList<ScheduledMessage>(entries.size());
+
+		for (TimingWheel.Entry<ScheduledMessage> entry : entries.values()) {
+			pending.add(entry.getValue());
+		}
+		return pending;
+	}
+
+	private long currentTick() {
+		return System.currentTimeMillis() / tickMillis;
+	}
+
+	// The first tick at or after the time
+	private long dueTick(long sendAtMillis) {
+		return (sendAtMillis + tickMillis - 1) / tickMillis;
+	}
+}
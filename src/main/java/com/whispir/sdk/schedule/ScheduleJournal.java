@@ -0,0 +1,297 @@
+package com.whispir.sdk.schedule;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.whispir.sdk.MessageRequest;
+
+/**
+ * The pending messages of a {@link MessageScheduler}, kept in a file so they
+ * survive a restart.
+ *
+ * <p>
+ * The file is a header followed by length-prefixed records: one when a
+ * message is scheduled and one when it is released or cancelled. The header
+ * holds the next message ID, so IDs are not reused after the records of
+ * released messages are dropped. Opening the journal replays the records and
+ * rewrites the file with only the pending messages, dropping a record cut
+ * short by a crash.
+ * </p>
+ */
+final class ScheduleJournal implements Closeable {
+
+	static final int MAGIC = 0x5753434a;
+	static final int FORMAT = 2;
+
+	private static final byte SCHEDULED = 1;
+	private static final byte DONE = 2;
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private final File file;
+	private final ByteArrayOutputStream record = new ByteArrayOutputStream(256);
+	private final DataOutputStream recordOut = new DataOutputStream(record);
+	private DataOutputStream out;
+	private long records;
+	private long nextId = 1;
+	private boolean closed;
+
+	/**
+	 * @param pending
+	 *            - receives the messages still pending in the file, in the
+	 *            order they were scheduled
+	 */
+	ScheduleJournal(File file, Collection<ScheduledMessage> pending) throws IOException {
+		this.file = file;
+
+		Map<Long, ScheduledMessage> replayed = replay(file);
+		pending.addAll(replayed.values());
+		rewrite(replayed.values());
+	}
+
+	/**
+	 * @return an ID above every message ever scheduled in the journal
+	 */
+	long getNextId() {
+		return nextId;
+	}
+
+	void scheduled(ScheduledMessage message) throws IOException {
+		encode(message);
+		append(out());
+		nextId = Math.max(nextId, message.getId() + 1);
+	}
+
+	void done(long id) throws IOException {
+		record.reset();
+		recordOut.writeByte(DONE);
+		recordOut.writeLong(id);
+		append(out());
+	}
+
+	void flush() throws IOException {
+		out().flush();
+	}
+
+	/**
+	 * @return the records in the file, including those of messages no longer
+	 *         pending
+	 */
+	long getRecords() {
+		return records;
+	}
+
+	/**
+	 * Replaces the file with one holding only the pending messages. If that
+	 * fails, the file is left as it was and records are still appended to it.
+	 */
+	void rewrite(Collection<ScheduledMessage> pending) throws IOException {
+		if (out != null) {
+			// Nothing of the old file is left in memory if the move fails
+			out.flush();
+		}
+
+		File temp = File.createTempFile(file.getName(), ".tmp", file.getAbsoluteFile().getParentFile());
+		DataOutputStream rewritten = null;
+		long kept = records;
+		boolean moved = false;
+
+		try {
+			records = 0;
+			rewritten = open(temp, false);
+			rewritten.writeInt(MAGIC);
+			rewritten.writeInt(FORMAT);
+			rewritten.writeLong(nextId);
+
+			for (ScheduledMessage message : pending) {
+				encode(message);
+				append(rewritten);
+			}
+			rewritten.close();
+			rewritten = null;
+
+			closeOut();
+
+			try {
+				Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+						StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+			moved = true;
+		} finally {
+			if (!moved) {
+				records = kept;
+			}
+			if (rewritten != null) {
+				rewritten.close();
+			}
+			temp.delete();
+		}
+
+		out = open(file, true);
+	}
+
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		closeOut();
+	}
+
+	private void closeOut() throws IOException {
+		if (out != null) {
+			DataOutputStream closing = out;
+			out = null;
+			closing.close();
+		}
+	}
+
+	private void encode(ScheduledMessage message) throws IOException {
+		record.reset();
+		recordOut.writeByte(SCHEDULED);
+		recordOut.writeLong(message.getId());
+		recordOut.writeLong(message.getSendAtMillis());
+
+		MessageRequest request = message.getRequest();
+		writeString(recordOut, request.getWorkspaceId());
+		writeString(recordOut, request.getRecipient());
+		writeString(recordOut, request.getSubject());
+		writeMap(recordOut, request.getContent());
+		writeMap(recordOut, request.getOptions());
+	}
+
+	// Reopened on the next record after a failed rewrite
+	private DataOutputStream out() throws IOException {
+		if (closed) {
+			throw new IOException("The schedule journal " + file + " is closed");
+		}
+		if (out == null) {
+			out = open(file, true);
+		}
+		return out;
+	}
+
+	private void append(DataOutputStream to) throws IOException {
+		to.writeInt(record.size());
+		record.writeTo(to);
+		records++;
+	}
+
+	private static DataOutputStream open(File file, boolean append) throws IOException {
+		return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, append), 1 << 16));
+	}
+
+	private Map<Long, ScheduledMessage> replay(File file) throws IOException {
+		Map<Long, ScheduledMessage> pending = new LinkedHashMap<Long, ScheduledMessage>();
+
+		if (!file.exists() || file.length() == 0) {
+			return pending;
+		}
+
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+
+		try {
+			if (in.readInt() != MAGIC) {
+				throw new IOException(file + " is not a schedule journal");
+			}
+			int format = in.readInt();
+
+			if (format == FORMAT) {
+				nextId = in.readLong();
+			} else if (format != 1) {
+				throw new IOException(file + " was written by an unsupported version");
+			}
+
+			while (true) {
+				byte[] bytes;
+
+				try {
+					bytes = new byte[in.readInt()];
+					in.readFully(bytes);
+				} catch (EOFException e) {
+					// The end, or a record cut short by a crash
+					break;
+				}
+
+				DataInputStream data = new DataInputStream(new ByteArrayInputStream(bytes));
+				byte type = data.readByte();
+				long id = data.readLong();
+
+				if (type == SCHEDULED) {
+					nextId = Math.max(nextId, id + 1);
+					long sendAtMillis = data.readLong();
+					MessageRequest request = new MessageRequest(readString(data), readString(data),
+							readString(data), readMap(data), readMap(data));
+					pending.put(id, new ScheduledMessage(id, sendAtMillis, request));
+				} else if (type == DONE) {
+					pending.remove(id);
+				} else {
+					throw new IOException("Unknown record type " + type + " in " + file);
+				}
+			}
+		} finally {
+			in.close();
+		}
+		return pending;
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		if (value == null) {
+			out.writeInt(-1);
+			return;
+		}
+
+		byte[] bytes = value.getBytes(UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		int length = in.readInt();
+
+		if (length < 0) {
+			return null;
+		}
+
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, UTF_8);
+	}
+
+	private static void writeMap(DataOutputStream out, Map<String, String> map) throws IOException {
+		out.writeInt(map.size());
+
+		for (Map.Entry<String, String> entry : map.entrySet()) {
+			writeString(out, entry.getKey());
+			writeString(out, entry.getValue());
+		}
+	}
+
+	private static Map<String, String> readMap(DataInputStream in) throws IOException {
+		int size = in.readInt();
+		Map<String, String> map = new HashMap<String, String>();
+
+		for (int i = 0; i < size; i++) {
+			map.put(readString(in), readString(in));
+		}
+		return map;
+	}
+}
@@ -0,0 +1,45 @@
+package com.whispir.sdk.schedule;
+
+import com.whispir.sdk.MessageRequest;
+
+/**
+ * A message waiting in a {@link MessageScheduler}, or released by it.
+ *
+ * @since 2.4
+ */
+public final class ScheduledMessage {
+
+	private final long id;
+	private final long sendAtMillis;
+	private final MessageRequest request;
+
+	ScheduledMessage(long id, long sendAtMillis, MessageRequest request) {
+		this.id = id;
+		this.sendAtMillis = sendAtMillis;
+		this.request = request;
+	}
+
+	/**
+	 * @return the ID to cancel the message with, kept across restarts when
+	 *         the scheduler has a journal
+	 */
+	public long getId() {
+		return id;
+	}
+
+	/**
+	 * @return when the message is due, in milliseconds since the epoch
+	 */
+	public long getSendAtMillis() {
+		return sendAtMillis;
+	}
+
+	public MessageRequest getRequest() {
+		return request;
+	}
+
+	@Override
+	public String toString() {
+		return "ScheduledMessage [id=" + id + ", sendAtMillis=" + sendAtMillis + ", request=" + request + "]";
+	}
+}
@@ -0,0 +1,218 @@
+package com.whispir.sdk.schedule;
+
+import java.util.Collection;
+
+/**
+ * A hierarchical hashed timing wheel: entries due at a tick, added and
+ * removed in constant time however many are pending.
+ *
+ * <p>
+ * There are {@value #LEVELS} wheels of {@value #WHEEL_SIZE} slots. The first
+ * holds entries due within 64 ticks, one slot per tick; each wheel above
+ * covers 64 times the span of the one below, so the wheels together reach
+ * 2<sup>36</sup> ticks ahead (over two years at one tick per millisecond).
+ * When a lower wheel completes a turn, the next slot of the wheel above is
+ * spread over the wheels below it, so each entry is moved at most once per
+ * level before it is due.
+ * </p>
+ * <p>
+ * Not thread safe. The owner advances the wheel as time passes.
+ * </p>
+ *
+ * @since 2.4
+ */
+public class TimingWheel<T> {
+
+	public static final int LEVELS = 6;
+	public static final int WHEEL_SIZE = 64;
+
+	private static final int SLOT_BITS = 6;
+	private static final int SLOT_MASK = WHEEL_SIZE - 1;
+
+	/** Ticks beyond the current one that can be scheduled */
+	public static final long MAX_SPAN = 1L << (SLOT_BITS * LEVELS);
+
+	// Each slot is a circular list with the sentinel as its head
+	private final Entry<T>[][] slots;
+	private final int[] levelSizes = new int[LEVELS];
+	private long currentTick;
+	private int size;
+
+	/**
+	 * @param startTick
+	 *            - the current tick, e.g. the time divided by the tick length
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public TimingWheel(long startTick) {
+		this.currentTick = startTick;
+		this.slots = new Entry[LEVELS][WHEEL_SIZE];
+
+		for (int level = 0; level < LEVELS; level++) {
+			for (int slot = 0; slot < WHEEL_SIZE; slot++) {
+				Entry<T> sentinel = new Entry<T>(0, null);
+				sentinel.previous = sentinel;
+				sentinel.next = sentinel;
+				slots[level][slot] = sentinel;
+			}
+		}
+	}
+
+	/**
+	 * Adds an entry due at the given tick, or at the next tick if that has
+	 * passed.
+	 *
+	 * @return the handle to remove the entry with
+	 * @throws IllegalArgumentException
+	 *             if the tick is {@link #MAX_SPAN} or more ahead
+	 */
+	public Entry<T> add(long dueTick, T value) {
+		if (dueTick - currentTick >= MAX_SPAN) {
+			throw new IllegalArgumentException("Tick " + dueTick + " is too far ahead of " + currentTick);
+		}
+
+		Entry<T> entry = new Entry<T>(Math.max(dueTick, currentTick + 1), value);
+		insert(entry);
+		size++;
+		return entry;
+	}
+
+	/**
+	 * @return true if the entry was pending, false if it was already due or
+	 *         removed
+	 */
+	public boolean remove(Entry<T> entry) {
+		if (entry.next == null) {
+			return false;
+		}
+
+		unlink(entry);
+		size--;
+		return true;
+	}
+
+	/**
+	 * Moves the wheel on to the tick, collecting every entry due by then in
+	 * the order of their ticks.
+	 *
+	 * @param due
+	 *            - receives the values of the due entries
+	 */
+	public void advance(long toTick, Collection<? super T> due) {
+		while (currentTick < toTick) {
+			int level = 0;
+
+			while (level < LEVELS && levelSizes[level] == 0) {
+				level++;
+			}
+
+			if (level == LEVELS) {
+				// Nothing to cascade or collect on the way
+				currentTick = toTick;
+				return;
+			}
+
+			if (level > 0) {
+				// Nothing happens before the next turn of the lowest wheel in
+				// use, so skip the empty ticks
+				long next = ((currentTick >>> (SLOT_BITS * level)) + 1) << (SLOT_BITS * level);
+
+				if (next > toTick) {
+					currentTick = toTick;
+					return;
+				}
+				currentTick = next - 1;
+			}
+
+			currentTick++;
+			cascade();
+
+			Entry<T> sentinel = slots[0][(int) (currentTick & SLOT_MASK)];
+
+			while (sentinel.next != sentinel) {
+				Entry<T> entry = sentinel.next;
+				unlink(entry);
+				size--;
+				due.add(entry.value);
+			}
+		}
+	}
+
+	public long getCurrentTick() {
+		return currentTick;
+	}
+
+	/**
+	 * @return the number of entries pending
+	 */
+	public int size() {
+		return size;
+	}
+
+	// At the start of each turn of a wheel, spread the next slot of the wheel
+	// above over the lower ones
+	private void cascade() {
+		for (int level = 1; level < LEVELS; level++) {
+			if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) != 0) {
+				return;
+			}
+
+			Entry<T> sentinel = slots[level][(int) ((currentTick >>> (SLOT_BITS * level)) & SLOT_MASK)];
+
+			while (sentinel.next != sentinel) {
+				Entry<T> entry = sentinel.next;
+				unlink(entry);
+				insert(entry);
+			}
+		}
+	}
+
+	private void insert(Entry<T> entry) {
+		long delta = entry.dueTick - currentTick;
+		int level = 0;
+
+		while (level < LEVELS - 1 && delta >= 1L << (SLOT_BITS * (level + 1))) {
+			level++;
+		}
+
+		Entry<T> sentinel = slots[level][(int) ((entry.dueTick >>> (SLOT_BITS * level)) & SLOT_MASK)];
+		entry.level = level;
+		levelSizes[level]++;
+		entry.previous = sentinel.previous;
+		entry.next = sentinel;
+		sentinel.previous.next = entry;
+		sentinel.previous = entry;
+	}
+
+	private void unlink(Entry<T> entry) {
+		levelSizes[entry.level]--;
+		entry.previous.next = entry.next;
+		entry.next.previous = entry.previous;
+		entry.previous = null;
+		entry.next = null;
+	}
+
+	/**
+	 * An entry in the wheel.
+	 */
+	public static final class Entry<T> {
+
+		private final long dueTick;
+		private final T value;
+		private Entry<T> previous;
+		private Entry<T> next;
+		private int level;
+
+		private Entry(long dueTick, T value) {
+			this.dueTick = dueTick;
+			this.value = value;
+		}
+
+		public long getDueTick() {
+			return dueTick;
+		}
+
+		public T getValue() {
+			return value;
+		}
+	}
+}
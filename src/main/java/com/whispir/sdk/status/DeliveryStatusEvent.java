@@ -0,0 +1,49 @@
+package com.whispir.sdk.status;
+
+/**
+ * A change in the delivery status of one recipient of a tracked message.
+ *
+ * @since 2.4
+ */
+public class DeliveryStatusEvent {
+
+	private final String messageId;
+	private final String recipient;
+	private final String previousStatus;
+	private final String status;
+
+	public DeliveryStatusEvent(String messageId, String recipient,
+			String previousStatus, String status) {
+		this.messageId = messageId;
+		this.recipient = recipient;
+		this.previousStatus = previousStatus;
+		this.status = status;
+	}
+
+	public String getMessageId() {
+		return messageId;
+	}
+
+	public String getRecipient() {
+		return recipient;
+	}
+
+	/**
+	 * @return the status before this change, or null when the recipient is
+	 *         seen for the first time
+	 */
+	public String getPreviousStatus() {
+		return previousStatus;
+	}
+
+	public String getStatus() {
+		return status;
+	}
+
+	@Override
+	public String toString() {
+		return "DeliveryStatusEvent [messageId=" + messageId + ", recipient="
+				+ recipient + ", previousStatus=" + previousStatus
+				+ ", status=" + status + "]";
+	}
+}
@@ -0,0 +1,36 @@
+package com.whispir.sdk.status;
+
+import java.util.Map;
+
+/**
+ * Receives the delivery status changes of the messages tracked by a
+ * {@link DeliveryStatusTracker}.
+ *
+ * <p>
+ * Called on the tracker's polling threads, so implementations should return
+ * quickly and be thread safe.
+ * </p>
+ *
+ * @since 2.4
+ */
+public interface DeliveryStatusListener {
+
+	/**
+	 * Called when a recipient's status differs from the last poll.
+	 */
+	public void onStatusChange(DeliveryStatusEvent event);
+
+	/**
+	 * Called once when a message is no longer tracked.
+	 *
+	 * @param messageId
+	 *            - the ID of the message
+	 * @param statuses
+	 *            - the last known status of each recipient
+	 * @param settled
+	 *            - true if every recipient reached a final status, false if
+	 *            tracking timed out
+	 */
+	public void onTrackingEnded(String messageId, Map<String, String> statuses,
+			boolean settled);
+}
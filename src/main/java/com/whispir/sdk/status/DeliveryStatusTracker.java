@@ -0,0 +1,505 @@
+package com.whispir.sdk.status;
+
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.whispir.sdk.WhispirResponse;
+import com.whispir.sdk.WhispirSDK;
+import com.whispir.sdk.dispatch.DaemonThreadFactory;
+import com.whispir.sdk.dispatch.RateLimiter;
+import com.whispir.sdk.exceptions.WhispirSDKException;
+
+/**
+ * Tracks the delivery status of sent messages by polling their message status
+ * resources.
+ *
+ * <p>
+ * Each tracked message has its own polling interval. It starts short, so early
+ * changes are seen quickly, and is multiplied by the backoff factor every time
+ * a poll shows no change (or fails), up to the maximum interval. A change
+ * resets it. Once every recipient has reached a final status, or the message
+ * has been tracked for longer than the maximum tracking time, the message is
+ * dropped and listeners are told.
+ * </p>
+ * <p>
+ * Pending polls wait in a single delay queue served by one scheduler thread,
+ * and at most <code>maxConcurrentPolls</code> requests are made at once (and
+ * no faster than the optional rate limit), so tracking 100k messages costs
+ * memory for 100k entries, not threads. Tracking a message that is already
+ * tracked, or refreshing a message that is being polled, is coalesced into
+ * the existing poll.
+ * </p>
+ *
+ * <pre>
+ * DeliveryStatusTracker tracker = new DeliveryStatusTracker(sdk, 4);
+ * tracker.addListener(listener);
+ * tracker.track(workspaceId, messageId);
+ * </pre>
+ *
+ * @since 2.4
+ */
+public class DeliveryStatusTracker implements Closeable {
+
+	public static final int DEFAULT_CONCURRENCY = 4;
+	public static final long DEFAULT_INITIAL_INTERVAL = 5000;
+	public static final long DEFAULT_MAX_INTERVAL = 300000;
+	public static final double DEFAULT_BACKOFF = 2;
+	public static final long DEFAULT_MAX_TRACKING_TIME = TimeUnit.HOURS.toMillis(24);
+	public static final Set<String> DEFAULT_FINAL_STATUSES = Collections.unmodifiableSet(
+			new HashSet<String>(Arrays.asList("READ", "ACKNOWLEDGED", "UNDELIVERABLE", "FAILED", "EXPIRED")));
+
+	private final WhispirSDK sdk;
+	private final ConcurrentMap<String, Tracked> tracked = new ConcurrentHashMap<String, Tracked>();
+	private final DelayQueue<Poll> due = new DelayQueue<Poll>();
+	private final List<DeliveryStatusListener> listeners = new CopyOnWriteArrayList<DeliveryStatusListener>();
+	private final Semaphore permits;
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final ExecutorService pollers;
+	private final Thread scheduler;
+
+	private volatile long initialInterval = DEFAULT_INITIAL_INTERVAL;
+	private volatile long maxInterval = DEFAULT_MAX_INTERVAL;
+	private volatile double backoff = DEFAULT_BACKOFF;
+	private volatile long maxTrackingTime = DEFAULT_MAX_TRACKING_TIME;
+	private volatile Set<String> finalStatuses = DEFAULT_FINAL_STATUSES;
+	private volatile RateLimiter limiter;
+	private volatile boolean closed;
+
+	public DeliveryStatusTracker(WhispirSDK sdk) {
+		this(sdk, DEFAULT_CONCURRENCY);
+	}
+
+	/**
+	 * @param sdk
+	 *            - the SDK used to poll the message statuses
+	 * @param maxConcurrentPolls
+	 *            - the most status requests made at once
+	 */
+	public DeliveryStatusTracker(WhispirSDK sdk, int maxConcurrentPolls) {
+		if (maxConcurrentPolls < 1) {
+			throw new IllegalArgumentException("Concurrency must be at least 1");
+		}
+
+		this.sdk = sdk;
+		this.permits = new Semaphore(maxConcurrentPolls);
+		this.pollers = Executors.newFixedThreadPool(maxConcurrentPolls,
+				new DaemonThreadFactory("whispir-status"));
+		this.scheduler = new DaemonThreadFactory("whispir-status-scheduler").newThread(new Runnable() {
+			@Override
+			public void run() {
+				schedule();
+			}
+		});
+		this.scheduler.start();
+	}
+
+	public void addListener(DeliveryStatusListener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeListener(DeliveryStatusListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Starts tracking a message sent in My Company.
+	 *
+	 * @see #track(String, String)
+	 */
+	public boolean track(String messageId) {
+		return track("", messageId);
+	}
+
+	/**
+	 * Starts tracking a message. The first poll is made after the initial
+	 * interval.
+	 *
+	 * @param workspaceId
+	 *            - the workspace the message was sent in, or "" for My Company
+	 * @param messageId
+	 *            - the ID of the message
+	 * @return false if the message was already tracked
+	 */
+	public boolean track(String workspaceId, String messageId) {
+		if (closed) {
+			throw new RejectedExecutionException("The tracker has been closed");
+		}
+
+		Tracked message = new Tracked(workspaceId == null ? "" : workspaceId, messageId,
+				initialInterval);
+
+		if (tracked.putIfAbsent(messageId, message) != null) {
+			return false;
+		}
+
+		enqueue(message, message.interval);
+		return true;
+	}
+
+	/**
+	 * Polls a tracked message as soon as a poller is free. If the message is
+	 * being polled already, it is polled again once that poll completes.
+	 *
+	 * @return false if the message is not tracked
+	 */
+	public boolean refresh(String messageId) {
+		Tracked message = tracked.get(messageId);
+
+		if (message == null) {
+			return false;
+		}
+
+		message.refresh.set(true);
+
+		if (!message.polling.get()) {
+			enqueue(message, 0);
+		}
+		return true;
+	}
+
+	/**
+	 * Stops tracking a message without notifying the listeners.
+	 *
+	 * @return false if the message was not tracked
+	 */
+	public boolean untrack(String messageId) {
+		return tracked.remove(messageId) != null;
+	}
+
+	/**
+	 * @return the last polled status of each recipient, or null if the
+	 *         message is not tracked
+	 */
+	public Map<String, String> getStatuses(String messageId) {
+		Tracked message = tracked.get(messageId);
+		return message == null ? null : message.statuses;
+	}
+
+	/**
+	 * @return the number of messages being tracked
+	 */
+	public int getTracked() {
+		return tracked.size();
+	}
+
+	/**
+	 * @return the number of status requests in progress
+	 */
+	public int getInFlight() {
+		return inFlight.get();
+	}
+
+	public long getInitialInterval() {
+		return initialInterval;
+	}
+
+	/**
+	 * @param initialInterval
+	 *            - milliseconds between the first polls of a message, and
+	 *            after each change
+	 */
+	public void setInitialInterval(long initialInterval) {
+		this.initialInterval = initialInterval;
+	}
+
+	public long getMaxInterval() {
+		return maxInterval;
+	}
+
+	public void setMaxInterval(long maxInterval) {
+		this.maxInterval = maxInterval;
+	}
+
+	public double getBackoff() {
+		return backoff;
+	}
+
+	/**
+	 * @param backoff
+	 *            - the factor the interval is multiplied by after a poll with
+	 *            no change
+	 */
+	public void setBackoff(double backoff) {
+		if (backoff < 1) {
+			throw new IllegalArgumentException("Backoff must be at least 1");
+		}
+		this.backoff = backoff;
+	}
+
+	public long getMaxTrackingTime() {
+		return maxTrackingTime;
+	}
+
+	/**
+	 * @param maxTrackingTime
+	 *            - milliseconds after which a message that has not settled is
+	 *            dropped
+	 */
+	public void setMaxTrackingTime(long maxTrackingTime) {
+		this.maxTrackingTime = maxTrackingTime;
+	}
+
+	public Set<String> getFinalStatuses() {
+		return finalStatuses;
+	}
+
+	/**
+	 * @param finalStatuses
+	 *            - the recipient statuses that are not expected to change
+	 *            again
+	 */
+	public void setFinalStatuses(Set<String> finalStatuses) {
+		this.finalStatuses = Collections.unmodifiableSet(new HashSet<String>(finalStatuses));
+	}
+
+	/**
+	 * @param requestsPerSecond
+	 *            - the most status requests made per second, 0 for no limit
+	 */
+	public void setRateLimit(double requestsPerSecond) {
+		this.limiter = requestsPerSecond > 0 ? new RateLimiter(requestsPerSecond) : null;
+	}
+
+	/**
+	 * Stops polling. Tracked messages are dropped without notifying the
+	 * listeners.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		scheduler.interrupt();
+		pollers.shutdownNow();
+		tracked.clear();
+		due.clear();
+	}
+
+	private void enqueue(Tracked message, long delayMillis) {
+		if (!closed) {
+			due.put(new Poll(message, message.generation.incrementAndGet(),
+					System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis)));
+		}
+	}
+
+	/**
+	 * Hands due polls to the pollers, waiting for a free permit and the rate
+	 * limit. Polls superseded by a later enqueue of the same message are
+	 * skipped.
+	 */
+	private void schedule() {
+		try {
+			while (!closed) {
+				Poll poll = due.take();
+				final Tracked message = poll.message;
+
+				if (poll.generation != message.generation.get() || tracked.get(message.messageId) != message) {
+					continue;
+				}
+
+				permits.acquire();
+
+				if (!message.polling.compareAndSet(false, true)) {
+					// Already being polled, the refresh flag picks this up
+					permits.release();
+					continue;
+				}
+
+				RateLimiter rateLimiter = this.limiter;
+
+				if (rateLimiter != null) {
+					rateLimiter.acquire();
+				}
+
+				inFlight.incrementAndGet();
+
+				try {
+					pollers.execute(new Runnable() {
+						@Override
+						public void run() {
+							poll(message);
+						}
+					});
+				} catch (RejectedExecutionException e) {
+					inFlight.decrementAndGet();
+					permits.release();
+					return;
+				}
+			}
+		} catch (InterruptedException e) {
+			// Closed
+		}
+	}
+
+	private void poll(Tracked message) {
+		long next = -1;
+
+		try {
+			next = update(message);
+		} catch (RuntimeException e) {
+			next = backOff(message);
+		} finally {
+			message.polling.set(false);
+			inFlight.decrementAndGet();
+			permits.release();
+		}
+
+		if (next >= 0 && tracked.get(message.messageId) == message) {
+			enqueue(message, message.refresh.getAndSet(false) ? 0 : next);
+		}
+	}
+
+	/**
+	 * @return the milliseconds until the next poll, or -1 if the message is no
+	 *         longer tracked
+	 */
+	private long update(Tracked message) {
+		message.refresh.set(false);
+
+		WhispirResponse response;
+
+		try {
+			response = sdk.getMessageStatus(message.workspaceId, message.messageId);
+		} catch (WhispirSDKException e) {
+			return expiredOr(message, backOff(message));
+		}
+
+		if (response.getStatusCode() != 200 || response.getResponse() == null) {
+			// Not available yet, throttled or failed, try again later
+			return expiredOr(message, backOff(message));
+		}
+
+		Map<String, String> previous = message.statuses;
+		Map<String, String> current = Collections.unmodifiableMap(
+				new HashMap<String, String>(response.getResponse()));
+		boolean changed = false;
+
+		message.statuses = current;
+
+		for (Map.Entry<String, String> status : current.entrySet()) {
+			String before = previous.get(status.getKey());
+
+			if (!status.getValue().equals(before)) {
+				changed = true;
+				fireStatusChange(new DeliveryStatusEvent(message.messageId, status.getKey(),
+						before, status.getValue()));
+			}
+		}
+
+		if (!current.isEmpty() && isSettled(current)) {
+			end(message, true);
+			return -1;
+		}
+
+		if (changed) {
+			message.interval = initialInterval;
+			return expiredOr(message, message.interval);
+		}
+		return expiredOr(message, backOff(message));
+	}
+
+	private long backOff(Tracked message) {
+		message.interval = Math.min(maxInterval, (long) (message.interval * backoff));
+		return message.interval;
+	}
+
+	private long expiredOr(Tracked message, long next) {
+		if (TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - message.started) >= maxTrackingTime) {
+			end(message, false);
+			return -1;
+		}
+		return next;
+	}
+
+	private boolean isSettled(Map<String, String> statuses) {
+		Set<String> settled = this.finalStatuses;
+
+		for (String status : statuses.values()) {
+			if (!settled.contains(status.toUpperCase())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void end(Tracked message, boolean settled) {
+		if (tracked.remove(message.messageId, message)) {
+			for (DeliveryStatusListener listener : listeners) {
+				try {
+					listener.onTrackingEnded(message.messageId, message.statuses, settled);
+				} catch (RuntimeException e) {
+					// A failing listener must not stop the others
+				}
+			}
+		}
+	}
+
+	private void fireStatusChange(DeliveryStatusEvent event) {
+		for (DeliveryStatusListener listener : listeners) {
+			try {
+				listener.onStatusChange(event);
+			} catch (RuntimeException e) {
+				// A failing listener must not stop the others
+			}
+		}
+	}
+
+	private static final class Tracked {
+		final String workspaceId;
+		final String messageId;
+		final long started = System.nanoTime();
+		final AtomicLong generation = new AtomicLong();
+		final AtomicBoolean polling = new AtomicBoolean();
+		final AtomicBoolean refresh = new AtomicBoolean();
+
+		// Only changed by the poll in progress
+		volatile long interval;
+		volatile Map<String, String> statuses = Collections.emptyMap();
+
+		Tracked(String workspaceId, String messageId, long interval) {
+			this.workspaceId = workspaceId;
+			this.messageId = messageId;
+			this.interval = interval;
+		}
+	}
+
+	private static final class Poll implements Delayed {
+		final Tracked message;
+		final long generation;
+		final long dueNanos;
+
+		Poll(Tracked message, long generation, long dueNanos) {
+			this.message = message;
+			this.generation = generation;
+			this.dueNanos = dueNanos;
+		}
+
+		@Override
+		public long getDelay(TimeUnit unit) {
+			return unit.convert(dueNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+		}
+
+		@Override
+		public int compareTo(Delayed other) {
+			long diff = dueNanos - ((Poll) other).dueNanos;
+			return diff < 0 ? -1 : diff > 0 ? 1 : 0;
+		}
+	}
+}
@@ -0,0 +1,152 @@
+package com.whispir.sdk.suppression;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.whispir.sdk.recipients.RecipientCheck;
+import com.whispir.sdk.recipients.RecipientValidator;
+
+/**
+ * Drops the recipients of a message that are on a do-not-contact list before
+ * it is sent.
+ *
+ * <pre>
+ * SuppressionFilter suppression = SuppressionFilter.open(new File("suppression.bin"));
+ * sdk.setSuppressionFilter(suppression);
+ * ...
+ * suppression.reload(new File("suppression.bin"));
+ * </pre>
+ *
+ * A reload maps the new version of the list and swaps it in at once; sends
+ * in progress finish their lookups on the version they started with, and
+ * lookups never wait on a reload. If the new version cannot be opened the
+ * current one stays in use.
+ *
+ * @since 2.4
+ */
+public class SuppressionFilter {
+
+	private final AtomicReference<SuppressionList> list;
+	private final RecipientValidator validator;
+	private final AtomicLong suppressed = new AtomicLong();
+
+	/**
+	 * @param list
+	 *            - the first version of the list
+	 */
+	public SuppressionFilter(SuppressionList list) {
+		this(list, new RecipientValidator().setAllowOther(true));
+	}
+
+	/**
+	 * @param list
+	 *            - the first version of the list
+	 * @param validator
+	 *            - normalises the recipients of messages the way the list was
+	 *            written
+	 */
+	public SuppressionFilter(SuppressionList list, RecipientValidator validator) {
+		if (list == null) {
+			throw new IllegalArgumentException("A suppression list is required");
+		}
+		this.list = new AtomicReference<SuppressionList>(list);
+		this.validator = validator;
+	}
+
+	public static SuppressionFilter open(File file) throws IOException {
+		return new SuppressionFilter(SuppressionList.open(file));
+	}
+
+	/**
+	 * Maps a new version of the list and puts it in use.
+	 *
+	 * @return the version it replaced
+	 * @throws IOException
+	 *             if the file cannot be opened, in which case the current
+	 *             version stays in use
+	 */
+	public SuppressionList reload(File file) throws IOException {
+		return list.getAndSet(SuppressionList.open(file));
+	}
+
+	/**
+	 * @return the version of the list in use
+	 */
+	public SuppressionList getList() {
+		return list.get();
+	}
+
+	/**
+	 * @return the number of recipients dropped so far
+	 */
+	public long getSuppressed() {
+		return suppressed.get();
+	}
+
+	public boolean isSuppressed(String recipient) {
+		if (recipient == null) {
+			return false;
+		}
+
+		RecipientCheck check = validator.check(recipient);
+		String normalised = check.isValid() ? check.getNormalised() : recipient.trim();
+
+		if (list.get().contains(normalised)) {
+			suppressed.incrementAndGet();
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @param recipients
+	 *            - the "to" of a message, one recipient or several separated
+	 *            by ; or ,
+	 * @return the recipients that are not suppressed, separated by ;, or an
+	 *         empty String if all of them are. Returns the recipients given
+	 *         when none are suppressed.
+	 */
+	public String filter(String recipients) {
+		if (recipients == null) {
+			return null;
+		}
+
+		if (recipients.indexOf(';') < 0 && recipients.indexOf(',') < 0) {
+			return isSuppressed(recipients) ? "" : recipients;
+		}
+
+		StringBuilder allowed = new StringBuilder(recipients.length());
+		boolean dropped = false;
+		int start = 0;
+
+		for (int i = 0; i <= recipients.length(); i++) {
+			if (i < recipients.length() && recipients.charAt(i) != ';' && recipients.charAt(i) != ',') {
+				continue;
+			}
+
+			String token = recipients.substring(start, i).trim();
+			start = i + 1;
+
+			if (token.isEmpty()) {
+				continue;
+			}
+
+			if (isSuppressed(token)) {
+				dropped = true;
+			} else {
+				if (allowed.length() > 0) {
+					allowed.append(';');
+				}
+				allowed.append(token);
+			}
+		}
+		return dropped ? allowed.toString() : recipients;
+	}
+
+	@Override
+	public String toString() {
+		return "SuppressionFilter [list=" + list.get() + ", suppressed=" + suppressed.get() + "]";
+	}
+}
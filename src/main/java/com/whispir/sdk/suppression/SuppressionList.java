@@ -0,0 +1,179 @@
+package com.whispir.sdk.suppression;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A version of a do-not-contact list, memory mapped from a file written by
+ * {@link SuppressionListWriter}.
+ *
+ * <p>
+ * The file holds the keys of the recipients as sorted longs, 8 bytes each,
+ * and a lookup is a binary search over the mapping. The list stays in the page
+ * cache rather than on the heap, so tens of millions of recipients cost the
+ * heap nothing and a lookup takes well under a microsecond once the pages are
+ * warm.
+ * </p>
+ *
+ * Phone numbers in E.164 are keyed by their digits, email addresses and any
+ * other recipients by a 64 bit hash, so an email may very rarely collide with
+ * another. A list is immutable and may be shared by any number of threads.
+ *
+ * @since 2.4
+ */
+public final class SuppressionList {
+
+	static final int MAGIC = 0x5753534c;
+	static final int FORMAT = 1;
+	static final int HEADER_BYTES = 24;
+
+	// Files are limited to one mapping
+	static final long MAX_KEYS = (Integer.MAX_VALUE - HEADER_BYTES) / 8;
+
+	private final File file;
+	private final long version;
+	private final int size;
+	private final MappedByteBuffer keys;
+
+	private SuppressionList(File file, long version, int size, MappedByteBuffer keys) {
+		this.file = file;
+		this.version = version;
+		this.size = size;
+		this.keys = keys;
+	}
+
+	/**
+	 * Maps a list file. Nothing is read onto the heap but its header.
+	 *
+	 * @throws IOException
+	 *             if the file cannot be read or is not a suppression list
+	 */
+	public static SuppressionList open(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+
+		try {
+			FileChannel channel = raf.getChannel();
+			long length = channel.size();
+
+			if (length < HEADER_BYTES || length > Integer.MAX_VALUE) {
+				throw new IOException("Not a suppression list: " + file);
+			}
+
+			// The mapping stays valid once the channel is closed
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+			buffer.order(ByteOrder.BIG_ENDIAN);
+
+			if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT) {
+				throw new IOException("Not a suppression list, or from another SDK version: " + file);
+			}
+
+			long version = buffer.getLong(8);
+			long size = buffer.getLong(16);
+
+			if (size < 0 || HEADER_BYTES + size * 8 != length) {
+				throw new IOException("Suppression list is truncated: " + file);
+			}
+
+			return new SuppressionList(file, version, (int) size, buffer);
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * @param normalised
+	 *            - a recipient normalised by a
+	 *            {@link com.whispir.sdk.recipients.RecipientValidator}
+	 */
+	public boolean contains(String normalised) {
+		return contains(key(normalised));
+	}
+
+	public boolean contains(long key) {
+		int low = 0;
+		int high = size - 1;
+
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			long value = keys.getLong(HEADER_BYTES + mid * 8);
+
+			if (value < key) {
+				low = mid + 1;
+			} else if (value > key) {
+				high = mid - 1;
+			} else {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return the key of a normalised recipient: the digits of a phone number
+	 *         in E.164, or a negative hash of anything else, lower cased
+	 */
+	public static long key(String normalised) {
+		int length = normalised.length();
+
+		if (length > 1 && length <= 16 && normalised.charAt(0) == '+') {
+			long digits = 0;
+			int i = 1;
+
+			for (; i < length; i++) {
+				char c = normalised.charAt(i);
+
+				if (c < '0' || c > '9') {
+					break;
+				}
+				digits = digits * 10 + (c - '0');
+			}
+
+			if (i == length) {
+				return digits;
+			}
+		}
+
+		// FNV-1a, then mixed so that similar addresses spread over the keys
+		long hash = 0xcbf29ce484222325L;
+
+		for (int i = 0; i < length; i++) {
+			hash ^= Character.toLowerCase(normalised.charAt(i));
+			hash *= 0x100000001b3L;
+		}
+
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+
+		return hash | Long.MIN_VALUE;
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * @return the version the list was written with
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * @return the number of recipients in the list
+	 */
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public String toString() {
+		return "SuppressionList [file=" + file + ", version=" + version + ", size=" + size + "]";
+	}
+}
@@ -0,0 +1,137 @@
+package com.whispir.sdk.suppression;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+import com.whispir.sdk.recipients.RecipientCheck;
+import com.whispir.sdk.recipients.RecipientValidator;
+
+/**
+ * Builds a {@link SuppressionList} file from a do-not-contact list.
+ *
+ * <pre>
+ * SuppressionListWriter writer = new SuppressionListWriter(new RecipientValidator(PhoneRegion.AU));
+ * for (String recipient : optOuts) {
+ *     writer.add(recipient);
+ * }
+ * writer.write(new File("suppression.bin"), System.currentTimeMillis());
+ * </pre>
+ *
+ * Recipients are normalised with the validator, so that 0412 345 678 and
+ * +61412345678 suppress the same number. The keys are held as primitive
+ * longs, 8 bytes a recipient, until they are written.
+ *
+ * @since 2.4
+ */
+public class SuppressionListWriter {
+
+	private final RecipientValidator validator;
+	private long[] keys = new long[1024];
+	private int size;
+	private int skipped;
+
+	public SuppressionListWriter() {
+		this(new RecipientValidator().setAllowOther(true));
+	}
+
+	/**
+	 * @param validator
+	 *            - normalises the recipients, use the same rules as the
+	 *            validator of the SDK
+	 */
+	public SuppressionListWriter(RecipientValidator validator) {
+		this.validator = validator;
+	}
+
+	/**
+	 * @return false if the recipient was skipped because the validator
+	 *         rejected it
+	 */
+	public boolean add(String recipient) {
+		RecipientCheck check = validator.check(recipient);
+
+		if (!check.isValid()) {
+			skipped++;
+			return false;
+		}
+
+		addKey(SuppressionList.key(check.getNormalised()));
+		return true;
+	}
+
+	public void addKey(long key) {
+		if (size == keys.length) {
+			if (size >= SuppressionList.MAX_KEYS) {
+				throw new IllegalStateException("A suppression list holds at most "
+						+ SuppressionList.MAX_KEYS + " recipients");
+			}
+			keys = Arrays.copyOf(keys, (int) Math.min(SuppressionList.MAX_KEYS, size * 2L));
+		}
+		keys[size++] = key;
+	}
+
+	/**
+	 * @return the number of recipients rejected by the validator
+	 */
+	public int getSkipped() {
+		return skipped;
+	}
+
+	/**
+	 * Sorts the keys and writes them, replacing the file in one move so that
+	 * a reader never maps half a list.
+	 *
+	 * @param version
+	 *            - identifies this version of the list, e.g. when it was
+	 *            exported
+	 * @return the number of distinct recipients written
+	 */
+	public int write(File file, long version) throws IOException {
+		Arrays.sort(keys, 0, size);
+
+		int distinct = 0;
+		for (int i = 0; i < size; i++) {
+			if (distinct == 0 || keys[i] != keys[distinct - 1]) {
+				keys[distinct++] = keys[i];
+			}
+		}
+		size = distinct;
+
+		File temp = File.createTempFile(file.getName(), ".tmp", file.getAbsoluteFile().getParentFile());
+
+		try {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+					new FileOutputStream(temp), 1 << 16));
+
+			try {
+				out.writeInt(SuppressionList.MAGIC);
+				out.writeInt(SuppressionList.FORMAT);
+				out.writeLong(version);
+				out.writeLong(distinct);
+
+				for (int i = 0; i < distinct; i++) {
+					out.writeLong(keys[i]);
+				}
+			} finally {
+				out.close();
+			}
+
+			try {
+				Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+						StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			temp.delete();
+		}
+		return distinct;
+	}
+}
@@ -0,0 +1,197 @@
+package com.whispir.sdk.tenants;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+import com.whispir.sdk.WhispirResponse;
+import com.whispir.sdk.WhispirSDK;
+import com.whispir.sdk.dispatch.FairScheduler;
+import com.whispir.sdk.dispatch.RateLimiter;
+import com.whispir.sdk.exceptions.WhispirSDKException;
+import com.whispir.sdk.transport.WhispirTransport;
+
+/**
+ * Serves many Whispir accounts (tenants) from one connection pool and one set
+ * of worker threads.
+ *
+ * <p>
+ * Requests are queued per tenant and run in weighted fair order, so a tenant
+ * with a large backlog cannot starve the others: a request submitted by a
+ * quiet tenant is run by the next free worker. Each tenant can also have its
+ * own rate limit and keeps its own request counters.
+ * </p>
+ *
+ * <pre>
+ * MultiTenantClient client = new MultiTenantClient(16);
+ * client.addTenant("acme", new Tenant(API_KEY, USERNAME, PASSWORD, WhispirEndPoints.AU).setRateLimit(10));
+ * Future&lt;WhispirResponse&gt; response = client.sendMessage("acme", "", "61400000000", "Subject", content, options);
+ * </pre>
+ *
+ * @since 2.4
+ */
+public class MultiTenantClient implements Closeable {
+
+	/**
+	 * A unit of work run on behalf of a tenant with that tenant's SDK.
+	 */
+	public interface TenantTask<T> {
+		T execute(WhispirSDK sdk) throws WhispirSDKException;
+	}
+
+	private final WhispirTransport transport;
+	private final FairScheduler<String> scheduler;
+	private final Map<String, TenantEntry> tenants = new ConcurrentHashMap<String, TenantEntry>();
+
+	/**
+	 * @param workers
+	 *            - the number of worker threads and pooled connections shared
+	 *            by all tenants
+	 */
+	public MultiTenantClient(int workers) {
+		this.transport = new WhispirTransport(workers);
+		this.scheduler = new FairScheduler<String>("whispir-tenant", workers);
+	}
+
+	/**
+	 * Adds a tenant. Its SDK instance shares the pooled transport of this
+	 * client.
+	 *
+	 * @param tenantId
+	 *            - the key used to submit requests for the tenant
+	 * @param tenant
+	 *            - the tenant's credentials and settings
+	 */
+	public void addTenant(String tenantId, Tenant tenant) throws WhispirSDKException {
+		WhispirSDK sdk = new WhispirSDK(tenant.getApikey(), tenant.getUsername(),
+				tenant.getPassword(), tenant.getEndPoint());
+		sdk.setTransport(transport);
+
+		RateLimiter limiter = tenant.getRateLimit() > 0 ? new RateLimiter(tenant.getRateLimit()) : null;
+
+		scheduler.register(tenantId, tenant.getWeight(), limiter, tenant.getMaxQueued());
+		tenants.put(tenantId, new TenantEntry(tenant, sdk));
+	}
+
+	/**
+	 * Removes a tenant. Requests still queued for it are not run, and their
+	 * futures are cancelled.
+	 *
+	 * @return the number of queued requests that were dropped
+	 */
+	public int removeTenant(String tenantId) {
+		tenants.remove(tenantId);
+		return scheduler.unregister(tenantId);
+	}
+
+	public Tenant getTenant(String tenantId) {
+		TenantEntry entry = tenants.get(tenantId);
+		return entry != null ? entry.tenant : null;
+	}
+
+	/**
+	 * @return the tenant's SDK, for synchronous calls that bypass the fair
+	 *         queue (they still share the connection pool)
+	 */
+	public WhispirSDK getSdk(String tenantId) {
+		TenantEntry entry = tenants.get(tenantId);
+		return entry != null ? entry.sdk : null;
+	}
+
+	/**
+	 * @return the number of requests waiting for the tenant
+	 */
+	public int getQueued(String tenantId) {
+		return scheduler.getQueued(tenantId);
+	}
+
+	/**
+	 * Queues a task for the tenant.
+	 *
+	 * @return the result of the task. A WhispirSDKException thrown by the task
+	 *         is the cause of the ExecutionException thrown by get().
+	 * @throws RejectedExecutionException
+	 *             if the tenant is unknown or its queue is full
+	 */
+	public <T> Future<T> submit(String tenantId, final TenantTask<T> task) {
+		final TenantEntry entry = tenants.get(tenantId);
+
+		if (entry == null) {
+			throw new RejectedExecutionException("Unknown tenant: " + tenantId);
+		}
+
+		FutureTask<T> future = new FutureTask<T>(new Callable<T>() {
+			@Override
+			public T call() throws Exception {
+				try {
+					T result = task.execute(entry.sdk);
+					entry.tenant.recordCompleted(result instanceof WhispirResponse
+							? ((WhispirResponse) result).getStatusCode() : 0);
+					return result;
+				} catch (WhispirSDKException e) {
+					entry.tenant.recordFailed();
+					throw e;
+				} catch (RuntimeException e) {
+					entry.tenant.recordFailed();
+					throw e;
+				}
+			}
+		});
+
+		try {
+			scheduler.submit(tenantId, future);
+		} catch (RejectedExecutionException e) {
+			entry.tenant.recordRejected();
+			throw e;
+		}
+
+		entry.tenant.recordSubmitted();
+		return future;
+	}
+
+	public Future<WhispirResponse> sendMessage(String tenantId, final String workspaceId,
+			final String recipient, final String subject, final Map<String, String> content,
+			final Map<String, String> options) {
+		return submit(tenantId, new TenantTask<WhispirResponse>() {
+			@Override
+			public WhispirResponse execute(WhispirSDK sdk) throws WhispirSDKException {
+				return sdk.sendMessage(workspaceId, recipient, subject, content, options);
+			}
+		});
+	}
+
+	public Future<WhispirResponse> sendScenario(String tenantId, final String workspaceId,
+			final String scenarioId) {
+		return submit(tenantId, new TenantTask<WhispirResponse>() {
+			@Override
+			public WhispirResponse execute(WhispirSDK sdk) throws WhispirSDKException {
+				return sdk.sendScenario(workspaceId, scenarioId);
+			}
+		});
+	}
+
+	/**
+	 * Stops the workers and closes the shared connection pool. The futures of
+	 * requests still queued are cancelled.
+	 */
+	@Override
+	public void close() throws IOException {
+		scheduler.shutdown();
+		transport.close();
+	}
+
+	private static class TenantEntry {
+		private final Tenant tenant;
+		private final WhispirSDK sdk;
+
+		TenantEntry(Tenant tenant, WhispirSDK sdk) {
+			this.tenant = tenant;
+			this.sdk = sdk;
+		}
+	}
+}
@@ -0,0 +1,157 @@
+package com.whispir.sdk.tenants;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.whispir.sdk.WhispirEndPoints;
+import com.whispir.sdk.dispatch.FairScheduler;
+
+/**
+ * An account served by a {@link MultiTenantClient}.
+ *
+ * <p>
+ * Holds the account credentials, its share of the shared workers (weight),
+ * its own rate limit and the counters used for per tenant accounting.
+ * </p>
+ *
+ * @since 2.4
+ */
+public class Tenant {
+
+	private final String apikey;
+	private final String username;
+	private final String password;
+	private final WhispirEndPoints endPoint;
+
+	private double weight = 1;
+	private double rateLimit;
+	private int maxQueued = FairScheduler.DEFAULT_MAX_QUEUED;
+
+	private final AtomicLong submitted = new AtomicLong();
+	private final AtomicLong completed = new AtomicLong();
+	private final AtomicLong failed = new AtomicLong();
+	private final AtomicLong throttled = new AtomicLong();
+	private final AtomicLong rejected = new AtomicLong();
+
+	public Tenant(String apikey, String username, String password, WhispirEndPoints endPoint) {
+		this.apikey = apikey;
+		this.username = username;
+		this.password = password;
+		this.endPoint = endPoint;
+	}
+
+	public String getApikey() {
+		return apikey;
+	}
+
+	public String getUsername() {
+		return username;
+	}
+
+	public String getPassword() {
+		return password;
+	}
+
+	public WhispirEndPoints getEndPoint() {
+		return endPoint;
+	}
+
+	public double getWeight() {
+		return weight;
+	}
+
+	/**
+	 * @param weight
+	 *            - the relative share of the shared workers (default 1)
+	 * @return this tenant
+	 */
+	public Tenant setWeight(double weight) {
+		this.weight = weight;
+		return this;
+	}
+
+	public double getRateLimit() {
+		return rateLimit;
+	}
+
+	/**
+	 * @param rateLimit
+	 *            - the maximum requests per second for this tenant, 0 for
+	 *            unlimited (default)
+	 * @return this tenant
+	 */
+	public Tenant setRateLimit(double rateLimit) {
+		this.rateLimit = rateLimit;
+		return this;
+	}
+
+	public int getMaxQueued() {
+		return maxQueued;
+	}
+
+	/**
+	 * @param maxQueued
+	 *            - the number of requests that can wait for this tenant
+	 *            before new ones are rejected
+	 * @return this tenant
+	 */
+	public Tenant setMaxQueued(int maxQueued) {
+		this.maxQueued = maxQueued;
+		return this;
+	}
+
+	/**
+	 * @return the number of requests accepted for this tenant
+	 */
+	public long getSubmitted() {
+		return submitted.get();
+	}
+
+	/**
+	 * @return the number of requests that returned a response
+	 */
+	public long getCompleted() {
+		return completed.get();
+	}
+
+	/**
+	 * @return the number of requests that failed with an exception
+	 */
+	public long getFailed() {
+		return failed.get();
+	}
+
+	/**
+	 * @return the number of responses that were rate limited by the API (HTTP
+	 *         429)
+	 */
+	public long getThrottled() {
+		return throttled.get();
+	}
+
+	/**
+	 * @return the number of requests rejected because the queue was full
+	 */
+	public long getRejected() {
+		return rejected.get();
+	}
+
+	void recordSubmitted() {
+		submitted.incrementAndGet();
+	}
+
+	void recordCompleted(int statusCode) {
+		completed.incrementAndGet();
+
+		if (statusCode == 429) {
+			throttled.incrementAndGet();
+		}
+	}
+
+	void recordFailed() {
+		failed.incrementAndGet();
+	}
+
+	void recordRejected() {
+		rejected.incrementAndGet();
+	}
+}
@@ -0,0 +1,151 @@
+package com.whispir.sdk.transport;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded, thread safe pool of byte buffers used for request and response
+ * bodies.
+ *
+ * <p>
+ * Buffers are plain heap arrays of a fixed size. A released buffer is kept
+ * for reuse unless the pool is already full, so at most
+ * <code>maxPooled</code> buffers are retained however many are in use at
+ * once. Bodies that do not fit are handled with a larger, unpooled array.
+ * </p>
+ * <p>
+ * With leak detection enabled (the SDK enables it in debug mode), the pool
+ * records where each outstanding buffer was acquired, and releasing a buffer
+ * that is already back in the pool fails fast. Buffers acquired before it
+ * was enabled are released as usual.
+ * </p>
+ *
+ * @since 2.4
+ */
+public class BufferPool {
+
+	public static final int DEFAULT_BUFFER_SIZE = 8192;
+	public static final int DEFAULT_MAX_POOLED = 64;
+
+	private final int bufferSize;
+	private final BlockingQueue<byte[]> pool;
+	private final AtomicLong allocated = new AtomicLong();
+	private final Map<byte[], Throwable> outstanding = new IdentityHashMap<byte[], Throwable>();
+
+	private volatile boolean leakDetection;
+
+	public BufferPool() {
+		this(DEFAULT_BUFFER_SIZE, DEFAULT_MAX_POOLED);
+	}
+
+	/**
+	 * @param bufferSize
+	 *            - the size of each buffer in bytes
+	 * @param maxPooled
+	 *            - the most buffers kept for reuse
+	 */
+	public BufferPool(int bufferSize, int maxPooled) {
+		if (bufferSize < 1 || maxPooled < 1) {
+			throw new IllegalArgumentException("Buffer size and pool size must be at least 1");
+		}
+
+		this.bufferSize = bufferSize;
+		this.pool = new ArrayBlockingQueue<byte[]>(maxPooled);
+	}
+
+	/**
+	 * @return a buffer of {@link #getBufferSize()} bytes, which must be
+	 *         returned with {@link #release(byte[])}
+	 */
+	public byte[] acquire() {
+		byte[] buffer = pool.poll();
+
+		if (buffer == null) {
+			buffer = new byte[bufferSize];
+			allocated.incrementAndGet();
+		}
+
+		if (leakDetection) {
+			synchronized (outstanding) {
+				outstanding.put(buffer, new Throwable("Buffer acquired here"));
+			}
+		}
+		return buffer;
+	}
+
+	/**
+	 * Returns a buffer to the pool. Arrays that are not of the pool's buffer
+	 * size are ignored, so a body that outgrew its pooled buffer can be
+	 * released the same way.
+	 */
+	public void release(byte[] buffer) {
+		if (buffer == null || buffer.length != bufferSize) {
+			return;
+		}
+
+		if (leakDetection) {
+			synchronized (outstanding) {
+				// Untracked buffers were acquired before detection was enabled
+				if (outstanding.remove(buffer) == null && pool.contains(buffer)) {
+					throw new IllegalStateException("Buffer released twice");
+				}
+			}
+		}
+
+		pool.offer(buffer);
+	}
+
+	public int getBufferSize() {
+		return bufferSize;
+	}
+
+	/**
+	 * @return the number of buffers waiting for reuse
+	 */
+	public int getPooled() {
+		return pool.size();
+	}
+
+	/**
+	 * @return the number of buffers allocated since the pool was created.
+	 *         Stops growing once the pool has warmed up.
+	 */
+	public long getAllocated() {
+		return allocated.get();
+	}
+
+	public boolean isLeakDetection() {
+		return leakDetection;
+	}
+
+	/**
+	 * @param leakDetection
+	 *            - true to record where outstanding buffers were acquired.
+	 *            Only buffers acquired after this is enabled are tracked;
+	 *            those acquired before are released without a check.
+	 */
+	public void setLeakDetection(boolean leakDetection) {
+		this.leakDetection = leakDetection;
+
+		if (!leakDetection) {
+			synchronized (outstanding) {
+				outstanding.clear();
+			}
+		}
+	}
+
+	/**
+	 * @return the acquisition site of every buffer that has not been released,
+	 *         empty unless leak detection is enabled
+	 */
+	public List<Throwable> getLeaks() {
+		synchronized (outstanding) {
+			return new ArrayList<Throwable>(outstanding.values());
+		}
+	}
+}
@@ -0,0 +1,215 @@
+package com.whispir.sdk.transport;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.whispir.sdk.dispatch.DaemonThreadFactory;
+
+/**
+ * A timer for large numbers of short timeouts, such as one per request in
+ * flight, run by a single thread.
+ *
+ * <p>
+ * Timeouts are kept in a wheel of buckets, one per tick. Scheduling and
+ * cancelling are constant time, whatever the number of pending timeouts, and
+ * each tick only visits one bucket. The price is precision: a timeout fires
+ * up to one tick late. Tasks run on the timer thread and must be short.
+ * </p>
+ *
+ * @since 2.4
+ */
+public class HashedWheelTimer implements Closeable {
+
+	public static final long DEFAULT_TICK = 10;
+	public static final int DEFAULT_WHEEL_SIZE = 512;
+
+	private final long tickNanos;
+	private final Queue<Timeout>[] wheel;
+	private final Queue<Timeout> added = new ConcurrentLinkedQueue<Timeout>();
+	private final AtomicInteger pending = new AtomicInteger();
+	private final Thread worker;
+	private final long startNanos;
+
+	private volatile boolean closed;
+
+	public HashedWheelTimer() {
+		this(DEFAULT_TICK, DEFAULT_WHEEL_SIZE);
+	}
+
+	/**
+	 * @param tickMillis
+	 *            - the precision of the timer
+	 * @param wheelSize
+	 *            - the number of buckets. Timeouts longer than one turn of the
+	 *            wheel wait for the extra turns in their bucket.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public HashedWheelTimer(long tickMillis, int wheelSize) {
+		if (tickMillis < 1 || wheelSize < 1) {
+			throw new IllegalArgumentException("Tick and wheel size must be at least 1");
+		}
+
+		this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+		this.wheel = new Queue[wheelSize];
+
+		for (int i = 0; i < wheelSize; i++) {
+			wheel[i] = new ArrayDeque<Timeout>();
+		}
+
+		this.startNanos = System.nanoTime();
+		this.worker = new DaemonThreadFactory("whispir-timer").newThread(new Runnable() {
+			@Override
+			public void run() {
+				turn();
+			}
+		});
+		this.worker.start();
+	}
+
+	/**
+	 * Runs the task once the delay has passed, unless it is cancelled first.
+	 *
+	 * @return the handle to cancel the task with
+	 */
+	public Timeout schedule(Runnable task, long delayMillis) {
+		if (closed) {
+			throw new IllegalStateException("The timer has been closed");
+		}
+
+		Timeout timeout = new Timeout(task, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, delayMillis)));
+		pending.incrementAndGet();
+		added.add(timeout);
+		return timeout;
+	}
+
+	/**
+	 * @return the number of timeouts that have neither fired nor been
+	 *         cancelled
+	 */
+	public int getPending() {
+		return pending.get();
+	}
+
+	/**
+	 * Stops the timer. Pending timeouts never fire.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		worker.interrupt();
+	}
+
+	private void turn() {
+		long tick = 0;
+
+		while (!closed) {
+			long next = startNanos + (tick + 1) * tickNanos;
+			long sleep = next - System.nanoTime();
+
+			if (sleep > 0) {
+				try {
+					TimeUnit.NANOSECONDS.sleep(sleep);
+				} catch (InterruptedException e) {
+					return;
+				}
+			}
+
+			tick++;
+			transferAdded(tick);
+			expire(wheel[(int) (tick % wheel.length)], System.nanoTime());
+		}
+	}
+
+	private void transferAdded(long tick) {
+		Timeout timeout;
+
+		while ((timeout = added.poll()) != null) {
+			if (timeout.isCancelled()) {
+				continue;
+			}
+
+			// Ticks from the start of the timer, never in the past
+			long due = Math.max(tick, (timeout.deadlineNanos - startNanos + tickNanos - 1) / tickNanos);
+			timeout.remainingRounds = (due - tick) / wheel.length;
+			wheel[(int) (due % wheel.length)].add(timeout);
+		}
+	}
+
+	private void expire(Queue<Timeout> bucket, long now) {
+		Iterator<Timeout> iterator = bucket.iterator();
+
+		while (iterator.hasNext()) {
+			Timeout timeout = iterator.next();
+
+			if (timeout.isCancelled()) {
+				iterator.remove();
+			} else if (timeout.remainingRounds > 0) {
+				timeout.remainingRounds--;
+			} else {
+				iterator.remove();
+
+				if (timeout.fire()) {
+					try {
+						timeout.task.run();
+					} catch (RuntimeException e) {
+						// A failing task must not stop the timer
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * A scheduled task.
+	 */
+	public final class Timeout {
+
+		private static final int WAITING = 0;
+		private static final int CANCELLED = 1;
+		private static final int EXPIRED = 2;
+
+		private final Runnable task;
+		private final long deadlineNanos;
+		private final AtomicInteger state = new AtomicInteger(WAITING);
+
+		// Only touched by the timer thread
+		private long remainingRounds;
+
+		private Timeout(Runnable task, long deadlineNanos) {
+			this.task = task;
+			this.deadlineNanos = deadlineNanos;
+		}
+
+		/**
+		 * @return true if the task was cancelled before it ran
+		 */
+		public boolean cancel() {
+			if (state.compareAndSet(WAITING, CANCELLED)) {
+				pending.decrementAndGet();
+				return true;
+			}
+			return false;
+		}
+
+		public boolean isCancelled() {
+			return state.get() == CANCELLED;
+		}
+
+		public boolean isExpired() {
+			return state.get() == EXPIRED;
+		}
+
+		private boolean fire() {
+			if (state.compareAndSet(WAITING, EXPIRED)) {
+				pending.decrementAndGet();
+				return true;
+			}
+			return false;
+		}
+	}
+}
@@ -0,0 +1,81 @@
+package com.whispir.sdk.transport;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.http.entity.AbstractHttpEntity;
+
+/**
+ * A request body held in a buffer from a {@link BufferPool}.
+ *
+ * <p>
+ * The entity is repeatable, so it can be sent again on a retry or failover.
+ * Call {@link #release()} once the request has completed to return the
+ * buffer to the pool.
+ * </p>
+ *
+ * @since 2.4
+ */
+public class PooledEntity extends AbstractHttpEntity {
+
+	private final BufferPool pool;
+	private final int length;
+	private byte[] buffer;
+
+	/**
+	 * @param pool
+	 *            - the pool the buffer came from, or null if it is unpooled
+	 */
+	PooledEntity(BufferPool pool, byte[] buffer, int length) {
+		this.pool = pool;
+		this.buffer = buffer;
+		this.length = length;
+	}
+
+	@Override
+	public boolean isRepeatable() {
+		return true;
+	}
+
+	@Override
+	public long getContentLength() {
+		return length;
+	}
+
+	@Override
+	public InputStream getContent() {
+		return new ByteArrayInputStream(content(), 0, length);
+	}
+
+	@Override
+	public void writeTo(OutputStream out) throws IOException {
+		out.write(content(), 0, length);
+		out.flush();
+	}
+
+	@Override
+	public boolean isStreaming() {
+		return false;
+	}
+
+	/**
+	 * Returns the buffer to the pool. The entity cannot be sent afterwards.
+	 */
+	public synchronized void release() {
+		if (buffer != null) {
+			if (pool != null) {
+				pool.release(buffer);
+			}
+			buffer = null;
+		}
+	}
+
+	private synchronized byte[] content() {
+		if (buffer == null) {
+			throw new IllegalStateException("The entity has been released");
+		}
+		return buffer;
+	}
+}
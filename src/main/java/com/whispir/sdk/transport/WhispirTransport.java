@@ -0,0 +1,207 @@
+package com.whispir.sdk.transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+
+import org.apache.http.Consts;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHost;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+
+/**
+ * Pooled HTTP transport used to execute Whispir API requests.
+ *
+ * <p>
+ * Connections are kept alive and reused between requests instead of opening a
+ * new connection (and TLS handshake) per call. Credentials are supplied per
+ * request through the execution context, so one transport can be shared by
+ * any number of WhispirSDK instances, each with their own account.
+ * </p>
+ * <p>
+ * Request and response bodies are encoded and read through the transport's
+ * {@link BufferPool}, so a steady stream of requests reuses the same buffers
+ * rather than allocating new ones for each body.
+ * </p>
+ * <p>
+ * The deadlines of all requests in flight are enforced by one
+ * {@link HashedWheelTimer} per transport.
+ * </p>
+ *
+ * @since 2.4
+ */
+public class WhispirTransport implements Closeable {
+
+	public static final int DEFAULT_MAX_CONNECTIONS = 20;
+
+	private final PoolingHttpClientConnectionManager connectionManager;
+	private final CloseableHttpClient client;
+	private final BufferPool bufferPool = new BufferPool();
+
+	// Timeouts of requests in flight, started on first use
+	private volatile HashedWheelTimer timer;
+	private volatile boolean closed;
+
+	public WhispirTransport() {
+		this(DEFAULT_MAX_CONNECTIONS);
+	}
+
+	/**
+	 * @param maxConnections
+	 *            - the maximum number of open connections, also applied per
+	 *            endpoint
+	 */
+	public WhispirTransport(int maxConnections) {
+		if (maxConnections < 1) {
+			throw new IllegalArgumentException("At least one connection is required");
+		}
+
+		this.connectionManager = new PoolingHttpClientConnectionManager();
+		this.connectionManager.setMaxTotal(maxConnections);
+		this.connectionManager.setDefaultMaxPerRoute(maxConnections);
+
+		this.client = HttpClients.custom()
+				.setConnectionManager(connectionManager).build();
+	}
+
+	public CloseableHttpResponse execute(HttpHost target, HttpRequestBase request,
+			HttpClientContext context) throws IOException {
+		return client.execute(target, request, context);
+	}
+
+	/**
+	 * Encodes a request body into a pooled buffer. Unmappable characters are
+	 * replaced, as String.getBytes does.
+	 *
+	 * @return the entity, to be released once the request has completed
+	 */
+	public PooledEntity createEntity(String content, Charset charset) {
+		CharsetEncoder encoder = charset.newEncoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		byte[] buffer = bufferPool.acquire();
+
+		try {
+			if (content.length() * encoder.maxBytesPerChar() <= buffer.length) {
+				ByteBuffer out = ByteBuffer.wrap(buffer);
+				encoder.encode(CharBuffer.wrap(content), out, true);
+				encoder.flush(out);
+				return new PooledEntity(bufferPool, buffer, out.position());
+			}
+
+			// Too large for a pooled buffer
+			bufferPool.release(buffer);
+			ByteBuffer out = encoder.encode(CharBuffer.wrap(content));
+			return new PooledEntity(null, out.array(), out.limit());
+
+		} catch (CharacterCodingException e) {
+			// Not thrown when replacing
+			bufferPool.release(buffer);
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Reads a response body into a String through a pooled buffer, with the
+	 * charset of the entity (ISO-8859-1 if none is given, as EntityUtils
+	 * does).
+	 *
+	 * @return the body, or null if there is none
+	 */
+	public String readString(HttpEntity entity) throws IOException {
+		if (entity == null) {
+			return null;
+		}
+
+		InputStream in = entity.getContent();
+
+		if (in == null) {
+			return null;
+		}
+
+		byte[] buffer = bufferPool.acquire();
+		byte[] data = buffer;
+		int length = 0;
+
+		try {
+			int read;
+
+			while ((read = in.read(data, length, data.length - length)) != -1) {
+				length += read;
+
+				if (length == data.length) {
+					data = Arrays.copyOf(data, data.length * 2);
+				}
+			}
+
+			Charset charset = ContentType.getOrDefault(entity).getCharset();
+			return new String(data, 0, length, charset != null ? charset : Consts.ISO_8859_1);
+
+		} finally {
+			in.close();
+			bufferPool.release(buffer);
+		}
+	}
+
+	/**
+	 * @return the buffer pool used for request and response bodies
+	 */
+	public BufferPool getBufferPool() {
+		return bufferPool;
+	}
+
+	/**
+	 * @return the leased, available and pending connection counts of the pool
+	 */
+	public PoolStats getStats() {
+		return connectionManager.getTotalStats();
+	}
+
+	/**
+	 * @return the timer that enforces the deadlines of requests sent through
+	 *         this transport
+	 */
+	public HashedWheelTimer getTimer() {
+		HashedWheelTimer current = timer;
+
+		if (current == null) {
+			synchronized (this) {
+				if (closed) {
+					throw new IllegalStateException("The transport has been closed");
+				}
+				current = timer;
+				if (current == null) {
+					current = new HashedWheelTimer();
+					timer = current;
+				}
+			}
+		}
+		return current;
+	}
+
+	@Override
+	public void close() throws IOException {
+		synchronized (this) {
+			closed = true;
+
+			if (timer != null) {
+				timer.close();
+			}
+		}
+		client.close();
+	}
+}
@@ -0,0 +1,289 @@
+package com.whispir.sdk.bulkhead.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.HttpHost;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import com.whispir.sdk.Deadline;
+import com.whispir.sdk.WhispirEndPoints;
+import com.whispir.sdk.WhispirResponse;
+import com.whispir.sdk.WhispirSDK;
+import com.whispir.sdk.WhispirSDKConstants;
+import com.whispir.sdk.bulkhead.AdaptiveLimit;
+import com.whispir.sdk.bulkhead.AdaptiveLimits;
+import com.whispir.sdk.bulkhead.RejectionPolicy;
+import com.whispir.sdk.exceptions.LoadShedException;
+import com.whispir.sdk.routing.EndpointRouter;
+import com.whispir.sdk.transport.WhispirTransport;
+
+public class AdaptiveLimitTest {
+
+	private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+
+	@Test
+	public void testLimitGrowsWhileFastAndBacksOffOnRefusals() throws Exception {
+		AdaptiveLimit limit = new AdaptiveLimit("test", 4, 1, 20, 1000, RejectionPolicy.THROW);
+
+		// Full rounds of quick requests
+		for (int round = 0; round < 20; round++) {
+			int slots = limit.getLimit();
+
+			for (int i = 0; i < slots; i++) {
+				assertTrue(limit.acquire(Deadline.none()));
+			}
+			for (int i = 0; i < slots; i++) {
+				limit.release(FAST, 200);
+			}
+		}
+		int grown = limit.getLimit();
+		assertTrue("Limit " + grown, grown >= 10);
+		assertEquals(0, limit.getInFlight());
+
+		// A burst of refusals counts once per round trip
+		for (int i = 0; i < 5; i++) {
+			assertTrue(limit.acquire(Deadline.none()));
+		}
+		for (int i = 0; i < 5; i++) {
+			limit.release(FAST, 429);
+		}
+		assertTrue(limit.getLimit() < grown && limit.getLimit() >= grown * 0.9 - 1);
+
+		// Until it reaches the minimum
+		for (int i = 0; i < 30; i++) {
+			Thread.sleep(11);
+			assertTrue(limit.acquire(Deadline.none()));
+			limit.release(FAST, 503);
+		}
+		assertEquals(1, limit.getLimit());
+	}
+
+	@Test
+	public void testSlowRoundTripsCutTheLimit() throws Exception {
+		AdaptiveLimit limit = new AdaptiveLimit("test", 10, 1, 20, 1000, RejectionPolicy.THROW);
+
+		assertTrue(limit.acquire(Deadline.none()));
+		limit.release(FAST, 200);
+		assertEquals(10, limit.getMinRttMillis());
+
+		assertTrue(limit.acquire(Deadline.none()));
+		limit.release(FAST * 5, 200);
+		assertEquals(9, limit.getLimit());
+
+		// A cancelled request is not a sample
+		assertTrue(limit.acquire(Deadline.none()));
+		limit.release();
+		assertEquals(9, limit.getLimit());
+		assertEquals(0, limit.getInFlight());
+	}
+
+	@Test
+	public void testRequestsThatWouldMissTheSloAreShed() throws Exception {
+		final AdaptiveLimit limit = new AdaptiveLimit("test", 1, 1, 1, 50, RejectionPolicy.THROW);
+
+		// Nothing known about the endpoint yet, so the request waits out the
+		// SLO
+		assertTrue(limit.acquire(Deadline.none()));
+		long start = System.nanoTime();
+
+		try {
+			limit.acquire(Deadline.none());
+			fail("Expected the request to be shed");
+		} catch (LoadShedException e) {
+			assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 45);
+		}
+
+		// Once requests are known to take 200 ms, it is shed at once
+		limit.release(TimeUnit.MILLISECONDS.toNanos(200), 200);
+		assertTrue(limit.acquire(Deadline.none()));
+		start = System.nanoTime();
+
+		try {
+			limit.acquire(Deadline.none());
+			fail("Expected the request to be shed");
+		} catch (LoadShedException e) {
+			assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 40);
+			assertEquals(2, limit.getShed());
+		}
+
+		// A slot freed within the SLO is handed to the waiting request
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		final AdaptiveLimit patient = new AdaptiveLimit("test", 1, 1, 1, 5000, RejectionPolicy.RESPOND_429);
+
+		try {
+			assertTrue(patient.acquire(Deadline.none()));
+			Future<Boolean> waiting = executor.submit(new Callable<Boolean>() {
+				@Override
+				public Boolean call() throws Exception {
+					return patient.acquire(Deadline.none());
+				}
+			});
+
+			while (patient.getQueued() == 0) {
+				Thread.sleep(5);
+			}
+			patient.release(FAST, 200);
+			assertTrue(waiting.get(1, TimeUnit.SECONDS));
+			assertEquals(1, patient.getInFlight());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testSdkRespondsWith429WhenShedding() throws Exception {
+		final AtomicInteger requests = new AtomicInteger();
+		final CountDownLatch arrived = new CountDownLatch(1);
+		HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		ExecutorService serverExecutor = Executors.newCachedThreadPool();
+
+		server.createContext("/", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				try {
+					InputStream in = exchange.getRequestBody();
+					while (in.read() >= 0) {
+						// discard
+					}
+
+					requests.incrementAndGet();
+					arrived.countDown();
+					Thread.sleep(300);
+
+					byte[] body = "{\"workspaces\":[]}".getBytes("UTF-8");
+					exchange.sendResponseHeaders(200, body.length);
+					OutputStream out = exchange.getResponseBody();
+					out.write(body);
+					out.close();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} finally {
+					exchange.close();
+				}
+			}
+		});
+		server.setExecutor(serverExecutor);
+		server.start();
+
+		final WhispirSDK sdk = new WhispirSDK("apikey", "username", "password",
+				"http://127.0.0.1:" + server.getAddress().getPort());
+		AdaptiveLimits limits = new AdaptiveLimits(1, 1, 1, 0, RejectionPolicy.RESPOND_429);
+		sdk.setAdaptiveLimits(limits);
+		ExecutorService callers = Executors.newSingleThreadExecutor();
+
+		try {
+			Future<WhispirResponse> first = callers.submit(new Callable<WhispirResponse>() {
+				@Override
+				public WhispirResponse call() throws Exception {
+					return sdk.getWorkspaces();
+				}
+			});
+			assertTrue(arrived.await(5, TimeUnit.SECONDS));
+
+			assertEquals(429, sdk.getWorkspaces().getStatusCode());
+			assertEquals(200, first.get().getStatusCode());
+			assertEquals(1, requests.get());
+
+			AdaptiveLimit limit = limits.getAll().iterator().next();
+			assertEquals(1, limit.getShed());
+			assertEquals(0, limit.getInFlight());
+			assertFalse(limit.getSmoothedRttMillis() == 0);
+		} finally {
+			callers.shutdownNow();
+			sdk.close();
+			server.stop(0);
+			serverExecutor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testShedRequestsFailOverWithoutCountingAgainstTheEndpoint() throws Exception {
+		String au = String.format(WhispirSDKConstants.API_HOST_FORMAT, WhispirEndPoints.AU);
+		String ap = String.format(WhispirSDKConstants.API_HOST_FORMAT, WhispirEndPoints.AP);
+		StubTransport transport = new StubTransport();
+		EndpointRouter router = new EndpointRouter(WhispirEndPoints.AU, WhispirEndPoints.AP);
+		AdaptiveLimits limits = new AdaptiveLimits(1, 1, 1, 0, RejectionPolicy.THROW);
+
+		WhispirSDK sdk = new WhispirSDK("apikey", "username", "password", WhispirEndPoints.AU);
+		sdk.setTransport(transport);
+		sdk.setEndpointRouter(router);
+		sdk.setAdaptiveLimits(limits);
+
+		try {
+			// The primary is at its limit, so the request goes to the next
+			assertTrue(limits.get(au).acquire(Deadline.none()));
+			assertEquals(200, sdk.getWorkspaces().getStatusCode());
+			assertEquals(1, transport.hosts.size());
+			assertEquals(ap, transport.hosts.get(0));
+			assertEquals(1, limits.get(au).getShed());
+			assertEquals(0, router.getHealth(WhispirEndPoints.AU).getSamples());
+			assertEquals(1, router.getHealth(WhispirEndPoints.AP).getSamples());
+
+			// The policy only applies once every endpoint has shed it
+			assertTrue(limits.get(ap).acquire(Deadline.none()));
+
+			try {
+				sdk.getWorkspaces();
+				fail("Expected the request to be shed");
+			} catch (LoadShedException e) {
+				assertEquals(1, transport.hosts.size());
+				assertEquals(0, router.getHealth(WhispirEndPoints.AU).getSamples());
+				assertEquals(1, router.getHealth(WhispirEndPoints.AP).getSamples());
+			}
+		} finally {
+			sdk.close();
+		}
+	}
+
+	private static class StubTransport extends WhispirTransport {
+		final List<String> hosts = new CopyOnWriteArrayList<String>();
+
+		@Override
+		public CloseableHttpResponse execute(HttpHost target, HttpRequestBase request,
+				HttpClientContext context) throws IOException {
+			hosts.add(target.getHostName());
+
+			StubResponse response = new StubResponse();
+			response.setEntity(new StringEntity("{\"workspaces\":[]}", "UTF-8"));
+			return response;
+		}
+	}
+
+	private static class StubResponse extends BasicHttpResponse implements CloseableHttpResponse {
+
+		StubResponse() {
+			super(HttpVersion.HTTP_1_1, 200, "OK");
+		}
+
+		@Override
+		public void close() {
+			// Nothing to release
+		}
+	}
+}
@@ -0,0 +1,212 @@
+package com.whispir.sdk.bulkhead.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import com.whispir.sdk.Deadline;
+import com.whispir.sdk.WhispirResponse;
+import com.whispir.sdk.WhispirSDK;
+import com.whispir.sdk.WhispirSDKConstants;
+import com.whispir.sdk.bulkhead.Bulkhead;
+import com.whispir.sdk.bulkhead.Bulkheads;
+import com.whispir.sdk.bulkhead.RejectionPolicy;
+import com.whispir.sdk.exceptions.BulkheadFullException;
+import com.whispir.sdk.exceptions.DeadlineExceededException;
+import com.whispir.sdk.exceptions.WhispirSDKException;
+
+public class BulkheadTest {
+
+	@Test
+	public void testConcurrencyAndQueueAreBounded() throws Exception {
+		final Bulkhead bulkhead = new Bulkhead("test", 2, 1, 5000, RejectionPolicy.THROW);
+		final CountDownLatch release = new CountDownLatch(1);
+		ExecutorService executor = Executors.newCachedThreadPool();
+		List<Future<WhispirResponse>> calls = new ArrayList<Future<WhispirResponse>>();
+
+		for (int i = 0; i < 3; i++) {
+			calls.add(executor.submit(new Callable<WhispirResponse>() {
+				@Override
+				public WhispirResponse call() throws Exception {
+					return bulkhead.execute(Deadline.none(), new BlockingCall(release));
+				}
+			}));
+		}
+
+		waitFor(bulkhead, 2, 1);
+
+		try {
+			bulkhead.execute(Deadline.none(), new BlockingCall(release));
+			fail("Expected the bulkhead to be full");
+		} catch (BulkheadFullException e) {
+			assertEquals(1, bulkhead.getRejected());
+		}
+
+		// The queued call runs once a slot is free
+		release.countDown();
+
+		for (Future<WhispirResponse> call : calls) {
+			assertEquals(200, call.get(2, TimeUnit.SECONDS).getStatusCode());
+		}
+		assertEquals(0, bulkhead.getActive());
+		assertEquals(0, bulkhead.getQueued());
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testWaitIsBoundedByMaxWaitAndDeadline() throws Exception {
+		final Bulkhead bulkhead = new Bulkhead("test", 1, 10, 100, RejectionPolicy.RESPOND_429);
+		final CountDownLatch release = new CountDownLatch(1);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+
+		executor.submit(new Callable<WhispirResponse>() {
+			@Override
+			public WhispirResponse call() throws Exception {
+				return bulkhead.execute(Deadline.none(), new BlockingCall(release));
+			}
+		});
+		waitFor(bulkhead, 1, 0);
+
+		long start = System.nanoTime();
+		WhispirResponse response = bulkhead.execute(Deadline.none(), new BlockingCall(release));
+		long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+		assertEquals(429, response.getStatusCode());
+		assertTrue(elapsed >= 90 && elapsed < 1000);
+
+		try {
+			bulkhead.execute(Deadline.after(30), new BlockingCall(release));
+			fail("Expected the deadline to pass");
+		} catch (DeadlineExceededException e) {
+			assertEquals(1, bulkhead.getRejected());
+		}
+
+		release.countDown();
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testSlowReadsDoNotHoldUpSends() throws Exception {
+		final CountDownLatch release = new CountDownLatch(1);
+		HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		ExecutorService executor = Executors.newCachedThreadPool();
+
+		// Reads hang until the end of the test, sends are accepted at once
+		server.createContext("/", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				try {
+					InputStream in = exchange.getRequestBody();
+					while (in.read() >= 0) {
+						// discard
+					}
+
+					if ("GET".equals(exchange.getRequestMethod())) {
+						release.await();
+					}
+
+					byte[] body = "{}".getBytes("UTF-8");
+					exchange.sendResponseHeaders(202, body.length);
+					OutputStream out = exchange.getResponseBody();
+					out.write(body);
+					out.close();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} finally {
+					exchange.close();
+				}
+			}
+		});
+		server.setExecutor(executor);
+		server.start();
+
+		final WhispirSDK sdk = new WhispirSDK("apikey", "username", "password",
+				"http://127.0.0.1:" + server.getAddress().getPort());
+		final Bulkhead reads = new Bulkhead("message-reads", 2, 0, 0, RejectionPolicy.RESPOND_429);
+		Bulkhead messages = new Bulkhead("messages", 4);
+
+		sdk.setBulkheads(new Bulkheads()
+				.set(WhispirSDKConstants.MESSAGES_RESOURCE, messages)
+				.set(WhispirSDKConstants.MESSAGES_RESOURCE, "GET", reads));
+
+		try {
+			for (int i = 0; i < 2; i++) {
+				executor.submit(new Callable<WhispirResponse>() {
+					@Override
+					public WhispirResponse call() throws Exception {
+						return sdk.get(WhispirSDKConstants.MESSAGES_RESOURCE, "");
+					}
+				});
+			}
+			waitFor(reads, 2, 0);
+
+			// Further reads are turned away without touching the API
+			assertEquals(429, sdk.get(WhispirSDKConstants.MESSAGES_RESOURCE, "").getStatusCode());
+
+			long start = System.nanoTime();
+			WhispirResponse sent = sdk.post(WhispirSDKConstants.MESSAGES_RESOURCE, "", "{}");
+
+			assertEquals(202, sent.getStatusCode());
+			assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+			assertEquals(0, messages.getActive());
+			assertEquals(1, reads.getRejected());
+			assertEquals(6, sdk.getBulkheads().getTotalConcurrency());
+		} finally {
+			release.countDown();
+			sdk.close();
+			server.stop(0);
+			executor.shutdownNow();
+		}
+	}
+
+	private static void waitFor(Bulkhead bulkhead, int active, int queued) throws InterruptedException {
+		long until = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+
+		while (bulkhead.getActive() != active || bulkhead.getQueued() != queued) {
+			if (System.nanoTime() > until) {
+				fail("Bulkhead never reached " + active + " active and " + queued + " queued: " + bulkhead);
+			}
+			Thread.sleep(5);
+		}
+	}
+
+	private static class BlockingCall implements Bulkhead.Call {
+
+		private final CountDownLatch release;
+
+		BlockingCall(CountDownLatch release) {
+			this.release = release;
+		}
+
+		@Override
+		public WhispirResponse call() throws WhispirSDKException {
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+
+			WhispirResponse response = new WhispirResponse();
+			response.setStatusCode(200);
+			return response;
+		}
+	}
+}
@@ -0,0 +1,142 @@
+package com.whispir.sdk.callbacks.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.whispir.sdk.callbacks.CallbackEvent;
+import com.whispir.sdk.callbacks.CallbackListener;
+import com.whispir.sdk.callbacks.CallbackReceiver;
+
+public class CallbackReceiverTest {
+
+	private static final String KEY = "s3cret";
+
+	private static final String REPLY = "{\"messagelocation\":\"https://api.au.whispir.com/messages/ABC4857BCCF484575FCA\","
+			+ "\"from\":{\"name\":\"Fred Waters\",\"mobile\":\"61400000000\",\"email\":\"fred@example.com\"},"
+			+ "\"responseMessage\":{\"channel\":\"SMS\",\"acknowledged\":\"09/01/13 13:22\",\"content\":\"Yes, I accept\"},"
+			+ "\"customParameters\":{\"ticket\":\"42\"}}";
+
+	private static final String UNDELIVERABLE = "{\"messagelocation\":\"https://api.au.whispir.com/messages/DEF1\","
+			+ "\"from\":{\"name\":\"Fred Waters\",\"mobile\":\"61400000000\"},"
+			+ "\"responseMessage\":{\"channel\":\"SMS\",\"content\":\"Undeliverable\"}}";
+
+	private CallbackReceiver receiver;
+
+	@After
+	public void tearDown() {
+		if (receiver != null) {
+			receiver.close();
+		}
+	}
+
+	@Test
+	public void testCallbacksAreParsedAndDispatched() throws Exception {
+		final BlockingQueue<CallbackEvent> events = new LinkedBlockingQueue<CallbackEvent>();
+		receiver = start(100, new CallbackListener() {
+			@Override
+			public void onCallback(CallbackEvent event) {
+				events.add(event);
+			}
+		});
+
+		assertEquals(200, post("/callbacks?auth=" + KEY, null, REPLY));
+		assertEquals(200, post("/callbacks", KEY, UNDELIVERABLE));
+
+		CallbackEvent reply = events.poll(5, TimeUnit.SECONDS);
+		assertEquals(CallbackEvent.Type.REPLY, reply.getType());
+		assertEquals("ABC4857BCCF484575FCA", reply.getMessageId());
+		assertEquals("61400000000", reply.getFromMobile());
+		assertEquals("SMS", reply.getChannel());
+		assertEquals("Yes, I accept", reply.getContent());
+		assertEquals("42", reply.getCustomParameters().get("ticket"));
+
+		CallbackEvent undeliverable = events.poll(5, TimeUnit.SECONDS);
+		assertEquals(CallbackEvent.Type.UNDELIVERABLE, undeliverable.getType());
+		assertEquals("DEF1", undeliverable.getMessageId());
+	}
+
+	@Test
+	public void testRequestsWithoutTheKeyOrValidJsonAreRefused() throws Exception {
+		receiver = start(100, null);
+
+		assertEquals(401, post("/callbacks", null, REPLY));
+		assertEquals(401, post("/callbacks?auth=wrong", null, REPLY));
+		assertEquals(400, post("/callbacks?auth=" + KEY, null, "not json"));
+
+		assertEquals(2, receiver.getUnauthorised());
+		assertEquals(1, receiver.getMalformed());
+		assertEquals(0, receiver.getAccepted());
+	}
+
+	@Test
+	public void testFullQueueIsRefusedWithServiceUnavailable() throws Exception {
+		final CountDownLatch release = new CountDownLatch(1);
+		receiver = start(1, new CallbackListener() {
+			@Override
+			public void onCallback(CallbackEvent event) {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+
+		// The first is taken by the blocked listener, the second fills the queue
+		assertEquals(200, post("/callbacks?auth=" + KEY, null, REPLY));
+		Thread.sleep(200);
+		assertEquals(200, post("/callbacks?auth=" + KEY, null, REPLY));
+		assertEquals(503, post("/callbacks?auth=" + KEY, null, REPLY));
+		assertEquals(1, receiver.getRefused());
+
+		release.countDown();
+		Thread.sleep(200);
+		assertEquals(2, receiver.getDispatched());
+		assertTrue(receiver.getQueued() == 0);
+	}
+
+	private static CallbackReceiver start(int capacity, CallbackListener listener) throws IOException {
+		CallbackReceiver receiver = new CallbackReceiver(0, KEY);
+		receiver.setQueueCapacity(capacity);
+
+		if (listener != null) {
+			receiver.addListener(listener);
+		}
+
+		receiver.start();
+		return receiver;
+	}
+
+	private int post(String path, String headerKey, String payload) throws IOException {
+		URL url = new URL("http://127.0.0.1:" + receiver.getPort() + path);
+		HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+
+		connection.setRequestMethod("POST");
+		connection.setDoOutput(true);
+		connection.setRequestProperty("Content-Type", "application/json");
+
+		if (headerKey != null) {
+			connection.setRequestProperty(CallbackReceiver.AUTH_HEADER, headerKey);
+		}
+
+		OutputStream out = connection.getOutputStream();
+		out.write(payload.getBytes("UTF-8"));
+		out.close();
+
+		int status = connection.getResponseCode();
+		connection.disconnect();
+		return status;
+	}
+}
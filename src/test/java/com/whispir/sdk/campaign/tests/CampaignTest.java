@@ -0,0 +1,332 @@
+package com.whispir.sdk.campaign.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import com.whispir.sdk.WhispirResponse;
+import com.whispir.sdk.WhispirSDK;
+import com.whispir.sdk.campaign.Campaign;
+import com.whispir.sdk.campaign.CampaignStatus;
+import com.whispir.sdk.campaign.MessageTemplate;
+import com.whispir.sdk.campaign.Outcome;
+import com.whispir.sdk.exceptions.WhispirSDKException;
+import com.whispir.sdk.tests.StubSDK;
+
+public class CampaignTest {
+
+	@Test
+	public void testCampaignSendsAtTheTargetRate() throws Exception {
+		File progress = newProgressFile();
+		SendingSDK sdk = new SendingSDK(0);
+
+		List<Map<String, String>> rows = rows(40);
+		rows.set(5, Collections.singletonMap("recipient", "invalid"));
+		rows.set(6, Collections.singletonMap("nickname", "No recipient column"));
+		rows.set(7, row("+61400000007", null));
+
+		try {
+			long start = System.nanoTime();
+			Campaign campaign = new Campaign(sdk, rows.iterator(), template(), progress).setRate(100)
+					.setConcurrency(4);
+			campaign.start();
+			assertTrue(campaign.await(5, TimeUnit.SECONDS));
+			long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+			CampaignStatus status = campaign.getStatus();
+			assertEquals(Campaign.State.COMPLETED, status.getState());
+			assertEquals(40, status.getRows());
+			assertEquals(37, status.getCount(Outcome.SENT));
+			assertEquals(3, status.getCount(Outcome.REJECTED));
+			assertEquals(0, status.getCount(Outcome.ERROR));
+
+			// 36 sends at 100 a second, the first one at once
+			assertTrue("Took " + elapsed + " ms", elapsed >= 300);
+			assertEquals("Reminder for Recipient 3", sdk.subjects.get("+61400000003"));
+
+			// Rows are only sent once
+			for (AtomicInteger count : sdk.sends.values()) {
+				assertEquals(1, count.get());
+			}
+		} finally {
+			progress.delete();
+		}
+	}
+
+	@Test
+	public void testCancelledCampaignResumesWhereItStopped() throws Exception {
+		File progress = newProgressFile();
+		SendingSDK sdk = new SendingSDK(0);
+
+		try {
+			Campaign first = new Campaign(sdk, rows(100).iterator(), template(), progress).setRate(200)
+					.setConcurrency(2);
+			first.start();
+
+			while (sdk.total.get() < 20) {
+				Thread.sleep(5);
+			}
+			first.cancel();
+			assertTrue(first.await(5, TimeUnit.SECONDS));
+			assertEquals(Campaign.State.CANCELLED, first.getState());
+
+			long sentBefore = first.getStatus().getCount(Outcome.SENT);
+			assertTrue(sentBefore >= 20 && sentBefore < 100);
+
+			Campaign second = new Campaign(sdk, rows(100).iterator(), template(), progress).setRate(0);
+			second.start();
+			assertTrue(second.await(5, TimeUnit.SECONDS));
+
+			CampaignStatus status = second.getStatus();
+			assertEquals(Campaign.State.COMPLETED, status.getState());
+			assertEquals(sentBefore, status.getResumed());
+			assertEquals(100, status.getCount(Outcome.SENT));
+			assertEquals(100, sdk.total.get());
+			assertEquals(100, sdk.sends.size());
+
+			// A progress file only resumes the same message
+			Map<String, String> content = new HashMap<String, String>();
+			content.put("body", "Something else");
+
+			try {
+				new Campaign(sdk, rows(100).iterator(), new MessageTemplate("", "Reminder", content),
+						progress).start();
+				fail("Expected a different message to be refused");
+			} catch (IOException e) {
+				assertTrue(e.getMessage().contains("different message"));
+			}
+		} finally {
+			progress.delete();
+		}
+	}
+
+	@Test
+	public void testPauseResumeAndRetries() throws Exception {
+		File progress = newProgressFile();
+
+		// Every recipient is refused once as unavailable
+		SendingSDK sdk = new SendingSDK(1);
+
+		try {
+			Campaign campaign = new Campaign(sdk, rows(6).iterator(), template(), progress).setRate(0)
+					.setConcurrency(2).setCheckpointInterval(50);
+			campaign.start();
+			campaign.pause();
+
+			Thread.sleep(200);
+			assertTrue(sdk.total.get() <= 2);
+
+			campaign.resume();
+			assertTrue(campaign.await(10, TimeUnit.SECONDS));
+
+			CampaignStatus status = campaign.getStatus();
+			assertEquals(6, status.getCount(Outcome.SENT));
+			assertEquals(12, sdk.total.get());
+		} finally {
+			progress.delete();
+		}
+	}
+
+	@Test
+	public void testSendsWithoutAResponseAreNotRetried() throws Exception {
+		File progress = newProgressFile();
+		final AtomicInteger requests = new AtomicInteger();
+		final AtomicBoolean slow = new AtomicBoolean(true);
+		HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		ExecutorService serverExecutor = Executors.newCachedThreadPool();
+
+		// Takes the message, then answers after the SDK has stopped waiting
+		server.createContext("/", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				try {
+					InputStream in = exchange.getRequestBody();
+					while (in.read() >= 0) {
+						// discard
+					}
+					requests.incrementAndGet();
+
+					if (slow.get()) {
+						Thread.sleep(1000);
+					}
+
+					exchange.sendResponseHeaders(202, -1);
+					OutputStream out = exchange.getResponseBody();
+					out.close();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} finally {
+					exchange.close();
+				}
+			}
+		});
+		server.setExecutor(serverExecutor);
+		server.start();
+
+		WhispirSDK sdk = new WhispirSDK("apikey", "username", "password",
+				"http://127.0.0.1:" + server.getAddress().getPort());
+		sdk.setConfig(sdk.getConfig().toBuilder().setSocketTimeout(200).build());
+
+		try {
+			Campaign first = new Campaign(sdk, rows(2).iterator(), template(), progress).setRate(0)
+					.setMaxAttempts(3);
+			first.start();
+			assertTrue(first.await(10, TimeUnit.SECONDS));
+
+			CampaignStatus status = first.getStatus();
+			assertEquals(Campaign.State.COMPLETED, status.getState());
+			assertEquals(2, status.getCount(Outcome.UNKNOWN));
+			assertEquals(0, status.getCount(Outcome.ERROR));
+			assertEquals(2, requests.get());
+
+			// Left alone when resumed unless asked for
+			Campaign second = new Campaign(sdk, rows(2).iterator(), template(), progress);
+			second.start();
+			assertTrue(second.await(5, TimeUnit.SECONDS));
+			assertEquals(2, second.getStatus().getCount(Outcome.UNKNOWN));
+			assertEquals(2, requests.get());
+
+			slow.set(false);
+			Campaign third = new Campaign(sdk, rows(2).iterator(), template(), progress).setResendUnknown(true);
+			third.start();
+			assertTrue(third.await(5, TimeUnit.SECONDS));
+			assertEquals(2, third.getStatus().getCount(Outcome.SENT));
+			assertEquals(4, requests.get());
+		} finally {
+			sdk.close();
+			server.stop(0);
+			serverExecutor.shutdownNow();
+			progress.delete();
+		}
+	}
+
+	@Test
+	public void testGatewayErrorsAreNotRetried() throws Exception {
+		File progress = newProgressFile();
+		final AtomicInteger requests = new AtomicInteger();
+
+		// The gateway may have passed the message on before failing
+		StubSDK sdk = new StubSDK() {
+			@Override
+			public WhispirResponse sendMessage(String workspaceId, String recipient,
+					String subject, Map<String, String> content,
+					Map<String, String> options) throws WhispirSDKException {
+				requests.incrementAndGet();
+				return response(502, null);
+			}
+		};
+
+		try {
+			Campaign campaign = new Campaign(sdk, rows(3).iterator(), template(), progress).setRate(0);
+			campaign.start();
+			assertTrue(campaign.await(5, TimeUnit.SECONDS));
+			assertEquals(3, campaign.getStatus().getCount(Outcome.UNKNOWN));
+			assertEquals(3, requests.get());
+		} finally {
+			progress.delete();
+		}
+	}
+
+	@Test
+	public void testCheckpointsDuringTheLastSendsDoNotFailTheCampaign() throws Exception {
+		SendingSDK sdk = new SendingSDK(0);
+
+		for (int run = 0; run < 100; run++) {
+			File progress = newProgressFile();
+
+			try {
+				Campaign campaign = new Campaign(sdk, rows(20).iterator(), template(), progress).setRate(0)
+						.setConcurrency(4).setCheckpointInterval(1);
+				campaign.start();
+				assertTrue(campaign.await(5, TimeUnit.SECONDS));
+
+				CampaignStatus status = campaign.getStatus();
+				assertEquals("Run " + run + ": " + status.getError(), Campaign.State.COMPLETED,
+						status.getState());
+				assertEquals(20, status.getCount(Outcome.SENT));
+			} finally {
+				progress.delete();
+			}
+		}
+	}
+
+	private static File newProgressFile() throws IOException {
+		File progress = File.createTempFile("campaign", ".progress");
+		progress.delete();
+		return progress;
+	}
+
+	private static MessageTemplate template() {
+		Map<String, String> content = new HashMap<String, String>();
+		content.put("body", "Hi {{name}}, see you soon");
+		return new MessageTemplate("", "Reminder for {{name}}", content);
+	}
+
+	private static List<Map<String, String>> rows(int count) {
+		List<Map<String, String>> rows = new ArrayList<Map<String, String>>();
+
+		for (int i = 0; i < count; i++) {
+			rows.add(row(String.format("+614%08d", i), "Recipient " + i));
+		}
+		return rows;
+	}
+
+	private static Map<String, String> row(String recipient, String name) {
+		Map<String, String> row = new HashMap<String, String>();
+		row.put("recipient", recipient);
+
+		if (name != null) {
+			row.put("name", name);
+		}
+		return row;
+	}
+
+	private static class SendingSDK extends StubSDK {
+		final Map<String, AtomicInteger> sends = new ConcurrentHashMap<String, AtomicInteger>();
+		final Map<String, String> subjects = new ConcurrentHashMap<String, String>();
+		final AtomicInteger total = new AtomicInteger();
+		private final int failures;
+
+		SendingSDK(int failures) throws WhispirSDKException {
+			this.failures = failures;
+		}
+
+		@Override
+		public WhispirResponse sendMessage(String workspaceId, String recipient,
+				String subject, Map<String, String> content,
+				Map<String, String> options) throws WhispirSDKException {
+			total.incrementAndGet();
+			subjects.put(recipient, subject);
+
+			AtomicInteger count = sends.get(recipient);
+			if (count == null) {
+				sends.put(recipient, count = new AtomicInteger());
+			}
+
+			return response("invalid".equals(recipient) ? 422
+					: count.incrementAndGet() <= failures ? 503 : 202, null);
+		}
+	}
+}
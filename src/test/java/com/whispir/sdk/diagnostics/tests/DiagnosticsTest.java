@@ -0,0 +1,200 @@
+package com.whispir.sdk.diagnostics.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import com.whispir.sdk.WhispirSDK;
+import com.whispir.sdk.WhispirSDKConstants;
+import com.whispir.sdk.diagnostics.DiagnosticEvent;
+import com.whispir.sdk.diagnostics.DiagnosticSink;
+import com.whispir.sdk.diagnostics.Diagnostics;
+import com.whispir.sdk.diagnostics.Level;
+
+public class DiagnosticsTest {
+
+	@Test
+	public void testLoggingNeverWaitsForSlowSinks() throws Exception {
+		final CountDownLatch release = new CountDownLatch(1);
+		CollectingSink sink = new CollectingSink(release);
+		Diagnostics diagnostics = new Diagnostics(4).addSink(sink);
+
+		long start = System.nanoTime();
+
+		for (int i = 0; i < 100; i++) {
+			diagnostics.log(Level.WARN, "test", "Event " + i);
+		}
+
+		// The sink is stuck on the first event, the rest are dropped once the
+		// ring is full
+		assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 500);
+		assertTrue(diagnostics.getDropped() >= 100 - 5);
+		assertEquals(100, diagnostics.getAccepted() + diagnostics.getDropped());
+
+		release.countDown();
+		assertTrue(diagnostics.flush(2000));
+		assertEquals(diagnostics.getAccepted(), sink.events.size());
+		assertEquals("Event 0", sink.events.get(0).getMessage());
+		diagnostics.close();
+	}
+
+	@Test
+	public void testSecretsAreRedacted() throws Exception {
+		CollectingSink sink = new CollectingSink(null);
+		Diagnostics diagnostics = new Diagnostics().addSink(sink);
+
+		diagnostics.log(Level.WARN, "test", "GET https://api.whispir.com/messages?apikey=s3cr3t&view=detailed",
+				Diagnostics.fields("password", "hunter2", "header", "Authorization: Basic dXNlcjpwYXNz",
+						"json", "{\"apiKey\": \"abc123\"}"), null);
+		assertTrue(diagnostics.flush(2000));
+
+		DiagnosticEvent event = sink.events.get(0);
+		assertEquals("GET https://api.whispir.com/messages?apikey=***&view=detailed", event.getMessage());
+		assertEquals("***", event.getFields().get("password"));
+		assertEquals("Authorization: Basic ***", event.getFields().get("header"));
+		assertEquals("{\"apiKey\": \"***\"}", event.getFields().get("json"));
+		diagnostics.close();
+	}
+
+	@Test
+	public void testLevelAndSampling() throws Exception {
+		CollectingSink sink = new CollectingSink(null);
+		Diagnostics diagnostics = new Diagnostics().addSink(sink);
+
+		assertFalse(diagnostics.isEnabled(Level.DEBUG, Diagnostics.REQUEST));
+		diagnostics.log(Level.DEBUG, "test", "Below the level");
+
+		diagnostics.setSampleRate("sampled", 0.25);
+		diagnostics.setSampleRate("never", 0);
+		assertFalse(diagnostics.isEnabled(Level.ERROR, "never"));
+
+		for (int i = 0; i < 2000; i++) {
+			diagnostics.log(Level.INFO, "sampled", "Sampled");
+			diagnostics.log(Level.ERROR, "never", "Never");
+		}
+		assertTrue(diagnostics.flush(2000));
+
+		int sampled = sink.events.size();
+		assertTrue(sampled > 350 && sampled < 650);
+		assertEquals(2000 - sampled, diagnostics.getSampledOut());
+		diagnostics.close();
+
+		assertFalse(Diagnostics.off().isEnabled(Level.ERROR, "test"));
+	}
+
+	@Test
+	public void testSdkLogsSlowRequestsAndConnectionErrors() throws Exception {
+		HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		ExecutorService executor = Executors.newCachedThreadPool();
+
+		// Workspaces are slow, everything else is fast
+		server.createContext("/", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				try {
+					InputStream in = exchange.getRequestBody();
+					while (in.read() >= 0) {
+						// discard
+					}
+
+					if (exchange.getRequestURI().getPath().contains("workspaces")) {
+						Thread.sleep(300);
+					}
+
+					byte[] body = "{}".getBytes("UTF-8");
+					exchange.sendResponseHeaders(200, body.length);
+					OutputStream out = exchange.getResponseBody();
+					out.write(body);
+					out.close();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} finally {
+					exchange.close();
+				}
+			}
+		});
+		server.setExecutor(executor);
+		server.start();
+
+		CollectingSink sink = new CollectingSink(null);
+		Diagnostics diagnostics = new Diagnostics().addSink(sink).setSlowRequestThreshold(200);
+		WhispirSDK sdk = new WhispirSDK("s3cr3t", "username", "password",
+				"http://127.0.0.1:" + server.getAddress().getPort());
+		sdk.setDiagnostics(diagnostics);
+
+		try {
+			sdk.get(WhispirSDKConstants.MESSAGES_RESOURCE, "");
+			sdk.get(WhispirSDKConstants.WORKSPACES_RESOURCE, "");
+			assertTrue(diagnostics.flush(2000));
+
+			assertEquals(1, sink.events.size());
+			DiagnosticEvent slow = sink.events.get(0);
+			assertEquals(Diagnostics.SLOW_REQUEST, slow.getType());
+			assertEquals("GET", slow.getFields().get("method"));
+			assertEquals("200", slow.getFields().get("status"));
+			assertTrue(slow.getFields().get("url").contains("/workspaces"));
+			assertTrue(slow.getFields().get("url").endsWith("apikey=***"));
+			assertTrue(Long.parseLong(slow.getFields().get("elapsedMillis")) >= 300);
+
+			// A port nothing listens on
+			ServerSocket socket = new ServerSocket(0);
+			int closedPort = socket.getLocalPort();
+			socket.close();
+			sdk.setDebugHost("http://127.0.0.1:" + closedPort);
+
+			assertEquals(0, sdk.get(WhispirSDKConstants.MESSAGES_RESOURCE, "").getStatusCode());
+			assertTrue(diagnostics.flush(2000));
+
+			DiagnosticEvent failed = sink.events.get(1);
+			assertEquals(Diagnostics.CONNECTION_FAILED, failed.getType());
+			assertEquals(Level.WARN, failed.getLevel());
+			assertNotNull(failed.getError());
+			assertFalse(failed.getFields().get("url").contains("s3cr3t"));
+		} finally {
+			sdk.close();
+			diagnostics.close();
+			server.stop(0);
+			executor.shutdownNow();
+		}
+	}
+
+	private static class CollectingSink implements DiagnosticSink {
+
+		final List<DiagnosticEvent> events = new CopyOnWriteArrayList<DiagnosticEvent>();
+		private final CountDownLatch release;
+
+		CollectingSink(CountDownLatch release) {
+			this.release = release;
+		}
+
+		@Override
+		public void accept(DiagnosticEvent event) {
+			if (release != null) {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			events.add(event);
+		}
+	}
+}
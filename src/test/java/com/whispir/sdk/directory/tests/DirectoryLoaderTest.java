@@ -0,0 +1,205 @@
+package com.whispir.sdk.directory.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.whispir.sdk.WhispirResponse;
+import com.whispir.sdk.directory.Directory;
+import com.whispir.sdk.directory.DirectoryLoader;
+import com.whispir.sdk.exceptions.WhispirSDKException;
+import com.whispir.sdk.tests.StubSDK;
+
+public class DirectoryLoaderTest {
+
+	private File snapshot;
+
+	@After
+	public void tearDown() {
+		if (snapshot != null) {
+			snapshot.delete();
+		}
+	}
+
+	@Test
+	public void testWorkspacesAreCrawledInParallel() throws Exception {
+		DirectorySDK sdk = new DirectorySDK(20);
+		sdk.delay = 20;
+		DirectoryLoader loader = new DirectoryLoader(sdk, null, 4);
+
+		Directory directory = loader.load();
+
+		assertEquals(20, directory.getWorkspaces().size());
+		assertEquals("WS7", directory.getWorkspaceId("Workspace 7"));
+		assertEquals("Workspace 7", directory.getWorkspaceName("WS7"));
+		assertEquals("WS7-S1", directory.getScenarioId("WS7", "Scenario 1"));
+		assertEquals("Scenario 1", directory.getScenarioName("WS7", "WS7-S1"));
+		assertEquals("-S0", directory.getScenarioId("", "Scenario 0"));
+		assertEquals(42, directory.getScenarioCount());
+		assertNull(directory.getWorkspaceId("Missing"));
+
+		assertEquals(4, sdk.getMaxConcurrent());
+		loader.close();
+	}
+
+	@Test
+	public void testSnapshotIsLoadedAtOnceAndRefreshedInTheBackground() throws Exception {
+		snapshot = File.createTempFile("whispir-directory", ".bin");
+		snapshot.delete();
+
+		DirectorySDK sdk = new DirectorySDK(3);
+		DirectoryLoader first = new DirectoryLoader(sdk, snapshot);
+		Directory crawled = first.load();
+		first.close();
+		assertTrue(snapshot.isFile());
+
+		// The next start answers from the snapshot while the crawl is held up
+		DirectorySDK restarted = new DirectorySDK(4);
+		restarted.hold = new CountDownLatch(1);
+		DirectoryLoader second = new DirectoryLoader(restarted, snapshot);
+
+		Directory loaded = second.load();
+		assertEquals(crawled, loaded);
+		assertEquals("WS2", loaded.getWorkspaceId("Workspace 2"));
+		assertNull(loaded.getWorkspaceId("Workspace 3"));
+
+		restarted.hold.countDown();
+		Directory refreshed = second.refreshInBackground().get(5, TimeUnit.SECONDS);
+
+		assertEquals("WS3", refreshed.getWorkspaceId("Workspace 3"));
+		assertSame(refreshed, second.getDirectory());
+		second.close();
+
+		// The refresh was saved
+		DirectoryLoader third = new DirectoryLoader(new DirectorySDK(0), snapshot);
+		assertEquals(refreshed, third.load());
+		third.close();
+	}
+
+	@Test
+	public void testFailedWorkspacesKeepTheirPreviousScenarios() throws Exception {
+		DirectorySDK sdk = new DirectorySDK(3);
+		DirectoryLoader loader = new DirectoryLoader(sdk, null);
+		loader.load();
+
+		sdk.failing.add("WS1");
+		sdk.failing.add("WS2");
+		sdk.scenarios = 3;
+		loader.setScenarioMaxAge(0);
+		Directory refreshed = loader.refresh();
+
+		assertEquals(2, loader.getLastFailures());
+		assertEquals(3, refreshed.getScenarios("WS0").size());
+		assertEquals(2, refreshed.getScenarios("WS1").size());
+		assertTrue(refreshed.hasScenarios("WS2"));
+		loader.close();
+
+		// Without a previous directory the workspace is left out
+		DirectoryLoader fresh = new DirectoryLoader(sdk, null);
+		Directory partial = fresh.load();
+		assertFalse(partial.hasScenarios("WS1"));
+		assertTrue(partial.getScenarios("WS1").isEmpty());
+		fresh.close();
+	}
+
+	@Test
+	public void testRefreshListsOnlyNewAndStaleWorkspaces() throws Exception {
+		DirectorySDK sdk = new DirectorySDK(5);
+		DirectoryLoader loader = new DirectoryLoader(sdk, null);
+		loader.load();
+		assertEquals(6, sdk.listed.get());
+		assertEquals(6, loader.getLastListed());
+
+		// Nothing is stale yet, so only the new workspace is listed
+		sdk.workspaces = 6;
+		sdk.scenarios = 3;
+		Directory refreshed = loader.refresh();
+
+		assertEquals(7, sdk.listed.get());
+		assertEquals(1, loader.getLastListed());
+		assertEquals(3, refreshed.getScenarios("WS5").size());
+		assertEquals(2, refreshed.getScenarios("WS0").size());
+		assertTrue(refreshed.getScenariosLoadedAt("WS5") >= refreshed.getScenariosLoadedAt("WS0"));
+
+		// Once stale, all of them are
+		loader.setScenarioMaxAge(0);
+		refreshed = loader.refresh();
+
+		assertEquals(14, sdk.listed.get());
+		assertEquals(3, refreshed.getScenarios("WS0").size());
+		loader.close();
+	}
+
+	private static class DirectorySDK extends StubSDK {
+
+		volatile int workspaces;
+		volatile int scenarios = 2;
+		volatile long delay;
+		volatile CountDownLatch hold;
+		final AtomicInteger listed = new AtomicInteger();
+		final Set<String> failing = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+		DirectorySDK(int workspaces) throws WhispirSDKException {
+			this.workspaces = workspaces;
+		}
+
+		@Override
+		public WhispirResponse getWorkspaces() throws WhispirSDKException {
+			await();
+			Map<String, String> map = new TreeMap<String, String>();
+
+			for (int i = 0; i < workspaces; i++) {
+				map.put("Workspace " + i, "WS" + i);
+			}
+			return response(200, map);
+		}
+
+		@Override
+		public WhispirResponse getScenarios(String workspaceId) throws WhispirSDKException {
+			listed.incrementAndGet();
+			enter();
+			if (delay > 0) {
+				pause(delay);
+			}
+			exit();
+
+			if (failing.contains(workspaceId)) {
+				return response(500, null);
+			}
+
+			Map<String, String> map = new TreeMap<String, String>();
+
+			for (int i = 0; i < scenarios; i++) {
+				map.put("Scenario " + i, workspaceId + "-S" + i);
+			}
+			return response(200, map);
+		}
+
+		private void await() {
+			CountDownLatch latch = hold;
+
+			if (latch != null) {
+				try {
+					latch.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+	}
+}
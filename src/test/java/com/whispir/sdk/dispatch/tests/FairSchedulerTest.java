@@ -0,0 +1,155 @@
+package com.whispir.sdk.dispatch.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.whispir.sdk.dispatch.FairScheduler;
+import com.whispir.sdk.dispatch.RateLimiter;
+
+public class FairSchedulerTest {
+
+	private FairScheduler<String> scheduler;
+	private List<String> order;
+	private CountDownLatch gate;
+
+	@Before
+	public void setUp() throws Exception {
+		scheduler = new FairScheduler<String>("test", 1);
+		order = Collections.synchronizedList(new ArrayList<String>());
+		gate = new CountDownLatch(1);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		scheduler.shutdown();
+	}
+
+	@Test
+	public void testQuietQueueIsNotStarvedByBacklog() throws InterruptedException {
+		scheduler.register("bulk", 1, null, 1000);
+		scheduler.register("urgent", 1, null, 1000);
+
+		blockWorker("bulk");
+
+		for (int i = 0; i < 100; i++) {
+			scheduler.submit("bulk", record("bulk"));
+		}
+		CountDownLatch done = new CountDownLatch(1);
+		scheduler.submit("urgent", record("urgent", done));
+
+		gate.countDown();
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+
+		// The urgent task runs after at most one more bulk task
+		assertTrue(order.indexOf("urgent") <= 1);
+	}
+
+	@Test
+	public void testWeightedShare() throws InterruptedException {
+		scheduler.register("heavy", 3, null, 1000);
+		scheduler.register("light", 1, null, 1000);
+
+		blockWorker("heavy");
+
+		for (int i = 0; i < 20; i++) {
+			scheduler.submit("heavy", record("heavy"));
+			scheduler.submit("light", record("light"));
+		}
+		CountDownLatch done = new CountDownLatch(1);
+		scheduler.submit("light", record("end", done));
+
+		gate.countDown();
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+
+		int heavy = Collections.frequency(order.subList(0, 8), "heavy");
+		assertEquals(6, heavy);
+	}
+
+	@Test
+	public void testFullQueueIsRejected() throws InterruptedException {
+		scheduler.register("small", 1, null, 1);
+
+		blockWorker("small");
+		scheduler.submit("small", record("small"));
+
+		try {
+			scheduler.submit("small", record("small"));
+			assertTrue(false);
+		} catch (RejectedExecutionException e) {
+			assertEquals(1, scheduler.getQueued("small"));
+		} finally {
+			gate.countDown();
+		}
+	}
+
+	@Test
+	public void testRateLimitedQueueDoesNotBlockOthers() throws InterruptedException {
+		scheduler.register("limited", 1, new RateLimiter(0.1, 1), 1000);
+		scheduler.register("open", 1, null, 1000);
+
+		// Uses the only permit of the limited queue
+		scheduler.submit("limited", record("limited"));
+		scheduler.submit("limited", record("limited"));
+
+		CountDownLatch done = new CountDownLatch(1);
+		scheduler.submit("open", record("open", done));
+
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		assertEquals(1, scheduler.getQueued("limited"));
+	}
+
+	@Test
+	public void testRateLimiter() {
+		RateLimiter limiter = new RateLimiter(1, 2);
+
+		assertTrue(limiter.tryAcquire());
+		assertTrue(limiter.tryAcquire());
+		assertFalse(limiter.tryAcquire());
+		assertTrue(limiter.nanosUntilAvailable() > 0);
+	}
+
+	private void blockWorker(String key) throws InterruptedException {
+		final CountDownLatch started = new CountDownLatch(1);
+
+		scheduler.submit(key, new Runnable() {
+			@Override
+			public void run() {
+				started.countDown();
+				try {
+					gate.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+		started.await();
+	}
+
+	private Runnable record(String name) {
+		return record(name, null);
+	}
+
+	private Runnable record(final String name, final CountDownLatch done) {
+		return new Runnable() {
+			@Override
+			public void run() {
+				order.add(name);
+				if (done != null) {
+					done.countDown();
+				}
+			}
+		};
+	}
+}
@@ -0,0 +1,123 @@
+package com.whispir.sdk.dispatch.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.whispir.sdk.dispatch.Priority;
+import com.whispir.sdk.dispatch.PriorityDispatcher;
+
+public class PriorityDispatcherTest {
+
+	private PriorityDispatcher dispatcher;
+	private final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+	private final CountDownLatch gate = new CountDownLatch(1);
+
+	@After
+	public void tearDown() throws Exception {
+		gate.countDown();
+		if (dispatcher != null) {
+			dispatcher.shutdown();
+		}
+	}
+
+	@Test
+	public void testStrictOrder() throws Exception {
+		dispatcher = new PriorityDispatcher(1);
+
+		blockWorker(Priority.BULK);
+
+		for (int i = 0; i < 50; i++) {
+			dispatcher.submit(Priority.BULK, record("bulk"));
+		}
+		dispatcher.submit(Priority.NORMAL, record("normal"));
+		Future<String> critical = dispatcher.submit(Priority.CRITICAL, record("critical"));
+
+		gate.countDown();
+		critical.get(5, TimeUnit.SECONDS);
+		dispatcher.submit(Priority.BULK, record("end")).get(5, TimeUnit.SECONDS);
+
+		assertEquals("critical", order.get(0));
+		assertEquals("normal", order.get(1));
+		assertEquals("bulk", order.get(2));
+	}
+
+	@Test
+	public void testReservedWorkerRunsCriticalImmediately() throws Exception {
+		dispatcher = new PriorityDispatcher(2);
+		dispatcher.setReservedConcurrency(Priority.CRITICAL, 1);
+
+		// The only shared worker is busy, with a backlog behind it
+		blockWorker(Priority.BULK);
+		for (int i = 0; i < 1000; i++) {
+			dispatcher.submit(Priority.BULK, record("bulk"));
+		}
+
+		Future<String> critical = dispatcher.submit(Priority.CRITICAL, record("critical"));
+
+		assertEquals("critical", critical.get(1, TimeUnit.SECONDS));
+		assertEquals(1000, dispatcher.getQueued(Priority.BULK));
+	}
+
+	@Test
+	public void testWeightedModeServesLowerLanes() throws Exception {
+		dispatcher = new PriorityDispatcher(1);
+		dispatcher.setMode(PriorityDispatcher.Mode.WEIGHTED);
+		dispatcher.setWeight(Priority.CRITICAL, 1);
+		dispatcher.setWeight(Priority.BULK, 1);
+
+		blockWorker(Priority.BULK);
+
+		for (int i = 0; i < 10; i++) {
+			dispatcher.submit(Priority.CRITICAL, record("critical"));
+			dispatcher.submit(Priority.BULK, record("bulk"));
+		}
+
+		gate.countDown();
+		dispatcher.submit(Priority.BULK, record("end")).get(5, TimeUnit.SECONDS);
+
+		// Equal weights alternate, allowing for the blocked task's turn
+		int bulk = Collections.frequency(order.subList(0, 10), "bulk");
+		assertTrue(bulk >= 4 && bulk <= 5);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testReservationMustLeaveSharedWorker() {
+		dispatcher = new PriorityDispatcher(2);
+		dispatcher.setReservedConcurrency(Priority.CRITICAL, 2);
+	}
+
+	private void blockWorker(Priority priority) throws InterruptedException {
+		final CountDownLatch started = new CountDownLatch(1);
+
+		dispatcher.submit(priority, new Callable<String>() {
+			@Override
+			public String call() throws Exception {
+				started.countDown();
+				gate.await();
+				return "blocked";
+			}
+		});
+		started.await();
+	}
+
+	private Callable<String> record(final String name) {
+		return new Callable<String>() {
+			@Override
+			public String call() {
+				order.add(name);
+				return name;
+			}
+		};
+	}
+}
@@ -0,0 +1,260 @@
+package com.whispir.sdk.dispatch.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import com.whispir.sdk.Deadline;
+import com.whispir.sdk.WhispirResponse;
+import com.whispir.sdk.WhispirSDK;
+import com.whispir.sdk.bulkhead.Bulkhead;
+import com.whispir.sdk.dispatch.SingleFlight;
+import com.whispir.sdk.exceptions.DeadlineExceededException;
+import com.whispir.sdk.exceptions.WhispirSDKException;
+
+public class SingleFlightTest {
+
+	@Test
+	public void testConcurrentGetsShareOneRequest() throws Exception {
+		final AtomicInteger requests = new AtomicInteger();
+		HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		ExecutorService serverExecutor = Executors.newCachedThreadPool();
+
+		server.createContext("/", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				try {
+					InputStream in = exchange.getRequestBody();
+					while (in.read() >= 0) {
+						// discard
+					}
+
+					requests.incrementAndGet();
+					Thread.sleep(300);
+
+					byte[] body = ("{\"workspaces\":[{\"projectName\":\"Operations\",\"link\":[{\"uri\":"
+							+ "\"https://api.whispir.com/workspaces/ABC123?apikey=x\"}]}]}").getBytes("UTF-8");
+					exchange.sendResponseHeaders(200, body.length);
+					OutputStream out = exchange.getResponseBody();
+					out.write(body);
+					out.close();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} finally {
+					exchange.close();
+				}
+			}
+		});
+		server.setExecutor(serverExecutor);
+		server.start();
+
+		final WhispirSDK sdk = new WhispirSDK("apikey", "username", "password",
+				"http://127.0.0.1:" + server.getAddress().getPort());
+		SingleFlight singleFlight = new SingleFlight();
+		sdk.setSingleFlight(singleFlight);
+
+		ExecutorService callers = Executors.newFixedThreadPool(40);
+		final CountDownLatch start = new CountDownLatch(1);
+
+		try {
+			List<Future<WhispirResponse>> calls = new ArrayList<Future<WhispirResponse>>();
+
+			for (int i = 0; i < 40; i++) {
+				calls.add(callers.submit(new Callable<WhispirResponse>() {
+					@Override
+					public WhispirResponse call() throws Exception {
+						start.await();
+						return sdk.getWorkspaces();
+					}
+				}));
+			}
+			start.countDown();
+
+			WhispirResponse first = calls.get(0).get();
+
+			for (Future<WhispirResponse> call : calls) {
+				WhispirResponse response = call.get();
+				assertEquals(200, response.getStatusCode());
+				assertEquals("ABC123", response.getResponse().get("Operations"));
+
+				if (response != first) {
+					assertNotSame(first.getResponse(), response.getResponse());
+				}
+			}
+
+			// The callers that arrive after the first request completes make a
+			// second one
+			assertTrue("Requests " + requests.get(), requests.get() <= 2);
+			assertEquals(40, singleFlight.getExecuted() + singleFlight.getShared());
+			assertEquals(0, singleFlight.getInFlight());
+
+			// Nothing is cached
+			sdk.getWorkspaces();
+			assertEquals(singleFlight.getExecuted(), requests.get());
+		} finally {
+			callers.shutdownNow();
+			sdk.close();
+			server.stop(0);
+			serverExecutor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testWaitersKeepTheirOwnDeadline() throws Exception {
+		final SingleFlight singleFlight = new SingleFlight();
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+
+		try {
+			Future<WhispirResponse> leader = executor.submit(new Callable<WhispirResponse>() {
+				@Override
+				public WhispirResponse call() throws Exception {
+					return singleFlight.execute("key", Deadline.none(), new Bulkhead.Call() {
+						@Override
+						public WhispirResponse call() throws WhispirSDKException {
+							started.countDown();
+							try {
+								release.await();
+							} catch (InterruptedException e) {
+								Thread.currentThread().interrupt();
+							}
+
+							WhispirResponse response = new WhispirResponse();
+							response.setStatusCode(200);
+							return response;
+						}
+					});
+				}
+			});
+			started.await();
+
+			try {
+				singleFlight.execute("key", Deadline.after(100), null);
+				fail("Expected the deadline to pass");
+			} catch (DeadlineExceededException e) {
+				assertEquals(1, singleFlight.getShared());
+			}
+
+			release.countDown();
+			assertEquals(200, leader.get().getStatusCode());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testWaitersRetryWhenTheLeaderGivesUp() throws Exception {
+		final SingleFlight singleFlight = new SingleFlight();
+		final CountDownLatch joined = new CountDownLatch(1);
+		final AtomicInteger calls = new AtomicInteger();
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+
+		try {
+			Future<WhispirResponse> follower = executor.submit(new Callable<WhispirResponse>() {
+				@Override
+				public WhispirResponse call() throws Exception {
+					joined.await();
+					return singleFlight.execute("key", Deadline.none(), new Bulkhead.Call() {
+						@Override
+						public WhispirResponse call() throws WhispirSDKException {
+							calls.incrementAndGet();
+							WhispirResponse response = new WhispirResponse();
+							response.setStatusCode(200);
+							return response;
+						}
+					});
+				}
+			});
+
+			// The leader runs out of time once the follower has joined
+			try {
+				singleFlight.execute("key", Deadline.after(100), new Bulkhead.Call() {
+					@Override
+					public WhispirResponse call() throws WhispirSDKException {
+						joined.countDown();
+						while (singleFlight.getShared() == 0) {
+							Thread.yield();
+						}
+						throw new DeadlineExceededException("Leader deadline");
+					}
+				});
+				fail("Expected the leader's deadline to pass");
+			} catch (DeadlineExceededException e) {
+				assertEquals("Leader deadline", e.getMessage());
+			}
+
+			assertEquals(200, follower.get().getStatusCode());
+			assertEquals(1, calls.get());
+			assertEquals(2, singleFlight.getExecuted());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testWaitersGetTheirOwnException() throws Exception {
+		final SingleFlight singleFlight = new SingleFlight();
+		final CountDownLatch joined = new CountDownLatch(1);
+		final WhispirSDKException failure = new WhispirSDKException("Failed");
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+
+		try {
+			Future<WhispirResponse> follower = executor.submit(new Callable<WhispirResponse>() {
+				@Override
+				public WhispirResponse call() throws Exception {
+					joined.await();
+					return singleFlight.execute("key", Deadline.none(), null);
+				}
+			});
+
+			try {
+				singleFlight.execute("key", Deadline.none(), new Bulkhead.Call() {
+					@Override
+					public WhispirResponse call() throws WhispirSDKException {
+						joined.countDown();
+						while (singleFlight.getShared() == 0) {
+							Thread.yield();
+						}
+						throw failure;
+					}
+				});
+				fail("Expected the request to fail");
+			} catch (WhispirSDKException e) {
+				assertSame(failure, e);
+			}
+
+			try {
+				follower.get();
+				fail("Expected the shared request to fail");
+			} catch (ExecutionException e) {
+				assertNotSame(failure, e.getCause());
+				assertSame(failure, e.getCause().getCause());
+				assertEquals(1, singleFlight.getExecuted());
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
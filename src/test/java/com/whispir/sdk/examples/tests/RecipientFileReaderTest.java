@@ -0,0 +1,174 @@
+package com.whispir.sdk.examples.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import com.whispir.sdk.examples.BulkSender;
+import com.whispir.sdk.examples.RecipientFileReader;
+
+public class RecipientFileReaderTest {
+
+	@Test
+	public void testCsvQuotingLineBreaksAndByteOrderMark() throws Exception {
+		File file = write(".csv", new byte[] { (byte) 0xEF, (byte) 0xBB, (byte) 0xBF },
+				"recipient,name,note\r\n"
+						+ "+61400000001,\"Smith, Jane\",\"She said \"\"hi\"\"\"\r\n"
+						+ "\n"
+						+ "+61400000002,Bob,\"Line one\nLine two\"\n"
+						+ "+61400000003,Extra,note,surplus\n"
+						+ "+61400000004");
+		RecipientFileReader reader = new RecipientFileReader(file.toPath());
+
+		try {
+			Map<String, String> jane = reader.next();
+			assertEquals("+61400000001", jane.get("recipient"));
+			assertEquals("Smith, Jane", jane.get("name"));
+			assertEquals("She said \"hi\"", jane.get("note"));
+			assertFalse(jane.containsKey(RecipientFileReader.ERROR_FIELD));
+
+			// The blank line is skipped and the quoted line break kept
+			Map<String, String> bob = reader.next();
+			assertEquals("Line one\nLine two", bob.get("note"));
+			assertEquals(2, reader.getRow());
+
+			assertTrue(reader.next().get(RecipientFileReader.ERROR_FIELD).contains("found 4"));
+
+			// Missing columns are empty, and the last line needs no line break
+			Map<String, String> partial = reader.next();
+			assertEquals("+61400000004", partial.get("recipient"));
+			assertEquals("", partial.get("name"));
+
+			assertFalse(reader.hasNext());
+		} finally {
+			reader.close();
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testBadRecordsAreReportedAgainstTheirRow() throws Exception {
+		File ndjson = write(".ndjson", new byte[0], "{\"recipient\":\"+61400000001\",\"name\":\"Jane\"}\n"
+				+ "{\"recipient\": oops\n"
+				+ "{\"recipient\":\"+61400000003\"}\n");
+		RecipientFileReader reader = new RecipientFileReader(ndjson.toPath());
+
+		try {
+			assertEquals("Jane", reader.next().get("name"));
+
+			Map<String, String> bad = reader.next();
+			assertTrue(bad.get(RecipientFileReader.ERROR_FIELD).startsWith("Invalid JSON"));
+			assertEquals(2, reader.getRow());
+
+			assertEquals("+61400000003", reader.next().get("recipient"));
+			assertFalse(reader.hasNext());
+		} finally {
+			reader.close();
+			ndjson.delete();
+		}
+
+		File csv = write(".csv", new byte[0], "recipient,name\n+61400000001,\"Unterminated\n");
+		reader = new RecipientFileReader(csv.toPath());
+
+		try {
+			assertEquals("Unterminated quoted field", reader.next().get(RecipientFileReader.ERROR_FIELD));
+			assertFalse(reader.hasNext());
+		} finally {
+			reader.close();
+			csv.delete();
+		}
+	}
+
+	@Test
+	public void testBulkSenderEscapesTheResultsFile() throws Exception {
+		HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		ExecutorService serverExecutor = Executors.newCachedThreadPool();
+
+		server.createContext("/", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				try {
+					InputStream in = exchange.getRequestBody();
+					while (in.read() >= 0) {
+						// discard
+					}
+
+					byte[] body = "{\"errorSummary\":\"Invalid, \\\"to\\\" field\"}".getBytes("UTF-8");
+					exchange.sendResponseHeaders(422, body.length);
+					OutputStream out = exchange.getResponseBody();
+					out.write(body);
+					out.close();
+				} finally {
+					exchange.close();
+				}
+			}
+		});
+		server.setExecutor(serverExecutor);
+		server.start();
+
+		// No recipient column, so the first column is used
+		File recipients = write(".csv", new byte[0], "name,mobile\n"
+				+ "\"Doe, \"\"JD\"\" John\",+61400000001\n"
+				+ "Jo,+61400000002\n");
+		File results = File.createTempFile("results", ".csv");
+
+		try {
+			BulkSender.main(new String[] { "true", "http://127.0.0.1:" + server.getAddress().getPort(),
+					"apikey", "username", "password", "-", recipients.getPath(), "Hi {{name}}", "Hello", "1",
+					"0", results.getPath() });
+
+			Map<String, Map<String, String>> rows = new HashMap<String, Map<String, String>>();
+			RecipientFileReader reader = new RecipientFileReader(results.toPath());
+
+			try {
+				while (reader.hasNext()) {
+					Map<String, String> row = reader.next();
+					assertFalse(row.containsKey(RecipientFileReader.ERROR_FIELD));
+					rows.put(row.get("row"), row);
+				}
+			} finally {
+				reader.close();
+			}
+
+			assertEquals(2, rows.size());
+			assertEquals("Doe, \"JD\" John", rows.get("1").get("recipient"));
+			assertEquals("422", rows.get("1").get("status"));
+			assertEquals("{\"errorSummary\":\"Invalid, \\\"to\\\" field\"}", rows.get("1").get("error"));
+
+			assertEquals("Jo", rows.get("2").get("recipient"));
+			assertEquals("INVALID", rows.get("2").get("status"));
+			assertEquals("Recipient is missing or too short", rows.get("2").get("error"));
+		} finally {
+			server.stop(0);
+			serverExecutor.shutdownNow();
+			recipients.delete();
+			results.delete();
+		}
+	}
+
+	private static File write(String suffix, byte[] prefix, String content) throws IOException {
+		File file = File.createTempFile("recipients", suffix);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		bytes.write(prefix);
+		bytes.write(content.getBytes("UTF-8"));
+		Files.write(file.toPath(), bytes.toByteArray());
+		return file;
+	}
+}
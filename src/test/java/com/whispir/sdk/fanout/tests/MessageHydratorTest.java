@@ -0,0 +1,156 @@
+package com.whispir.sdk.fanout.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.whispir.sdk.WhispirResponse;
+import com.whispir.sdk.WhispirSDKConstants;
+import com.whispir.sdk.exceptions.WhispirSDKException;
+import com.whispir.sdk.fanout.MessageDetails;
+import com.whispir.sdk.fanout.MessageHydrator;
+import com.whispir.sdk.tests.StubSDK;
+
+public class MessageHydratorTest {
+
+	@Test
+	public void testGetMessageParsesTheMessage() throws Exception {
+		MessageSDK sdk = new MessageSDK(0);
+
+		WhispirResponse response = sdk.getMessage("ws1", "ABC123");
+		assertEquals(200, response.getStatusCode());
+		assertEquals("Subject ABC123", response.getResponse().get("subject"));
+		assertEquals("+61400000000", response.getResponse().get("to"));
+		assertEquals("OUTGOING", response.getResponse().get("direction"));
+		assertEquals("<b>Email</b>", response.getResponse().get("email.body"));
+		assertEquals("1523429523000", response.getResponse().get("createdTime"));
+		assertFalse(response.getResponse().containsKey("link"));
+
+		// Errors have nothing to parse
+		assertTrue(sdk.getMessage("ws1", "missing").getResponse().isEmpty());
+		sdk.listStatus = 429;
+		assertTrue(sdk.getMessages().getResponse().isEmpty());
+
+		sdk.listStatus = 200;
+		assertEquals("ABC123", sdk.getMessages().getResponse().get("Hello"));
+		assertEquals("DEF456", sdk.getMessages().getResponse().get("No query"));
+	}
+
+	@Test
+	public void testDetailsAreFetchedConcurrentlyInOrder() throws Exception {
+		MessageSDK sdk = new MessageSDK(100);
+		List<String> ids = ids(20);
+
+		long start = System.nanoTime();
+		List<MessageDetails> details = new MessageHydrator(sdk, 10).hydrateAll("ws1", ids);
+		long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+		// Two rounds of 10, not 20 in a row
+		assertTrue("Took " + elapsed + " ms", elapsed < 1000);
+		assertTrue(sdk.getMaxConcurrent() <= 10);
+		assertEquals(20, details.size());
+
+		for (int i = 0; i < ids.size(); i++) {
+			MessageDetails message = details.get(i);
+			assertEquals(ids.get(i), message.getMessageId());
+			assertTrue(message.isSuccess());
+			assertEquals("Subject " + ids.get(i), message.getSubject());
+			assertEquals(1523429523000L, message.getCreatedTime());
+			assertEquals(2, message.getResponseCount());
+		}
+	}
+
+	@Test
+	public void testCompletionOrderAndFailures() throws Exception {
+		MessageSDK sdk = new MessageSDK(0);
+
+		// The first message is slow, so it arrives last
+		sdk.slowId = "M0";
+		Iterator<MessageDetails> details = sdk.getMessageDetails("ws1",
+				Arrays.asList("M0", "M1", "missing", "error").iterator(), 4, MessageHydrator.Order.COMPLETION);
+
+		List<String> arrived = new ArrayList<String>();
+		while (details.hasNext()) {
+			MessageDetails message = details.next();
+			arrived.add(message.getMessageId());
+
+			if ("missing".equals(message.getMessageId())) {
+				assertEquals(404, message.getStatusCode());
+				assertNull(message.getSubject());
+			}
+			if ("error".equals(message.getMessageId())) {
+				assertEquals(0, message.getStatusCode());
+				assertEquals("Connection refused", message.getError().getMessage());
+			}
+		}
+
+		assertEquals(4, arrived.size());
+		assertEquals("M0", arrived.get(3));
+	}
+
+	private static List<String> ids(int count) {
+		List<String> ids = new ArrayList<String>();
+
+		for (int i = 0; i < count; i++) {
+			ids.add("M" + i);
+		}
+		return ids;
+	}
+
+	private static class MessageSDK extends StubSDK {
+		private final long delayMillis;
+		volatile String slowId;
+		volatile int listStatus = 200;
+
+		MessageSDK(long delayMillis) throws WhispirSDKException {
+			this.delayMillis = delayMillis;
+		}
+
+		@Override
+		public WhispirResponse get(String resourceType, String workspaceId, String resourceId)
+				throws WhispirSDKException {
+			WhispirResponse response = new WhispirResponse();
+
+			if (WhispirSDKConstants.MESSAGES_RESOURCE.equals(resourceType) && "".equals(resourceId)) {
+				response.setStatusCode(listStatus);
+				response.setRawResponse(listStatus != 200 ? null
+						: "{\"messages\":[{\"subject\":\"Hello\",\"link\":[{\"uri\":"
+								+ "\"https://api.whispir.com/messages/ABC123?apikey=x\"}]},"
+								+ "{\"subject\":\"No query\",\"link\":[{\"uri\":"
+								+ "\"https://api.whispir.com/messages/DEF456\"}]}]}");
+				return response;
+			}
+
+			if ("error".equals(resourceId)) {
+				throw new WhispirSDKException("Connection refused");
+			}
+
+			enter();
+			pause(resourceId.equals(slowId) ? 200 : delayMillis);
+			exit();
+
+			if ("missing".equals(resourceId)) {
+				response.setStatusCode(404);
+				response.setRawResponse("{\"errorSummary\":\"Not found\"}");
+				return response;
+			}
+
+			response.setStatusCode(200);
+			response.setRawResponse("{\"to\":\"+61400000000\",\"subject\":\"Subject " + resourceId
+					+ "\",\"body\":\"Body\",\"direction\":\"OUTGOING\",\"responseCount\":\"2\","
+					+ "\"messageType\":\"NORMAL\",\"createdTime\":1523429523000,"
+					+ "\"email\":{\"body\":\"<b>Email</b>\",\"type\":\"text/html\"},"
+					+ "\"link\":[{\"uri\":\"https://api.whispir.com/messages/" + resourceId + "\"}]}");
+			return response;
+		}
+	}
+}
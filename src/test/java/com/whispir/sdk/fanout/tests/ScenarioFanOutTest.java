@@ -0,0 +1,104 @@
+package com.whispir.sdk.fanout.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.whispir.sdk.WhispirResponse;
+import com.whispir.sdk.exceptions.WhispirSDKException;
+import com.whispir.sdk.fanout.FanOutResult;
+import com.whispir.sdk.fanout.ScenarioOutcome;
+import com.whispir.sdk.fanout.ScenarioTarget;
+import com.whispir.sdk.tests.StubSDK;
+
+public class ScenarioFanOutTest {
+
+	@Test
+	public void testAllTargetsAreSentConcurrently() throws Exception {
+		ScenarioSDK sdk = new ScenarioSDK(100);
+		List<ScenarioTarget> targets = targets(40);
+
+		FanOutResult result = sdk.sendScenarios(targets, 5000);
+
+		assertTrue(result.isAllSucceeded());
+		assertEquals(40, result.getSucceeded());
+		assertEquals(40, sdk.getMaxConcurrent());
+
+		// One round trip, not forty
+		assertTrue(result.getElapsedMillis() < 1000);
+
+		for (int i = 0; i < targets.size(); i++) {
+			ScenarioOutcome outcome = result.getOutcomes().get(i);
+			assertEquals(targets.get(i), outcome.getTarget());
+			assertEquals(202, outcome.getStatusCode());
+			assertTrue(outcome.getElapsedMillis() >= 100);
+		}
+	}
+
+	@Test
+	public void testFailuresAndTimeoutsAreReportedPerTarget() throws Exception {
+		ScenarioSDK sdk = new ScenarioSDK(10);
+		sdk.slowWorkspace = "WS1";
+		sdk.failingWorkspace = "WS2";
+		sdk.rejectedWorkspace = "WS3";
+
+		FanOutResult result = sdk.sendScenarios(targets(5), 300);
+
+		assertFalse(result.isAllSucceeded());
+		assertEquals(2, result.getSucceeded());
+		assertEquals(1, result.getTimedOut());
+		assertEquals(3, result.getFailures().size());
+		assertTrue(result.getElapsedMillis() < 2000);
+
+		ScenarioOutcome slow = result.getOutcomes().get(1);
+		assertTrue(slow.isTimedOut());
+		assertTrue(slow.getElapsedMillis() >= 300);
+
+		ScenarioOutcome failed = result.getOutcomes().get(2);
+		assertFalse(failed.isTimedOut());
+		assertNotNull(failed.getError());
+
+		assertEquals(500, result.getOutcomes().get(3).getStatusCode());
+		assertTrue(result.getOutcomes().get(4).isSuccess());
+	}
+
+	private static List<ScenarioTarget> targets(int count) {
+		List<ScenarioTarget> targets = new ArrayList<ScenarioTarget>();
+
+		for (int i = 0; i < count; i++) {
+			targets.add(new ScenarioTarget("WS" + i, "EMERGENCY"));
+		}
+		return targets;
+	}
+
+	private static class ScenarioSDK extends StubSDK {
+
+		private final long delay;
+		volatile String slowWorkspace;
+		volatile String failingWorkspace;
+		volatile String rejectedWorkspace;
+
+		ScenarioSDK(long delay) throws WhispirSDKException {
+			this.delay = delay;
+		}
+
+		@Override
+		public WhispirResponse post(String resourceType, String resourceId, String workspaceId,
+				String jsonContent) throws WhispirSDKException {
+			enter();
+			pause(workspaceId.equals(slowWorkspace) ? 10000 : delay);
+			exit();
+
+			if (workspaceId.equals(failingWorkspace)) {
+				throw new WhispirSDKException("Connection reset");
+			}
+			return response(workspaceId.equals(rejectedWorkspace) ? 500 : 202, null);
+		}
+	}
+}
@@ -0,0 +1,147 @@
+package com.whispir.sdk.reactive.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import com.whispir.sdk.MessageRequest;
+import com.whispir.sdk.WhispirResponse;
+import com.whispir.sdk.exceptions.WhispirSDKException;
+import com.whispir.sdk.reactive.Flow;
+import com.whispir.sdk.reactive.SendProcessor;
+import com.whispir.sdk.reactive.SendResult;
+import com.whispir.sdk.tests.StubSDK;
+
+public class SendProcessorTest {
+
+	@Test
+	public void testUpstreamDemandIsBoundedByConcurrency() throws Exception {
+		SlowSDK sdk = new SlowSDK();
+		CountingPublisher source = new CountingPublisher(1000);
+		SendProcessor processor = new SendProcessor(sdk, 4);
+
+		source.subscribe(processor);
+		ResultSubscriber results = new ResultSubscriber();
+		processor.subscribe(results);
+
+		// Without downstream demand only the processor's buffer is requested
+		Thread.sleep(200);
+		assertEquals(4, source.requested.get());
+		assertEquals(0, results.received.get());
+
+		results.subscription.request(10);
+		Thread.sleep(200);
+		assertEquals(10, results.received.get());
+		assertEquals(14, source.requested.get());
+
+		results.subscription.request(Long.MAX_VALUE);
+		assertTrue(results.done.await(10, TimeUnit.SECONDS));
+
+		assertEquals(1000, results.received.get());
+		assertEquals(1000, results.succeeded.get());
+		assertTrue(sdk.getMaxConcurrent() <= 4);
+	}
+
+	@Test
+	public void testRequestMustBePositive() throws Exception {
+		SendProcessor processor = new SendProcessor(new SlowSDK(), 1);
+		new CountingPublisher(1).subscribe(processor);
+
+		ResultSubscriber results = new ResultSubscriber();
+		processor.subscribe(results);
+		results.subscription.request(0);
+
+		assertTrue(results.done.await(1, TimeUnit.SECONDS));
+		assertTrue(results.error instanceof IllegalArgumentException);
+	}
+
+	private static class CountingPublisher implements Flow.Publisher<MessageRequest> {
+		private final long count;
+		private final AtomicLong requested = new AtomicLong();
+
+		CountingPublisher(long count) {
+			this.count = count;
+		}
+
+		@Override
+		public void subscribe(final Flow.Subscriber<? super MessageRequest> subscriber) {
+			subscriber.onSubscribe(new Flow.Subscription() {
+				private long sent;
+
+				@Override
+				public synchronized void request(long n) {
+					requested.addAndGet(n);
+
+					for (long i = 0; i < n && sent < count; i++) {
+						sent++;
+						subscriber.onNext(new MessageRequest("61400000000", "Subject", "Body " + sent));
+					}
+
+					if (sent == count) {
+						sent++;
+						subscriber.onComplete();
+					}
+				}
+
+				@Override
+				public void cancel() {
+				}
+			});
+		}
+	}
+
+	private static class ResultSubscriber implements Flow.Subscriber<SendResult> {
+		private volatile Flow.Subscription subscription;
+		private final AtomicInteger received = new AtomicInteger();
+		private final AtomicInteger succeeded = new AtomicInteger();
+		private final CountDownLatch done = new CountDownLatch(1);
+		private volatile Throwable error;
+
+		@Override
+		public void onSubscribe(Flow.Subscription subscription) {
+			this.subscription = subscription;
+		}
+
+		@Override
+		public void onNext(SendResult item) {
+			received.incrementAndGet();
+			if (item.isSuccess()) {
+				succeeded.incrementAndGet();
+			}
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			error = throwable;
+			done.countDown();
+		}
+
+		@Override
+		public void onComplete() {
+			done.countDown();
+		}
+	}
+
+	private static class SlowSDK extends StubSDK {
+
+		SlowSDK() throws WhispirSDKException {
+		}
+
+		@Override
+		public WhispirResponse sendMessage(String workspaceId, String recipient,
+				String subject, Map<String, String> content,
+				Map<String, String> options) throws WhispirSDKException {
+			enter();
+			pause(1);
+			exit();
+			return response(202, null);
+		}
+	}
+}
@@ -0,0 +1,129 @@
+package com.whispir.sdk.recipients.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.whispir.sdk.WhispirEndPoints;
+import com.whispir.sdk.WhispirResponse;
+import com.whispir.sdk.recipients.BatchResult;
+import com.whispir.sdk.recipients.PhoneRegion;
+import com.whispir.sdk.recipients.RecipientCheck;
+import com.whispir.sdk.recipients.RecipientType;
+import com.whispir.sdk.recipients.RecipientValidator;
+import com.whispir.sdk.recipients.RejectionReason;
+import com.whispir.sdk.tests.StubSDK;
+
+public class RecipientValidatorTest {
+
+	@Test
+	public void testPhoneNumbersAreNormalisedToE164() {
+		RecipientValidator validator = new RecipientValidator(PhoneRegion.AU);
+
+		assertEquals("+61412345678", validator.check("0412 345 678").getNormalised());
+		assertEquals("+61412345678", validator.check("0412-345-678").getNormalised());
+		assertEquals("+61412345678", validator.check("+61 (0)412 345 678").getNormalised());
+		assertEquals("+61412345678", validator.check("0061412345678").getNormalised());
+		assertEquals("+61412345678", validator.check("61412345678").getNormalised());
+		assertEquals("+61298765432", validator.check("(02) 9876 5432").getNormalised());
+		assertEquals("+6421234567", validator.check("+64 21 234 567").getNormalised());
+		assertEquals("+393471234567", validator.check("+39 347 123 4567").getNormalised());
+		assertEquals("+33612345678", validator.check("+33 6 12 34 56 78").getNormalised());
+		assertEquals(RecipientType.PHONE, validator.check("0412345678").getType());
+
+		// Nothing to change, nothing allocated
+		String normalised = "+61412345678";
+		assertSame(normalised, validator.check(normalised).getNormalised());
+
+		RecipientValidator us = new RecipientValidator(PhoneRegion.US);
+		assertEquals("+14155550123", us.check("(415) 555-0123").getNormalised());
+		assertEquals("+14155550123", us.check("1 415 555 0123").getNormalised());
+	}
+
+	@Test
+	public void testInvalidPhoneNumbersAreRejectedWithReasons() {
+		RecipientValidator validator = new RecipientValidator();
+
+		assertEquals(RejectionReason.TOO_SHORT, validator.check("0412 345").getReason());
+		assertEquals(RejectionReason.TOO_LONG, validator.check("0412 345 6789").getReason());
+		assertEquals(RejectionReason.TOO_LONG, validator.check("+61 412 345 6789").getReason());
+		assertEquals(RejectionReason.TOO_SHORT, validator.check("+999 1234").getReason());
+		assertEquals(RejectionReason.INVALID_CHARACTERS, validator.check("0412 345 67x").getReason());
+		assertEquals(RejectionReason.INVALID_CHARACTERS, validator.check("04+12345678").getReason());
+		assertEquals(RejectionReason.EMPTY, validator.check("  ").getReason());
+		assertEquals(RejectionReason.EMPTY, validator.check(null).getReason());
+		assertEquals(RejectionReason.UNRECOGNISED, validator.check("Sydney Office").getReason());
+		assertTrue(validator.setAllowOther(true).check("Sydney Office").isValid());
+	}
+
+	@Test
+	public void testEmailAddresses() {
+		RecipientValidator validator = new RecipientValidator();
+
+		RecipientCheck check = validator.check("Jane.Doe+alerts@Example.COM");
+		assertTrue(check.isValid());
+		assertEquals(RecipientType.EMAIL, check.getType());
+		assertEquals("Jane.Doe+alerts@example.com", check.getNormalised());
+
+		String normalised = "ops@mail.example.com.au";
+		assertSame(normalised, validator.check(normalised).getNormalised());
+
+		for (String invalid : Arrays.asList("@example.com", "jane@", "jane@@example.com", "jane@example",
+				".jane@example.com", "jane..doe@example.com", "jane@-example.com", "jane@example.c0m",
+				"jane doe@example.com", "jane@exam_ple.com")) {
+			assertEquals(invalid, RejectionReason.INVALID_EMAIL, validator.check(invalid).getReason());
+		}
+	}
+
+	@Test
+	public void testListsAndBatches() {
+		RecipientValidator validator = new RecipientValidator();
+
+		RecipientCheck list = validator.checkList("0412 345 678, jane@example.com;");
+		assertTrue(list.isValid());
+		assertEquals("+61412345678;jane@example.com", list.getNormalised());
+
+		RecipientCheck rejected = validator.checkList("0412345678;0412");
+		assertFalse(rejected.isValid());
+		assertEquals("0412", rejected.getRecipient());
+		assertEquals(RejectionReason.TOO_SHORT, rejected.getReason());
+
+		BatchResult batch = validator.checkBatch(Arrays.asList("0412 345 678", "+61412345678",
+				"jane@example.com", "jane@EXAMPLE.com", "0412", "not a number"));
+		assertEquals(Arrays.asList("+61412345678", "jane@example.com"), batch.getValid());
+		assertEquals(2, batch.getDuplicates());
+		assertEquals(2, batch.getRejected().size());
+		assertEquals(Integer.valueOf(1), batch.getRejectionCounts().get(RejectionReason.TOO_SHORT));
+		assertEquals(Integer.valueOf(1), batch.getRejectionCounts().get(RejectionReason.UNRECOGNISED));
+	}
+
+	@Test
+	public void testSdkRejectsBeforeSending() throws Exception {
+		StubSDK sdk = new StubSDK();
+		sdk.setRecipientValidator(new RecipientValidator(PhoneRegion.forEndPoint(WhispirEndPoints.AU)));
+
+		WhispirResponse response = sdk.sendMessage("0412 345 67", "Subject", "Content");
+		assertEquals(422, response.getStatusCode());
+		assertEquals("0412 345 67", response.getResponse().get("recipient"));
+		assertEquals("TOO_SHORT", response.getResponse().get("reason"));
+		assertEquals(0, sdk.getPosts());
+
+		Map<String, String> content = new HashMap<String, String>();
+		content.put("subject", "Subject");
+		content.put("body", "Body");
+		assertEquals(422, sdk.createScenario("jane@example", new HashMap<String, String>(), content)
+				.getStatusCode());
+		assertEquals(0, sdk.getPosts());
+
+		assertEquals(202, sdk.sendMessage("0412 345 678", "Subject", "Content").getStatusCode());
+		assertEquals(1, sdk.getPosts());
+		assertTrue(sdk.getLastPosted().contains("\"+61412345678\""));
+	}
+}
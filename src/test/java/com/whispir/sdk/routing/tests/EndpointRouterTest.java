@@ -0,0 +1,160 @@
+package com.whispir.sdk.routing.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.http.HttpHost;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.Test;
+
+import com.whispir.sdk.WhispirEndPoints;
+import com.whispir.sdk.WhispirSDK;
+import com.whispir.sdk.WhispirSDKConstants;
+import com.whispir.sdk.routing.EndpointRouter;
+import com.whispir.sdk.transport.WhispirTransport;
+
+public class EndpointRouterTest {
+
+	@Test
+	public void testOrderedPrefersFirstEndpoint() {
+		EndpointRouter router = new EndpointRouter(WhispirEndPoints.AU, WhispirEndPoints.AP);
+
+		// A slower primary is still preferred in ordered mode
+		router.record(WhispirEndPoints.AU, 500, true);
+		router.record(WhispirEndPoints.AP, 50, true);
+
+		List<WhispirEndPoints> selected = router.select();
+
+		assertEquals(WhispirEndPoints.AU, selected.get(0));
+		assertEquals(WhispirEndPoints.AP, selected.get(1));
+		assertEquals(WhispirEndPoints.AU, router.primary());
+	}
+
+	@Test
+	public void testWeightedPrefersFastestEndpoint() {
+		Map<WhispirEndPoints, Integer> weights = new LinkedHashMap<WhispirEndPoints, Integer>();
+		weights.put(WhispirEndPoints.AU, 1);
+		weights.put(WhispirEndPoints.US, 1);
+
+		EndpointRouter router = new EndpointRouter(weights);
+
+		router.record(WhispirEndPoints.AU, 400, true);
+		router.record(WhispirEndPoints.US, 100, true);
+
+		assertEquals(WhispirEndPoints.US, router.select().get(0));
+		assertEquals(WhispirEndPoints.US, router.primary());
+	}
+
+	@Test
+	public void testFailoverAfterConsecutiveFailures() {
+		EndpointRouter router = new EndpointRouter(WhispirEndPoints.AU, WhispirEndPoints.AP);
+
+		for (int i = 0; i < EndpointRouter.DEFAULT_FAILURE_THRESHOLD; i++) {
+			router.record(WhispirEndPoints.AU, 10, false);
+		}
+
+		assertFalse(router.getHealth(WhispirEndPoints.AU).isAvailable());
+		assertEquals(WhispirEndPoints.AP, router.primary());
+
+		// The tripped endpoint is still offered as the last resort
+		List<WhispirEndPoints> selected = router.select();
+		assertEquals(WhispirEndPoints.AP, selected.get(0));
+		assertEquals(WhispirEndPoints.AU, selected.get(1));
+	}
+
+	@Test
+	public void testRecoveryProbe() throws InterruptedException {
+		EndpointRouter router = new EndpointRouter(WhispirEndPoints.AU, WhispirEndPoints.AP);
+		router.setProbeInterval(50);
+		router.setFailureThreshold(1);
+
+		router.record(WhispirEndPoints.AU, 10, false);
+		assertEquals(WhispirEndPoints.AP, router.select().get(0));
+
+		Thread.sleep(100);
+
+		// Only one request is given the probe
+		assertEquals(WhispirEndPoints.AU, router.select().get(0));
+		assertEquals(WhispirEndPoints.AP, router.select().get(0));
+
+		router.record(WhispirEndPoints.AU, 10, true);
+
+		assertTrue(router.getHealth(WhispirEndPoints.AU).isAvailable());
+		assertEquals(WhispirEndPoints.AU, router.select().get(0));
+	}
+
+	@Test
+	public void testMaxAttempts() {
+		EndpointRouter router = new EndpointRouter(WhispirEndPoints.AU, WhispirEndPoints.AP,
+				WhispirEndPoints.NZ);
+		router.setMaxAttempts(2);
+
+		assertEquals(2, router.select().size());
+	}
+
+	@Test
+	public void testPostsOnlyFailOverWhenTheyCannotHaveBeenSent() throws Exception {
+		String au = String.format(WhispirSDKConstants.API_HOST_FORMAT, WhispirEndPoints.AU);
+		String ap = String.format(WhispirSDKConstants.API_HOST_FORMAT, WhispirEndPoints.AP);
+		StubTransport transport = new StubTransport();
+		transport.statuses.put(ap, 202);
+
+		WhispirSDK sdk = new WhispirSDK("apikey", "username", "password", WhispirEndPoints.AU);
+		sdk.setTransport(transport);
+		sdk.setEndpointRouter(new EndpointRouter(WhispirEndPoints.AU, WhispirEndPoints.AP));
+
+		try {
+			// The gateway may have passed the message on before failing
+			transport.statuses.put(au, 502);
+			assertEquals(502, sdk.post(WhispirSDKConstants.MESSAGES_RESOURCE, "", "{}").getStatusCode());
+			assertEquals(1, transport.hosts.size());
+
+			transport.statuses.put(au, 503);
+			assertEquals(202, sdk.post(WhispirSDKConstants.MESSAGES_RESOURCE, "", "{}").getStatusCode());
+			assertEquals(3, transport.hosts.size());
+			assertEquals(ap, transport.hosts.get(2));
+		} finally {
+			sdk.close();
+		}
+	}
+
+	private static class StubTransport extends WhispirTransport {
+		final Map<String, Integer> statuses = new ConcurrentHashMap<String, Integer>();
+		final List<String> hosts = new CopyOnWriteArrayList<String>();
+
+		@Override
+		public CloseableHttpResponse execute(HttpHost target, HttpRequestBase request,
+				HttpClientContext context) throws IOException {
+			hosts.add(target.getHostName());
+
+			StubResponse response = new StubResponse(statuses.get(target.getHostName()));
+			response.setEntity(new StringEntity("{}", "UTF-8"));
+			return response;
+		}
+	}
+
+	private static class StubResponse extends BasicHttpResponse implements CloseableHttpResponse {
+
+		StubResponse(int statusCode) {
+			super(HttpVersion.HTTP_1_1, statusCode, "Stub");
+		}
+
+		@Override
+		public void close() {
+			// Nothing to release
+		}
+	}
+}
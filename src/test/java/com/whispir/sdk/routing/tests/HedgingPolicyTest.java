@@ -0,0 +1,218 @@
+package com.whispir.sdk.routing.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import com.whispir.sdk.WhispirResponse;
+import com.whispir.sdk.WhispirSDK;
+import com.whispir.sdk.WhispirSDKConstants;
+import com.whispir.sdk.exceptions.WhispirSDKException;
+import com.whispir.sdk.routing.HedgingPolicy;
+
+public class HedgingPolicyTest {
+
+	@Test
+	public void testDelayFollowsObservedLatency() throws Exception {
+		HedgingPolicy policy = new HedgingPolicy();
+		policy.setMinimumSamples(10);
+		policy.setPercentile(90);
+
+		assertEquals(HedgingPolicy.DEFAULT_MAX_DELAY, policy.getHedgeDelay());
+
+		for (int i = 1; i <= 10; i++) {
+			policy.execute(new FixedRequest(i * 5, null));
+		}
+
+		// The 90th percentile of 5..50 ms, allowing for scheduling
+		assertTrue(policy.getHedgeDelay() >= 45 && policy.getHedgeDelay() < 100);
+		assertEquals(0, policy.getHedges());
+		policy.shutdown();
+	}
+
+	@Test
+	public void testSlowRequestIsHedgedAndLoserCancelled() throws Exception {
+		HedgingPolicy policy = new HedgingPolicy();
+		policy.setMaxDelay(20);
+		policy.setBudget(1);
+
+		AtomicInteger cancelled = new AtomicInteger();
+		long start = System.nanoTime();
+		WhispirResponse response = policy.execute(new FixedRequest(10000, cancelled, 5));
+		long elapsed = (System.nanoTime() - start) / 1000000;
+
+		assertEquals(200, response.getStatusCode());
+		assertTrue(elapsed < 1000);
+		assertEquals(1, policy.getHedges());
+		assertEquals(1, policy.getHedgeWins());
+		assertEquals(1, cancelled.get());
+		policy.shutdown();
+	}
+
+	@Test
+	public void testWinningHedgeIsMeasuredFromTheFirstAttempt() throws Exception {
+		HedgingPolicy policy = new HedgingPolicy();
+		policy.setMinDelay(1);
+		policy.setMaxDelay(30);
+		policy.setMinimumSamples(1);
+		policy.setBudget(1);
+
+		policy.execute(new FixedRequest(10000, new AtomicInteger(), 5));
+
+		// The 30 ms the original was given, then the hedge's 5 ms
+		assertEquals(1, policy.getHedgeWins());
+		assertTrue("Delay " + policy.getHedgeDelay(), policy.getHedgeDelay() >= 30);
+		policy.shutdown();
+	}
+
+	@Test
+	public void testBudgetCapsHedges() throws Exception {
+		HedgingPolicy policy = new HedgingPolicy();
+		policy.setMaxDelay(1);
+		policy.setMinDelay(1);
+		policy.setBudget(0.1);
+		policy.setMaxBurst(1);
+
+		// Every request is slower than the delay, but only 1 in 10 may hedge
+		for (int i = 0; i < 50; i++) {
+			policy.execute(new FixedRequest(5, null));
+		}
+
+		assertEquals(50, policy.getRequests());
+		assertEquals(5, policy.getHedges());
+		policy.shutdown();
+	}
+
+	@Test
+	public void testHedgedGetThroughTheSdk() throws Exception {
+		final AtomicInteger requests = new AtomicInteger();
+		HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		ExecutorService executor = Executors.newCachedThreadPool();
+
+		// Alternate requests are slow
+		server.createContext("/", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				try {
+					InputStream in = exchange.getRequestBody();
+					while (in.read() >= 0) {
+						// discard
+					}
+
+					if (requests.incrementAndGet() % 2 == 1) {
+						Thread.sleep(2000);
+					}
+
+					byte[] body = "{}".getBytes("UTF-8");
+					exchange.sendResponseHeaders(200, body.length);
+					OutputStream out = exchange.getResponseBody();
+					out.write(body);
+					out.close();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} catch (IOException e) {
+					// The aborted copy
+				} finally {
+					exchange.close();
+				}
+			}
+		});
+		server.setExecutor(executor);
+		server.start();
+
+		WhispirSDK sdk = new WhispirSDK("apikey", "username", "password",
+				"http://127.0.0.1:" + server.getAddress().getPort());
+		HedgingPolicy policy = new HedgingPolicy();
+		policy.setMaxDelay(50);
+		policy.setBudget(1);
+		sdk.setHedgingPolicy(policy);
+
+		try {
+			for (int i = 0; i < 3; i++) {
+				long start = System.nanoTime();
+				WhispirResponse response = sdk.get(WhispirSDKConstants.WORKSPACES_RESOURCE, "");
+
+				assertEquals(200, response.getStatusCode());
+				assertTrue((System.nanoTime() - start) / 1000000 < 1500);
+			}
+
+			// Every slow copy was overtaken by its hedge
+			assertTrue(policy.getHedgeWins() >= 1);
+		} finally {
+			sdk.close();
+			policy.shutdown();
+			server.stop(0);
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * The first attempt takes the given time, later attempts the hedge time.
+	 */
+	private static class FixedRequest implements HedgingPolicy.HedgedRequest {
+
+		private final long firstMillis;
+		private final long hedgeMillis;
+		private final AtomicInteger cancelled;
+		private int attempts;
+
+		FixedRequest(long millis, AtomicInteger cancelled) {
+			this(millis, cancelled, millis);
+		}
+
+		FixedRequest(long firstMillis, AtomicInteger cancelled, long hedgeMillis) {
+			this.firstMillis = firstMillis;
+			this.hedgeMillis = hedgeMillis;
+			this.cancelled = cancelled;
+		}
+
+		@Override
+		public HedgingPolicy.Attempt newAttempt() {
+			final long millis = attempts++ == 0 ? firstMillis : hedgeMillis;
+			final Thread[] runner = new Thread[1];
+
+			return new HedgingPolicy.Attempt() {
+				@Override
+				public WhispirResponse call() throws WhispirSDKException {
+					synchronized (runner) {
+						runner[0] = Thread.currentThread();
+					}
+
+					try {
+						Thread.sleep(millis);
+					} catch (InterruptedException e) {
+						return new WhispirResponse();
+					}
+
+					WhispirResponse response = new WhispirResponse();
+					response.setStatusCode(200);
+					return response;
+				}
+
+				@Override
+				public void cancel() {
+					if (cancelled != null) {
+						cancelled.incrementAndGet();
+					}
+					synchronized (runner) {
+						if (runner[0] != null) {
+							runner[0].interrupt();
+						}
+					}
+				}
+			};
+		}
+	}
+}
@@ -0,0 +1,313 @@
+package com.whispir.sdk.schedule.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.whispir.sdk.MessageRequest;
+import com.whispir.sdk.dispatch.Priority;
+import com.whispir.sdk.schedule.MessageScheduler;
+import com.whispir.sdk.schedule.ScheduledMessage;
+import com.whispir.sdk.schedule.TimingWheel;
+import com.whispir.sdk.tests.StubSDK;
+
+public class MessageSchedulerTest {
+
+	@Test
+	public void testWheelReleasesEachEntryAtItsTick() {
+		TimingWheel<Long> wheel = new TimingWheel<Long>(1000);
+		Random random = new Random(42);
+		List<TimingWheel.Entry<Long>> entries = new ArrayList<TimingWheel.Entry<Long>>();
+
+		// Spread over the first three levels
+		for (int i = 0; i < 5000; i++) {
+			long due = 1000 + 1 + random.nextInt(300000);
+			entries.add(wheel.add(due, due));
+		}
+
+		int removed = 0;
+		for (int i = 0; i < entries.size(); i += 7) {
+			assertTrue(wheel.remove(entries.get(i)));
+			assertFalse(wheel.remove(entries.get(i)));
+			removed++;
+		}
+		assertEquals(5000 - removed, wheel.size());
+
+		List<Long> due = new ArrayList<Long>();
+		long released = 0;
+
+		for (long tick = 1001; tick <= 301001; tick++) {
+			due.clear();
+			wheel.advance(tick, due);
+
+			for (Long value : due) {
+				assertEquals(tick, value.longValue());
+			}
+			released += due.size();
+		}
+		assertEquals(5000 - removed, released);
+		assertEquals(0, wheel.size());
+
+		// A tick that has passed is due on the next one, and a jump collects
+		// everything on the way
+		wheel.add(5, 5L);
+		wheel.add(wheel.getCurrentTick() + TimingWheel.MAX_SPAN - 1, 1L);
+		wheel.advance(wheel.getCurrentTick() + 1, due);
+		assertEquals(Long.valueOf(5), due.get(due.size() - 1));
+
+		due.clear();
+		wheel.advance(wheel.getCurrentTick() + TimingWheel.MAX_SPAN, due);
+		assertEquals(Collections.singletonList(1L), due);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testWheelRefusesTicksBeyondItsSpan() {
+		new TimingWheel<Long>(0).add(TimingWheel.MAX_SPAN, 1L);
+	}
+
+	@Test
+	public void testDueMessagesAreReleasedInBatches() throws Exception {
+		CollectingSink sink = new CollectingSink();
+		MessageScheduler scheduler = new MessageScheduler(sink, 10, null);
+
+		try {
+			scheduler.setBatchSize(2);
+			long now = System.currentTimeMillis();
+
+			long cancelled = scheduler.schedule(message("cancelled"), now + 100);
+			for (int i = 0; i < 5; i++) {
+				scheduler.schedule(message("m" + i), now + 100);
+			}
+			long later = scheduler.schedule(message("later"), now + 200);
+
+			assertTrue(scheduler.cancel(cancelled));
+			assertFalse(scheduler.cancel(cancelled));
+			assertEquals(6, scheduler.getPending());
+			assertEquals("later", scheduler.get(later).getRequest().getSubject());
+
+			sink.await(6);
+			assertEquals(Integer.valueOf(2), sink.batches.get(0));
+			assertEquals(Integer.valueOf(1), sink.batches.get(2));
+
+			for (ScheduledMessage message : sink.messages) {
+				assertFalse("cancelled".equals(message.getRequest().getSubject()));
+				assertTrue(System.currentTimeMillis() >= message.getSendAtMillis());
+			}
+			assertEquals("later", sink.messages.get(5).getRequest().getSubject());
+			assertNull(scheduler.get(later));
+			assertEquals(6, scheduler.getReleased());
+			assertEquals(0, scheduler.getPending());
+		} finally {
+			scheduler.close();
+		}
+	}
+
+	@Test
+	public void testPendingMessagesSurviveARestart() throws Exception {
+		File journal = File.createTempFile("schedule", ".journal");
+		journal.delete();
+
+		try {
+			long now = System.currentTimeMillis();
+			CollectingSink sink = new CollectingSink();
+			MessageScheduler scheduler = new MessageScheduler(sink, 10, journal);
+
+			long soon = scheduler.schedule(message("soon"), now + 300);
+			long cancelled = scheduler.schedule(message("cancelled"), now + TimeUnit.DAYS.toMillis(1));
+			long tomorrow = scheduler.schedule(message("tomorrow"), now + TimeUnit.DAYS.toMillis(1));
+			scheduler.cancel(cancelled);
+			scheduler.close();
+			assertTrue(sink.messages.isEmpty());
+
+			// A record cut short by a crash is dropped
+			FileOutputStream out = new FileOutputStream(journal, true);
+			out.write(new byte[] { 0, 0, 1, 0, 1, 2 });
+			out.close();
+
+			sink = new CollectingSink();
+			scheduler = new MessageScheduler(sink, 10, journal);
+
+			try {
+				assertEquals(2, scheduler.getPending());
+				ScheduledMessage restored = scheduler.get(tomorrow);
+				assertNotNull(restored);
+				assertEquals("+61400000000", restored.getRequest().getRecipient());
+				assertEquals("Body tomorrow", restored.getRequest().getContent().get("body"));
+				assertEquals("enabled", restored.getRequest().getOptions().get("pushNotifications"));
+
+				// New IDs follow the restored ones
+				assertTrue(scheduler.schedule(message("new"), now + TimeUnit.DAYS.toMillis(2)) > tomorrow);
+
+				sink.await(1);
+				assertEquals(soon, sink.messages.get(0).getId());
+			} finally {
+				scheduler.close();
+			}
+
+			// Released and cancelled messages are gone after a restart
+			scheduler = new MessageScheduler(sink, 10, journal);
+			try {
+				assertEquals(2, scheduler.getPending());
+				assertNull(scheduler.get(soon));
+				assertNull(scheduler.get(cancelled));
+			} finally {
+				scheduler.close();
+			}
+		} finally {
+			journal.delete();
+		}
+	}
+
+	@Test
+	public void testIdsAreNotReusedAfterARestart() throws Exception {
+		File journal = File.createTempFile("schedule", ".journal");
+		journal.delete();
+
+		try {
+			long later = System.currentTimeMillis() + TimeUnit.DAYS.toMillis(1);
+			MessageScheduler scheduler = new MessageScheduler(new CollectingSink(), 10, journal);
+			assertEquals(1, scheduler.schedule(message("kept"), later));
+			assertEquals(2, scheduler.schedule(message("cancelled"), later));
+			assertTrue(scheduler.cancel(2));
+			scheduler.close();
+
+			// The second restart reads a journal without the cancelled record
+			for (int restart = 0; restart < 2; restart++) {
+				scheduler = new MessageScheduler(new CollectingSink(), 10, journal);
+
+				try {
+					assertFalse(scheduler.cancel(2));
+					assertTrue(scheduler.schedule(message("new"), later) > 2);
+				} finally {
+					scheduler.close();
+				}
+			}
+		} finally {
+			journal.delete();
+		}
+	}
+
+	@Test
+	public void testSdkSendsScheduledMessagesThroughTheDispatcher() throws Exception {
+		StubSDK sdk = new StubSDK();
+		sdk.setScheduler(new MessageScheduler(MessageScheduler.dispatchTo(sdk, Priority.NORMAL), 10, null));
+
+		try {
+			Map<String, String> content = new HashMap<String, String>();
+			content.put("body", "Reminder");
+			long now = System.currentTimeMillis();
+
+			long cancelled = sdk.scheduleMessage(now + 50, "", "+61400000001", "Cancelled", content, null);
+			sdk.scheduleMessage(now + 50, "", "+61400000000", "Reminder", content, null);
+			assertTrue(sdk.cancelScheduledMessage(cancelled));
+
+			long deadline = System.currentTimeMillis() + 5000;
+			while (sdk.getPosts() == 0 && System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+			}
+			Thread.sleep(50);
+
+			assertEquals(Collections.singletonList("+61400000000"), sdk.getRecipients());
+		} finally {
+			sdk.getScheduler().close();
+			sdk.close();
+		}
+	}
+
+	@Test
+	public void testCloseFinishesTheBatchBeingReleased() throws Exception {
+		final CountDownLatch releasing = new CountDownLatch(1);
+		final CountDownLatch gate = new CountDownLatch(1);
+		final List<ScheduledMessage> released = new CopyOnWriteArrayList<ScheduledMessage>();
+		final List<Boolean> interrupted = new CopyOnWriteArrayList<Boolean>();
+
+		final MessageScheduler scheduler = new MessageScheduler(new MessageScheduler.Sink() {
+			@Override
+			public void release(List<ScheduledMessage> batch) {
+				releasing.countDown();
+				try {
+					gate.await();
+				} catch (InterruptedException e) {
+					interrupted.add(true);
+					return;
+				}
+				released.addAll(batch);
+			}
+		}, 10, null);
+
+		scheduler.setBatchSize(2);
+		long now = System.currentTimeMillis();
+
+		// All due on the same tick
+		for (int i = 0; i < 5; i++) {
+			scheduler.schedule(message("m" + i), now + 100);
+		}
+		assertTrue(releasing.await(5, TimeUnit.SECONDS));
+
+		Thread closer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					scheduler.close();
+				} catch (Exception e) {
+					// Checked by the release count
+				}
+			}
+		});
+		closer.start();
+
+		// Waits for the sink rather than cutting it off
+		closer.join(200);
+		assertTrue(closer.isAlive());
+
+		gate.countDown();
+		closer.join(5000);
+		assertFalse(closer.isAlive());
+		assertEquals(5, released.size());
+		assertTrue(interrupted.isEmpty());
+	}
+
+	private static MessageRequest message(String subject) {
+		Map<String, String> content = new HashMap<String, String>();
+		content.put("body", "Body " + subject);
+		Map<String, String> options = new HashMap<String, String>();
+		options.put("pushNotifications", "enabled");
+		return new MessageRequest("", "+61400000000", subject, content, options);
+	}
+
+	private static class CollectingSink implements MessageScheduler.Sink {
+		final List<ScheduledMessage> messages = new CopyOnWriteArrayList<ScheduledMessage>();
+		final List<Integer> batches = new CopyOnWriteArrayList<Integer>();
+
+		@Override
+		public void release(List<ScheduledMessage> batch) {
+			batches.add(batch.size());
+			messages.addAll(batch);
+		}
+
+		void await(int count) throws InterruptedException {
+			long deadline = System.currentTimeMillis() + 5000;
+
+			while (messages.size() < count && System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+			}
+			assertEquals(count, messages.size());
+		}
+	}
+}
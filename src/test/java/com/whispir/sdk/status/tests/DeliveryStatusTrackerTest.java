@@ -0,0 +1,177 @@
+package com.whispir.sdk.status.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.whispir.sdk.WhispirResponse;
+import com.whispir.sdk.WhispirSDK;
+import com.whispir.sdk.exceptions.WhispirSDKException;
+import com.whispir.sdk.status.DeliveryStatusEvent;
+import com.whispir.sdk.status.DeliveryStatusListener;
+import com.whispir.sdk.status.DeliveryStatusTracker;
+import com.whispir.sdk.tests.StubSDK;
+
+public class DeliveryStatusTrackerTest {
+
+	@Test
+	public void testChangesAreReportedUntilSettled() throws Exception {
+		StatusSDK sdk = new StatusSDK("SENT", "SENT", "DELIVERED", "READ");
+		DeliveryStatusTracker tracker = newTracker(sdk, 2);
+		RecordingListener listener = new RecordingListener(1);
+		tracker.addListener(listener);
+
+		assertTrue(tracker.track("WS1", "M1"));
+		assertTrue(listener.ended.await(5, TimeUnit.SECONDS));
+
+		assertEquals(3, listener.events.size());
+		assertNull(listener.events.get(0).getPreviousStatus());
+		assertEquals("SENT", listener.events.get(0).getStatus());
+		assertEquals("SENT", listener.events.get(1).getPreviousStatus());
+		assertEquals("DELIVERED", listener.events.get(1).getStatus());
+		assertEquals("READ", listener.events.get(2).getStatus());
+		assertTrue(listener.settled);
+
+		assertEquals(4, sdk.polls.get());
+		assertEquals(0, tracker.getTracked());
+		tracker.close();
+	}
+
+	@Test
+	public void testDuplicateTrackingIsCoalesced() throws Exception {
+		StatusSDK sdk = new StatusSDK("READ");
+		DeliveryStatusTracker tracker = newTracker(sdk, 2);
+		RecordingListener listener = new RecordingListener(1);
+		tracker.addListener(listener);
+
+		assertTrue(tracker.track("M1"));
+		assertFalse(tracker.track("M1"));
+		assertTrue(tracker.refresh("M1"));
+		assertTrue(tracker.refresh("M1"));
+
+		assertTrue(listener.ended.await(5, TimeUnit.SECONDS));
+		Thread.sleep(100);
+
+		assertEquals(1, sdk.polls.get());
+		tracker.close();
+	}
+
+	@Test
+	public void testPollsAreBoundedByConcurrency() throws Exception {
+		StatusSDK sdk = new StatusSDK("SENT", "READ");
+		sdk.delay = 5;
+		DeliveryStatusTracker tracker = newTracker(sdk, 3);
+		RecordingListener listener = new RecordingListener(200);
+		tracker.addListener(listener);
+
+		for (int i = 0; i < 200; i++) {
+			tracker.track("M" + i);
+		}
+
+		assertTrue(listener.ended.await(10, TimeUnit.SECONDS));
+		assertEquals(400, sdk.polls.get());
+		assertTrue(sdk.getMaxConcurrent() <= 3);
+		tracker.close();
+	}
+
+	@Test
+	public void testUnchangedMessagesBackOffAndExpire() throws Exception {
+		StatusSDK sdk = new StatusSDK();
+		DeliveryStatusTracker tracker = newTracker(sdk, 1);
+		tracker.setMaxTrackingTime(300);
+		RecordingListener listener = new RecordingListener(1);
+		tracker.addListener(listener);
+
+		tracker.track("M1");
+		assertTrue(listener.ended.await(5, TimeUnit.SECONDS));
+
+		// 10, 20, 40, 80, 160 ms: polls slow down rather than repeating every 10ms
+		assertTrue(sdk.polls.get() <= 6);
+		assertFalse(listener.settled);
+		tracker.close();
+	}
+
+	private static DeliveryStatusTracker newTracker(WhispirSDK sdk, int concurrency) {
+		DeliveryStatusTracker tracker = new DeliveryStatusTracker(sdk, concurrency);
+		tracker.setInitialInterval(10);
+		tracker.setMaxInterval(1000);
+		return tracker;
+	}
+
+	/**
+	 * Answers each message's polls with the given statuses in turn, or a 404
+	 * when none are given.
+	 */
+	private static class StatusSDK extends StubSDK {
+		private final String[] statuses;
+		private final ConcurrentMap<String, AtomicInteger> calls = new ConcurrentHashMap<String, AtomicInteger>();
+		private final AtomicInteger polls = new AtomicInteger();
+		private volatile long delay;
+
+		StatusSDK(String... statuses) throws WhispirSDKException {
+			this.statuses = statuses;
+		}
+
+		@Override
+		public WhispirResponse getMessageStatus(String workspaceId, String messageId)
+				throws WhispirSDKException {
+			enter();
+			if (delay > 0) {
+				pause(delay);
+			}
+
+			polls.incrementAndGet();
+			calls.putIfAbsent(messageId, new AtomicInteger());
+			int call = calls.get(messageId).getAndIncrement();
+
+			WhispirResponse response = new WhispirResponse();
+
+			if (statuses.length == 0) {
+				response.setStatusCode(404);
+			} else {
+				Map<String, String> map = new TreeMap<String, String>();
+				map.put("61400000000", statuses[Math.min(call, statuses.length - 1)]);
+				response.setStatusCode(200);
+				response.setResponse(map);
+			}
+
+			exit();
+			return response;
+		}
+	}
+
+	private static class RecordingListener implements DeliveryStatusListener {
+		private final List<DeliveryStatusEvent> events = Collections.synchronizedList(new ArrayList<DeliveryStatusEvent>());
+		private final CountDownLatch ended;
+		private volatile boolean settled;
+
+		RecordingListener(int messages) {
+			this.ended = new CountDownLatch(messages);
+		}
+
+		@Override
+		public void onStatusChange(DeliveryStatusEvent event) {
+			events.add(event);
+		}
+
+		@Override
+		public void onTrackingEnded(String messageId, Map<String, String> statuses, boolean settled) {
+			this.settled = settled;
+			ended.countDown();
+		}
+	}
+}
@@ -0,0 +1,134 @@
+package com.whispir.sdk.suppression.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.whispir.sdk.WhispirResponse;
+import com.whispir.sdk.suppression.SuppressionFilter;
+import com.whispir.sdk.suppression.SuppressionList;
+import com.whispir.sdk.suppression.SuppressionListWriter;
+import com.whispir.sdk.tests.StubSDK;
+
+public class SuppressionListTest {
+
+	@Test
+	public void testLookupsOfNormalisedRecipients() throws Exception {
+		File file = File.createTempFile("suppression", ".bin");
+
+		try {
+			SuppressionListWriter writer = new SuppressionListWriter();
+			assertTrue(writer.add("0412 345 678"));
+			assertTrue(writer.add("+61412345678"));
+			assertTrue(writer.add("Jane.Doe@Example.com"));
+			assertFalse(writer.add("0412"));
+
+			// A large list, with every other number
+			for (long i = 0; i < 200000; i += 2) {
+				writer.add("+6140" + (1000000 + i));
+			}
+			assertEquals(1, writer.getSkipped());
+			assertEquals(100002, writer.write(file, 7));
+
+			SuppressionList list = SuppressionList.open(file);
+			assertEquals(7, list.getVersion());
+			assertEquals(100002, list.size());
+
+			SuppressionFilter filter = new SuppressionFilter(list);
+			assertTrue(filter.isSuppressed("+61 412 345 678"));
+			assertTrue(filter.isSuppressed("jane.doe@example.COM"));
+			assertFalse(filter.isSuppressed("john@example.com"));
+			assertFalse(filter.isSuppressed("0412 345 679"));
+
+			Random random = new Random(1);
+			for (int n = 0; n < 1000; n++) {
+				long i = random.nextInt(200000);
+				assertEquals(i % 2 == 0, list.contains("+6140" + (1000000 + i)));
+			}
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testReloadSwapsVersions() throws Exception {
+		File first = File.createTempFile("suppression", ".bin");
+		File second = File.createTempFile("suppression", ".bin");
+		File corrupt = File.createTempFile("suppression", ".bin");
+
+		try {
+			SuppressionListWriter writer = new SuppressionListWriter();
+			writer.add("0412345678");
+			writer.write(first, 1);
+
+			writer = new SuppressionListWriter();
+			writer.add("0498765432");
+			writer.write(second, 2);
+
+			FileOutputStream out = new FileOutputStream(corrupt);
+			out.write(new byte[] { 1, 2, 3 });
+			out.close();
+
+			SuppressionFilter filter = SuppressionFilter.open(first);
+			assertTrue(filter.isSuppressed("0412345678"));
+
+			SuppressionList previous = filter.reload(second);
+			assertEquals(1, previous.getVersion());
+			assertEquals(2, filter.getList().getVersion());
+			assertFalse(filter.isSuppressed("0412345678"));
+			assertTrue(filter.isSuppressed("0498765432"));
+
+			try {
+				filter.reload(corrupt);
+				fail("Expected the corrupt list to be refused");
+			} catch (IOException e) {
+				assertEquals(2, filter.getList().getVersion());
+			}
+		} finally {
+			first.delete();
+			second.delete();
+			corrupt.delete();
+		}
+	}
+
+	@Test
+	public void testSdkDropsSuppressedRecipients() throws Exception {
+		File file = File.createTempFile("suppression", ".bin");
+
+		try {
+			SuppressionListWriter writer = new SuppressionListWriter();
+			writer.add("0412345678");
+			writer.write(file, 1);
+
+			StubSDK sdk = new StubSDK();
+			SuppressionFilter filter = SuppressionFilter.open(file);
+			sdk.setSuppressionFilter(filter);
+
+			WhispirResponse response = sdk.sendMessage("+61412345678", "Subject", "Content");
+			assertEquals(422, response.getStatusCode());
+			assertEquals("SUPPRESSED", response.getResponse().get("reason"));
+			assertEquals(0, sdk.getPosts());
+
+			assertEquals(202, sdk.sendMessage("0412 345 678; 0498 765 432", "Subject", "Content")
+					.getStatusCode());
+			assertEquals(1, sdk.getPosts());
+			assertTrue(sdk.getLastPosted().contains("\"0498 765 432\""));
+			assertFalse(sdk.getLastPosted().contains("345"));
+			assertEquals(2, filter.getSuppressed());
+
+			String unchanged = "0498765432;jane@example.com";
+			assertSame(unchanged, filter.filter(unchanged));
+		} finally {
+			file.delete();
+		}
+	}
+}
@@ -0,0 +1,83 @@
+package com.whispir.sdk.tenants.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.whispir.sdk.WhispirEndPoints;
+import com.whispir.sdk.WhispirSDK;
+import com.whispir.sdk.exceptions.WhispirSDKException;
+import com.whispir.sdk.tenants.MultiTenantClient;
+import com.whispir.sdk.tenants.Tenant;
+
+public class MultiTenantClientTest {
+
+	@Test
+	public void testQueuedRequestsAreCancelledWhenDropped() throws Exception {
+		MultiTenantClient client = new MultiTenantClient(1);
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch gate = new CountDownLatch(1);
+
+		try {
+			client.addTenant("acme", new Tenant("apikey", "username", "password", WhispirEndPoints.AU));
+			client.addTenant("other", new Tenant("apikey", "username", "password", WhispirEndPoints.AU));
+
+			// Holds the only worker
+			Future<String> running = client.submit("acme", new MultiTenantClient.TenantTask<String>() {
+				@Override
+				public String execute(WhispirSDK sdk) throws WhispirSDKException {
+					started.countDown();
+					try {
+						gate.await();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					return "done";
+				}
+			});
+			assertTrue(started.await(5, TimeUnit.SECONDS));
+
+			Future<String> removed = client.submit("acme", value("removed"));
+			Future<String> closed = client.submit("other", value("closed"));
+
+			assertEquals(1, client.removeTenant("acme"));
+			assertCancelled(removed);
+
+			client.close();
+			assertCancelled(closed);
+
+			gate.countDown();
+			assertEquals("done", running.get(5, TimeUnit.SECONDS));
+		} finally {
+			gate.countDown();
+			client.close();
+		}
+	}
+
+	private static void assertCancelled(Future<String> future) throws Exception {
+		assertTrue(future.isCancelled());
+
+		try {
+			future.get(1, TimeUnit.SECONDS);
+			fail("Expected the request to be cancelled");
+		} catch (CancellationException e) {
+			// expected
+		}
+	}
+
+	private static MultiTenantClient.TenantTask<String> value(final String value) {
+		return new MultiTenantClient.TenantTask<String>() {
+			@Override
+			public String execute(WhispirSDK sdk) throws WhispirSDKException {
+				return value;
+			}
+		};
+	}
+}
@@ -0,0 +1,202 @@
+package com.whispir.sdk.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import com.whispir.sdk.Deadline;
+import com.whispir.sdk.WhispirResponse;
+import com.whispir.sdk.WhispirSDK;
+import com.whispir.sdk.WhispirSDKConstants;
+import com.whispir.sdk.exceptions.DeadlineExceededException;
+import com.whispir.sdk.exceptions.WhispirSDKException;
+import com.whispir.sdk.transport.HashedWheelTimer;
+
+public class DeadlineTest {
+
+	private HttpServer server;
+	private ExecutorService executor;
+	private final CountDownLatch release = new CountDownLatch(1);
+	private WhispirSDK sdk;
+
+	@Before
+	public void setUp() throws Exception {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		executor = Executors.newCachedThreadPool();
+
+		// Never answers until the test ends
+		server.createContext("/", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				try {
+					InputStream in = exchange.getRequestBody();
+					while (in.read() >= 0) {
+						// discard
+					}
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} finally {
+					exchange.close();
+				}
+			}
+		});
+		server.setExecutor(executor);
+		server.start();
+
+		sdk = new WhispirSDK("apikey", "username", "password",
+				"http://127.0.0.1:" + server.getAddress().getPort());
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		release.countDown();
+		sdk.close();
+		server.stop(0);
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testTimerRunsInOrderAndSkipsCancelled() throws Exception {
+		HashedWheelTimer timer = new HashedWheelTimer(5, 8);
+		final List<Integer> fired = new CopyOnWriteArrayList<Integer>();
+		final CountDownLatch done = new CountDownLatch(3);
+
+		for (final int delay : new int[] { 60, 20, 100 }) {
+			timer.schedule(new Runnable() {
+				@Override
+				public void run() {
+					fired.add(delay);
+					done.countDown();
+				}
+			}, delay);
+		}
+
+		HashedWheelTimer.Timeout cancelled = timer.schedule(new Runnable() {
+			@Override
+			public void run() {
+				fired.add(-1);
+			}
+		}, 40);
+		assertTrue(cancelled.cancel());
+
+		// Longer than one turn of the wheel
+		assertTrue(done.await(2, TimeUnit.SECONDS));
+		Thread.sleep(50);
+
+		assertEquals(3, fired.size());
+		assertEquals(Integer.valueOf(20), fired.get(0));
+		assertEquals(Integer.valueOf(60), fired.get(1));
+		assertEquals(Integer.valueOf(100), fired.get(2));
+		assertTrue(cancelled.isCancelled());
+		assertFalse(cancelled.isExpired());
+		assertEquals(0, timer.getPending());
+		timer.close();
+	}
+
+	@Test
+	public void testRequestTimeoutAbortsHangingRequest() throws Exception {
+		sdk.setConfig(sdk.getConfig().toBuilder().setRequestTimeout(300).build());
+
+		long start = System.nanoTime();
+
+		try {
+			sdk.get(WhispirSDKConstants.WORKSPACES_RESOURCE, "");
+			fail("Expected the deadline to pass");
+		} catch (DeadlineExceededException e) {
+			long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+			assertTrue(elapsed >= 290 && elapsed < 1000);
+		}
+	}
+
+	@Test
+	public void testSocketTimeoutFailsTheConnection() throws Exception {
+		sdk.setConfig(sdk.getConfig().toBuilder().setSocketTimeout(200).build());
+
+		long start = System.nanoTime();
+		WhispirResponse response = sdk.get(WhispirSDKConstants.WORKSPACES_RESOURCE, "");
+		long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+		assertEquals(0, response.getStatusCode());
+		assertTrue(elapsed >= 190 && elapsed < 1000);
+	}
+
+	// The scopes are only closed, as in the documented usage
+	@SuppressWarnings("try")
+	@Test
+	public void testEnteredDeadlinesNestAndEarliestWins() throws Exception {
+		Deadline outer = Deadline.after(200);
+
+		try (Deadline.Scope first = outer.enter()) {
+			assertSame(outer, Deadline.current());
+
+			// A later deadline does not extend the outer one
+			try (Deadline.Scope second = Deadline.after(60000).enter()) {
+				assertSame(outer, Deadline.current());
+
+				long start = System.nanoTime();
+
+				try {
+					sdk.get(WhispirSDKConstants.WORKSPACES_RESOURCE, "");
+					fail("Expected the deadline to pass");
+				} catch (DeadlineExceededException e) {
+					assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+				}
+			}
+			assertSame(outer, Deadline.current());
+			assertTrue(outer.isExpired());
+		}
+
+		assertTrue(Deadline.current().isNone());
+	}
+
+	@Test
+	public void testInterruptAbortsBlockedRequest() throws Exception {
+		final AtomicReference<Exception> thrown = new AtomicReference<Exception>();
+		final AtomicReference<Boolean> stillInterrupted = new AtomicReference<Boolean>();
+
+		Thread caller = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					sdk.get(WhispirSDKConstants.WORKSPACES_RESOURCE, "");
+				} catch (WhispirSDKException e) {
+					thrown.set(e);
+				}
+				stillInterrupted.set(Thread.currentThread().isInterrupted());
+			}
+		});
+		caller.start();
+
+		Thread.sleep(200);
+		long start = System.nanoTime();
+		caller.interrupt();
+		caller.join(2000);
+
+		assertFalse(caller.isAlive());
+		assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+		assertTrue(thrown.get() instanceof WhispirSDKException);
+		assertFalse(thrown.get() instanceof DeadlineExceededException);
+		assertTrue(stillInterrupted.get());
+	}
+}
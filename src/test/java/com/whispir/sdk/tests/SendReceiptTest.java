@@ -0,0 +1,116 @@
+package com.whispir.sdk.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import com.whispir.sdk.SendReceipt;
+import com.whispir.sdk.WhispirResponse;
+import com.whispir.sdk.WhispirSDK;
+
+public class SendReceiptTest {
+
+	@Test
+	public void testIdIsTakenFromTheLocation() {
+		assertEquals("ABC123", SendReceipt.idOf("https://api.whispir.com/messages/ABC123?apikey=x"));
+		assertEquals("ABC123", SendReceipt.idOf("https://api.whispir.com/workspaces/W1/messages/ABC123"));
+		assertNull(SendReceipt.idOf(null));
+
+		WhispirResponse rejected = new WhispirResponse();
+		rejected.setStatusCode(422);
+		SendReceipt receipt = SendReceipt.of(rejected);
+		assertEquals(422, receipt.getStatusCode());
+		assertNull(receipt.getMessageId());
+		assertFalse(receipt.isAccepted());
+	}
+
+	@Test
+	public void testReceiptSkipsTheBodyAndKeepsTheConnection() throws Exception {
+		final Set<String> connections = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+		HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		ExecutorService serverExecutor = Executors.newCachedThreadPool();
+
+		// A body larger than the pooled buffers, which must still be drained
+		final byte[] body = new byte[256 * 1024];
+		Arrays.fill(body, (byte) 'x');
+
+		server.createContext("/", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				try {
+					InputStream in = exchange.getRequestBody();
+					while (in.read() >= 0) {
+						// discard
+					}
+
+					connections.add(String.valueOf(exchange.getRemoteAddress()));
+					exchange.getResponseHeaders().add("Location",
+							"https://api.whispir.com/messages/M" + connections.size() + "?apikey=x");
+					exchange.getResponseHeaders().add("X-Other", "ignored");
+					exchange.sendResponseHeaders(202, body.length);
+					OutputStream out = exchange.getResponseBody();
+					out.write(body);
+					out.close();
+				} finally {
+					exchange.close();
+				}
+			}
+		});
+		server.setExecutor(serverExecutor);
+		server.start();
+
+		WhispirSDK sdk = new WhispirSDK("apikey", "username", "password",
+				"http://127.0.0.1:" + server.getAddress().getPort());
+
+		try {
+			Map<String, String> content = new HashMap<String, String>();
+			content.put("body", "Hello");
+
+			for (int i = 0; i < 5; i++) {
+				SendReceipt receipt = sdk.sendMessageForReceipt("", "+61400000000", "Subject", content,
+						new HashMap<String, String>());
+				assertTrue(receipt.isAccepted());
+				assertEquals("M1", receipt.getMessageId());
+			}
+
+			// Drained bodies leave the connection reusable
+			assertEquals(1, connections.size());
+
+			WhispirResponse lean = sdk.post("messages", "", "{}", true);
+			assertNull(lean.getRawResponse());
+			assertEquals(1, lean.getResponseHeaders().size());
+
+			// The full response is unchanged
+			WhispirResponse full = sdk.sendMessage("", "+61400000000", "Subject", content);
+			assertEquals(202, full.getStatusCode());
+			assertEquals(body.length, full.getRawResponse().length());
+			assertEquals("ignored", full.getResponseHeaders().get("X-other"));
+
+			assertEquals(422, sdk.sendMessageForReceipt("", "1", "Subject", content,
+					new HashMap<String, String>()).getStatusCode());
+		} finally {
+			sdk.close();
+			server.stop(0);
+			serverExecutor.shutdownNow();
+		}
+	}
+}
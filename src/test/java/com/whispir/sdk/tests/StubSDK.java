@@ -0,0 +1,115 @@
+package com.whispir.sdk.tests;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import com.whispir.sdk.WhispirEndPoints;
+import com.whispir.sdk.WhispirResponse;
+import com.whispir.sdk.WhispirSDK;
+import com.whispir.sdk.exceptions.WhispirSDKException;
+
+/**
+ * A WhispirSDK that answers without the network, for the tests of the classes
+ * built on it. Posts are recorded and accepted. Tests override the calls they
+ * need, and call {@link #enter()} and {@link #exit()} around them to see how
+ * many ran at once.
+ */
+public class StubSDK extends WhispirSDK {
+
+	private final List<String> posted = new CopyOnWriteArrayList<String>();
+	private final AtomicInteger concurrent = new AtomicInteger();
+	private final AtomicInteger maxConcurrent = new AtomicInteger();
+	private volatile int postStatus = 202;
+
+	public StubSDK() throws WhispirSDKException {
+		super("apikey", "username", "password", WhispirEndPoints.AU);
+	}
+
+	@Override
+	public WhispirResponse post(String resourceType, String workspaceId, String jsonContent)
+			throws WhispirSDKException {
+		posted.add(jsonContent);
+		return response(postStatus, null);
+	}
+
+	/**
+	 * @param postStatus
+	 *            - the status of the responses to posts, 202 by default
+	 */
+	public void setPostStatus(int postStatus) {
+		this.postStatus = postStatus;
+	}
+
+	/**
+	 * @return the number of posts
+	 */
+	public int getPosts() {
+		return posted.size();
+	}
+
+	/**
+	 * @return the body of the last post, or null if there were none
+	 */
+	public String getLastPosted() {
+		return posted.isEmpty() ? null : posted.get(posted.size() - 1);
+	}
+
+	/**
+	 * @return the recipient of each post, in order
+	 */
+	public List<String> getRecipients() throws JSONException {
+		List<String> recipients = new ArrayList<String>();
+
+		for (String json : posted) {
+			recipients.add(new JSONObject(json).getString("to"));
+		}
+		return recipients;
+	}
+
+	/**
+	 * @return the most calls between {@link #enter()} and {@link #exit()} at
+	 *         once
+	 */
+	public int getMaxConcurrent() {
+		return maxConcurrent.get();
+	}
+
+	protected void enter() {
+		int now = concurrent.incrementAndGet();
+
+		while (true) {
+			int max = maxConcurrent.get();
+			if (now <= max || maxConcurrent.compareAndSet(max, now)) {
+				break;
+			}
+		}
+	}
+
+	protected void exit() {
+		concurrent.decrementAndGet();
+	}
+
+	/**
+	 * Sleeps, keeping the interrupt for the caller.
+	 */
+	protected static void pause(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	public static WhispirResponse response(int statusCode, Map<String, String> map) {
+		WhispirResponse response = new WhispirResponse();
+		response.setStatusCode(statusCode);
+		response.setResponse(map);
+		return response;
+	}
+}
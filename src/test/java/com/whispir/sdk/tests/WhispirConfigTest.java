@@ -0,0 +1,216 @@
+package com.whispir.sdk.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.codec.binary.Base64;
+import org.junit.After;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import com.whispir.sdk.WhispirConfig;
+import com.whispir.sdk.WhispirResponse;
+import com.whispir.sdk.WhispirSDK;
+import com.whispir.sdk.WhispirSDKConstants;
+
+public class WhispirConfigTest {
+
+	private HttpServer server;
+	private ExecutorService executor;
+	private WhispirSDK sdk;
+
+	@After
+	public void tearDown() throws IOException {
+		if (sdk != null) {
+			sdk.close();
+		}
+		if (server != null) {
+			server.stop(0);
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testBuilderCopiesAndNormalisesValues() {
+		WhispirConfig config = WhispirConfig.builder()
+				.setApikey("key")
+				.setUsername("user")
+				.setPassword("pass")
+				.setDebugHost("sandbox.whispir.com/api")
+				.setProxy("proxy", 3128, false, "proxyUser", "proxyPass")
+				.build();
+
+		assertEquals("sandbox.whispir.com", config.getDebugHost());
+		assertTrue(config.isDebug());
+		assertTrue(config.isProxyEnabled());
+		assertEquals("proxyUser", config.getProxyCredentials().getUserPrincipal().getName());
+		assertFalse(config.toString().contains("pass"));
+
+		WhispirConfig changed = config.toBuilder().setDebugHost("").clearProxy().build();
+
+		assertEquals("key", changed.getApikey());
+		assertFalse(changed.isDebug());
+		assertFalse(changed.isProxyEnabled());
+		assertNull(changed.getProxyCredentials());
+		assertTrue(config.isDebug());
+	}
+
+	@Test
+	public void testConcurrentSettersDoNotLoseUpdates() throws Exception {
+		sdk = new WhispirSDK("key", "user", "pass", "localhost");
+		final int updates = 2000;
+		final CountDownLatch start = new CountDownLatch(1);
+
+		Thread apikeys = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				await(start);
+				for (int i = 0; i < updates; i++) {
+					sdk.setApikey("key-" + i);
+				}
+			}
+		});
+		Thread usernames = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				await(start);
+				for (int i = 0; i < updates; i++) {
+					sdk.setUsername("user-" + i);
+				}
+			}
+		});
+
+		apikeys.start();
+		usernames.start();
+		start.countDown();
+		apikeys.join();
+		usernames.join();
+
+		// Each setter only changes its own value, whatever the interleaving
+		assertEquals("key-" + (updates - 1), sdk.getConfig().getApikey());
+		assertEquals("user-" + (updates - 1), sdk.getConfig().getUsername());
+	}
+
+	@Test
+	public void testRequestsNeverMixRotatedCredentials() throws Exception {
+		final AtomicInteger mismatched = new AtomicInteger();
+		final AtomicInteger received = new AtomicInteger();
+		startServer(mismatched, received);
+
+		sdk = new WhispirSDK("key-0", "user-0", "pass-0",
+				"http://127.0.0.1:" + server.getAddress().getPort());
+
+		final int senders = 8;
+		final int requestsPerSender = 50;
+		final AtomicInteger failed = new AtomicInteger();
+		final CountDownLatch done = new CountDownLatch(senders);
+		ExecutorService pool = Executors.newFixedThreadPool(senders);
+
+		for (int i = 0; i < senders; i++) {
+			pool.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						for (int j = 0; j < requestsPerSender; j++) {
+							WhispirResponse response = sdk.get(WhispirSDKConstants.MESSAGES_RESOURCE, "");
+							if (response.getStatusCode() != 200) {
+								failed.incrementAndGet();
+							}
+						}
+					} catch (Exception e) {
+						failed.incrementAndGet();
+					} finally {
+						done.countDown();
+					}
+				}
+			});
+		}
+
+		// Rotate the whole set of credentials while the senders are running
+		int rotations = 0;
+		while (done.getCount() > 0) {
+			rotations++;
+			sdk.setConfig(sdk.getConfig().toBuilder()
+					.setApikey("key-" + rotations)
+					.setUsername("user-" + rotations)
+					.setPassword("pass-" + rotations)
+					.build());
+			Thread.sleep(1);
+		}
+
+		assertTrue(done.await(30, TimeUnit.SECONDS));
+		pool.shutdown();
+
+		assertEquals(0, failed.get());
+		assertEquals(senders * requestsPerSender, received.get());
+		assertEquals(0, mismatched.get());
+		assertTrue(rotations > 1);
+	}
+
+	private void startServer(final AtomicInteger mismatched, final AtomicInteger received)
+			throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		executor = Executors.newFixedThreadPool(4);
+
+		server.createContext("/", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				try {
+					InputStream in = exchange.getRequestBody();
+					while (in.read() >= 0) {
+						// discard
+					}
+
+					received.incrementAndGet();
+
+					// The apikey header, apikey parameter and basic credentials
+					// must all come from the same rotation
+					String headerKey = exchange.getRequestHeaders().getFirst("x-api-key");
+					String query = exchange.getRequestURI().getQuery();
+					String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+					String basic = authorization == null ? "" : new String(
+							Base64.decodeBase64(authorization.substring("Basic ".length())), "UTF-8");
+
+					String rotation = headerKey.substring("key-".length());
+
+					if (!query.equals("apikey=key-" + rotation)
+							|| !basic.equals("user-" + rotation + ":pass-" + rotation)) {
+						mismatched.incrementAndGet();
+					}
+
+					byte[] body = "{}".getBytes("UTF-8");
+					exchange.sendResponseHeaders(200, body.length);
+					OutputStream out = exchange.getResponseBody();
+					out.write(body);
+					out.close();
+				} finally {
+					exchange.close();
+				}
+			}
+		});
+		server.setExecutor(executor);
+		server.start();
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,120 @@
+package com.whispir.sdk.transport.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.junit.Test;
+
+import com.whispir.sdk.transport.BufferPool;
+import com.whispir.sdk.transport.PooledEntity;
+import com.whispir.sdk.transport.WhispirTransport;
+
+public class BufferPoolTest {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	@Test
+	public void testReleasedBuffersAreReusedUpToTheLimit() {
+		BufferPool pool = new BufferPool(16, 2);
+
+		byte[] first = pool.acquire();
+		assertSame(first, reacquire(pool, first));
+		pool.release(first);
+
+		byte[] a = pool.acquire();
+		byte[] b = pool.acquire();
+		byte[] c = pool.acquire();
+		pool.release(a);
+		pool.release(b);
+		pool.release(c);
+
+		assertEquals(2, pool.getPooled());
+		assertEquals(3, pool.getAllocated());
+
+		// Arrays of another size are not kept
+		pool.release(new byte[32]);
+		assertEquals(2, pool.getPooled());
+	}
+
+	@Test
+	public void testLeakDetectionReportsUnreleasedAndDoubleReleasedBuffers() {
+		BufferPool pool = new BufferPool(16, 2);
+		pool.setLeakDetection(true);
+
+		byte[] leaked = pool.acquire();
+		byte[] released = pool.acquire();
+		pool.release(released);
+
+		assertEquals(1, pool.getLeaks().size());
+
+		try {
+			pool.release(released);
+			fail("A double release should fail");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+
+		pool.release(leaked);
+		assertTrue(pool.getLeaks().isEmpty());
+	}
+
+	@Test
+	public void testBuffersAcquiredBeforeLeakDetectionAreReleased() {
+		BufferPool pool = new BufferPool(16, 2);
+		byte[] before = pool.acquire();
+		pool.setLeakDetection(true);
+
+		pool.release(before);
+		assertEquals(1, pool.getPooled());
+
+		try {
+			pool.release(before);
+			fail("A double release should fail");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testBodiesLargerThanABufferRoundTrip() throws IOException {
+		WhispirTransport transport = new WhispirTransport();
+
+		try {
+			StringBuilder content = new StringBuilder();
+
+			while (content.length() < BufferPool.DEFAULT_BUFFER_SIZE * 3) {
+				content.append("{\"body\":\"Gr\u00fc\u00dfe from Whispir\"}");
+			}
+
+			for (String text : new String[] { "{\"body\":\"short\"}", content.toString() }) {
+				PooledEntity entity = transport.createEntity(text, UTF8);
+				assertTrue(entity.isRepeatable());
+
+				ByteArrayOutputStream sent = new ByteArrayOutputStream();
+				entity.writeTo(sent);
+				entity.release();
+				assertEquals(text, new String(sent.toByteArray(), UTF8));
+
+				ByteArrayEntity response = new ByteArrayEntity(sent.toByteArray(), ContentType.APPLICATION_JSON);
+				assertEquals(text, transport.readString(response));
+			}
+
+			assertTrue(transport.getBufferPool().getPooled() > 0);
+		} finally {
+			transport.close();
+		}
+	}
+
+	private static byte[] reacquire(BufferPool pool, byte[] buffer) {
+		pool.release(buffer);
+		return pool.acquire();
+	}
+}